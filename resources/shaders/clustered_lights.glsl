@@ -0,0 +1,12 @@
+// Clusters de ClusteredLighting : le fragment ne parcourt que les lumières de son cluster.
+// Nécessite frame_data.glsl
+
+uniform usamplerBuffer clusterGrid;   // Premier index dans clusterLights, nombre de lumières
+uniform usamplerBuffer clusterLights; // Index des lumières, cluster après cluster
+
+// Cluster du fragment, position en espace vue
+int clusterIndex(vec3 position) {
+    ivec2 tile = clamp(ivec2(gl_FragCoord.xy * clusterScale.xy), ivec2(0), clusterDims.xy - 1);
+    int slice = clamp(int(log(max(-position.z, 1e-4)) * clusterScale.z + clusterScale.w), 0, clusterDims.z - 1);
+    return (slice * clusterDims.y + tile.y) * clusterDims.x + tile.x;
+}
@@ -0,0 +1,22 @@
+#version 330
+
+// Lumière ambiante et directionnelle de chaque pixel du G-buffer, écrite dans l'accumulation
+
+out vec4 fragColor;
+
+#include "frame_data.glsl"
+#include "lighting.glsl"
+#include "gbuffer_data.glsl"
+
+void main() {
+    ivec2 pixel = ivec2(gl_FragCoord.xy);
+    vec3 position;
+    if (!readPosition(pixel, position)) {
+        discard;
+    }
+    vec4 diffuse = texelFetch(gDiffuse, pixel, 0);
+    vec4 specular = texelFetch(gSpecular, pixel, 0);
+    vec3 normal = texelFetch(gNormal, pixel, 0).xyz;
+    vec4 ambient = calcAmbient(texelFetch(gAmbient, pixel, 0));
+    fragColor = ambient + calcDirLight(diffuse, vec4(specular.rgb, 1.0), specular.a, position, normal);
+}
@@ -0,0 +1,25 @@
+#version 330
+
+// Composition du rendu différé : éclairage accumulé, brouillard, écriture dans l'image finale.
+// Les pixels sans géométrie gardent la skybox
+
+out vec4 fragColor;
+
+#include "frame_data.glsl"
+#include "lighting.glsl"
+#include "gbuffer_data.glsl"
+
+uniform sampler2D lightAccumulation;
+
+void main() {
+    ivec2 pixel = ivec2(gl_FragCoord.xy);
+    vec3 position;
+    if (!readPosition(pixel, position)) {
+        discard;
+    }
+    vec4 color = vec4(texelFetch(lightAccumulation, pixel, 0).rgb, 1.0);
+    if (lightCounts.z == 1) {
+        color = calcFog(position, color);
+    }
+    fragColor = color;
+}
@@ -0,0 +1,23 @@
+#version 330
+
+// Contribution d'une lumière aux pixels couverts par son volume, ajoutée à l'accumulation
+
+flat in int outLight;
+
+out vec4 fragColor;
+
+#include "frame_data.glsl"
+#include "lighting.glsl"
+#include "gbuffer_data.glsl"
+
+void main() {
+    ivec2 pixel = ivec2(gl_FragCoord.xy);
+    vec3 position;
+    if (!readPosition(pixel, position)) {
+        discard;
+    }
+    vec4 diffuse = texelFetch(gDiffuse, pixel, 0);
+    vec4 specular = texelFetch(gSpecular, pixel, 0);
+    vec3 normal = texelFetch(gNormal, pixel, 0).xyz;
+    fragColor = calcPointOrSpotLight(diffuse, vec4(specular.rgb, 1.0), specular.a, outLight, position, normal);
+}
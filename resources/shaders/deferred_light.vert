@@ -0,0 +1,20 @@
+#version 330
+
+// Volume d'une lumière ponctuelle ou spot : sphère unité mise à la portée de la lumière d'index gl_InstanceID
+
+layout (location=0) in vec3 position;
+
+flat out int outLight;
+
+#include "frame_data.glsl"
+
+uniform samplerBuffer lightData;
+uniform float volumeScale; // La sphère à facettes est inscrite dans la vraie sphère
+
+void main()
+{
+    vec4 lightPosition = texelFetch(lightData, gl_InstanceID * 4);
+    float range = texelFetch(lightData, gl_InstanceID * 4 + 2).w;
+    gl_Position = projectionMatrix * vec4(lightPosition.xyz + position * range * volumeScale, 1.0);
+    outLight = gl_InstanceID;
+}
@@ -0,0 +1,16 @@
+// Données par frame (FrameUniforms), bloc std140 partagé par tous les shaders de la scène
+
+layout (std140) uniform FrameData
+{
+    mat4 projectionMatrix;
+    mat4 viewMatrix;
+    vec4 cameraPosition;    // xyz
+    vec4 ambientLight;      // rgb couleur, w facteur
+    vec4 dirLightColor;     // rgb couleur, w intensité
+    vec4 dirLightDirection; // xyz en espace vue
+    vec4 fog;               // rgb couleur, w densité
+    ivec4 lightCounts;      // x lumières des clusters, z brouillard actif
+    vec4 clusterScale;      // xy tuiles par pixel, z échelle et w biais de la tranche (log de la profondeur)
+    ivec4 clusterDims;      // xyz nombre de clusters par axe
+    mat4 invProjectionMatrix;
+};
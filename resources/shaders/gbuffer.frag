@@ -0,0 +1,24 @@
+#version 330
+
+// Passe géométrie du rendu différé : matériau et normale du fragment visible, l'éclairage vient après
+
+in vec3 outPosition;
+in vec3 outNormal;
+in vec2 outTextCoord;
+
+layout (location=0) out vec4 gDiffuse;
+layout (location=1) out vec4 gSpecular; // rgb, a réflectance
+layout (location=2) out vec4 gAmbient;
+layout (location=3) out vec4 gNormal;   // xyz en espace vue
+
+#include "material_data.glsl"
+
+uniform sampler2D txtSampler;
+
+void main() {
+    vec4 text_color = texture(txtSampler, outTextCoord);
+    gDiffuse = text_color + material.diffuse;
+    gSpecular = vec4((text_color + material.specular).rgb, material.reflectance);
+    gAmbient = text_color + material.ambient;
+    gNormal = vec4(normalize(outNormal), 0.0);
+}
@@ -0,0 +1,19 @@
+// Lecture du G-buffer (GBuffer) au pixel courant. Nécessite frame_data.glsl
+
+uniform sampler2D gDiffuse;
+uniform sampler2D gSpecular;
+uniform sampler2D gAmbient;
+uniform sampler2D gNormal;
+uniform sampler2D gDepth;
+
+// Position en espace vue reconstruite depuis la profondeur. Retourne false pour un pixel sans géométrie
+bool readPosition(ivec2 pixel, out vec3 position) {
+    float depth = texelFetch(gDepth, pixel, 0).r;
+    if (depth >= 1.0) {
+        return false;
+    }
+    vec2 ndc = (vec2(pixel) + 0.5) / vec2(textureSize(gDepth, 0)) * 2.0 - 1.0;
+    vec4 view = invProjectionMatrix * vec4(ndc, depth * 2.0 - 1.0, 1.0);
+    position = view.xyz / view.w;
+    return true;
+}
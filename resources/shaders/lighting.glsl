@@ -0,0 +1,71 @@
+// Calculs d'éclairage communs au rendu direct (scene.frag) et au rendu différé (deferred_*.frag).
+// Positions et normales en espace vue. Nécessite frame_data.glsl
+
+const float SPECULAR_POWER = 10;
+
+uniform samplerBuffer lightData; // Lumières de ClusteredLighting, 4 texels par lumière
+
+vec4 calcAmbient(vec4 ambient) {
+    return vec4(ambientLight.w * ambientLight.rgb, 1) * ambient;
+}
+
+vec4 calcLightColor(vec4 diffuse, vec4 specular, float reflectance, vec3 lightColor, float light_intensity, vec3 position, vec3 to_light_dir, vec3 normal) {
+    vec4 diffuseColor = vec4(0, 0, 0, 1);
+    vec4 specColor = vec4(0, 0, 0, 1);
+
+    // Diffuse Light
+    float diffuseFactor = max(dot(normal, to_light_dir), 0.0);
+    diffuseColor = diffuse * vec4(lightColor, 1.0) * light_intensity * diffuseFactor;
+
+    // Specular Light
+    vec3 camera_direction = normalize(-position);
+    vec3 from_light_dir = -to_light_dir;
+    vec3 reflected_light = normalize(reflect(from_light_dir, normal));
+    float specularFactor = max(dot(camera_direction, reflected_light), 0.0);
+    specularFactor = pow(specularFactor, SPECULAR_POWER);
+    specColor = specular * light_intensity  * specularFactor * reflectance * vec4(lightColor, 1.0);
+
+    return (diffuseColor + specColor);
+}
+
+// light : index de la lumière dans lightData
+vec4 calcPointOrSpotLight(vec4 diffuse, vec4 specular, float reflectance, int light, vec3 position, vec3 normal) {
+    vec4 lightPosition = texelFetch(lightData, light * 4);     // xyz position, w intensité
+    vec4 lightColor = texelFetch(lightData, light * 4 + 1);    // rgb couleur
+    vec4 attenuation = texelFetch(lightData, light * 4 + 2);   // constante, linéaire, exposant, portée
+    vec4 coneDir = texelFetch(lightData, light * 4 + 3);       // xyz direction du cône, w cutoff (< -1 : ponctuelle)
+
+    vec3 light_direction = lightPosition.xyz - position;
+    float distance = length(light_direction);
+    if (distance > attenuation.w) {
+        return vec4(0, 0, 0, 0);
+    }
+    vec3 to_light_dir  = light_direction / distance;
+    float spotFactor = 1.0;
+    if (coneDir.w > -1.0) {
+        float spot_alfa = dot(-to_light_dir, normalize(coneDir.xyz));
+        if (spot_alfa <= coneDir.w) {
+            return vec4(0, 0, 0, 0);
+        }
+        spotFactor = 1.0 - (1.0 - spot_alfa)/(1.0 - coneDir.w);
+    }
+    vec4 light_color = calcLightColor(diffuse, specular, reflectance, lightColor.rgb, lightPosition.w, position, to_light_dir, normal);
+
+    // Apply Attenuation
+    float attenuationInv = attenuation.x + attenuation.y * distance + attenuation.z * distance * distance;
+    return light_color * spotFactor / attenuationInv;
+}
+
+vec4 calcDirLight(vec4 diffuse, vec4 specular, float reflectance, vec3 position, vec3 normal) {
+    return calcLightColor(diffuse, specular, reflectance, dirLightColor.rgb, dirLightColor.w, position, normalize(dirLightDirection.xyz), normal);
+}
+
+vec4 calcFog(vec3 pos, vec4 color) {
+    vec3 fogColor = fog.rgb * (ambientLight.rgb + dirLightColor.rgb * dirLightColor.w);
+    float distance = length(pos);
+    float fogFactor = 1.0 / exp((distance * fog.w) * (distance * fog.w));
+    fogFactor = clamp(fogFactor, 0.0, 1.0);
+
+    vec3 resultColor = mix(fogColor, color.xyz, fogFactor);
+    return vec4(resultColor.xyz, color.w);
+}
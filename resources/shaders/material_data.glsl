@@ -0,0 +1,9 @@
+// Matériau courant (MaterialUniforms), bloc std140 lié par plage à chaque changement de matériau
+
+layout (std140) uniform MaterialData
+{
+    vec4 ambient;
+    vec4 diffuse;
+    vec4 specular;
+    float reflectance;
+} material;
@@ -1,153 +1,36 @@
 #version 330
 
-const int MAX_POINT_LIGHTS = 5;
-const int MAX_SPOT_LIGHTS = 5;
-const float SPECULAR_POWER = 10;
-
 in vec3 outPosition;
 in vec3 outNormal;
 in vec2 outTextCoord;
 
 out vec4 fragColor;
 
-struct Attenuation
-{
-    float constant;
-    float linear;
-    float exponent;
-};
-struct Material
-{
-    vec4 ambient;
-    vec4 diffuse;
-    vec4 specular;
-    float reflectance;
-};
-struct AmbientLight
-{
-    float factor;
-    vec3 color;
-};
-struct PointLight {
-    vec3 position;
-    vec3 color;
-    float intensity;
-    Attenuation att;
-};
-struct SpotLight
-{
-    PointLight pl;
-    vec3 conedir;
-    float cutoff;
-};
-struct DirLight
-{
-    vec3 color;
-    vec3 direction;
-    float intensity;
-};
-struct Fog
-{
-    int activeFog;
-    vec3 color;
-    float density;
-};
+#include "frame_data.glsl"
+#include "material_data.glsl"
+#include "lighting.glsl"
+#include "clustered_lights.glsl"
 
 uniform sampler2D txtSampler;
-uniform Material material;
-uniform AmbientLight ambientLight;
-uniform PointLight pointLights[MAX_POINT_LIGHTS];
-uniform SpotLight spotLights[MAX_SPOT_LIGHTS];
-uniform DirLight dirLight;
-uniform Fog fog;
-
-vec4 calcAmbient(AmbientLight ambientLight, vec4 ambient) {
-    return vec4(ambientLight.factor * ambientLight.color, 1) * ambient;
-}
-
-vec4 calcLightColor(vec4 diffuse, vec4 specular, vec3 lightColor, float light_intensity, vec3 position, vec3 to_light_dir, vec3 normal) {
-    vec4 diffuseColor = vec4(0, 0, 0, 1);
-    vec4 specColor = vec4(0, 0, 0, 1);
-
-    // Diffuse Light
-    float diffuseFactor = max(dot(normal, to_light_dir), 0.0);
-    diffuseColor = diffuse * vec4(lightColor, 1.0) * light_intensity * diffuseFactor;
-
-    // Specular Light
-    vec3 camera_direction = normalize(-position);
-    vec3 from_light_dir = -to_light_dir;
-    vec3 reflected_light = normalize(reflect(from_light_dir, normal));
-    float specularFactor = max(dot(camera_direction, reflected_light), 0.0);
-    specularFactor = pow(specularFactor, SPECULAR_POWER);
-    specColor = specular * light_intensity  * specularFactor * material.reflectance * vec4(lightColor, 1.0);
-
-    return (diffuseColor + specColor);
-}
-
-vec4 calcPointLight(vec4 diffuse, vec4 specular, PointLight light, vec3 position, vec3 normal) {
-    vec3 light_direction = light.position - position;
-    vec3 to_light_dir  = normalize(light_direction);
-    vec4 light_color = calcLightColor(diffuse, specular, light.color, light.intensity, position, to_light_dir, normal);
-
-    // Apply Attenuation
-    float distance = length(light_direction);
-    float attenuationInv = light.att.constant + light.att.linear * distance +
-    light.att.exponent * distance * distance;
-    return light_color / attenuationInv;
-}
-
-vec4 calcSpotLight(vec4 diffuse, vec4 specular, SpotLight light, vec3 position, vec3 normal) {
-    vec3 light_direction = light.pl.position - position;
-    vec3 to_light_dir  = normalize(light_direction);
-    vec3 from_light_dir  = -to_light_dir;
-    float spot_alfa = dot(from_light_dir, normalize(light.conedir));
-
-    vec4 color = vec4(0, 0, 0, 0);
-
-    if (spot_alfa > light.cutoff)
-    {
-        color = calcPointLight(diffuse, specular, light.pl, position, normal);
-        color *= (1.0 - (1.0 - spot_alfa)/(1.0 - light.cutoff));
-    }
-    return color;
-}
-
-vec4 calcDirLight(vec4 diffuse, vec4 specular, DirLight light, vec3 position, vec3 normal) {
-    return calcLightColor(diffuse, specular, light.color, light.intensity, position, normalize(light.direction), normal);
-}
-
-vec4 calcFog(vec3 pos, vec4 color, Fog fog, vec3 ambientLight, DirLight dirLight) {
-    vec3 fogColor = fog.color * (ambientLight + dirLight.color * dirLight.intensity);
-    float distance = length(pos);
-    float fogFactor = 1.0 / exp((distance * fog.density) * (distance * fog.density));
-    fogFactor = clamp(fogFactor, 0.0, 1.0);
-
-    vec3 resultColor = mix(fogColor, color.xyz, fogFactor);
-    return vec4(resultColor.xyz, color.w);
-}
 
 void main() {
     vec4 text_color = texture(txtSampler, outTextCoord);
-    vec4 ambient = calcAmbient(ambientLight, text_color + material.ambient);
+    vec4 ambient = calcAmbient(text_color + material.ambient);
     vec4 diffuse = text_color + material.diffuse;
     vec4 specular = text_color + material.specular;
 
-    vec4 diffuseSpecularComp = calcDirLight(diffuse, specular, dirLight, outPosition, outNormal);
-
-    for (int i=0; i<MAX_POINT_LIGHTS; i++) {
-        if (pointLights[i].intensity > 0) {
-            diffuseSpecularComp += calcPointLight(diffuse, specular, pointLights[i], outPosition, outNormal);
-        }
-    }
+    vec4 diffuseSpecularComp = calcDirLight(diffuse, specular, material.reflectance, outPosition, outNormal);
 
-    for (int i=0; i<MAX_SPOT_LIGHTS; i++) {
-        if (spotLights[i].pl.intensity > 0) {
-            diffuseSpecularComp += calcSpotLight(diffuse, specular, spotLights[i], outPosition, outNormal);
+    if (lightCounts.x > 0) {
+        uvec2 cluster = texelFetch(clusterGrid, clusterIndex(outPosition)).xy;
+        for (uint i = 0u; i < cluster.y; i++) {
+            int light = int(texelFetch(clusterLights, int(cluster.x + i)).x);
+            diffuseSpecularComp += calcPointOrSpotLight(diffuse, specular, material.reflectance, light, outPosition, outNormal);
         }
     }
     fragColor = ambient + diffuseSpecularComp;
 
-    if (fog.activeFog == 1) {
-        fragColor = calcFog(outPosition, fragColor, fog, ambientLight.color, dirLight);
+    if (lightCounts.z == 1) {
+        fragColor = calcFog(outPosition, fragColor);
     }
 }
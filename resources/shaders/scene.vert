@@ -3,14 +3,14 @@
 layout (location=0) in vec3 position;
 layout (location=1) in vec3 normal;
 layout (location=2) in vec2 texCoord;
+layout (location=3) in mat4 modelMatrix; // Par instance (InstanceBuffer), occupe les emplacements 3 à 6
 
 out vec3 outPosition;
 out vec3 outNormal;
 out vec2 outTextCoord;
 
-uniform mat4 projectionMatrix;
-uniform mat4 viewMatrix;
-uniform mat4 modelMatrix;
+#include "frame_data.glsl"
+
 
 void main()
 {
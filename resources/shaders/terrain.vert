@@ -0,0 +1,52 @@
+#version 330
+
+// Terrain CDLOD : une grille partagée, déplacée et mise à l'échelle par nœud, hauteur lue dans la heightmap
+
+layout (location=0) in vec2 gridPosition;
+
+out vec3 outPosition;
+out vec3 outNormal;
+out vec2 outTextCoord;
+
+#include "frame_data.glsl"
+
+uniform sampler2D heightMap;
+uniform vec2 heightMapOrigin;
+uniform vec2 heightMapSize;
+uniform float terrainScale;
+uniform float textureRepeat;
+uniform vec2 nodeOffset;
+uniform float nodeScale;
+uniform vec2 morphConsts;
+
+float sampleHeight(vec2 worldXZ)
+{
+    vec2 texel = (worldXZ - heightMapOrigin) / terrainScale;
+    return textureLod(heightMap, (texel + 0.5) / heightMapSize, 0.0).r;
+}
+
+void main()
+{
+    vec2 worldXZ = nodeOffset + gridPosition * nodeScale;
+    float height = sampleHeight(worldXZ);
+
+    // Transition continue vers la grille du niveau parent (deux fois moins dense) à l'approche de la portée
+    float dist = distance(cameraPosition.xyz, vec3(worldXZ.x, height, worldXZ.y));
+    float morphK = 1.0 - clamp(morphConsts.x - dist * morphConsts.y, 0.0, 1.0);
+    vec2 fracPart = fract(gridPosition * 0.5) * 2.0;
+    worldXZ = nodeOffset + (gridPosition - fracPart * morphK) * nodeScale;
+    height = sampleHeight(worldXZ);
+
+    // Différences centrales, comme TerrainGenerator
+    float hL = sampleHeight(worldXZ - vec2(terrainScale, 0.0));
+    float hR = sampleHeight(worldXZ + vec2(terrainScale, 0.0));
+    float hD = sampleHeight(worldXZ - vec2(0.0, terrainScale));
+    float hU = sampleHeight(worldXZ + vec2(0.0, terrainScale));
+    vec3 normal = normalize(vec3(hL - hR, 2.0 * terrainScale, hD - hU));
+
+    vec4 mvPosition = viewMatrix * vec4(worldXZ.x, height, worldXZ.y, 1.0);
+    gl_Position = projectionMatrix * mvPosition;
+    outPosition = mvPosition.xyz;
+    outNormal = normalize(viewMatrix * vec4(normal, 0.0)).xyz;
+    outTextCoord = worldXZ / terrainScale * textureRepeat;
+}
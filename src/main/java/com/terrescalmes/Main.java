@@ -6,5 +6,8 @@ public class Main {
     public static void main(String[] args) {
         GameEngine gameEngine = new GameEngine();
         gameEngine.run();
+        if (gameEngine.isAllocationGateFailed()) {
+            System.exit(1);
+        }
     }
 }
@@ -0,0 +1,90 @@
+package com.terrescalmes.core;
+
+import java.lang.management.ManagementFactory;
+
+// Octets alloués sur le tas par le thread qui appelle beginFrame/endFrame (com.sun.management.ThreadMXBean).
+// Les frames sont cumulées jusqu'au prochain resetWindow ; les warmupFrames premières sont ignorées
+// (compilation JIT, premiers chargements). Sans support de la JVM, toutes les mesures valent -1
+public class AllocationMonitor {
+
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final int warmupFrames;
+
+    private long frameStart;
+    private long lastFrameBytes;
+    private long maxFrameBytes;
+    private int measuredFrames;
+    private int seenFrames;
+    private long windowBytes;
+    private int windowFrames;
+
+    public AllocationMonitor(int warmupFrames) {
+        this.warmupFrames = warmupFrames;
+        com.sun.management.ThreadMXBean bean = null;
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean sunBean
+                && sunBean.isThreadAllocatedMemorySupported()) {
+            sunBean.setThreadAllocatedMemoryEnabled(true);
+            bean = sunBean;
+        }
+        threadBean = bean;
+        lastFrameBytes = -1;
+        maxFrameBytes = -1;
+    }
+
+    public boolean isSupported() {
+        return threadBean != null;
+    }
+
+    public void beginFrame() {
+        if (threadBean != null) {
+            frameStart = threadBean.getCurrentThreadAllocatedBytes();
+        }
+    }
+
+    public void endFrame() {
+        if (threadBean == null) {
+            return;
+        }
+        long bytes = threadBean.getCurrentThreadAllocatedBytes() - frameStart;
+        if (seenFrames < warmupFrames) {
+            seenFrames++;
+            return;
+        }
+        lastFrameBytes = bytes;
+        maxFrameBytes = Math.max(maxFrameBytes, bytes);
+        windowBytes += bytes;
+        windowFrames++;
+        measuredFrames++;
+    }
+
+    public boolean isWarmedUp() {
+        return threadBean != null && seenFrames >= warmupFrames;
+    }
+
+    // Moyenne par frame depuis le dernier resetWindow, -1 si aucune frame mesurée
+    public long getWindowAverageBytes() {
+        return windowFrames == 0 ? -1 : windowBytes / windowFrames;
+    }
+
+    public int getWindowFrames() {
+        return windowFrames;
+    }
+
+    public void resetWindow() {
+        windowBytes = 0;
+        windowFrames = 0;
+    }
+
+    public long getLastFrameBytes() {
+        return lastFrameBytes;
+    }
+
+    // Pire frame depuis la fin du préchauffage
+    public long getMaxFrameBytes() {
+        return maxFrameBytes;
+    }
+
+    public int getMeasuredFrames() {
+        return measuredFrames;
+    }
+}
@@ -5,26 +5,36 @@ import com.terrescalmes.Window;
 import com.terrescalmes.Window.WindowOptions;
 import com.terrescalmes.core.graphics.Render;
 import com.terrescalmes.core.graphics.Scene;
+import com.terrescalmes.core.graphics.UniformsMap;
 import com.terrescalmes.core.graphics.SkyBox;
-import com.terrescalmes.core.TerrainGenerator;
+import com.terrescalmes.core.terrain.CdlodTerrain;
+import com.terrescalmes.core.terrain.ChunkManager;
+import com.terrescalmes.core.terrain.ChunkStore;
+import com.terrescalmes.core.terrain.TerrainQuery;
+import com.terrescalmes.core.terrain.noise.NoiseSources;
 import com.terrescalmes.core.graphics.GUI.IGuiInstance;
 import com.terrescalmes.core.graphics.GUI.LightControls;
 import com.terrescalmes.core.graphics.lights.AmbientLight;
 import com.terrescalmes.core.graphics.lights.DirLight;
+import com.terrescalmes.core.graphics.lights.PointLight;
 import com.terrescalmes.core.graphics.lights.SceneLights;
 import com.terrescalmes.core.graphics.Camera;
 import com.terrescalmes.core.graphics.Fog;
-import com.terrescalmes.core.graphics.Model;
+import com.terrescalmes.core.graphics.MeshPool;
 import com.terrescalmes.core.graphics.ModelLoader;
-import com.terrescalmes.entities.Entity;
 import com.terrescalmes.entities.Player;
 
 import imgui.ImGui;
 import imgui.ImGuiIO;
 import imgui.flag.ImGuiCond;
+import imgui.flag.ImGuiWindowFlags;
 
 import static org.lwjgl.glfw.GLFW.*;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
@@ -38,6 +48,27 @@ public class GameEngine implements IGuiInstance {
     private static final int DEFAULT_HEIGHT = 720;
     private static final float MOUSE_SENSITIVITY = 0.1f;
     private static final float MOVEMENT_SPEED = 0.01f;
+    private static final float EYE_HEIGHT = 1.8f; // Hauteur de la caméra au-dessus du sol en mode marche
+    private static final float MIN_GROUND_CLEARANCE = 0.5f; // La caméra ne passe jamais sous le terrain
+    // -Dterrescalmes.terrain.mode=cdlod remplace le streaming de chunks par le terrain CDLOD,
+    // =displaced garde les chunks mais n'envoie que leurs hauteurs au GPU
+    private static final String TERRAIN_MODE = System.getProperty("terrescalmes.terrain.mode", "chunks");
+    // -Dterrescalmes.store.dir=<dossier> (vide pour désactiver), -Dterrescalmes.store.compress=true
+    private static final String STORE_DIR = System.getProperty("terrescalmes.store.dir", "saves/terrain");
+    private static final int CDLOD_TERRAIN_SIZE = 4097; // Sommets par côté, environ 8 km de terrain
+    // -Dterrescalmes.alloc.limit=<octets> : la boucle s'arrête en erreur si une seconde de frames alloue en
+    // moyenne plus que la limite par frame (caméra immobile, hors streaming). -Dterrescalmes.alloc.frames=<n>
+    // arrête la boucle après n frames mesurées, pour une exécution bornée
+    private static final long ALLOC_LIMIT = Long.getLong("terrescalmes.alloc.limit", -1);
+    private static final int ALLOC_FRAMES = Integer.getInteger("terrescalmes.alloc.frames", -1);
+    private static final int ALLOC_WARMUP_FRAMES = 300;
+    // -Dterrescalmes.debug.lights=<n> : n lumières ponctuelles colorées qui tournent au-dessus du sol
+    private static final int DEBUG_LIGHTS = Integer.getInteger("terrescalmes.debug.lights", 0);
+    private static final float DEBUG_LIGHTS_RADIUS = 150.0f;
+    private static final float DEBUG_LIGHTS_HEIGHT = 3.0f;
+    // Overlay de statistiques : ne prend ni la souris ni le clavier
+    private static final int OVERLAY_FLAGS = ImGuiWindowFlags.NoDecoration | ImGuiWindowFlags.AlwaysAutoResize
+            | ImGuiWindowFlags.NoInputs | ImGuiWindowFlags.NoSavedSettings | ImGuiWindowFlags.NoFocusOnAppearing;
 
     private Window window;
     private Render render;
@@ -49,6 +80,12 @@ public class GameEngine implements IGuiInstance {
     private double fpsTimer = 0.0;
     private int fpsCounter = 0;
     private int upsCounter = 0;
+    private final AllocationMonitor allocationMonitor = new AllocationMonitor(ALLOC_WARMUP_FRAMES);
+    private boolean allocationGateFailed;
+    private final StringBuilder title = new StringBuilder(256);
+    private final StringBuilder overlay = new StringBuilder(128);
+    private String overlayRender = "";
+    private String overlayCulling = "";
 
     // Player state
     private Player player;
@@ -57,9 +94,16 @@ public class GameEngine implements IGuiInstance {
 
     private boolean running;
 
-    // Terrain debug
-    private Entity singleTerrainEntity;
+    // Terrain
+    private ChunkManager chunkManager;
+    private TerrainQuery terrainQuery;
+    private boolean groundClamp = false;
+    private boolean groundClampKeyDown = false;
+    private boolean horizonKeyDown = false;
+    private boolean occlusionKeyDown = false;
+    private boolean renderModeKeyDown = false;
     private boolean showWireframe = false;
+    private float debugLightsTime;
 
     public GameEngine() {
         WindowOptions opts = new WindowOptions(DEFAULT_WIDTH, DEFAULT_HEIGHT);
@@ -83,41 +127,25 @@ public class GameEngine implements IGuiInstance {
     public void init(Window window, Scene scene, Render render) {
         System.out.println("=== INITIALISATION DU TERRAIN ===");
 
-        // Commencer simple : un seul terrain au centre
-        String terrainModelId = "debug_terrain";
-
-        try {
-            // Essayer le terrain procédural maintenant
-            Model terrainModel = TerrainGenerator.generateTerrain(terrainModelId, scene.getTextureCache());
-            scene.addModel(terrainModel);
-            System.out.println("Modèle de terrain procédural créé avec succès");
-            System.out.println("Nombre de matériaux: " + terrainModel.getMaterialList().size());
-
-            // Créer une seule entité de terrain
-            singleTerrainEntity = new Entity("debugTerrainEntity", terrainModelId);
-            singleTerrainEntity.setPosition(0, 0, 0); // Au centre
-            singleTerrainEntity.setScale(1.0f);
-            singleTerrainEntity.updateModelMatrix();
-            scene.addEntity(singleTerrainEntity);
-            System.out.println("Entité de terrain ajoutée à la position: " + singleTerrainEntity.getPosition());
-
-        } catch (Exception e) {
-            System.err.println("Erreur lors de la création du terrain: " + e.getMessage());
-            e.printStackTrace();
-
-            // Fallback vers le cube de test
-            try {
-                // Model terrainModel = TerrainGenerator.generateTestCube(terrainModelId,
-                // scene.getTextureCache());
-                // scene.addModel(terrainModel);
-                // singleTerrainEntity = new Entity("debugTerrainEntity", terrainModelId);
-                // singleTerrainEntity.setPosition(0, 0, 0);
-                // singleTerrainEntity.updateModelMatrix();
-                // scene.addEntity(singleTerrainEntity);
-                System.out.println("Fallback: cube de test créé");
-            } catch (Exception e2) {
-                System.err.println("Erreur même avec le cube de test: " + e2.getMessage());
+        if (TERRAIN_MODE.equals("cdlod")) {
+            // Terrain CDLOD centré sur l'origine : quadtree et heightmap construits une seule fois
+            if (scene.getCdlodTerrain() == null) {
+                int origin = -(CDLOD_TERRAIN_SIZE - 1) / 2;
+                CdlodTerrain cdlodTerrain = new CdlodTerrain(origin, origin, CDLOD_TERRAIN_SIZE);
+                scene.setCdlodTerrain(cdlodTerrain);
+                terrainQuery = new TerrainQuery();
+                terrainQuery.setRegion(cdlodTerrain.getHeightfield(), origin, origin);
+                scene.getTerrainHulls().setRegion(cdlodTerrain.getHeightfield(), origin, origin);
+                System.out.println("Terrain CDLOD: " + cdlodTerrain.getLevels() + " niveaux, portée de "
+                        + cdlodTerrain.getRange());
+                System.out.println("Bruit du terrain: " + NoiseSources.getBackendName());
             }
+        } else if (chunkManager == null) {
+            // Terrain infini : les chunks sont générés autour de la caméra par le ChunkManager
+            chunkManager = new ChunkManager(scene, TERRAIN_MODE.equals("displaced"), openChunkStore());
+            terrainQuery = chunkManager.getTerrainQuery();
+            System.out.println("Streaming du terrain: rayon de " + chunkManager.getViewDistance() + " chunks");
+            System.out.println("Bruit du terrain: " + NoiseSources.getBackendName());
         }
 
         // Configuration de l'éclairage simple
@@ -130,6 +158,7 @@ public class GameEngine implements IGuiInstance {
         dirLight.setPosition(0.0f, 1.0f, 0.0f); // Directement au-dessus
         dirLight.setIntensity(1.0f);
         dirLight.setColor(1.0f, 1.0f, 1.0f); // Blanc pur
+        addDebugLights(sceneLights);
         scene.setSceneLights(sceneLights);
         System.out.println("Éclairage configuré");
 
@@ -148,6 +177,9 @@ public class GameEngine implements IGuiInstance {
         // Fog désactivé pour debug
         scene.setFog(new Fog(false, new Vector3f(0.7f, 0.8f, 0.9f), 0.001f));
 
+        // Overlay ImGui des compteurs de rendu (voir drawGui)
+        scene.setGuiInstance(this);
+
         // Position de caméra pour voir le terrain
         scene.getCamera().setPosition(5, 10, 10); // Plus loin et plus haut
         scene.getCamera().setRotation((float) Math.toRadians(90), 0); // Regarder vers le bas
@@ -162,6 +194,7 @@ public class GameEngine implements IGuiInstance {
         IGuiInstance iGuiInstance = this; // Utiliser this pour l'interface GUI
 
         while (running && !window.shouldClose()) {
+            allocationMonitor.beginFrame();
             window.pollEvents();
             window.getMouseInput().input();
             boolean inputConsumed = iGuiInstance != null && iGuiInstance.handleGuiInput(scene, window);
@@ -181,6 +214,10 @@ public class GameEngine implements IGuiInstance {
                 accumulator -= UPDATE_TIME;
             }
 
+            if (chunkManager != null) {
+                chunkManager.update(scene.getCamera().getPosition());
+            }
+
             double interpolationFactor = accumulator / UPDATE_TIME;
             render(interpolationFactor);
 
@@ -193,14 +230,116 @@ public class GameEngine implements IGuiInstance {
                 upsCounter = 0;
                 fpsTimer = 0.0;
 
-                Vector3f pos = scene.getCamera().getPosition();
-                String title = String.format("Terres Calmes DEBUG | FPS: %d UPS: %d | Pos: %.1f, %.1f, %.1f",
-                        fps, ups, pos.x, pos.y, pos.z);
-                glfwSetWindowTitle(window.getWindowHandle(), title);
+                updateTitle();
+                checkAllocations();
+                allocationMonitor.resetWindow();
             }
 
             lastTime = currentTime;
+            allocationMonitor.endFrame();
+            if (ALLOC_FRAMES >= 0 && allocationMonitor.getMeasuredFrames() >= ALLOC_FRAMES) {
+                checkAllocations();
+                running = false;
+            }
+        }
+    }
+
+    // Titre reconstruit dans un StringBuilder réutilisé : pas de String.format ni de chaîne temporaire
+    private void updateTitle() {
+        Vector3f pos = scene.getCamera().getPosition();
+        title.setLength(0);
+        title.append("Terres Calmes DEBUG | FPS: ").append(fps).append(" UPS: ").append(ups).append(" | Pos: ");
+        appendDecimal(title, pos.x).append(", ");
+        appendDecimal(title, pos.y).append(", ");
+        appendDecimal(title, pos.z).append(" | ");
+        appendTerrainStats(title);
+        title.append(" | Rendu: ").append(render.getSubmittedCount()).append(", culled: ")
+                .append(render.getCulledCount()).append(" | Uniforms: ").append(UniformsMap.getIssuedCount())
+                .append(" (").append(UniformsMap.getSkippedCount()).append(" évités) | Lumières: ")
+                .append(render.getLightCount()).append(" | ").append(render.isDeferred() ? "Différé" : "Direct");
+        float gpuMillis = render.getSceneGpuMillis();
+        if (gpuMillis >= 0.0f) {
+            appendDecimal(title.append(" GPU: "), gpuMillis).append(" ms");
+        }
+        if (render.isHorizonCulling()) {
+            title.append(" | Horizon: ").append(render.getHorizonCulledCount()).append(" (");
+            appendDecimal(title, render.getHorizonMillis()).append(" ms)");
+        }
+        if (render.isOcclusionCulling()) {
+            title.append(" | Occlusion: ").append(render.getOccludedCount()).append(" (");
+            appendDecimal(title, render.getOcclusionMillis()).append(" ms)");
+        }
+        if (allocationMonitor.isWarmedUp()) {
+            title.append(" | Alloc: ").append(allocationMonitor.getWindowAverageBytes()).append(" o/frame");
+        }
+        glfwSetWindowTitle(window.getWindowHandle(), title);
+        updateOverlay();
+    }
+
+    private void updateOverlay() {
+        overlay.setLength(0);
+        overlay.append("FPS: ").append(fps).append(" | Soumis: ").append(render.getSubmittedCount())
+                .append(" | Culled: ").append(render.getCulledCount());
+        overlayRender = overlay.toString();
+        overlay.setLength(0);
+        overlay.append("Horizon: ").append(render.isHorizonCulling() ? render.getHorizonCulledCount() : 0)
+                .append(" | Occlusion: ").append(render.isOcclusionCulling() ? render.getOccludedCount() : 0);
+        overlayCulling = overlay.toString();
+    }
+
+    // Une décimale, comme %.1f
+    private static StringBuilder appendDecimal(StringBuilder builder, float value) {
+        long tenths = Math.round(value * 10.0);
+        if (tenths < 0) {
+            builder.append('-');
+            tenths = -tenths;
+        }
+        return builder.append(tenths / 10).append('.').append(tenths % 10);
+    }
+
+    private void checkAllocations() {
+        if (ALLOC_LIMIT < 0 || allocationGateFailed || allocationMonitor.getWindowFrames() == 0) {
+            return;
+        }
+        long average = allocationMonitor.getWindowAverageBytes();
+        if (average > ALLOC_LIMIT) {
+            System.err.println("Allocations par frame au-dessus de la limite: " + average + " o en moyenne sur "
+                    + allocationMonitor.getWindowFrames() + " frames (max " + allocationMonitor.getMaxFrameBytes()
+                    + " o), limite " + ALLOC_LIMIT + " o");
+            allocationGateFailed = true;
+            running = false;
+        }
+    }
+
+    // true si la boucle a été arrêtée par -Dterrescalmes.alloc.limit
+    public boolean isAllocationGateFailed() {
+        return allocationGateFailed;
+    }
+
+    private ChunkStore openChunkStore() {
+        if (STORE_DIR.isEmpty()) {
+            return null;
         }
+        try {
+            ChunkStore store = new ChunkStore(Path.of(STORE_DIR), Boolean.getBoolean("terrescalmes.store.compress"));
+            System.out.println("Stockage des chunks: " + store.getDirectory().toAbsolutePath());
+            return store;
+        } catch (IOException excp) {
+            System.err.println("Stockage des chunks désactivé: " + excp.getMessage());
+            return null;
+        }
+    }
+
+    private void appendTerrainStats(StringBuilder builder) {
+        CdlodTerrain cdlodTerrain = scene.getCdlodTerrain();
+        if (cdlodTerrain != null) {
+            builder.append("CDLOD: ").append(cdlodTerrain.getSelectedCount()).append(" noeuds, ")
+                    .append(cdlodTerrain.getSelectedTriangleCount()).append(" triangles");
+            return;
+        }
+        builder.append("Chunks: ").append(chunkManager.getActiveChunkCount()).append(" (+")
+                .append(chunkManager.getLoadedCount()).append("/-").append(chunkManager.getUnloadedCount())
+                .append(") File: ").append(chunkManager.getQueueDepth());
     }
 
     private void resize() {
@@ -210,58 +349,19 @@ public class GameEngine implements IGuiInstance {
         render.resize(width, height);
     }
 
+    // Overlay des compteurs de rendu. Ses lignes sont refaites avec le titre, une fois par seconde : pas de
+    // chaîne construite à chaque frame
     public void drawGui() {
-        // ImGui.newFrame();
-        // ImGui.setNextWindowPos(10, 10, ImGuiCond.Always);
-
-        // if (ImGui.begin("Debug Terrain")) {
-        // Vector3f pos = scene.getCamera().getPosition();
-        // ImGui.text("Camera Position: %.2f, %.2f, %.2f", pos.x, pos.y, pos.z);
-        // ImGui.text("FPS: %d | UPS: %d", fps, ups);
-
-        // ImGui.separator();
-        // ImGui.text("Contrôles:");
-        // ImGui.text("WASD: Déplacement");
-        // ImGui.text("Espace/Ctrl: Monter/Descendre");
-        // ImGui.text("Shift: Vitesse x5");
-        // ImGui.text("Clic droit: Regarder autour");
-
-        // ImGui.separator();
-        // if (ImGui.button("Reset Position")) {
-        // scene.getCamera().setPosition(0, 50, 100);
-        // scene.getCamera().setRotation((float) Math.toRadians(-25), 0);
-        // }
-
-        // if (ImGui.button("Position proche")) {
-        // scene.getCamera().setPosition(0, 10, 20);
-        // scene.getCamera().setRotation((float) Math.toRadians(-15), 0);
-        // }
-
-        // if (ImGui.button("Vue aérienne")) {
-        // scene.getCamera().setPosition(0, 100, 0);
-        // scene.getCamera().setRotation((float) Math.toRadians(-90), 0);
-        // }
-
-        // ImGui.separator();
-        // ImGui.text("Terrain Debug:");
-        // if (singleTerrainEntity != null) {
-        // Vector3f terrainPos = singleTerrainEntity.getPosition();
-        // ImGui.text("Terrain pos: %.2f, %.2f, %.2f", terrainPos.x, terrainPos.y,
-        // terrainPos.z);
-        // ImGui.text("Terrain scale: %.2f", singleTerrainEntity.getScale());
-        // }
-
-        // // Info sur la scène
-        // ImGui.separator();
-        // ImGui.text("Scene Info:");
-        // ImGui.text("Models: %d", scene.getModelMap().size());
-        // ImGui.text("Has SkyBox: %s", scene.getSkyBox() != null ? "Oui" : "Non");
-        // ImGui.text("Fog active: %s", scene.getFog().isActive() ? "Oui" : "Non");
-        // }
-        // ImGui.end();
-
-        // ImGui.endFrame();
-        // ImGui.render();
+        ImGui.newFrame();
+        ImGui.setNextWindowPos(10, 10, ImGuiCond.Always);
+        ImGui.setNextWindowBgAlpha(0.5f);
+        if (ImGui.begin("Rendu", OVERLAY_FLAGS)) {
+            ImGui.textUnformatted(overlayRender);
+            ImGui.textUnformatted(overlayCulling);
+        }
+        ImGui.end();
+        ImGui.endFrame();
+        ImGui.render();
     }
 
     public boolean handleGuiInput(Scene scene, Window window) {
@@ -304,6 +404,39 @@ public class GameEngine implements IGuiInstance {
             camera.moveDown(move);
         }
 
+        // G : bascule entre vol libre et marche au sol
+        boolean groundClampKey = window.isKeyPressed(GLFW_KEY_G);
+        if (groundClampKey && !groundClampKeyDown) {
+            groundClamp = !groundClamp;
+            System.out.println("Marche au sol: " + (groundClamp ? "activée" : "désactivée"));
+        }
+        groundClampKeyDown = groundClampKey;
+        clampCameraToGround(camera);
+
+        // F2 : bascule entre rendu direct et rendu différé
+        boolean renderModeKey = window.isKeyPressed(GLFW_KEY_F2);
+        if (renderModeKey && !renderModeKeyDown) {
+            render.setDeferred(!render.isDeferred());
+            System.out.println("Rendu: " + (render.isDeferred() ? "différé" : "direct"));
+        }
+        renderModeKeyDown = renderModeKey;
+
+        // F3 : active ou désactive l'occlusion culling
+        boolean occlusionKey = window.isKeyPressed(GLFW_KEY_F3);
+        if (occlusionKey && !occlusionKeyDown) {
+            render.setOcclusionCulling(!render.isOcclusionCulling());
+            System.out.println("Occlusion culling: " + (render.isOcclusionCulling() ? "activé" : "désactivé"));
+        }
+        occlusionKeyDown = occlusionKey;
+
+        // F4 : active ou désactive le culling par l'horizon
+        boolean horizonKey = window.isKeyPressed(GLFW_KEY_F4);
+        if (horizonKey && !horizonKeyDown) {
+            render.setHorizonCulling(!render.isHorizonCulling());
+            System.out.println("Culling par l'horizon: " + (render.isHorizonCulling() ? "activé" : "désactivé"));
+        }
+        horizonKeyDown = horizonKey;
+
         // Reset rapide avec R
         if (window.isKeyPressed(GLFW_KEY_R)) {
             camera.setPosition(0, 10, 10);
@@ -318,8 +451,53 @@ public class GameEngine implements IGuiInstance {
         }
     }
 
+    private void clampCameraToGround(Camera camera) {
+        Vector3f position = camera.getPosition();
+        float groundHeight = terrainQuery.getHeightAt(position.x, position.z);
+        if (Float.isNaN(groundHeight)) {
+            // Chunk pas encore chargé : la caméra reste libre
+            return;
+        }
+        if (groundClamp) {
+            camera.setPosition(position.x, groundHeight + EYE_HEIGHT, position.z);
+        } else if (position.y < groundHeight + MIN_GROUND_CLEARANCE) {
+            camera.setPosition(position.x, groundHeight + MIN_GROUND_CLEARANCE, position.z);
+        }
+    }
+
     private void update() {
-        // Update simple pour debug
+        if (DEBUG_LIGHTS > 0) {
+            debugLightsTime += (float) UPDATE_TIME;
+            updateDebugLights(scene.getSceneLights().getPointLights());
+        }
+    }
+
+    private void addDebugLights(SceneLights sceneLights) {
+        java.util.Random random = new java.util.Random(DEBUG_LIGHTS);
+        for (int i = 0; i < DEBUG_LIGHTS; i++) {
+            PointLight light = new PointLight(new Vector3f(random.nextFloat(), random.nextFloat(), random.nextFloat()),
+                    new Vector3f(), 2.0f);
+            // Portée d'une vingtaine d'unités : chaque lumière ne touche que quelques clusters
+            light.setAttenuation(new PointLight.Attenuation(1.0f, 0.0f, 1.0f));
+            sceneLights.getPointLights().add(light);
+        }
+        if (DEBUG_LIGHTS > 0) {
+            updateDebugLights(sceneLights.getPointLights());
+            System.out.println("Lumières de test: " + DEBUG_LIGHTS);
+        }
+    }
+
+    // Répartition en spirale (angle d'or) sur un disque qui tourne lentement
+    private void updateDebugLights(List<PointLight> pointLights) {
+        for (int i = 0; i < pointLights.size(); i++) {
+            double angle = i * 2.39996 + debugLightsTime * 0.2;
+            float distance = DEBUG_LIGHTS_RADIUS * (float) Math.sqrt((i + 0.5) / pointLights.size());
+            float x = (float) Math.cos(angle) * distance;
+            float z = (float) Math.sin(angle) * distance;
+            float ground = terrainQuery.getHeightAt(x, z);
+            float y = (Float.isNaN(ground) ? 0.0f : ground) + DEBUG_LIGHTS_HEIGHT;
+            pointLights.get(i).setPosition(x, y, z);
+        }
     }
 
     private void render(double interpolationFactor) {
@@ -328,8 +506,19 @@ public class GameEngine implements IGuiInstance {
     }
 
     private void cleanup() {
+        if (allocationMonitor.getMeasuredFrames() > 0) {
+            System.out.printf("Allocations du thread de rendu: %d o par frame au pire sur %d frames%n",
+                    allocationMonitor.getMaxFrameBytes(), allocationMonitor.getMeasuredFrames());
+        }
+        if (chunkManager != null) {
+            System.out.printf("Chunks générés: %d (%.2f ms en moyenne), relus depuis le disque: %d (%.2f ms)%n",
+                    chunkManager.getGeneratedCount(), chunkManager.getAverageGenerateMillis(),
+                    chunkManager.getStoreLoadCount(), chunkManager.getAverageStoreLoadMillis());
+            chunkManager.cleanup();
+        }
         render.cleanup();
         scene.cleanup();
+        MeshPool.cleanupAll();
         window.cleanup();
     }
 }
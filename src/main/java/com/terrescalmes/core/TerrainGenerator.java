@@ -5,93 +5,105 @@ import org.joml.Math;
 
 import com.terrescalmes.core.graphics.Material;
 import com.terrescalmes.core.graphics.Mesh;
+import com.terrescalmes.core.graphics.MeshBuilder;
 import com.terrescalmes.core.graphics.Model;
+import com.terrescalmes.core.terrain.noise.FractalNoise;
+import com.terrescalmes.core.terrain.noise.NoiseSource;
+import com.terrescalmes.core.terrain.noise.NoiseSources;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class TerrainGenerator {
 
     private static final int TERRAIN_SIZE = 129; // Taille réduite pour de meilleures performances
     private static final float HEIGHT_SCALE = 30.0f; // Échelle de hauteur
-    private static final float TERRAIN_SCALE = 2.0f; // Échelle du terrain
     private static final int OCTAVES = 4; // Nombre d'octaves pour le bruit
     private static final float PERSISTENCE = 0.5f; // Persistance du bruit
     private static final float FREQUENCY = 0.008f; // Fréquence de base
+    private static final long SEED = 1337L; // Graine du bruit, le terrain est déterministe
+    private static final int TILE_SAMPLES = 16 * 1024; // Échantillons par tâche fork/join
+
+    public static final float TERRAIN_SCALE = 2.0f; // Échelle du terrain (distance entre deux sommets)
+    public static final float TEXTURE_REPEAT = 4.0f / (TERRAIN_SIZE - 1); // Répétitions de texture par sommet
+    public static final int CHUNK_SIZE = 64; // Nombre de quads par côté d'un chunk
+    public static final float CHUNK_WORLD_SIZE = CHUNK_SIZE * TERRAIN_SCALE; // Taille d'un chunk dans le monde
+    public static final int CHUNK_HEIGHTS_SIZE = CHUNK_SIZE + 3; // Sommets du chunk plus une bordure de chaque côté
+
+    private static volatile NoiseSource noiseSource = new FractalNoise(NoiseSources.perlin(SEED), OCTAVES, 2.0f,
+            PERSISTENCE, HEIGHT_SCALE);
+
+    // -Dterrescalmes.terrain.parallelism=N fixe le nombre de threads de génération
+    private static volatile ForkJoinPool generationPool = new ForkJoinPool(Integer.getInteger(
+            "terrescalmes.terrain.parallelism", java.lang.Runtime.getRuntime().availableProcessors()));
+
+    private static final int[] CHUNK_INDICES = generateGridIndices(CHUNK_SIZE + 1);
+
+    // Un builder par thread de travail, réutilisé d'un chunk à l'autre
+    private static final ThreadLocal<MeshBuilder> CHUNK_BUILDER = ThreadLocal
+            .withInitial(() -> new MeshBuilder((CHUNK_SIZE + 1) * (CHUNK_SIZE + 1), 0));
 
     public static Model generateTerrain(String modelId, TextureCache textureCache) {
-        // Générer les hauteurs avec Perlin noise
-        float[][] heightMap = generateHeightMap();
-
-        // Créer les vertices et indices
-        List<Float> vertices = new ArrayList<>();
-        List<Float> normals = new ArrayList<>();
-        List<Float> texCoords = new ArrayList<>();
-        List<Integer> indices = new ArrayList<>();
-
-        // Générer les vertices
-        for (int z = 0; z < TERRAIN_SIZE; z++) {
-            for (int x = 0; x < TERRAIN_SIZE; x++) {
-                float height = heightMap[z][x];
-
-                // Position
-                vertices.add((float) x * TERRAIN_SCALE);
-                vertices.add(height);
-                vertices.add((float) z * TERRAIN_SCALE);
-
-                // Coordonnées de texture (répétition pour plus de détails)
-                texCoords.add((float) x / (TERRAIN_SIZE - 1) * 4.0f);
-                texCoords.add((float) z / (TERRAIN_SIZE - 1) * 4.0f);
-
-                // Calculer la normale
-                Vector3f normal = calculateNormal(heightMap, x, z);
-                normals.add(normal.x);
-                normals.add(normal.y);
-                normals.add(normal.z);
-            }
-        }
+        return generateTerrain(modelId, textureCache, TERRAIN_SIZE);
+    }
 
-        // Générer les indices pour les triangles
-        for (int z = 0; z < TERRAIN_SIZE - 1; z++) {
-            for (int x = 0; x < TERRAIN_SIZE - 1; x++) {
-                int topLeft = (z * TERRAIN_SIZE) + x;
-                int topRight = topLeft + 1;
-                int bottomLeft = ((z + 1) * TERRAIN_SIZE) + x;
-                int bottomRight = bottomLeft + 1;
+    // size est le nombre de sommets par côté (513, 1025...), les grandes grilles sont générées en parallèle
+    public static Model generateTerrain(String modelId, TextureCache textureCache, int size) {
+        return createTerrainModel(modelId, buildTerrainMesh(size).build());
+    }
 
-                // Premier triangle (sens anti-horaire vu du dessus pour OpenGL)
-                indices.add(topLeft);
-                indices.add(bottomLeft);
-                indices.add(topRight);
+    // Sommets et indices de la grille, sans appel OpenGL
+    static MeshBuilder buildTerrainMesh(int size) {
+        // Générer les hauteurs avec Perlin noise (bordure d'un échantillon pour les normales)
+        float[] heightMap = generateHeightMap(-1, -1, size + 2);
 
-                // Deuxième triangle (sens anti-horaire vu du dessus pour OpenGL)
-                indices.add(topRight);
-                indices.add(bottomLeft);
-                indices.add(bottomRight);
-            }
-        }
+        MeshBuilder builder = new MeshBuilder(size * size, (size - 1) * (size - 1) * 6);
+        addGridVertices(builder, heightMap, size, 0, 0);
+        addGridIndices(builder, size);
+        return builder;
+    }
 
-        // Convertir les listes en tableaux
-        float[] verticesArray = new float[vertices.size()];
-        for (int i = 0; i < vertices.size(); i++) {
-            verticesArray[i] = vertices.get(i);
-        }
+    // Génère les données d'un chunk sans appel OpenGL : peut tourner sur un thread de travail
+    public static ChunkMeshData generateChunkMeshData(int chunkX, int chunkZ) {
+        return generateChunkMeshData(chunkX, chunkZ, generateChunkHeights(chunkX, chunkZ));
+    }
 
-        float[] normalsArray = new float[normals.size()];
-        for (int i = 0; i < normals.size(); i++) {
-            normalsArray[i] = normals.get(i);
-        }
+    // Même chose à partir de hauteurs déjà connues (chunk relu depuis le disque), voir generateChunkHeights
+    public static ChunkMeshData generateChunkMeshData(int chunkX, int chunkZ, float[] heightMap) {
+        int vertexCount = CHUNK_SIZE + 1;
+        int originX = chunkX * CHUNK_SIZE;
+        int originZ = chunkZ * CHUNK_SIZE;
 
-        float[] texCoordsArray = new float[texCoords.size()];
-        for (int i = 0; i < texCoords.size(); i++) {
-            texCoordsArray[i] = texCoords.get(i);
-        }
+        MeshBuilder builder = CHUNK_BUILDER.get().reset();
+        addGridVertices(builder, heightMap, vertexCount, originX, originZ);
+
+        return new ChunkMeshData(chunkX, chunkZ, builder.toPositionsArray(), builder.toNormalsArray(),
+                builder.toTextCoordsArray(), CHUNK_INDICES);
+    }
+
+    // Hauteurs seules d'un chunk, CHUNK_HEIGHTS_SIZE x CHUNK_HEIGHTS_SIZE en [z * size + x].
+    // Bordure d'un échantillon autour du chunk pour que les normales des bords
+    // soient identiques à celles calculées par les chunks voisins
+    public static float[] generateChunkHeights(int chunkX, int chunkZ) {
+        return generateHeightMap(chunkX * CHUNK_SIZE - 1, chunkZ * CHUNK_SIZE - 1, CHUNK_HEIGHTS_SIZE);
+    }
 
-        int[] indicesArray = indices.stream().mapToInt(i -> i).toArray();
+    // Doit être appelé sur le thread OpenGL
+    public static Model createChunkModel(String modelId, ChunkMeshData meshData) {
+        Mesh mesh = new Mesh(meshData.positions(), meshData.normals(), meshData.texCoords(), meshData.indices());
+        return createTerrainModel(modelId, mesh);
+    }
+
+    private static Model createTerrainModel(String modelId, Mesh mesh) {
+        Material material = createTerrainMaterial();
+        material.getMeshList().add(mesh);
 
-        // Créer le mesh avec le constructeur approprié
-        Mesh mesh = new Mesh(verticesArray, normalsArray, texCoordsArray, indicesArray);
+        return new Model(modelId, Arrays.asList(material));
+    }
 
-        // Créer le matériau
+    // Matériau commun aux chunks et au rendu CDLOD
+    public static Material createTerrainMaterial() {
         Material material = new Material();
         material.setAmbientColor(new Vector4f(0.2f, 0.5f, 0.2f, 1.0f));
         material.setDiffuseColor(new Vector4f(0.4f, 0.8f, 0.4f, 1.0f));
@@ -100,92 +112,105 @@ public class TerrainGenerator {
 
         // Si tu n'as pas de texture d'herbe, on peut utiliser une texture par défaut
         material.setTexturePath("default_texture");
-        material.getMeshList().add(mesh);
-
-        // Créer le modèle
-        Model model = new Model(modelId, Arrays.asList(material));
-
-        return model;
+        return material;
     }
 
-    public static Model generateColoredTerrain(String modelId, TextureCache textureCache) {
-        // Version alternative qui génère des couleurs basées sur l'altitude
-        float[][] heightMap = generateHeightMap();
-
-        List<Float> vertices = new ArrayList<>();
-        List<Float> normals = new ArrayList<>();
-        List<Float> texCoords = new ArrayList<>();
-        List<Integer> indices = new ArrayList<>();
+    // heightMap doit avoir une bordure d'un échantillon autour des vertexCount x vertexCount sommets
+    private static void addGridVertices(MeshBuilder builder, float[] heightMap, int vertexCount, int originX,
+            int originZ) {
+        int first = builder.allocateVertices(vertexCount * vertexCount);
+        float[] positions = builder.getPositions();
+        float[] normals = builder.getNormals();
+        float[] textCoords = builder.getTextCoords();
+        int stride = vertexCount + 2;
+
+        // Chaque tuile de lignes écrit une plage disjointe des tableaux : résultat identique au séquentiel
+        forEachRowRange(vertexCount, vertexCount, (zStart, zEnd) -> {
+            for (int z = zStart; z < zEnd; z++) {
+                int vertex = first + z * vertexCount;
+                for (int x = 0; x < vertexCount; x++, vertex++) {
+                    int idx = (z + 1) * stride + x + 1;
+                    int pos = vertex * 3;
+
+                    // Positions locales, l'entité porte la translation
+                    positions[pos] = x * TERRAIN_SCALE;
+                    positions[pos + 1] = heightMap[idx];
+                    positions[pos + 2] = z * TERRAIN_SCALE;
+
+                    // Coordonnées de texture continues d'un chunk à l'autre
+                    textCoords[vertex * 2] = (originX + x) * TEXTURE_REPEAT;
+                    textCoords[vertex * 2 + 1] = (originZ + z) * TEXTURE_REPEAT;
+
+                    // Différences centrales
+                    float nx = heightMap[idx - 1] - heightMap[idx + 1];
+                    float ny = 2.0f * TERRAIN_SCALE;
+                    float nz = heightMap[idx - stride] - heightMap[idx + stride];
+                    float invLength = Math.invsqrt(nx * nx + ny * ny + nz * nz);
+                    normals[pos] = nx * invLength;
+                    normals[pos + 1] = ny * invLength;
+                    normals[pos + 2] = nz * invLength;
+                }
+            }
+        });
+    }
 
-        float minHeight = Float.MAX_VALUE;
-        float maxHeight = Float.MIN_VALUE;
+    private static void addGridIndices(MeshBuilder builder, int vertexCount) {
+        for (int z = 0; z < vertexCount - 1; z++) {
+            for (int x = 0; x < vertexCount - 1; x++) {
+                int topLeft = (z * vertexCount) + x;
+                int topRight = topLeft + 1;
+                int bottomLeft = ((z + 1) * vertexCount) + x;
+                int bottomRight = bottomLeft + 1;
 
-        // Trouver min/max pour normaliser les couleurs
-        for (int z = 0; z < TERRAIN_SIZE; z++) {
-            for (int x = 0; x < TERRAIN_SIZE; x++) {
-                minHeight = Math.min(minHeight, heightMap[z][x]);
-                maxHeight = Math.max(maxHeight, heightMap[z][x]);
+                // Premier triangle (sens anti-horaire vu du dessus pour OpenGL)
+                builder.addTriangle(topLeft, bottomLeft, topRight);
+                // Deuxième triangle (sens anti-horaire vu du dessus pour OpenGL)
+                builder.addTriangle(topRight, bottomLeft, bottomRight);
             }
         }
+    }
 
-        // Générer les vertices avec couleurs basées sur l'altitude
-        for (int z = 0; z < TERRAIN_SIZE; z++) {
-            for (int x = 0; x < TERRAIN_SIZE; x++) {
-                float height = heightMap[z][x];
-
-                vertices.add((float) x * TERRAIN_SCALE);
-                vertices.add(height);
-                vertices.add((float) z * TERRAIN_SCALE);
+    private static int[] generateGridIndices(int vertexCount) {
+        MeshBuilder builder = new MeshBuilder(0, (vertexCount - 1) * (vertexCount - 1) * 6);
+        addGridIndices(builder, vertexCount);
+        return builder.toIndicesArray();
+    }
 
-                // Couleur basée sur l'altitude
-                float normalizedHeight = (height - minHeight) / (maxHeight - minHeight);
-                texCoords.add(normalizedHeight); // U basé sur l'altitude
-                texCoords.add(0.5f); // V constant
+    public static Model generateColoredTerrain(String modelId, TextureCache textureCache) {
+        // Version alternative qui génère des couleurs basées sur l'altitude
+        float[] heightMap = generateHeightMap(-1, -1, TERRAIN_SIZE + 2);
 
-                Vector3f normal = calculateNormal(heightMap, x, z);
-                normals.add(normal.x);
-                normals.add(normal.y);
-                normals.add(normal.z);
-            }
-        }
+        MeshBuilder builder = new MeshBuilder(TERRAIN_SIZE * TERRAIN_SIZE,
+                (TERRAIN_SIZE - 1) * (TERRAIN_SIZE - 1) * 6);
 
-        // Même génération d'indices
-        for (int z = 0; z < TERRAIN_SIZE - 1; z++) {
-            for (int x = 0; x < TERRAIN_SIZE - 1; x++) {
-                int topLeft = (z * TERRAIN_SIZE) + x;
-                int topRight = topLeft + 1;
-                int bottomLeft = ((z + 1) * TERRAIN_SIZE) + x;
-                int bottomRight = bottomLeft + 1;
+        float minHeight = Float.MAX_VALUE;
+        float maxHeight = Float.MIN_VALUE;
 
-                // Même génération d'indices (sens anti-horaire)
-                indices.add(topLeft);
-                indices.add(bottomLeft);
-                indices.add(topRight);
+        int stride = TERRAIN_SIZE + 2;
 
-                indices.add(topRight);
-                indices.add(bottomLeft);
-                indices.add(bottomRight);
+        // Trouver min/max pour normaliser les couleurs
+        for (int z = 1; z <= TERRAIN_SIZE; z++) {
+            for (int x = 1; x <= TERRAIN_SIZE; x++) {
+                minHeight = Math.min(minHeight, heightMap[z * stride + x]);
+                maxHeight = Math.max(maxHeight, heightMap[z * stride + x]);
             }
         }
 
-        float[] verticesArray = new float[vertices.size()];
-        for (int i = 0; i < vertices.size(); i++) {
-            verticesArray[i] = vertices.get(i);
-        }
-
-        float[] normalsArray = new float[normals.size()];
-        for (int i = 0; i < normals.size(); i++) {
-            normalsArray[i] = normals.get(i);
-        }
+        addGridVertices(builder, heightMap, TERRAIN_SIZE, 0, 0);
 
-        float[] texCoordsArray = new float[texCoords.size()];
-        for (int i = 0; i < texCoords.size(); i++) {
-            texCoordsArray[i] = texCoords.get(i);
+        // Couleur basée sur l'altitude : U basé sur l'altitude, V constant
+        float[] positions = builder.getPositions();
+        float[] textCoords = builder.getTextCoords();
+        for (int i = 0; i < builder.getVertexCount(); i++) {
+            float normalizedHeight = (positions[i * 3 + 1] - minHeight) / (maxHeight - minHeight);
+            textCoords[i * 2] = normalizedHeight;
+            textCoords[i * 2 + 1] = 0.5f;
         }
 
-        int[] indicesArray = indices.stream().mapToInt(i -> i).toArray();
+        // Même génération d'indices (sens anti-horaire)
+        addGridIndices(builder, TERRAIN_SIZE);
 
-        Mesh mesh = new Mesh(verticesArray, normalsArray, texCoordsArray, indicesArray);
+        Mesh mesh = builder.build();
 
         Material material = new Material();
         // Couleurs qui changent selon l'altitude
@@ -199,139 +224,58 @@ public class TerrainGenerator {
         return new Model(modelId, Arrays.asList(material));
     }
 
-    private static float[][] generateHeightMap() {
-        float[][] heightMap = new float[TERRAIN_SIZE][TERRAIN_SIZE];
-
-        for (int z = 0; z < TERRAIN_SIZE; z++) {
-            for (int x = 0; x < TERRAIN_SIZE; x++) {
-                float height = 0;
-                float amplitude = HEIGHT_SCALE;
-                float frequency = FREQUENCY;
-
-                // Générer plusieurs octaves de bruit
-                for (int i = 0; i < OCTAVES; i++) {
-                    height += perlinNoise(x * frequency, z * frequency) * amplitude;
-                    amplitude *= PERSISTENCE;
-                    frequency *= 2;
-                }
-
-                heightMap[z][x] = height;
-            }
-        }
-
-        return heightMap;
+    public static NoiseSource getNoiseSource() {
+        return noiseSource;
     }
 
-    // Implémentation simple du bruit de Perlin
-    private static float perlinNoise(float x, float y) {
-        int xi = (int) Math.floor(x);
-        int yi = (int) Math.floor(y);
-
-        float xf = x - xi;
-        float yf = y - yi;
-
-        // Obtenir les valeurs aux coins
-        float tl = dotGridGradient(xi, yi, x, y);
-        float tr = dotGridGradient(xi + 1, yi, x, y);
-        float bl = dotGridGradient(xi, yi + 1, x, y);
-        float br = dotGridGradient(xi + 1, yi + 1, x, y);
-
-        // Interpolation
-        float xt1 = interpolate(tl, tr, xf);
-        float xt2 = interpolate(bl, br, xf);
-        float value = interpolate(xt1, xt2, yf);
-
-        return value;
+    // Permet de brancher une autre source (OpenSimplex2, ridged...) avant la génération des chunks
+    public static void setNoiseSource(NoiseSource noiseSource) {
+        TerrainGenerator.noiseSource = noiseSource;
     }
 
-    private static float dotGridGradient(int ix, int iy, float x, float y) {
-        // Générer un vecteur gradient pseudo-aléatoire basé sur les coordonnées
-        int hash = ix * 374761393 + iy * 668265263;
-        hash = (hash ^ (hash >> 13)) * 1274126177;
-        hash = hash ^ (hash >> 16);
-
-        float angle = (hash & 0xFF) * (float) (2.0 * Math.PI / 256.0);
-        float gradX = (float) Math.cos(angle);
-        float gradY = (float) Math.sin(angle);
-
-        // Calculer le vecteur distance
-        float dx = x - ix;
-        float dy = y - iy;
-
-        // Produit scalaire
-        return dx * gradX + dy * gradY;
+    public static int getParallelism() {
+        return generationPool.getParallelism();
     }
 
-    private static float interpolate(float a, float b, float t) {
-        // Interpolation cosinus pour des transitions plus douces
-        float ft = (float) (t * Math.PI);
-        float f = (float) (1 - Math.cos(ft)) * 0.5f;
-        return a * (1 - f) + b * f;
+    public static void setParallelism(int parallelism) {
+        ForkJoinPool previous = generationPool;
+        generationPool = new ForkJoinPool(parallelism);
+        previous.shutdown();
     }
 
-    private static Vector3f calculateNormal(float[][] heightMap, int x, int z) {
-        float heightL = getHeight(heightMap, x - 1, z);
-        float heightR = getHeight(heightMap, x + 1, z);
-        float heightD = getHeight(heightMap, x, z - 1);
-        float heightU = getHeight(heightMap, x, z + 1);
-
-        Vector3f normal = new Vector3f(heightL - heightR, 2.0f * TERRAIN_SCALE, heightD - heightU);
-        normal.normalize();
-
-        return normal;
+    // originX/originZ sont en coordonnées de grille monde : deux appels qui se
+    // recouvrent produisent exactement les mêmes hauteurs. Résultat en [z * size + x]
+    public static float[] generateHeightMap(int originX, int originZ, int size) {
+        float[] heightMap = new float[size * size];
+        NoiseSource noise = noiseSource;
+        forEachRowRange(size, size, (rowStart, rowEnd) -> noise.fill(heightMap, rowStart * size, size,
+                rowEnd - rowStart, originX, originZ + rowStart, FREQUENCY));
+        return heightMap;
     }
 
-    private static float getHeight(float[][] heightMap, int x, int z) {
-        if (x < 0 || x >= TERRAIN_SIZE || z < 0 || z >= TERRAIN_SIZE) {
-            return 0;
+    // Découpe [0, rows) en tuiles de lignes sur le pool fork/join, ou exécute directement les petites grilles
+    // (les chunks sont déjà générés en parallèle les uns des autres par le ChunkManager)
+    private static void forEachRowRange(int rows, int rowSamples, RowRange action) {
+        int minRows = Math.max(1, TILE_SAMPLES / rowSamples);
+        if (rows <= minRows) {
+            action.run(0, rows);
+        } else {
+            generationPool.invoke(new RowRangeTask(action, 0, rows, minRows));
         }
-        return heightMap[z][x];
     }
 
     // Méthode utilitaire pour créer un terrain plat (pour tester)
     public static Model generateFlatTerrain(String modelId, TextureCache textureCache, float size) {
-        List<Float> vertices = Arrays.asList(
-                -size, 0.0f, -size, // Bottom-left
-                size, 0.0f, -size, // Bottom-right
-                size, 0.0f, size, // Top-right
-                -size, 0.0f, size // Top-left
-        );
-
-        List<Float> normals = Arrays.asList(
-                0.0f, 1.0f, 0.0f,
-                0.0f, 1.0f, 0.0f,
-                0.0f, 1.0f, 0.0f,
-                0.0f, 1.0f, 0.0f);
-
-        List<Float> texCoords = Arrays.asList(
-                0.0f, 0.0f,
-                1.0f, 0.0f,
-                1.0f, 1.0f,
-                0.0f, 1.0f);
-
-        List<Integer> indices = Arrays.asList(
-                0, 1, 2, // Premier triangle (sens anti-horaire)
-                2, 3, 0 // Deuxième triangle (sens anti-horaire)
-        );
-
-        float[] verticesArray = new float[vertices.size()];
-        for (int i = 0; i < vertices.size(); i++) {
-            verticesArray[i] = vertices.get(i);
-        }
-
-        float[] normalsArray = new float[normals.size()];
-        for (int i = 0; i < normals.size(); i++) {
-            normalsArray[i] = normals.get(i);
-        }
+        MeshBuilder builder = new MeshBuilder(4, 6);
+        builder.addPosition(-size, 0.0f, -size).addNormal(0.0f, 1.0f, 0.0f).addTextCoord(0.0f, 0.0f); // Bottom-left
+        builder.addPosition(size, 0.0f, -size).addNormal(0.0f, 1.0f, 0.0f).addTextCoord(1.0f, 0.0f); // Bottom-right
+        builder.addPosition(size, 0.0f, size).addNormal(0.0f, 1.0f, 0.0f).addTextCoord(1.0f, 1.0f); // Top-right
+        builder.addPosition(-size, 0.0f, size).addNormal(0.0f, 1.0f, 0.0f).addTextCoord(0.0f, 1.0f); // Top-left
 
-        float[] texCoordsArray = new float[texCoords.size()];
-        for (int i = 0; i < texCoords.size(); i++) {
-            texCoordsArray[i] = texCoords.get(i);
-        }
-
-        int[] indicesArray = indices.stream().mapToInt(i -> i).toArray();
+        builder.addTriangle(0, 1, 2); // Premier triangle (sens anti-horaire)
+        builder.addTriangle(2, 3, 0); // Deuxième triangle (sens anti-horaire)
 
-        Mesh mesh = new Mesh(verticesArray, normalsArray, texCoordsArray, indicesArray);
+        Mesh mesh = builder.build();
 
         Material material = new Material();
         material.setAmbientColor(new Vector4f(0.2f, 0.5f, 0.2f, 1.0f));
@@ -343,4 +287,41 @@ public class TerrainGenerator {
 
         return new Model(modelId, Arrays.asList(material));
     }
+
+    @FunctionalInterface
+    private interface RowRange {
+        void run(int rowStart, int rowEnd);
+    }
+
+    private static class RowRangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RowRange action;
+        private final int minRows;
+        private final int rowEnd;
+        private final int rowStart;
+
+        RowRangeTask(RowRange action, int rowStart, int rowEnd, int minRows) {
+            this.action = action;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.minRows = minRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (rowEnd - rowStart <= minRows) {
+                action.run(rowStart, rowEnd);
+                return;
+            }
+            int middle = (rowStart + rowEnd) >>> 1;
+            invokeAll(new RowRangeTask(action, rowStart, middle, minRows),
+                    new RowRangeTask(action, middle, rowEnd, minRows));
+        }
+    }
+
+    public record ChunkMeshData(int chunkX, int chunkZ, float[] positions, float[] normals, float[] texCoords,
+            int[] indices) {
+    }
 }
@@ -11,8 +11,9 @@ public class TextureCache {
     private Map<String, Texture> textureMap;
 
     public TextureCache() {
+        // Texture par défaut chargée à la première demande, sur le thread OpenGL : une Scene se construit
+        // sans contexte (tests)
         textureMap = new HashMap<>();
-        textureMap.put(DEFAULT_TEXTURE, new Texture(DEFAULT_TEXTURE));
     }
 
     public void cleanup() {
@@ -23,13 +24,18 @@ public class TextureCache {
         return textureMap.computeIfAbsent(texturePath, Texture::new);
     }
 
+    // Texture créée ailleurs (générée, voir Texture(int, int, ByteBuffer)), rendue par getTexture(texturePath)
+    public void addTexture(String texturePath, Texture texture) {
+        textureMap.put(texturePath, texture);
+    }
+
     public Texture getTexture(String texturePath) {
         Texture texture = null;
         if (texturePath != null) {
             texture = textureMap.get(texturePath);
         }
         if (texture == null) {
-            texture = textureMap.get(DEFAULT_TEXTURE);
+            texture = createTexture(DEFAULT_TEXTURE);
         }
         return texture;
     }
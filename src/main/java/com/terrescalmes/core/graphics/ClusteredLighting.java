@@ -0,0 +1,180 @@
+package com.terrescalmes.core.graphics;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+import org.lwjgl.system.MemoryUtil;
+
+import com.terrescalmes.core.graphics.lights.PointLight;
+import com.terrescalmes.core.graphics.lights.SceneLights;
+import com.terrescalmes.core.graphics.lights.SpotLight;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.*;
+
+import static org.lwjgl.opengl.GL31.*;
+
+// Éclairage en clusters : lumières ponctuelles et spots passés en espace vue, répartis par LightClusters,
+// puis envoyés dans trois textures buffer lues par scene.frag :
+// - lightData (RGBA32F, LIGHT_TEXELS texels par lumière) : position + intensité, couleur, atténuation + portée,
+// direction du cône + cutoff (cutoff < -1 pour une lumière ponctuelle)
+// - clusterGrid (RG32UI, un texel par cluster) : premier index dans clusterLights, nombre de lumières
+// - clusterLights (R16UI) : index des lumières, cluster après cluster
+public class ClusteredLighting {
+
+    public static final int LIGHT_DATA_UNIT = 2;
+    public static final int CLUSTER_GRID_UNIT = 3;
+    public static final int CLUSTER_LIGHTS_UNIT = 4;
+
+    // Contribution en dessous de laquelle une lumière est ignorée, définit sa portée
+    private static final float LIGHT_THRESHOLD = 1.0f / 256.0f;
+    private static final int LIGHT_TEXELS = 4;
+    private static final float POINT_LIGHT_CUTOFF = -2.0f;
+
+    private final LightClusters clusters;
+    private final Vector4f aux;
+    // Données des lumières de la frame, LIGHT_TEXELS * 4 valeurs par lumière, copiées à l'envoi
+    private final float[] lightValues;
+    private int lightValueCount;
+    // Buffers natifs et textures créés au premier envoi, sur le thread OpenGL : prepare() tourne sans contexte
+    private FloatBuffer lightData;
+    private IntBuffer gridData;
+    private ShortBuffer indexData;
+    private TextureBuffer lightTexture;
+    private TextureBuffer gridTexture;
+    private TextureBuffer indexTexture;
+
+    public ClusteredLighting() {
+        clusters = new LightClusters();
+        aux = new Vector4f();
+        lightValues = new float[LightClusters.MAX_LIGHTS * LIGHT_TEXELS * 4];
+    }
+
+    public void cleanup() {
+        if (lightTexture == null) {
+            return;
+        }
+        lightTexture.cleanup();
+        gridTexture.cleanup();
+        indexTexture.cleanup();
+        MemoryUtil.memFree(lightData);
+        MemoryUtil.memFree(gridData);
+        MemoryUtil.memFree(indexData);
+    }
+
+    public void update(Scene scene) {
+        prepare(scene);
+        upload();
+    }
+
+    // Partie CPU de update(), sans OpenGL : lumières de la scène passées en espace vue et réparties dans les
+    // clusters
+    public void prepare(Scene scene) {
+        Matrix4f viewMatrix = scene.getCamera().getViewMatrix();
+        clusters.setProjection(scene.getProjection().getProjMatrix(), Projection.Z_NEAR, Projection.Z_FAR);
+        clusters.begin();
+        lightValueCount = 0;
+
+        SceneLights sceneLights = scene.getSceneLights();
+        List<PointLight> pointLights = sceneLights.getPointLights();
+        for (int i = 0; i < pointLights.size(); i++) {
+            addLight(pointLights.get(i), viewMatrix, null, POINT_LIGHT_CUTOFF);
+        }
+        List<SpotLight> spotLights = sceneLights.getSpotLights();
+        for (int i = 0; i < spotLights.size(); i++) {
+            SpotLight spotLight = spotLights.get(i);
+            addLight(spotLight.getPointLight(), viewMatrix, spotLight.getConeDirection(), spotLight.getCutOff());
+        }
+        clusters.assign();
+    }
+
+    private void upload() {
+        if (lightTexture == null) {
+            lightData = MemoryUtil.memAllocFloat(lightValues.length);
+            gridData = MemoryUtil.memAllocInt(LightClusters.CLUSTER_COUNT * 2);
+            indexData = MemoryUtil.memAllocShort(LightClusters.CLUSTER_COUNT);
+            lightTexture = new TextureBuffer(GL_RGBA32F);
+            gridTexture = new TextureBuffer(GL_RG32UI);
+            indexTexture = new TextureBuffer(GL_R16UI);
+        }
+        lightData.clear();
+        lightData.put(lightValues, 0, lightValueCount).flip();
+
+        int[] offsets = clusters.getClusterOffsets();
+        int[] counts = clusters.getClusterCounts();
+        gridData.clear();
+        for (int cluster = 0; cluster < LightClusters.CLUSTER_COUNT; cluster++) {
+            gridData.put(offsets[cluster]).put(counts[cluster]);
+        }
+        gridData.flip();
+
+        int indexCount = clusters.getIndexCount();
+        if (indexData.capacity() < indexCount) {
+            indexData = MemoryUtil.memRealloc(indexData, Math.max(indexCount, indexData.capacity() * 2));
+        }
+        int[] indices = clusters.getLightIndices();
+        indexData.clear();
+        for (int i = 0; i < indexCount; i++) {
+            indexData.put((short) indices[i]);
+        }
+        indexData.flip();
+
+        lightTexture.update(lightData);
+        gridTexture.update(gridData);
+        indexTexture.update(indexData);
+    }
+
+    // Une lumière éteinte ou hors de portée n'est pas envoyée
+    private void addLight(PointLight pointLight, Matrix4f viewMatrix, Vector3f coneDirection, float cutOff) {
+        PointLight.Attenuation attenuation = pointLight.getAttenuation();
+        float range = LightClusters.computeRange(pointLight.getIntensity(), attenuation.getConstant(),
+                attenuation.getLinear(), attenuation.getExponent(), LIGHT_THRESHOLD, Projection.Z_FAR);
+        if (range <= 0.0f) {
+            return;
+        }
+        aux.set(pointLight.getPosition(), 1).mul(viewMatrix);
+        if (clusters.addLight(aux.x, aux.y, aux.z, range) < 0) {
+            return;
+        }
+        putLightValues(aux.x, aux.y, aux.z, pointLight.getIntensity());
+        Vector3f color = pointLight.getColor();
+        putLightValues(color.x, color.y, color.z, 0.0f);
+        putLightValues(attenuation.getConstant(), attenuation.getLinear(), attenuation.getExponent(), range);
+        if (coneDirection == null) {
+            putLightValues(0.0f, 0.0f, 0.0f, cutOff);
+        } else {
+            aux.set(coneDirection, 0).mul(viewMatrix);
+            putLightValues(aux.x, aux.y, aux.z, cutOff);
+        }
+    }
+
+    // Un texel RGBA
+    private void putLightValues(float x, float y, float z, float w) {
+        lightValues[lightValueCount++] = x;
+        lightValues[lightValueCount++] = y;
+        lightValues[lightValueCount++] = z;
+        lightValues[lightValueCount++] = w;
+    }
+
+    // Les textures restent liées à leurs unités pour toute la frame
+    public void bind() {
+        glActiveTexture(GL_TEXTURE0 + LIGHT_DATA_UNIT);
+        lightTexture.bind();
+        glActiveTexture(GL_TEXTURE0 + CLUSTER_GRID_UNIT);
+        gridTexture.bind();
+        glActiveTexture(GL_TEXTURE0 + CLUSTER_LIGHTS_UNIT);
+        indexTexture.bind();
+        glActiveTexture(GL_TEXTURE0);
+    }
+
+    public LightClusters getClusters() {
+        return clusters;
+    }
+
+    // Lumières envoyées lors de la dernière frame
+    public int getLightCount() {
+        return clusters.getLightCount();
+    }
+}
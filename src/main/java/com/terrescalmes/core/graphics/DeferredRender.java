@@ -0,0 +1,139 @@
+package com.terrescalmes.core.graphics;
+
+import java.util.*;
+
+import static org.lwjgl.opengl.GL32.*;
+
+// Passes d'éclairage du rendu différé, après la passe géométrie (SceneRender et TerrainRender) :
+// - ambiante et directionnelle : un triangle plein écran
+// - lumières ponctuelles et spots : une sphère par lumière de ClusteredLighting (instanciée), mise à sa portée,
+// seuls les pixels couverts par le volume sont éclairés
+// - composition : accumulation + brouillard dans l'image finale, les pixels sans géométrie gardent la skybox
+public class DeferredRender {
+
+    private static final int SPHERE_RINGS = 8;
+    private static final int SPHERE_SEGMENTS = 12;
+    // Les faces de la sphère sont à l'intérieur de la sphère unité : le volume est agrandi pour la contenir
+    private static final float VOLUME_SCALE = (float) (1.0
+            / (java.lang.Math.cos(java.lang.Math.PI / SPHERE_RINGS) * java.lang.Math.cos(java.lang.Math.PI / SPHERE_SEGMENTS)));
+
+    private final ShaderProgram ambientProgram;
+    private final ShaderProgram compositeProgram;
+    private final int emptyVaoId;
+    private final GBuffer gBuffer;
+    private final ShaderProgram lightProgram;
+    private final Mesh sphereMesh;
+
+    public DeferredRender() {
+        gBuffer = new GBuffer();
+        ambientProgram = createProgram("resources/shaders/deferred_quad.vert", "resources/shaders/deferred_ambient.frag",
+                GBuffer.DIFFUSE, GBuffer.SPECULAR, GBuffer.AMBIENT, GBuffer.NORMAL, GBuffer.DEPTH);
+        lightProgram = createProgram("resources/shaders/deferred_light.vert", "resources/shaders/deferred_light.frag",
+                GBuffer.DIFFUSE, GBuffer.SPECULAR, GBuffer.NORMAL, GBuffer.DEPTH);
+        lightProgram.bindSampler("lightData", ClusteredLighting.LIGHT_DATA_UNIT);
+        UniformsMap lightUniforms = new UniformsMap(lightProgram.getProgramId());
+        int volumeScaleUniform = lightUniforms.createUniform("volumeScale");
+        lightProgram.bind();
+        lightUniforms.setUniform(volumeScaleUniform, VOLUME_SCALE);
+        lightProgram.unbind();
+        compositeProgram = createProgram("resources/shaders/deferred_quad.vert",
+                "resources/shaders/deferred_composite.frag", GBuffer.DEPTH, GBuffer.ACCUMULATION);
+        // Le triangle plein écran n'a pas d'attributs, mais le profil core exige un VAO
+        emptyVaoId = glGenVertexArrays();
+        sphereMesh = createSphere();
+    }
+
+    // Samplers : index des textures de GBuffer lues par le programme (les autres sont éliminés à la compilation)
+    private static ShaderProgram createProgram(String vertexShader, String fragmentShader, int... samplers) {
+        List<ShaderProgram.ShaderModuleData> shaderModuleDataList = new ArrayList<>();
+        shaderModuleDataList.add(new ShaderProgram.ShaderModuleData(vertexShader, GL_VERTEX_SHADER));
+        shaderModuleDataList.add(new ShaderProgram.ShaderModuleData(fragmentShader, GL_FRAGMENT_SHADER));
+        ShaderProgram shaderProgram = new ShaderProgram(shaderModuleDataList);
+        shaderProgram.bindUniformBlock(FrameUniforms.BLOCK_NAME, FrameUniforms.BINDING);
+        for (int sampler : samplers) {
+            shaderProgram.bindSampler(GBuffer.SAMPLER_NAMES[sampler], GBuffer.FIRST_UNIT + sampler);
+        }
+        return shaderProgram;
+    }
+
+    // Sphère unité à facettes, faces orientées vers l'extérieur. Seules les positions sont lues
+    private static Mesh createSphere() {
+        MeshBuilder builder = new MeshBuilder((SPHERE_RINGS + 1) * (SPHERE_SEGMENTS + 1),
+                SPHERE_RINGS * SPHERE_SEGMENTS * 6);
+        for (int ring = 0; ring <= SPHERE_RINGS; ring++) {
+            double theta = java.lang.Math.PI * ring / SPHERE_RINGS;
+            for (int segment = 0; segment <= SPHERE_SEGMENTS; segment++) {
+                double phi = 2.0 * java.lang.Math.PI * segment / SPHERE_SEGMENTS;
+                float x = (float) (java.lang.Math.sin(theta) * java.lang.Math.cos(phi));
+                float y = (float) java.lang.Math.cos(theta);
+                float z = (float) (java.lang.Math.sin(theta) * java.lang.Math.sin(phi));
+                builder.addPosition(x, y, z).addNormal(x, y, z);
+            }
+        }
+        int rowLength = SPHERE_SEGMENTS + 1;
+        for (int ring = 0; ring < SPHERE_RINGS; ring++) {
+            for (int segment = 0; segment < SPHERE_SEGMENTS; segment++) {
+                int top = ring * rowLength + segment;
+                int bottom = top + rowLength;
+                builder.addTriangle(top, top + 1, bottom);
+                builder.addTriangle(top + 1, bottom + 1, bottom);
+            }
+        }
+        return builder.build();
+    }
+
+    public void cleanup() {
+        ambientProgram.cleanup();
+        lightProgram.cleanup();
+        compositeProgram.cleanup();
+        sphereMesh.cleanup();
+        glDeleteVertexArrays(emptyVaoId);
+        gBuffer.cleanup();
+    }
+
+    // Prépare et lie le G-buffer pour la passe géométrie, couleurs et profondeur effacées
+    public void beginGeometry(int width, int height) {
+        gBuffer.resize(width, height);
+        gBuffer.bindGeometry();
+        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+    }
+
+    // Éclaire le G-buffer et compose le résultat dans le framebuffer par défaut.
+    // lightCount : lumières envoyées par ClusteredLighting, dont les textures sont liées
+    public void renderLighting(int lightCount) {
+        gBuffer.bindAccumulation();
+        glClear(GL_COLOR_BUFFER_BIT);
+        gBuffer.bindTextures();
+        glDisable(GL_DEPTH_TEST);
+        glDepthMask(false);
+
+        glBindVertexArray(emptyVaoId);
+        ambientProgram.bind();
+        glDrawArrays(GL_TRIANGLES, 0, 3);
+
+        if (lightCount > 0) {
+            // Faces arrière seulement : le volume reste dessiné quand la caméra est dedans
+            glEnable(GL_BLEND);
+            glBlendEquation(GL_FUNC_ADD);
+            glBlendFunc(GL_ONE, GL_ONE);
+            glCullFace(GL_FRONT);
+            lightProgram.bind();
+            glBindVertexArray(sphereMesh.getVaoId());
+            glDrawElementsInstancedBaseVertex(GL_TRIANGLES, sphereMesh.getNumVertices(), sphereMesh.getIndexType(),
+                    sphereMesh.getIndexOffset(), lightCount, sphereMesh.getBaseVertex());
+            glCullFace(GL_BACK);
+            glDisable(GL_BLEND);
+        }
+
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+        glBindVertexArray(emptyVaoId);
+        compositeProgram.bind();
+        glDrawArrays(GL_TRIANGLES, 0, 3);
+
+        glBindVertexArray(0);
+        compositeProgram.unbind();
+        gBuffer.unbindTextures();
+        glDepthMask(true);
+        glEnable(GL_DEPTH_TEST);
+    }
+}
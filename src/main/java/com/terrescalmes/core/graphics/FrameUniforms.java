@@ -0,0 +1,99 @@
+package com.terrescalmes.core.graphics;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+import org.lwjgl.system.MemoryUtil;
+
+import com.terrescalmes.core.graphics.lights.AmbientLight;
+import com.terrescalmes.core.graphics.lights.DirLight;
+import com.terrescalmes.core.graphics.lights.SceneLights;
+
+import java.nio.ByteBuffer;
+
+// Bloc FrameData de frame_data.glsl (caméra, lumière directionnelle, brouillard, paramètres des clusters),
+// écrit une fois par frame dans un UBO partagé par tous les programmes de la scène. Les offsets suivent
+// les règles std140. Les lumières ponctuelles et spots sont dans les textures de ClusteredLighting
+public class FrameUniforms {
+
+    public static final String BLOCK_NAME = "FrameData";
+    public static final int BINDING = 0;
+
+    private static final int PROJECTION_OFFSET = 0;
+    private static final int VIEW_OFFSET = 64;
+    private static final int CAMERA_OFFSET = 128;
+    private static final int AMBIENT_OFFSET = 144;
+    private static final int DIR_COLOR_OFFSET = 160;
+    private static final int DIR_DIRECTION_OFFSET = 176;
+    private static final int FOG_OFFSET = 192;
+    private static final int COUNTS_OFFSET = 208;
+    private static final int CLUSTER_SCALE_OFFSET = 224;
+    private static final int CLUSTER_DIMS_OFFSET = 240;
+    private static final int INV_PROJECTION_OFFSET = 256;
+    private static final int SIZE = 320;
+
+    private final Vector4f aux;
+    private final Matrix4f invProjection;
+    private final UniformBuffer buffer;
+    private final ByteBuffer data;
+
+    public FrameUniforms() {
+        aux = new Vector4f();
+        invProjection = new Matrix4f();
+        data = MemoryUtil.memCalloc(SIZE);
+        buffer = new UniformBuffer(BINDING, SIZE);
+        buffer.bindBase();
+    }
+
+    public void cleanup() {
+        buffer.cleanup();
+        MemoryUtil.memFree(data);
+    }
+
+    // width et height : taille du viewport, pour retrouver la tuile d'un fragment depuis gl_FragCoord
+    public void update(Scene scene, ClusteredLighting clusteredLighting, int width, int height) {
+        Matrix4f viewMatrix = scene.getCamera().getViewMatrix();
+        Matrix4f projMatrix = scene.getProjection().getProjMatrix();
+        projMatrix.get(PROJECTION_OFFSET, data);
+        // Positions en espace vue reconstruites depuis la profondeur par le rendu différé
+        projMatrix.invertPerspective(invProjection).get(INV_PROJECTION_OFFSET, data);
+        viewMatrix.get(VIEW_OFFSET, data);
+        putVector(CAMERA_OFFSET, scene.getCamera().getPosition(), 1.0f);
+
+        SceneLights sceneLights = scene.getSceneLights();
+        AmbientLight ambientLight = sceneLights.getAmbientLight();
+        putVector(AMBIENT_OFFSET, ambientLight.getColor(), ambientLight.getIntensity());
+
+        DirLight dirLight = sceneLights.getDirLight();
+        putVector(DIR_COLOR_OFFSET, dirLight.getColor(), dirLight.getIntensity());
+        aux.set(dirLight.getDirection(), 0).mul(viewMatrix);
+        putVector(DIR_DIRECTION_OFFSET, aux.x, aux.y, aux.z, 0.0f);
+
+        Fog fog = scene.getFog();
+        putVector(FOG_OFFSET, fog.getColor(), fog.getDensity());
+
+        data.putInt(COUNTS_OFFSET, clusteredLighting.getLightCount());
+        data.putInt(COUNTS_OFFSET + 4, 0);
+        data.putInt(COUNTS_OFFSET + 8, fog.isActive() ? 1 : 0);
+
+        LightClusters clusters = clusteredLighting.getClusters();
+        putVector(CLUSTER_SCALE_OFFSET, (float) LightClusters.CLUSTERS_X / width,
+                (float) LightClusters.CLUSTERS_Y / height, clusters.getSliceScale(), clusters.getSliceBias());
+        data.putInt(CLUSTER_DIMS_OFFSET, LightClusters.CLUSTERS_X);
+        data.putInt(CLUSTER_DIMS_OFFSET + 4, LightClusters.CLUSTERS_Y);
+        data.putInt(CLUSTER_DIMS_OFFSET + 8, LightClusters.CLUSTERS_Z);
+
+        buffer.update(data);
+    }
+
+    private void putVector(int offset, Vector3f xyz, float w) {
+        putVector(offset, xyz.x, xyz.y, xyz.z, w);
+    }
+
+    private void putVector(int offset, float x, float y, float z, float w) {
+        data.putFloat(offset, x);
+        data.putFloat(offset + 4, y);
+        data.putFloat(offset + 8, z);
+        data.putFloat(offset + 12, w);
+    }
+}
@@ -0,0 +1,113 @@
+package com.terrescalmes.core.graphics;
+
+import org.joml.Matrix4f;
+import org.joml.Vector4f;
+
+import java.util.*;
+
+// Test de visibilité contre les six plans du frustum de la caméra, mis à jour une fois par frame.
+// Les sphères à tester sont rangées en tableaux séparés (x, y, z, rayon) remplis par l'appelant :
+// la boucle de cull() ne touche que des float contigus, sans objet ni allocation
+public class FrustumCuller {
+
+    private static final int PLANES = 6;
+
+    // Plans normalisés a * x + b * y + c * z + d >= 0 à l'intérieur
+    private final float[] planeA;
+    private final float[] planeB;
+    private final float[] planeC;
+    private final float[] planeD;
+    private final Matrix4f projViewMatrix;
+    private final Vector4f plane;
+
+    private float[] centerX;
+    private float[] centerY;
+    private float[] centerZ;
+    private float[] radius;
+    private int[] visible;
+
+    public FrustumCuller() {
+        planeA = new float[PLANES];
+        planeB = new float[PLANES];
+        planeC = new float[PLANES];
+        planeD = new float[PLANES];
+        projViewMatrix = new Matrix4f();
+        plane = new Vector4f();
+        ensureCapacity(256);
+    }
+
+    public void update(Matrix4f projMatrix, Matrix4f viewMatrix) {
+        projMatrix.mul(viewMatrix, projViewMatrix);
+        for (int i = 0; i < PLANES; i++) {
+            projViewMatrix.frustumPlane(i, plane);
+            planeA[i] = plane.x;
+            planeB[i] = plane.y;
+            planeC[i] = plane.z;
+            planeD[i] = plane.w;
+        }
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (centerX != null && centerX.length >= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, centerX == null ? 0 : centerX.length * 2);
+        centerX = centerX == null ? new float[newCapacity] : Arrays.copyOf(centerX, newCapacity);
+        centerY = centerY == null ? new float[newCapacity] : Arrays.copyOf(centerY, newCapacity);
+        centerZ = centerZ == null ? new float[newCapacity] : Arrays.copyOf(centerZ, newCapacity);
+        radius = radius == null ? new float[newCapacity] : Arrays.copyOf(radius, newCapacity);
+        visible = visible == null ? new int[newCapacity] : Arrays.copyOf(visible, newCapacity);
+    }
+
+    public void setSphere(int index, float x, float y, float z, float r) {
+        centerX[index] = x;
+        centerY[index] = y;
+        centerZ[index] = z;
+        radius[index] = r;
+    }
+
+    // Teste les count premières sphères, leurs index visibles sont dans getVisible()[0 .. retour)
+    public int cull(int count) {
+        float a0 = planeA[0], b0 = planeB[0], c0 = planeC[0], d0 = planeD[0];
+        float a1 = planeA[1], b1 = planeB[1], c1 = planeC[1], d1 = planeD[1];
+        float a2 = planeA[2], b2 = planeB[2], c2 = planeC[2], d2 = planeD[2];
+        float a3 = planeA[3], b3 = planeB[3], c3 = planeC[3], d3 = planeD[3];
+        float a4 = planeA[4], b4 = planeB[4], c4 = planeC[4], d4 = planeD[4];
+        float a5 = planeA[5], b5 = planeB[5], c5 = planeC[5], d5 = planeD[5];
+        float[] xs = centerX;
+        float[] ys = centerY;
+        float[] zs = centerZ;
+        float[] rs = radius;
+        int visibleCount = 0;
+        for (int i = 0; i < count; i++) {
+            float x = xs[i];
+            float y = ys[i];
+            float z = zs[i];
+            float r = -rs[i];
+            if (a0 * x + b0 * y + c0 * z + d0 >= r && a1 * x + b1 * y + c1 * z + d1 >= r
+                    && a2 * x + b2 * y + c2 * z + d2 >= r && a3 * x + b3 * y + c3 * z + d3 >= r
+                    && a4 * x + b4 * y + c4 * z + d4 >= r && a5 * x + b5 * y + c5 * z + d5 >= r) {
+                visible[visibleCount++] = i;
+            }
+        }
+        return visibleCount;
+    }
+
+    // Test d'une boîte alignée sur les axes : on teste le sommet le plus avancé dans la direction de chaque plan
+    public boolean isAabbVisible(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        for (int i = 0; i < PLANES; i++) {
+            float a = planeA[i];
+            float b = planeB[i];
+            float c = planeC[i];
+            if (a * (a >= 0 ? maxX : minX) + b * (b >= 0 ? maxY : minY) + c * (c >= 0 ? maxZ : minZ)
+                    + planeD[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int[] getVisible() {
+        return visible;
+    }
+}
@@ -0,0 +1,127 @@
+package com.terrescalmes.core.graphics;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL30.*;
+
+// Cibles du rendu différé, à la taille de la fenêtre :
+// - G-buffer : diffuse, spéculaire + réflectance, ambiante, normale en espace vue (RGBA16F, les couleurs
+// texture + matériau dépassent 1), profondeur (DEPTH_COMPONENT32F)
+// - accumulation : somme des lumières (RGBA16F), composée ensuite dans l'image finale
+// Les textures sont lues par texelFetch au pixel courant, unités FIRST_UNIT à FIRST_UNIT + 5
+public class GBuffer {
+
+    public static final int DIFFUSE = 0;
+    public static final int SPECULAR = 1;
+    public static final int AMBIENT = 2;
+    public static final int NORMAL = 3;
+    public static final int DEPTH = 4;
+    public static final int ACCUMULATION = 5;
+    // Après les textures buffer de ClusteredLighting
+    public static final int FIRST_UNIT = 5;
+    public static final String[] SAMPLER_NAMES = {"gDiffuse", "gSpecular", "gAmbient", "gNormal", "gDepth",
+            "lightAccumulation"};
+
+    private static final int COLOR_TARGETS = 4;
+
+    private int accumulationFboId;
+    private final int[] drawBuffers;
+    private int gBufferFboId;
+    private int height;
+    private final int[] textureIds;
+    private int width;
+
+    public GBuffer() {
+        textureIds = new int[SAMPLER_NAMES.length];
+        drawBuffers = new int[COLOR_TARGETS];
+        for (int i = 0; i < COLOR_TARGETS; i++) {
+            drawBuffers[i] = GL_COLOR_ATTACHMENT0 + i;
+        }
+    }
+
+    // (Re)crée les cibles si la taille a changé depuis le dernier appel
+    public void resize(int width, int height) {
+        if (gBufferFboId != 0 && width == this.width && height == this.height) {
+            return;
+        }
+        cleanup();
+        this.width = width;
+        this.height = height;
+
+        gBufferFboId = glGenFramebuffers();
+        glBindFramebuffer(GL_FRAMEBUFFER, gBufferFboId);
+        for (int i = 0; i < COLOR_TARGETS; i++) {
+            textureIds[i] = createTexture(GL_RGBA16F, GL_RGBA, GL_HALF_FLOAT);
+            glFramebufferTexture2D(GL_FRAMEBUFFER, drawBuffers[i], GL_TEXTURE_2D, textureIds[i], 0);
+        }
+        textureIds[DEPTH] = createTexture(GL_DEPTH_COMPONENT32F, GL_DEPTH_COMPONENT, GL_FLOAT);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, GL_TEXTURE_2D, textureIds[DEPTH], 0);
+        glDrawBuffers(drawBuffers);
+        checkStatus("G-buffer");
+
+        // Sans profondeur : les passes d'éclairage lisent celle du G-buffer
+        accumulationFboId = glGenFramebuffers();
+        glBindFramebuffer(GL_FRAMEBUFFER, accumulationFboId);
+        textureIds[ACCUMULATION] = createTexture(GL_RGBA16F, GL_RGBA, GL_HALF_FLOAT);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, textureIds[ACCUMULATION], 0);
+        checkStatus("accumulation");
+
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+    }
+
+    private int createTexture(int internalFormat, int format, int type) {
+        int textureId = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, textureId);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glTexImage2D(GL_TEXTURE_2D, 0, internalFormat, width, height, 0, format, type, (ByteBuffer) null);
+        glBindTexture(GL_TEXTURE_2D, 0);
+        return textureId;
+    }
+
+    private static void checkStatus(String name) {
+        int status = glCheckFramebufferStatus(GL_FRAMEBUFFER);
+        if (status != GL_FRAMEBUFFER_COMPLETE) {
+            glBindFramebuffer(GL_FRAMEBUFFER, 0);
+            throw new RuntimeException("Incomplete " + name + " framebuffer [" + status + "]");
+        }
+    }
+
+    public void bindGeometry() {
+        glBindFramebuffer(GL_FRAMEBUFFER, gBufferFboId);
+    }
+
+    public void bindAccumulation() {
+        glBindFramebuffer(GL_FRAMEBUFFER, accumulationFboId);
+    }
+
+    // Toutes les textures sur leurs unités, FIRST_UNIT + index de SAMPLER_NAMES
+    public void bindTextures() {
+        for (int i = 0; i < textureIds.length; i++) {
+            glActiveTexture(GL_TEXTURE0 + FIRST_UNIT + i);
+            glBindTexture(GL_TEXTURE_2D, textureIds[i]);
+        }
+        glActiveTexture(GL_TEXTURE0);
+    }
+
+    public void unbindTextures() {
+        for (int i = 0; i < textureIds.length; i++) {
+            glActiveTexture(GL_TEXTURE0 + FIRST_UNIT + i);
+            glBindTexture(GL_TEXTURE_2D, 0);
+        }
+        glActiveTexture(GL_TEXTURE0);
+    }
+
+    public void cleanup() {
+        if (gBufferFboId == 0) {
+            return;
+        }
+        glDeleteFramebuffers(gBufferFboId);
+        glDeleteFramebuffers(accumulationFboId);
+        glDeleteTextures(textureIds);
+        gBufferFboId = 0;
+        accumulationFboId = 0;
+    }
+}
@@ -25,6 +25,7 @@ public class GuiRender {
     private Vector2f scale;
     private ShaderProgram shaderProgram;
     private Texture texture;
+    private int scaleUniform;
     private UniformsMap uniformsMap;
 
     public GuiRender(Window window) {
@@ -65,7 +66,7 @@ public class GuiRender {
 
     private void createUniforms() {
         uniformsMap = new UniformsMap(shaderProgram.getProgramId());
-        uniformsMap.createUniform("scale");
+        scaleUniform = uniformsMap.createUniform("scale");
         scale = new Vector2f();
     }
 
@@ -92,7 +93,7 @@ public class GuiRender {
         ImGuiIO io = ImGui.getIO();
         scale.x = 2.0f / io.getDisplaySizeX();
         scale.y = -2.0f / io.getDisplaySizeY();
-        uniformsMap.setUniform("scale", scale);
+        uniformsMap.setUniform(scaleUniform, scale);
 
         ImDrawData drawData = ImGui.getDrawData();
         int numLists = drawData.getCmdListsCount();
@@ -0,0 +1,50 @@
+package com.terrescalmes.core.graphics;
+
+import static org.lwjgl.opengl.GL33.*;
+
+// Temps GPU d'une partie de la frame (GL_TIME_ELAPSED). Les requêtes tournent sur QUERY_COUNT frames :
+// un résultat est lu quelques frames plus tard, quand il est disponible, sans jamais attendre le GPU
+public class GpuTimer {
+
+    private static final int QUERY_COUNT = 3;
+
+    private int current;
+    private long lastNanos = -1;
+    private final boolean[] pending;
+    private final int[] queryIds;
+
+    public GpuTimer() {
+        queryIds = new int[QUERY_COUNT];
+        glGenQueries(queryIds);
+        pending = new boolean[QUERY_COUNT];
+    }
+
+    public void begin() {
+        // Résultat encore en vol après QUERY_COUNT frames : abandonné plutôt qu'attendu
+        pending[current] = false;
+        glBeginQuery(GL_TIME_ELAPSED, queryIds[current]);
+    }
+
+    public void end() {
+        glEndQuery(GL_TIME_ELAPSED);
+        pending[current] = true;
+        current = (current + 1) % QUERY_COUNT;
+        // Les requêtes suivantes sont plus récentes : la dernière disponible donne le temps le plus frais
+        for (int i = 0; i < QUERY_COUNT - 1; i++) {
+            int index = (current + i) % QUERY_COUNT;
+            if (pending[index] && glGetQueryObjecti(queryIds[index], GL_QUERY_RESULT_AVAILABLE) != GL_FALSE) {
+                lastNanos = glGetQueryObjecti64(queryIds[index], GL_QUERY_RESULT);
+                pending[index] = false;
+            }
+        }
+    }
+
+    // Dernier temps mesuré en millisecondes, -1 si aucun résultat n'est encore disponible
+    public float getLastMillis() {
+        return lastNanos < 0 ? -1.0f : lastNanos / 1_000_000.0f;
+    }
+
+    public void cleanup() {
+        glDeleteQueries(queryIds);
+    }
+}
@@ -0,0 +1,104 @@
+package com.terrescalmes.core.graphics;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.*;
+
+import static org.lwjgl.opengl.GL30.*;
+
+// Grille régulière gridSize x gridSize partagée par tous les nœuds du terrain.
+// Un seul attribut : les coordonnées entières (x, z) du sommet dans la grille, en entiers 16 bits
+// (VertexLayout.GRID), la hauteur vient du shader. Indices 16 bits, d'où au plus MAX_GRID_SIZE quads par côté.
+// Les indices sont rangés par quadrant (haut-gauche, haut-droit, bas-gauche, bas-droit) pour pouvoir
+// ne dessiner qu'une partie d'un nœud
+public class GridMesh {
+
+    public static final int MAX_GRID_SIZE = 254; // 255 x 255 sommets, indexables sur 16 bits
+
+    private final int gridSize;
+    private final int iboId;
+    private final int numIndices;
+    private final int vaoId;
+    private final int vboId;
+
+    public GridMesh(int gridSize) {
+        if (gridSize < 2 || gridSize % 2 != 0 || gridSize > MAX_GRID_SIZE) {
+            throw new IllegalArgumentException("Grid size must be even [" + gridSize + "]");
+        }
+        this.gridSize = gridSize;
+        int vertexCount = gridSize + 1;
+        numIndices = gridSize * gridSize * 6;
+
+        ShortBuffer vertices = MemoryUtil.memAllocShort(vertexCount * vertexCount * 2);
+        for (int z = 0; z < vertexCount; z++) {
+            for (int x = 0; x < vertexCount; x++) {
+                vertices.put((short) x).put((short) z);
+            }
+        }
+        vertices.flip();
+
+        int half = gridSize / 2;
+        ShortBuffer indices = MemoryUtil.memAllocShort(numIndices);
+        for (int quadrant = 0; quadrant < 4; quadrant++) {
+            int startX = (quadrant & 1) * half;
+            int startZ = (quadrant >> 1) * half;
+            for (int z = startZ; z < startZ + half; z++) {
+                for (int x = startX; x < startX + half; x++) {
+                    int topLeft = z * vertexCount + x;
+                    int topRight = topLeft + 1;
+                    int bottomLeft = topLeft + vertexCount;
+                    int bottomRight = bottomLeft + 1;
+                    // Même ordre que les chunks (sens anti-horaire vu du dessus)
+                    indices.put((short) topLeft).put((short) bottomLeft).put((short) topRight);
+                    indices.put((short) topRight).put((short) bottomLeft).put((short) bottomRight);
+                }
+            }
+        }
+        indices.flip();
+
+        vaoId = glGenVertexArrays();
+        glBindVertexArray(vaoId);
+
+        vboId = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
+        VertexLayout.GRID.setupAttributes(0);
+
+        iboId = glGenBuffers();
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, iboId);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+
+        MemoryUtil.memFree(vertices);
+        MemoryUtil.memFree(indices);
+    }
+
+    public void cleanup() {
+        glDeleteBuffers(vboId);
+        glDeleteBuffers(iboId);
+        glDeleteVertexArrays(vaoId);
+    }
+
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    public int getNumIndices() {
+        return numIndices;
+    }
+
+    public int getQuadrantIndexCount() {
+        return numIndices / 4;
+    }
+
+    // Position en octets des indices du quadrant
+    public long getQuadrantIndexOffset(int quadrant) {
+        return (long) quadrant * getQuadrantIndexCount() * Short.BYTES;
+    }
+
+    public int getVaoId() {
+        return vaoId;
+    }
+}
@@ -0,0 +1,114 @@
+package com.terrescalmes.core.graphics;
+
+import java.util.*;
+
+// Heightmaps de plusieurs chunks rangées dans une seule texture, un emplacement carré par chunk.
+// Envoyer un chunk revient à un glTexSubImage2D, les sommets viennent d'une grille partagée (TerrainRender)
+public class HeightAtlas {
+
+    private final int slotSize;
+    private final int slotsPerSide;
+    private final HeightMapTexture texture;
+    private final Deque<Integer> freeSlots;
+    private final boolean[] used;
+    private final float[] maxHeight;
+    private final float[] minHeight;
+    private final float[] worldX;
+    private final float[] worldZ;
+    private int usedCount;
+
+    // slotSize texels par côté et par emplacement, bordure comprise
+    public HeightAtlas(int slotSize, int slotsPerSide) {
+        this.slotSize = slotSize;
+        this.slotsPerSide = slotsPerSide;
+        int capacity = slotsPerSide * slotsPerSide;
+        texture = new HeightMapTexture(slotSize * slotsPerSide, slotSize * slotsPerSide);
+        freeSlots = new ArrayDeque<>(capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            freeSlots.add(slot);
+        }
+        used = new boolean[capacity];
+        minHeight = new float[capacity];
+        maxHeight = new float[capacity];
+        worldX = new float[capacity];
+        worldZ = new float[capacity];
+    }
+
+    // Retourne -1 si l'atlas est plein
+    public int allocate() {
+        Integer slot = freeSlots.poll();
+        if (slot == null) {
+            return -1;
+        }
+        used[slot] = true;
+        usedCount++;
+        return slot;
+    }
+
+    public void cleanup() {
+        texture.cleanup();
+    }
+
+    public void release(int slot) {
+        if (!used[slot]) {
+            return;
+        }
+        used[slot] = false;
+        usedCount--;
+        freeSlots.add(slot);
+    }
+
+    // heights en [z * slotSize + x], worldX/worldZ position monde du premier sommet hors bordure,
+    // minHeight/maxHeight bornes verticales du chunk pour le culling
+    public void upload(int slot, float[] heights, float worldX, float worldZ, float minHeight, float maxHeight) {
+        texture.update(getSlotX(slot), getSlotY(slot), slotSize, slotSize, heights);
+        this.worldX[slot] = worldX;
+        this.worldZ[slot] = worldZ;
+        this.minHeight[slot] = minHeight;
+        this.maxHeight[slot] = maxHeight;
+    }
+
+    public int getCapacity() {
+        return used.length;
+    }
+
+    public float getMaxHeight(int slot) {
+        return maxHeight[slot];
+    }
+
+    public float getMinHeight(int slot) {
+        return minHeight[slot];
+    }
+
+    public int getSlotSize() {
+        return slotSize;
+    }
+
+    public int getSlotX(int slot) {
+        return (slot % slotsPerSide) * slotSize;
+    }
+
+    public int getSlotY(int slot) {
+        return (slot / slotsPerSide) * slotSize;
+    }
+
+    public HeightMapTexture getTexture() {
+        return texture;
+    }
+
+    public int getUsedCount() {
+        return usedCount;
+    }
+
+    public float getWorldX(int slot) {
+        return worldX[slot];
+    }
+
+    public float getWorldZ(int slot) {
+        return worldZ[slot];
+    }
+
+    public boolean isUsed(int slot) {
+        return used[slot];
+    }
+}
@@ -0,0 +1,57 @@
+package com.terrescalmes.core.graphics;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL30.*;
+
+// Heightmap flottante (R32F) lue dans le vertex shader du terrain, en [z * width + x]
+public class HeightMapTexture {
+
+    private final int height;
+    private final int textureId;
+    private final int width;
+
+    public HeightMapTexture(int width, int height, float[] heights) {
+        this(width, height);
+        update(0, 0, width, height, heights);
+    }
+
+    // Texture non initialisée, remplie par zones avec update()
+    public HeightMapTexture(int width, int height) {
+        this.width = width;
+        this.height = height;
+        textureId = glGenTextures();
+
+        glBindTexture(GL_TEXTURE_2D, textureId);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_R32F, width, height, 0, GL_RED, GL_FLOAT, (FloatBuffer) null);
+        glBindTexture(GL_TEXTURE_2D, 0);
+    }
+
+    public void bind() {
+        glBindTexture(GL_TEXTURE_2D, textureId);
+    }
+
+    // Remplace la zone [x, x + w) x [y, y + h) par data, en [row * w + column]
+    public void update(int x, int y, int w, int h, float[] data) {
+        glBindTexture(GL_TEXTURE_2D, textureId);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 4);
+        glTexSubImage2D(GL_TEXTURE_2D, 0, x, y, w, h, GL_RED, GL_FLOAT, data);
+        glBindTexture(GL_TEXTURE_2D, 0);
+    }
+
+    public void cleanup() {
+        glDeleteTextures(textureId);
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+}
@@ -0,0 +1,121 @@
+package com.terrescalmes.core.graphics;
+
+import org.lwjgl.system.MemoryUtil;
+
+import com.terrescalmes.entities.Entity;
+
+import java.nio.FloatBuffer;
+import java.util.*;
+
+import static org.lwjgl.opengl.GL33.*;
+
+// Matrices modèle des entités d'un Model, une par instance, lues par scene.vert (attributs 3 à 6, divisor 1).
+// Les VAO des meshes sont partagés entre modèles (MeshPool) : les attributs sont rebranchés sur le buffer du modèle
+// avant ses appels de dessin, voir bind().
+// Seules les instances modifiées depuis la frame précédente (entité différente à cet index ou
+// Entity.updateModelMatrix() appelé) sont renvoyées au GPU, par plages contiguës
+public class InstanceBuffer {
+
+    public static final int FIRST_ATTRIBUTE = 3;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MATRIX_FLOATS = 16;
+    private static final int MATRIX_BYTES = MATRIX_FLOATS * Float.BYTES;
+    private static final int MERGE_GAP = 32; // Instances inchangées tolérées dans une même plage d'envoi
+
+    private int capacity;
+    private int count;
+    private FloatBuffer data;
+    private Entity[] entities; // Entité dont la matrice occupe chaque instance sur le GPU
+    private final int vboId;
+
+    public InstanceBuffer() {
+        vboId = glGenBuffers();
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int newCapacity) {
+        if (data != null) {
+            MemoryUtil.memFree(data);
+        }
+        capacity = newCapacity;
+        data = MemoryUtil.memAllocFloat(capacity * MATRIX_FLOATS);
+        // Toutes les instances seront réécrites
+        entities = new Entity[capacity];
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ARRAY_BUFFER, (long) capacity * MATRIX_BYTES, GL_DYNAMIC_DRAW);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    // Branche les attributs d'instance du VAO actuellement lié sur ce buffer
+    public void bind() {
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        for (int column = 0; column < 4; column++) {
+            int attribute = FIRST_ATTRIBUTE + column;
+            glEnableVertexAttribArray(attribute);
+            glVertexAttribPointer(attribute, 4, GL_FLOAT, false, MATRIX_BYTES, (long) column * 4 * Float.BYTES);
+            glVertexAttribDivisor(attribute, 1);
+        }
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    public void cleanup() {
+        glDeleteBuffers(vboId);
+        MemoryUtil.memFree(data);
+        data = null;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    // Synchronise le buffer avec la liste d'entités du modèle et retourne le nombre d'instances
+    public int update(List<Entity> entityList) {
+        int size = entityList.size();
+        if (size > capacity) {
+            int newCapacity = capacity;
+            while (newCapacity < size) {
+                newCapacity *= 2;
+            }
+            allocate(newCapacity);
+        }
+
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        int runStart = -1;
+        int runEnd = -1;
+        for (int i = 0; i < size; i++) {
+            Entity entity = entityList.get(i);
+            if (entities[i] == entity && !entity.isModelMatrixDirty()) {
+                continue;
+            }
+            entity.getModelMatrix().get(i * MATRIX_FLOATS, data);
+            entity.clearModelMatrixDirty();
+            entities[i] = entity;
+
+            if (runStart >= 0 && i - runEnd > MERGE_GAP) {
+                upload(runStart, runEnd);
+                runStart = -1;
+            }
+            if (runStart < 0) {
+                runStart = i;
+            }
+            runEnd = i + 1;
+        }
+        if (runStart >= 0) {
+            upload(runStart, runEnd);
+        }
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+        // Les instances retirées ne retiennent plus leurs entités
+        Arrays.fill(entities, size, Math.max(size, count), null);
+        count = size;
+        return count;
+    }
+
+    // Fenêtre position/limit sur le buffer plutôt qu'un slice() : aucun objet alloué par envoi
+    private void upload(int start, int end) {
+        data.limit(end * MATRIX_FLOATS).position(start * MATRIX_FLOATS);
+        glBufferSubData(GL_ARRAY_BUFFER, (long) start * MATRIX_BYTES, data);
+        data.clear();
+    }
+}
@@ -0,0 +1,364 @@
+package com.terrescalmes.core.graphics;
+
+import org.joml.Matrix4f;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Découpage du frustum en clusters (tuiles écran x tranches de profondeur exponentielles) et affectation
+// des lumières, vues comme des sphères en espace vue, aux clusters qu'elles touchent.
+// Chaque tranche est traitée par sa propre tâche sur le pool ForkJoin commun, dans ses propres tableaux ;
+// les résultats sont ensuite mis bout à bout : clusterOffsets/clusterCounts indexent lightIndices.
+// Les tâches et tableaux sont réutilisés d'une frame à l'autre
+public class LightClusters {
+
+    public static final int CLUSTERS_X = 16;
+    public static final int CLUSTERS_Y = 9;
+    public static final int CLUSTERS_Z = 24;
+    public static final int CLUSTER_COUNT = CLUSTERS_X * CLUSTERS_Y * CLUSTERS_Z;
+    public static final int MAX_LIGHTS = 1024;
+
+    static final int PARALLEL_THRESHOLD = 32; // En dessous, les tranches sont traitées sur le thread courant
+    private static final int TILES_PER_SLICE = CLUSTERS_X * CLUSTERS_Y;
+
+    // Boîtes des clusters en espace vue (z négatif devant la caméra), recalculées quand la projection change
+    private final float[] boxMaxX;
+    private final float[] boxMaxY;
+    private final float[] boxMaxZ;
+    private final float[] boxMinX;
+    private final float[] boxMinY;
+    private final float[] boxMinZ;
+    private float projX;
+    private float projY;
+    private float zFar;
+    private float zNear;
+    private float sliceBias;
+    private float sliceScale;
+
+    // Lumières de la frame, en espace vue
+    private int lightCount;
+    private final float[] lightX;
+    private final float[] lightY;
+    private final float[] lightZ;
+    private final float[] lightRadius;
+    // Étendue de chaque lumière en clusters, MIN > MAX si elle est hors du frustum
+    private final int[] lightMinTileX;
+    private final int[] lightMaxTileX;
+    private final int[] lightMinTileY;
+    private final int[] lightMaxTileY;
+    private final int[] lightMinSlice;
+    private final int[] lightMaxSlice;
+
+    private final int[] clusterCounts;
+    private final int[] clusterOffsets;
+    private int[] lightIndices;
+    private int indexCount;
+
+    private final AssignTask assignTask;
+    private final SliceTask[] sliceTasks;
+
+    public LightClusters() {
+        boxMinX = new float[CLUSTER_COUNT];
+        boxMinY = new float[CLUSTER_COUNT];
+        boxMinZ = new float[CLUSTER_COUNT];
+        boxMaxX = new float[CLUSTER_COUNT];
+        boxMaxY = new float[CLUSTER_COUNT];
+        boxMaxZ = new float[CLUSTER_COUNT];
+        lightX = new float[MAX_LIGHTS];
+        lightY = new float[MAX_LIGHTS];
+        lightZ = new float[MAX_LIGHTS];
+        lightRadius = new float[MAX_LIGHTS];
+        lightMinTileX = new int[MAX_LIGHTS];
+        lightMaxTileX = new int[MAX_LIGHTS];
+        lightMinTileY = new int[MAX_LIGHTS];
+        lightMaxTileY = new int[MAX_LIGHTS];
+        lightMinSlice = new int[MAX_LIGHTS];
+        lightMaxSlice = new int[MAX_LIGHTS];
+        clusterCounts = new int[CLUSTER_COUNT];
+        clusterOffsets = new int[CLUSTER_COUNT];
+        lightIndices = new int[CLUSTER_COUNT];
+        sliceTasks = new SliceTask[CLUSTERS_Z];
+        for (int slice = 0; slice < CLUSTERS_Z; slice++) {
+            sliceTasks[slice] = new SliceTask(slice);
+        }
+        assignTask = new AssignTask();
+    }
+
+    // Perspective symétrique : x_vue = x_ndc * profondeur / m00, y_vue = y_ndc * profondeur / m11
+    public void setProjection(Matrix4f projMatrix, float near, float far) {
+        if (projMatrix.m00() == projX && projMatrix.m11() == projY && near == zNear && far == zFar) {
+            return;
+        }
+        projX = projMatrix.m00();
+        projY = projMatrix.m11();
+        zNear = near;
+        zFar = far;
+        float logRatio = (float) Math.log(far / near);
+        sliceScale = CLUSTERS_Z / logRatio;
+        sliceBias = -CLUSTERS_Z * (float) Math.log(near) / logRatio;
+
+        for (int slice = 0; slice < CLUSTERS_Z; slice++) {
+            float sliceNear = sliceDepth(slice);
+            float sliceFar = sliceDepth(slice + 1);
+            for (int tileY = 0; tileY < CLUSTERS_Y; tileY++) {
+                float ndcMinY = -1.0f + 2.0f * tileY / CLUSTERS_Y;
+                float ndcMaxY = ndcMinY + 2.0f / CLUSTERS_Y;
+                for (int tileX = 0; tileX < CLUSTERS_X; tileX++) {
+                    float ndcMinX = -1.0f + 2.0f * tileX / CLUSTERS_X;
+                    float ndcMaxX = ndcMinX + 2.0f / CLUSTERS_X;
+                    int cluster = clusterIndex(tileX, tileY, slice);
+                    // Les coins extrêmes d'une tuile sont à la tranche proche ou lointaine selon le signe
+                    boxMinX[cluster] = Math.min(ndcMinX * sliceNear, ndcMinX * sliceFar) / projX;
+                    boxMaxX[cluster] = Math.max(ndcMaxX * sliceNear, ndcMaxX * sliceFar) / projX;
+                    boxMinY[cluster] = Math.min(ndcMinY * sliceNear, ndcMinY * sliceFar) / projY;
+                    boxMaxY[cluster] = Math.max(ndcMaxY * sliceNear, ndcMaxY * sliceFar) / projY;
+                    boxMinZ[cluster] = -sliceFar;
+                    boxMaxZ[cluster] = -sliceNear;
+                }
+            }
+        }
+    }
+
+    // Distance à la caméra du début de la tranche
+    private float sliceDepth(int slice) {
+        return zNear * (float) Math.pow(zFar / zNear, (float) slice / CLUSTERS_Z);
+    }
+
+    public static int clusterIndex(int tileX, int tileY, int slice) {
+        return (slice * CLUSTERS_Y + tileY) * CLUSTERS_X + tileX;
+    }
+
+    public void begin() {
+        lightCount = 0;
+    }
+
+    // Lumière de portée radius centrée en (x, y, z), espace vue. Retourne son index, -1 si MAX_LIGHTS est atteint
+    public int addLight(float x, float y, float z, float radius) {
+        if (lightCount == MAX_LIGHTS) {
+            return -1;
+        }
+        int light = lightCount++;
+        lightX[light] = x;
+        lightY[light] = y;
+        lightZ[light] = z;
+        lightRadius[light] = radius;
+        return light;
+    }
+
+    // Distance à laquelle intensity / (constant + linear * d + exponent * d²) passe sous threshold,
+    // plafonnée à maxRange (atténuation nulle)
+    public static float computeRange(float intensity, float constant, float linear, float exponent, float threshold,
+            float maxRange) {
+        // exponent * d² + linear * d + (constant - intensity / threshold) = 0
+        float c = constant - intensity / threshold;
+        if (c >= 0.0f) {
+            return 0.0f;
+        }
+        float range;
+        if (exponent > 0.0f) {
+            range = (-linear + (float) Math.sqrt(linear * linear - 4.0f * exponent * c)) / (2.0f * exponent);
+        } else if (linear > 0.0f) {
+            range = -c / linear;
+        } else {
+            range = maxRange;
+        }
+        return Math.min(range, maxRange);
+    }
+
+    public void assign() {
+        assign(lightCount >= PARALLEL_THRESHOLD);
+    }
+
+    // parallel choisit le chemin indépendamment du nombre de lumières (tests)
+    void assign(boolean parallel) {
+        for (int light = 0; light < lightCount; light++) {
+            computeExtent(light);
+        }
+        if (parallel) {
+            assignTask.reinitialize();
+            ForkJoinPool.commonPool().invoke(assignTask);
+        } else {
+            for (int slice = 0; slice < CLUSTERS_Z; slice++) {
+                sliceTasks[slice].assignSlice();
+            }
+        }
+
+        // Tranches mises bout à bout
+        indexCount = 0;
+        for (int slice = 0; slice < CLUSTERS_Z; slice++) {
+            indexCount += sliceTasks[slice].count;
+        }
+        if (lightIndices.length < indexCount) {
+            lightIndices = new int[Math.max(indexCount, lightIndices.length * 2)];
+        }
+        int base = 0;
+        for (int slice = 0; slice < CLUSTERS_Z; slice++) {
+            SliceTask task = sliceTasks[slice];
+            System.arraycopy(task.indices, 0, lightIndices, base, task.count);
+            int firstCluster = slice * TILES_PER_SLICE;
+            for (int tile = 0; tile < TILES_PER_SLICE; tile++) {
+                clusterOffsets[firstCluster + tile] += base;
+            }
+            base += task.count;
+        }
+    }
+
+    // Tuiles et tranches couvertes par la boîte de la sphère. x / profondeur est monotone en profondeur,
+    // les extrêmes sont donc atteints aux profondeurs limites
+    private void computeExtent(int light) {
+        float radius = lightRadius[light];
+        float depth = -lightZ[light];
+        float minDepth = Math.max(depth - radius, zNear);
+        float maxDepth = Math.min(depth + radius, zFar);
+        if (maxDepth < minDepth) {
+            lightMinSlice[light] = 1;
+            lightMaxSlice[light] = 0;
+            return;
+        }
+        lightMinSlice[light] = slice(minDepth);
+        lightMaxSlice[light] = slice(maxDepth);
+
+        float minX = lightX[light] - radius;
+        float maxX = lightX[light] + radius;
+        float minY = lightY[light] - radius;
+        float maxY = lightY[light] + radius;
+        lightMinTileX[light] = tile(Math.min(minX / minDepth, minX / maxDepth) * projX, CLUSTERS_X);
+        lightMaxTileX[light] = tile(Math.max(maxX / minDepth, maxX / maxDepth) * projX, CLUSTERS_X);
+        lightMinTileY[light] = tile(Math.min(minY / minDepth, minY / maxDepth) * projY, CLUSTERS_Y);
+        lightMaxTileY[light] = tile(Math.max(maxY / minDepth, maxY / maxDepth) * projY, CLUSTERS_Y);
+    }
+
+    private int slice(float depth) {
+        int slice = (int) ((float) Math.log(depth) * sliceScale + sliceBias);
+        return Math.max(0, Math.min(CLUSTERS_Z - 1, slice));
+    }
+
+    private static int tile(float ndc, int tiles) {
+        int tile = (int) Math.floor((ndc + 1.0f) * 0.5f * tiles);
+        return Math.max(0, Math.min(tiles - 1, tile));
+    }
+
+    // Nombre d'index de lumières écrits par le dernier assign()
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    public int[] getClusterCounts() {
+        return clusterCounts;
+    }
+
+    public int[] getClusterOffsets() {
+        return clusterOffsets;
+    }
+
+    public int[] getLightIndices() {
+        return lightIndices;
+    }
+
+    public int getLightCount() {
+        return lightCount;
+    }
+
+    // Pour le shader : tranche = int(log(profondeur) * getSliceScale() + getSliceBias())
+    public float getSliceBias() {
+        return sliceBias;
+    }
+
+    public float getSliceScale() {
+        return sliceScale;
+    }
+
+    private class AssignTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            for (SliceTask task : sliceTasks) {
+                task.reinitialize();
+            }
+            invokeAll(sliceTasks);
+        }
+    }
+
+    private class SliceTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int slice;
+        private int count;
+        private int[] indices;
+        // Paires (tuile, lumière) trouvées, rangées ensuite par tuile (tri par comptage)
+        private int[] pairLights;
+        private int[] pairTiles;
+        private final int[] tileStarts;
+
+        SliceTask(int slice) {
+            this.slice = slice;
+            indices = new int[256];
+            pairLights = new int[256];
+            pairTiles = new int[256];
+            tileStarts = new int[TILES_PER_SLICE];
+        }
+
+        @Override
+        protected void compute() {
+            assignSlice();
+        }
+
+        // Écrit les index des lumières de chaque cluster de la tranche, offsets relatifs au début de la tranche.
+        // Seules les tuiles du rectangle couvert par chaque lumière sont testées
+        void assignSlice() {
+            int firstCluster = slice * TILES_PER_SLICE;
+            Arrays.fill(clusterCounts, firstCluster, firstCluster + TILES_PER_SLICE, 0);
+            count = 0;
+            for (int light = 0; light < lightCount; light++) {
+                if (slice < lightMinSlice[light] || slice > lightMaxSlice[light]) {
+                    continue;
+                }
+                for (int tileY = lightMinTileY[light]; tileY <= lightMaxTileY[light]; tileY++) {
+                    for (int tileX = lightMinTileX[light]; tileX <= lightMaxTileX[light]; tileX++) {
+                        int tile = tileY * CLUSTERS_X + tileX;
+                        if (!intersects(firstCluster + tile, light)) {
+                            continue;
+                        }
+                        if (count == pairLights.length) {
+                            pairLights = Arrays.copyOf(pairLights, count * 2);
+                            pairTiles = Arrays.copyOf(pairTiles, count * 2);
+                        }
+                        pairLights[count] = light;
+                        pairTiles[count] = tile;
+                        clusterCounts[firstCluster + tile]++;
+                        count++;
+                    }
+                }
+            }
+
+            int offset = 0;
+            for (int tile = 0; tile < TILES_PER_SLICE; tile++) {
+                clusterOffsets[firstCluster + tile] = offset;
+                tileStarts[tile] = offset;
+                offset += clusterCounts[firstCluster + tile];
+            }
+            if (indices.length < count) {
+                indices = new int[pairLights.length];
+            }
+            // Les lumières sont parcourues dans l'ordre : chaque cluster garde ses lumières triées
+            for (int i = 0; i < count; i++) {
+                indices[tileStarts[pairTiles[i]]++] = pairLights[i];
+            }
+        }
+
+        private boolean intersects(int cluster, int light) {
+            float x = lightX[light];
+            float y = lightY[light];
+            float z = lightZ[light];
+            float dx = Math.max(Math.max(boxMinX[cluster] - x, 0.0f), x - boxMaxX[cluster]);
+            float dy = Math.max(Math.max(boxMinY[cluster] - y, 0.0f), y - boxMaxY[cluster]);
+            float dz = Math.max(Math.max(boxMinZ[cluster] - z, 0.0f), z - boxMaxZ[cluster]);
+            float radius = lightRadius[light];
+            return dx * dx + dy * dy + dz * dz <= radius * radius;
+        }
+    }
+}
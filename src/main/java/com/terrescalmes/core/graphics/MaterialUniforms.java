@@ -0,0 +1,68 @@
+package com.terrescalmes.core.graphics;
+
+import org.joml.Vector4f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+// Blocs MaterialData (material_data.glsl) d'une liste de matériaux, rangés dans un seul UBO à des offsets
+// alignés : changer de matériau au rendu se résume à un glBindBufferRange
+public class MaterialUniforms {
+
+    public static final String BLOCK_NAME = "MaterialData";
+    public static final int BINDING = 1;
+
+    private static final int MATERIAL_SIZE = 64; // Trois vec4 et un float, arrondi à un vec4 (std140)
+
+    private UniformBuffer buffer;
+    private int capacity;
+    private final int stride;
+
+    public MaterialUniforms() {
+        int alignment = UniformBuffer.getOffsetAlignment();
+        stride = (MATERIAL_SIZE + alignment - 1) / alignment * alignment;
+    }
+
+    // Le matériau index de la dernière liste envoyée par update()
+    public void bind(int index) {
+        buffer.bindRange((long) index * stride, MATERIAL_SIZE);
+    }
+
+    public void cleanup() {
+        if (buffer != null) {
+            buffer.cleanup();
+            buffer = null;
+        }
+    }
+
+    public void update(List<Material> materials) {
+        int count = Math.max(1, materials.size());
+        if (count > capacity) {
+            cleanup();
+            capacity = Math.max(count, capacity * 2);
+            buffer = new UniformBuffer(BINDING, capacity * stride);
+        }
+        ByteBuffer data = MemoryUtil.memCalloc(count * stride);
+        try {
+            for (int i = 0; i < materials.size(); i++) {
+                Material material = materials.get(i);
+                int offset = i * stride;
+                putVector(data, offset, material.getAmbientColor());
+                putVector(data, offset + 16, material.getDiffuseColor());
+                putVector(data, offset + 32, material.getSpecularColor());
+                data.putFloat(offset + 48, material.getReflectance());
+            }
+            buffer.update(data);
+        } finally {
+            MemoryUtil.memFree(data);
+        }
+    }
+
+    private static void putVector(ByteBuffer data, int offset, Vector4f value) {
+        data.putFloat(offset, value.x);
+        data.putFloat(offset + 4, value.y);
+        data.putFloat(offset + 8, value.z);
+        data.putFloat(offset + 12, value.w);
+    }
+}
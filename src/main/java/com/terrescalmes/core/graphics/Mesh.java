@@ -1,83 +1,108 @@
 package com.terrescalmes.core.graphics;
 
-import org.lwjgl.opengl.GL30;
-import org.lwjgl.system.*;
-
-import java.nio.*;
-import java.util.*;
-
-import static org.lwjgl.opengl.GL30.*;
+import org.joml.Vector3f;
 
+// Géométrie indexée, stockée dans une page du MeshPool de son VertexLayout. Les indices partent de 0 : dessiner avec
+// glDraw*BaseVertex(..., getIndexType(), getIndexOffset(), ..., getBaseVertex()) après avoir lié getVaoId()
 public class Mesh {
 
+    // Boîte englobante en espace local, calculée à la construction
+    private final Vector3f aabbMax;
+    private final Vector3f aabbMin;
+    private final MeshPool.Allocation allocation;
     private int numVertices;
-    private int vaoId;
-    private List<Integer> vboIdList;
 
     public Mesh(float[] positions, float[] normals, float[] textCoords, int[] indices) {
-        numVertices = indices.length;
-        vboIdList = new ArrayList<>();
-
-        vaoId = glGenVertexArrays();
-        glBindVertexArray(vaoId);
-
-        // Positions VBO
-        int vboId = glGenBuffers();
-        vboIdList.add(vboId);
-        FloatBuffer positionsBuffer = MemoryUtil.memCallocFloat(positions.length);
-        positionsBuffer.put(0, positions);
-        glBindBuffer(GL_ARRAY_BUFFER, vboId);
-        glBufferData(GL_ARRAY_BUFFER, positionsBuffer, GL_STATIC_DRAW);
-        glEnableVertexAttribArray(0);
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
-
-        // Normals VBO
-        vboId = glGenBuffers();
-        vboIdList.add(vboId);
-        FloatBuffer normalsBuffer = MemoryUtil.memCallocFloat(normals.length);
-        normalsBuffer.put(0, normals);
-        glBindBuffer(GL_ARRAY_BUFFER, vboId);
-        glBufferData(GL_ARRAY_BUFFER, normalsBuffer, GL_STATIC_DRAW);
-        glEnableVertexAttribArray(1);
-        glVertexAttribPointer(1, 3, GL_FLOAT, false, 0, 0);
-
-        // Texture coordinates VBO
-        vboId = glGenBuffers();
-        vboIdList.add(vboId);
-        FloatBuffer textCoordsBuffer = MemoryUtil.memCallocFloat(textCoords.length);
-        textCoordsBuffer.put(0, textCoords);
-        glBindBuffer(GL_ARRAY_BUFFER, vboId);
-        glBufferData(GL_ARRAY_BUFFER, textCoordsBuffer, GL_STATIC_DRAW);
-        glEnableVertexAttribArray(2);
-        glVertexAttribPointer(2, 2, GL_FLOAT, false, 0, 0);
-
-        // Index VBO
-        vboId = glGenBuffers();
-        vboIdList.add(vboId);
-        IntBuffer indicesBuffer = MemoryUtil.memCallocInt(indices.length);
-        indicesBuffer.put(0, indices);
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboId);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, GL_STATIC_DRAW);
-
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-        glBindVertexArray(0);
-
-        MemoryUtil.memFree(positionsBuffer);
-        MemoryUtil.memFree(normalsBuffer);
-        MemoryUtil.memFree(textCoordsBuffer);
-        MemoryUtil.memFree(indicesBuffer);
+        this(positions, positions.length, normals, normals.length, textCoords, textCoords.length, indices,
+                indices.length);
+    }
+
+    public Mesh(MeshBuilder builder) {
+        this(builder.getPositions(), builder.getVertexCount() * 3, builder.getNormals(), builder.getNormalCount(),
+                builder.getTextCoords(), builder.getTextCoordCount(), builder.getIndices(), builder.getIndexCount());
+    }
+
+    private Mesh(float[] positions, int positionsLength, float[] normals, int normalsLength, float[] textCoords,
+            int textCoordsLength, int[] indices, int indicesLength) {
+        numVertices = indicesLength;
+        aabbMin = new Vector3f();
+        aabbMax = new Vector3f();
+        computeBounds(positions, positionsLength);
+        // Plages dans les buffers partagés plutôt qu'un VAO et quatre VBOs par mesh, sommets compressés
+        int vertexCount = positionsLength / 3;
+        VertexLayout layout = VertexLayout.forTextCoords(textCoords, Math.min(textCoordsLength, vertexCount * 2));
+        float[][] sources = new float[3][];
+        int[] lengths = new int[3];
+        sources[VertexLayout.POSITION] = positions;
+        lengths[VertexLayout.POSITION] = vertexCount * 3;
+        sources[VertexLayout.NORMAL] = normals;
+        lengths[VertexLayout.NORMAL] = Math.min(normalsLength, vertexCount * 3);
+        sources[VertexLayout.TEXT_COORD] = textCoords;
+        lengths[VertexLayout.TEXT_COORD] = Math.min(textCoordsLength, vertexCount * 2);
+        allocation = MeshPool.forLayout(layout).add(vertexCount, sources, lengths, indices, indicesLength);
+    }
+
+    // Mesh détaché des pools, sur le VAO vaoId : bornes calculées, aucun sommet envoyé (tests sans contexte OpenGL)
+    Mesh(float[] positions, int numVertices, int vaoId) {
+        this.numVertices = numVertices;
+        aabbMin = new Vector3f();
+        aabbMax = new Vector3f();
+        computeBounds(positions, positions.length);
+        allocation = new MeshPool.Allocation(vaoId, positions.length / 3);
+    }
+
+    private void computeBounds(float[] positions, int positionsLength) {
+        if (positionsLength < 3) {
+            return;
+        }
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, minZ = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE;
+        for (int i = 0; i + 2 < positionsLength; i += 3) {
+            minX = Math.min(minX, positions[i]);
+            minY = Math.min(minY, positions[i + 1]);
+            minZ = Math.min(minZ, positions[i + 2]);
+            maxX = Math.max(maxX, positions[i]);
+            maxY = Math.max(maxY, positions[i + 1]);
+            maxZ = Math.max(maxZ, positions[i + 2]);
+        }
+        aabbMin.set(minX, minY, minZ);
+        aabbMax.set(maxX, maxY, maxZ);
     }
 
+    // Rend les plages du mesh à son pool, ses buffers restent aux autres meshes
     public void cleanup() {
-        vboIdList.forEach(GL30::glDeleteBuffers);
-        glDeleteVertexArrays(vaoId);
+        allocation.free();
+    }
+
+    public Vector3f getAabbMax() {
+        return aabbMax;
+    }
+
+    public Vector3f getAabbMin() {
+        return aabbMin;
+    }
+
+    // Premier sommet de la plage du mesh, ajouté à chaque indice
+    public int getBaseVertex() {
+        return allocation.getFirstVertex();
+    }
+
+    // Position en octets du premier indice dans l'index buffer du VAO
+    public long getIndexOffset() {
+        return allocation.getIndexOffset();
+    }
+
+    // GL_UNSIGNED_SHORT tant que le mesh a au plus 65536 sommets
+    public int getIndexType() {
+        return allocation.getIndexType();
     }
 
     public int getNumVertices() {
         return numVertices;
     }
 
+    // VAO de la page, partagé avec les autres meshes de la page
     public final int getVaoId() {
-        return vaoId;
+        return allocation.getVaoId();
     }
 }
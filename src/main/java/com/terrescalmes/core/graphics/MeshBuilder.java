@@ -0,0 +1,179 @@
+package com.terrescalmes.core.graphics;
+
+import java.util.Arrays;
+
+public class MeshBuilder {
+
+    private static final int DEFAULT_VERTEX_CAPACITY = 256;
+
+    private int indexCount;
+    private int[] indices;
+    private float[] normals;
+    private int normalCount;
+    private float[] positions;
+    private int textCoordCount;
+    private float[] textCoords;
+    private int vertexCount;
+
+    public MeshBuilder() {
+        this(DEFAULT_VERTEX_CAPACITY, DEFAULT_VERTEX_CAPACITY * 6);
+    }
+
+    public MeshBuilder(int vertexCapacity, int indexCapacity) {
+        positions = new float[vertexCapacity * 3];
+        normals = new float[vertexCapacity * 3];
+        textCoords = new float[vertexCapacity * 2];
+        indices = new int[indexCapacity];
+    }
+
+    public MeshBuilder addIndex(int index) {
+        if (indexCount + 1 > indices.length) {
+            indices = grow(indices, indexCount + 1);
+        }
+        indices[indexCount++] = index;
+        return this;
+    }
+
+    public MeshBuilder addNormal(float x, float y, float z) {
+        if (normalCount + 3 > normals.length) {
+            normals = grow(normals, normalCount + 3);
+        }
+        normals[normalCount++] = x;
+        normals[normalCount++] = y;
+        normals[normalCount++] = z;
+        return this;
+    }
+
+    public MeshBuilder addPosition(float x, float y, float z) {
+        if (vertexCount * 3 + 3 > positions.length) {
+            positions = grow(positions, vertexCount * 3 + 3);
+        }
+        int pos = vertexCount * 3;
+        positions[pos] = x;
+        positions[pos + 1] = y;
+        positions[pos + 2] = z;
+        vertexCount++;
+        return this;
+    }
+
+    public MeshBuilder addTextCoord(float u, float v) {
+        if (textCoordCount + 2 > textCoords.length) {
+            textCoords = grow(textCoords, textCoordCount + 2);
+        }
+        textCoords[textCoordCount++] = u;
+        textCoords[textCoordCount++] = v;
+        return this;
+    }
+
+    public MeshBuilder addTriangle(int a, int b, int c) {
+        if (indexCount + 3 > indices.length) {
+            indices = grow(indices, indexCount + 3);
+        }
+        indices[indexCount++] = a;
+        indices[indexCount++] = b;
+        indices[indexCount++] = c;
+        return this;
+    }
+
+    // Reserves count vertices (position, normal and texture coordinates) to be written directly into the
+    // backing arrays, possibly from several threads. Returns the index of the first reserved vertex
+    public int allocateVertices(int count) {
+        int first = vertexCount;
+        ensureCapacity(vertexCount + count, indexCount);
+        vertexCount += count;
+        normalCount = vertexCount * 3;
+        textCoordCount = vertexCount * 2;
+        return first;
+    }
+
+    public Mesh build() {
+        // Texture coordinates may not have been populated. We need at least the empty slots
+        if (textCoordCount < vertexCount * 2) {
+            ensureCapacity(vertexCount, indexCount);
+            Arrays.fill(textCoords, textCoordCount, vertexCount * 2, 0.0f);
+            textCoordCount = vertexCount * 2;
+        }
+        return new Mesh(this);
+    }
+
+    public MeshBuilder ensureCapacity(int vertexCapacity, int indexCapacity) {
+        if (positions.length < vertexCapacity * 3) {
+            positions = Arrays.copyOf(positions, vertexCapacity * 3);
+        }
+        if (normals.length < vertexCapacity * 3) {
+            normals = Arrays.copyOf(normals, vertexCapacity * 3);
+        }
+        if (textCoords.length < vertexCapacity * 2) {
+            textCoords = Arrays.copyOf(textCoords, vertexCapacity * 2);
+        }
+        if (indices.length < indexCapacity) {
+            indices = Arrays.copyOf(indices, indexCapacity);
+        }
+        return this;
+    }
+
+    private static float[] grow(float[] array, int minLength) {
+        return Arrays.copyOf(array, Math.max(array.length * 2, minLength));
+    }
+
+    private static int[] grow(int[] array, int minLength) {
+        return Arrays.copyOf(array, Math.max(array.length * 2, minLength));
+    }
+
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    // Backing arrays are shared, only the first get*Count() values are meaningful
+    public int[] getIndices() {
+        return indices;
+    }
+
+    public int getNormalCount() {
+        return normalCount;
+    }
+
+    public float[] getNormals() {
+        return normals;
+    }
+
+    public float[] getPositions() {
+        return positions;
+    }
+
+    public int getTextCoordCount() {
+        return textCoordCount;
+    }
+
+    public float[] getTextCoords() {
+        return textCoords;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public MeshBuilder reset() {
+        vertexCount = 0;
+        normalCount = 0;
+        textCoordCount = 0;
+        indexCount = 0;
+        return this;
+    }
+
+    public int[] toIndicesArray() {
+        return Arrays.copyOf(indices, indexCount);
+    }
+
+    public float[] toNormalsArray() {
+        return Arrays.copyOf(normals, normalCount);
+    }
+
+    public float[] toPositionsArray() {
+        return Arrays.copyOf(positions, vertexCount * 3);
+    }
+
+    public float[] toTextCoordsArray() {
+        return Arrays.copyOf(textCoords, textCoordCount);
+    }
+}
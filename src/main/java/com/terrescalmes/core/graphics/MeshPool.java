@@ -0,0 +1,330 @@
+package com.terrescalmes.core.graphics;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static org.lwjgl.opengl.GL31.*;
+
+// Buffers partagés par les Mesh d'un même VertexLayout, un pool par layout.
+// Une page regroupe un VAO, un VBO de sommets entrelacés et un index buffer ; chaque mesh y réserve une plage de
+// sommets et une plage d'indices, rendues à la liste libre de la page par Mesh.cleanup(). Les indices d'un mesh
+// partent de 0 : il est dessiné avec glDraw*BaseVertex, décalé du premier sommet de sa plage
+// (Mesh.getBaseVertex()). Ils sont sur 16 bits quand le mesh a au plus 65536 sommets, sur 32 bits sinon ; l'index
+// buffer est découpé en cases de 16 bits, un indice 32 bits en occupe deux, alignées.
+// Les pages ne sont pas libérées quand elles se vident, les chunks qui vont et viennent réutilisent leurs plages
+// sans créer ni détruire de buffers. Un mesh plus grand qu'une page reçoit une page à sa taille, détruite avec lui.
+// Thread OpenGL uniquement
+public class MeshPool {
+
+    private static final int PAGE_VERTICES = 1 << 18; // 5 à 6 Mo de sommets selon le layout
+    private static final int PAGE_INDEX_SLOTS = 1 << 21; // 4 Mo d'indices
+    private static final int MAX_SHORT_INDEXED_VERTICES = 1 << 16;
+
+    private static final MeshPool[] POOLS = new MeshPool[VertexLayout.LAYOUT_COUNT];
+
+    private final VertexLayout layout;
+    private final List<Page> pages;
+
+    public MeshPool(VertexLayout layout) {
+        this.layout = layout;
+        pages = new ArrayList<>();
+    }
+
+    // Pool partagé du layout, créé au premier mesh
+    public static MeshPool forLayout(VertexLayout layout) {
+        MeshPool pool = POOLS[layout.getId()];
+        if (pool == null) {
+            pool = new MeshPool(layout);
+            POOLS[layout.getId()] = pool;
+        }
+        return pool;
+    }
+
+    // Après le nettoyage des meshes : leurs plages ne sont plus rendues à un pool détruit
+    public static void cleanupAll() {
+        for (int i = 0; i < POOLS.length; i++) {
+            if (POOLS[i] != null) {
+                POOLS[i].cleanup();
+                POOLS[i] = null;
+            }
+        }
+    }
+
+    public void cleanup() {
+        for (int i = 0; i < pages.size(); i++) {
+            pages.get(i).cleanup();
+        }
+        pages.clear();
+    }
+
+    // Réserve les plages du mesh et y envoie ses données, au format du layout du pool. sources et lengths :
+    // valeurs de chaque attribut du layout, seules les lengths[i] premières de sources[i] sont lues
+    public Allocation add(int vertexCount, float[][] sources, int[] lengths, int[] indices, int indicesLength) {
+        boolean shortIndices = vertexCount <= MAX_SHORT_INDEXED_VERTICES;
+        int indexSlots = shortIndices ? indicesLength : indicesLength * 2;
+        int alignment = shortIndices ? 1 : 2;
+        Page page = null;
+        int firstVertex = -1;
+        int firstSlot = -1;
+        for (int i = 0; i < pages.size() && page == null; i++) {
+            Page candidate = pages.get(i);
+            firstVertex = candidate.vertices.allocate(vertexCount, 1);
+            if (firstVertex < 0) {
+                continue;
+            }
+            firstSlot = candidate.indexSlots.allocate(indexSlots, alignment);
+            if (firstSlot < 0) {
+                candidate.vertices.free(firstVertex, vertexCount);
+                continue;
+            }
+            page = candidate;
+        }
+        if (page == null) {
+            boolean dedicated = vertexCount > PAGE_VERTICES || indexSlots > PAGE_INDEX_SLOTS;
+            page = new Page(layout, Math.max(vertexCount, PAGE_VERTICES), Math.max(indexSlots, PAGE_INDEX_SLOTS),
+                    dedicated);
+            pages.add(page);
+            firstVertex = page.vertices.allocate(vertexCount, 1);
+            firstSlot = page.indexSlots.allocate(indexSlots, alignment);
+        }
+        page.meshCount++;
+
+        // GL_COPY_WRITE_BUFFER : n'altère ni le VAO lié ni son index buffer
+        ByteBuffer vertices = MemoryUtil.memAlloc(vertexCount * layout.getStride());
+        layout.pack(vertices, vertexCount, sources, lengths);
+        vertices.flip();
+        glBindBuffer(GL_COPY_WRITE_BUFFER, page.verticesVboId);
+        glBufferSubData(GL_COPY_WRITE_BUFFER, (long) firstVertex * layout.getStride(), vertices);
+        MemoryUtil.memFree(vertices);
+
+        ByteBuffer indexData = MemoryUtil.memAlloc(indexSlots * Short.BYTES);
+        for (int i = 0; i < indicesLength; i++) {
+            if (shortIndices) {
+                indexData.putShort((short) indices[i]);
+            } else {
+                indexData.putInt(indices[i]);
+            }
+        }
+        indexData.flip();
+        glBindBuffer(GL_COPY_WRITE_BUFFER, page.indicesVboId);
+        glBufferSubData(GL_COPY_WRITE_BUFFER, (long) firstSlot * Short.BYTES, indexData);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+        MemoryUtil.memFree(indexData);
+
+        return new Allocation(this, page, firstVertex, vertexCount, firstSlot, indexSlots,
+                shortIndices ? GL_UNSIGNED_SHORT : GL_UNSIGNED_INT);
+    }
+
+    private void free(Allocation allocation) {
+        Page page = allocation.page;
+        page.vertices.free(allocation.firstVertex, allocation.vertexCount);
+        page.indexSlots.free(allocation.firstSlot, allocation.slotCount);
+        page.meshCount--;
+        if (page.dedicated && page.meshCount == 0) {
+            page.cleanup();
+            pages.remove(page);
+        }
+    }
+
+    public int getPageCount() {
+        return pages.size();
+    }
+
+    // Plages d'un mesh dans une page du pool
+    public static final class Allocation {
+
+        private final int firstSlot;
+        private final int firstVertex;
+        private final int indexType;
+        private final Page page;
+        private MeshPool pool; // null une fois libérée
+        private final int slotCount;
+        private final int vaoId;
+        private final int vertexCount;
+
+        private Allocation(MeshPool pool, Page page, int firstVertex, int vertexCount, int firstSlot, int slotCount,
+                int indexType) {
+            this.pool = pool;
+            this.page = page;
+            this.firstVertex = firstVertex;
+            this.vertexCount = vertexCount;
+            this.firstSlot = firstSlot;
+            this.slotCount = slotCount;
+            this.indexType = indexType;
+            vaoId = page.vaoId;
+        }
+
+        // Allocation détachée, hors de tout pool, sur le VAO vaoId : aucun appel OpenGL, free() sans effet (tests)
+        Allocation(int vaoId, int vertexCount) {
+            this.vaoId = vaoId;
+            this.vertexCount = vertexCount;
+            page = null;
+            firstVertex = 0;
+            firstSlot = 0;
+            slotCount = 0;
+            indexType = GL_UNSIGNED_SHORT;
+        }
+
+        // Rend les plages au pool, sans effet si c'est déjà fait ou si le pool a été détruit
+        public void free() {
+            if (pool != null && !page.deleted) {
+                pool.free(this);
+            }
+            pool = null;
+        }
+
+        public int getFirstVertex() {
+            return firstVertex;
+        }
+
+        // Position en octets du premier indice dans l'index buffer de la page
+        public long getIndexOffset() {
+            return (long) firstSlot * Short.BYTES;
+        }
+
+        // GL_UNSIGNED_SHORT ou GL_UNSIGNED_INT
+        public int getIndexType() {
+            return indexType;
+        }
+
+        public int getVaoId() {
+            return vaoId;
+        }
+    }
+
+    // Un VAO et ses buffers, alloués à leur taille finale
+    private static final class Page {
+
+        private final boolean dedicated;
+        private boolean deleted;
+        private final RangeAllocator indexSlots;
+        private final int indicesVboId;
+        private int meshCount;
+        private final int vaoId;
+        private final RangeAllocator vertices;
+        private final int verticesVboId;
+
+        private Page(VertexLayout layout, int vertexCapacity, int indexSlotCapacity, boolean dedicated) {
+            this.dedicated = dedicated;
+            vertices = new RangeAllocator(vertexCapacity);
+            indexSlots = new RangeAllocator(indexSlotCapacity);
+
+            vaoId = glGenVertexArrays();
+            glBindVertexArray(vaoId);
+            verticesVboId = glGenBuffers();
+            glBindBuffer(GL_ARRAY_BUFFER, verticesVboId);
+            glBufferData(GL_ARRAY_BUFFER, (long) vertexCapacity * layout.getStride(), GL_STATIC_DRAW);
+            layout.setupAttributes(0);
+            indicesVboId = glGenBuffers();
+            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, indicesVboId);
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, (long) indexSlotCapacity * Short.BYTES, GL_STATIC_DRAW);
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+            glBindVertexArray(0);
+        }
+
+        private void cleanup() {
+            glDeleteBuffers(verticesVboId);
+            glDeleteBuffers(indicesVboId);
+            glDeleteVertexArrays(vaoId);
+            deleted = true;
+        }
+    }
+
+    // Plages libres d'un buffer, triées par début et fusionnées avec leurs voisines. Premier ajustement
+    static final class RangeAllocator {
+
+        private int count;
+        private int[] lengths;
+        private int[] starts;
+
+        RangeAllocator(int capacity) {
+            starts = new int[16];
+            lengths = new int[16];
+            starts[0] = 0;
+            lengths[0] = capacity;
+            count = 1;
+        }
+
+        // Début de la plage réservée, multiple de alignment, -1 si aucune plage libre n'est assez grande
+        int allocate(int length, int alignment) {
+            for (int i = 0; i < count; i++) {
+                int start = (starts[i] + alignment - 1) / alignment * alignment;
+                int padding = start - starts[i];
+                if (lengths[i] < padding + length) {
+                    continue;
+                }
+                int remaining = lengths[i] - padding - length;
+                if (padding > 0) {
+                    // Le bourrage reste libre, la fin de la plage devient une plage à part
+                    lengths[i] = padding;
+                    if (remaining > 0) {
+                        insert(i + 1, start + length, remaining);
+                    }
+                    return start;
+                }
+                starts[i] += length;
+                lengths[i] = remaining;
+                if (remaining == 0) {
+                    System.arraycopy(starts, i + 1, starts, i, count - i - 1);
+                    System.arraycopy(lengths, i + 1, lengths, i, count - i - 1);
+                    count--;
+                }
+                return start;
+            }
+            return -1;
+        }
+
+        private void insert(int index, int start, int length) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            System.arraycopy(starts, index, starts, index + 1, count - index);
+            System.arraycopy(lengths, index, lengths, index + 1, count - index);
+            starts[index] = start;
+            lengths[index] = length;
+            count++;
+        }
+
+        void free(int start, int length) {
+            if (length == 0) {
+                return;
+            }
+            // Première plage libre après celle rendue
+            int next = 0;
+            while (next < count && starts[next] < start) {
+                next++;
+            }
+            boolean joinsPrevious = next > 0 && starts[next - 1] + lengths[next - 1] == start;
+            boolean joinsNext = next < count && start + length == starts[next];
+            if (joinsPrevious && joinsNext) {
+                lengths[next - 1] += length + lengths[next];
+                System.arraycopy(starts, next + 1, starts, next, count - next - 1);
+                System.arraycopy(lengths, next + 1, lengths, next, count - next - 1);
+                count--;
+            } else if (joinsPrevious) {
+                lengths[next - 1] += length;
+            } else if (joinsNext) {
+                starts[next] = start;
+                lengths[next] += length;
+            } else {
+                insert(next, start, length);
+            }
+        }
+
+        // Nombre de plages libres
+        int getRangeCount() {
+            return count;
+        }
+
+        int getRangeLength(int range) {
+            return lengths[range];
+        }
+
+        int getRangeStart(int range) {
+            return starts[range];
+        }
+    }
+}
@@ -1,13 +1,20 @@
 package com.terrescalmes.core.graphics;
 
+import org.joml.Vector3f;
+
 import java.util.*;
 
 import com.terrescalmes.entities.Entity;
 
 public class Model {
 
+    private Vector3f aabbMax;
+    private Vector3f aabbMin;
+    private Vector3f boundsCenter; // Sphère englobante locale de tous les meshes, calculée à la première demande
+    private float boundsRadius;
     private final String id;
     private List<Entity> entitiesList;
+    private InstanceBuffer instanceBuffer; // Créé au premier rendu, sur le thread OpenGL
     private List<Material> materialList;
 
     public Model(String id, List<Material> materialList) {
@@ -18,12 +25,69 @@ public class Model {
 
     public void cleanup() {
         materialList.forEach(Material::cleanup);
+        if (instanceBuffer != null) {
+            instanceBuffer.cleanup();
+            instanceBuffer = null;
+        }
+    }
+
+    // Boîte englobante locale de tous les meshes
+    public Vector3f getAabbMax() {
+        if (boundsCenter == null) {
+            computeBounds();
+        }
+        return aabbMax;
+    }
+
+    public Vector3f getAabbMin() {
+        if (boundsCenter == null) {
+            computeBounds();
+        }
+        return aabbMin;
+    }
+
+    public Vector3f getBoundsCenter() {
+        if (boundsCenter == null) {
+            computeBounds();
+        }
+        return boundsCenter;
+    }
+
+    public float getBoundsRadius() {
+        if (boundsCenter == null) {
+            computeBounds();
+        }
+        return boundsRadius;
+    }
+
+    private void computeBounds() {
+        Vector3f min = new Vector3f(Float.MAX_VALUE);
+        Vector3f max = new Vector3f(-Float.MAX_VALUE);
+        for (Material material : materialList) {
+            for (Mesh mesh : material.getMeshList()) {
+                min.min(mesh.getAabbMin());
+                max.max(mesh.getAabbMax());
+            }
+        }
+        if (min.x > max.x) {
+            // Aucun mesh : sphère vide à l'origine
+            min.zero();
+            max.zero();
+        }
+        aabbMin = min;
+        aabbMax = max;
+        boundsRadius = max.distance(min) * 0.5f;
+        boundsCenter = new Vector3f(min).add(max).mul(0.5f);
     }
 
     public List<Entity> getEntitiesList() {
         return entitiesList;
     }
 
+    public InstanceBuffer getInstanceBuffer() {
+        return instanceBuffer;
+    }
+
     public String getId() {
         return id;
     }
@@ -31,4 +95,8 @@ public class Model {
     public List<Material> getMaterialList() {
         return materialList;
     }
+
+    public void setInstanceBuffer(InstanceBuffer instanceBuffer) {
+        this.instanceBuffer = instanceBuffer;
+    }
 }
@@ -0,0 +1,494 @@
+package com.terrescalmes.core.graphics;
+
+import org.joml.Matrix4f;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Occlusion culling logiciel : quelques gros occulteurs (boîtes entièrement sous le terrain, voir TerrainHulls)
+// sont rastérisés sur le CPU dans un petit tampon de profondeur, réduit ensuite en pyramide hi-Z où chaque texel
+// garde la profondeur la plus lointaine de son bloc. Une boîte est cachée si son point le plus proche est
+// derrière les occulteurs sur tout le rectangle qu'elle couvre à l'écran.
+// La profondeur stockée est 1 / w (w = distance devant la caméra), linéaire en espace écran : plus grand est plus
+// proche, 0 signifie aucun occulteur. La rastérisation est conservative : un pixel n'est écrit que s'il est
+// entièrement couvert par le triangle, avec la profondeur la plus lointaine du triangle sur ce pixel.
+// L'écran est découpé en bandes horizontales, chacune rastérisée puis réduite par sa propre tâche sur le pool
+// ForkJoin commun. Aucun appel OpenGL : utilisable sans contexte
+public class OcclusionCuller {
+
+    public static final int WIDTH = 256;
+    public static final int HEIGHT = 128;
+    public static final int LEVELS = 8; // Niveau 7 : 2 x 1 texels
+
+    private static final int BAND_HEIGHT = 16;
+    private static final int BANDS = HEIGHT / BAND_HEIGHT;
+    private static final int BAND_LEVELS = 5; // Niveaux 0 à 4 propres à chaque bande (16 lignes, puis 1)
+    static final int PARALLEL_THRESHOLD = 64; // Triangles ; en dessous, les bandes sont traitées sur le thread courant
+    private static final int TRIANGLE_FLOATS = 9; // x et y des trois sommets, puis profondeur au sommet 0 et gradients
+    // Faces d'une boîte, sommets dans le sens anti-horaire vus de l'extérieur. Coin : bit 0 = x, 1 = y, 2 = z max
+    private static final int[] BOX_FACES = {
+            0, 4, 6, 2, 1, 3, 7, 5, 0, 1, 5, 4, 2, 6, 7, 3, 0, 2, 3, 1, 4, 5, 7, 6 };
+
+    // Matrice projection * vue de la frame
+    private final Matrix4f projViewMatrix;
+    private float m00, m01, m03, m10, m11, m13, m20, m21, m23, m30, m31, m33;
+
+    private final float[][] levels;
+
+    // Occulteurs de la frame
+    private int occluderCount;
+    private float[] occluders; // minX, minY, minZ, maxX, maxY, maxZ
+
+    // Triangles après découpe par le plan proche, en pixels
+    private int triangleCount;
+    private float[] triangles;
+    private int[] triangleMinY;
+    private int[] triangleMaxY;
+    private int[] triangleEdges; // Bit par arête (ab, bc, ca) : arête du contour de la face, seule réduite
+
+    // Espace de travail de la découpe : coins de la boîte et polygone découpé (x, y, w)
+    private final float[] cornerX = new float[8];
+    private final float[] cornerY = new float[8];
+    private final float[] cornerW = new float[8];
+    private final float[] polygon = new float[3 * 4];
+    private final float[] clipped = new float[3 * 5];
+
+    private final RasterTask rasterTask;
+    private final BandTask[] bandTasks;
+    private boolean parallel = true; // false : bandes toujours sur le thread courant (tests)
+
+    // Statistiques de la frame
+    private long rasterizeNanos;
+    private long testNanos;
+    private int testedCount;
+    private int occludedCount;
+
+    public OcclusionCuller() {
+        projViewMatrix = new Matrix4f();
+        levels = new float[LEVELS][];
+        for (int level = 0; level < LEVELS; level++) {
+            levels[level] = new float[(WIDTH >> level) * (HEIGHT >> level)];
+        }
+        occluders = new float[6 * 256];
+        triangles = new float[TRIANGLE_FLOATS * 1024];
+        triangleMinY = new int[1024];
+        triangleMaxY = new int[1024];
+        triangleEdges = new int[1024];
+        bandTasks = new BandTask[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            bandTasks[band] = new BandTask(band);
+        }
+        rasterTask = new RasterTask();
+    }
+
+    // Nouvelle frame : caméra mise à jour, occulteurs et statistiques remis à zéro
+    public void begin(Matrix4f projMatrix, Matrix4f viewMatrix) {
+        Matrix4f m = projMatrix.mul(viewMatrix, projViewMatrix);
+        m00 = m.m00();
+        m01 = m.m01();
+        m03 = m.m03();
+        m10 = m.m10();
+        m11 = m.m11();
+        m13 = m.m13();
+        m20 = m.m20();
+        m21 = m.m21();
+        m23 = m.m23();
+        m30 = m.m30();
+        m31 = m.m31();
+        m33 = m.m33();
+        occluderCount = 0;
+        triangleCount = 0;
+        rasterizeNanos = 0;
+        testNanos = 0;
+        testedCount = 0;
+        occludedCount = 0;
+    }
+
+    // Boîte entièrement pleine : tout ce qu'elle cache est réellement caché
+    public void addOccluder(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        if ((occluderCount + 1) * 6 > occluders.length) {
+            occluders = Arrays.copyOf(occluders, occluders.length * 2);
+        }
+        int base = occluderCount * 6;
+        occluders[base] = minX;
+        occluders[base + 1] = minY;
+        occluders[base + 2] = minZ;
+        occluders[base + 3] = maxX;
+        occluders[base + 4] = maxY;
+        occluders[base + 5] = maxZ;
+        occluderCount++;
+    }
+
+    // Rastérise les occulteurs ajoutés depuis begin() et construit la pyramide hi-Z
+    public void rasterize() {
+        long start = System.nanoTime();
+        triangleCount = 0;
+        for (int occluder = 0; occluder < occluderCount; occluder++) {
+            setupBox(occluder * 6);
+        }
+        if (parallel && triangleCount >= PARALLEL_THRESHOLD) {
+            rasterTask.reinitialize();
+            ForkJoinPool.commonPool().invoke(rasterTask);
+        } else {
+            for (int band = 0; band < BANDS; band++) {
+                bandTasks[band].rasterizeBand();
+            }
+        }
+        for (int level = BAND_LEVELS; level < LEVELS; level++) {
+            reduce(level, 0, HEIGHT >> level);
+        }
+        rasterizeNanos = System.nanoTime() - start;
+    }
+
+    private void setupBox(int base) {
+        float minX = occluders[base];
+        float minY = occluders[base + 1];
+        float minZ = occluders[base + 2];
+        float maxX = occluders[base + 3];
+        float maxY = occluders[base + 4];
+        float maxZ = occluders[base + 5];
+        for (int corner = 0; corner < 8; corner++) {
+            float x = (corner & 1) == 0 ? minX : maxX;
+            float y = (corner & 2) == 0 ? minY : maxY;
+            float z = (corner & 4) == 0 ? minZ : maxZ;
+            cornerX[corner] = m00 * x + m10 * y + m20 * z + m30;
+            cornerY[corner] = m01 * x + m11 * y + m21 * z + m31;
+            cornerW[corner] = m03 * x + m13 * y + m23 * z + m33;
+        }
+        for (int face = 0; face < BOX_FACES.length; face += 4) {
+            setupFace(BOX_FACES[face], BOX_FACES[face + 1], BOX_FACES[face + 2], BOX_FACES[face + 3]);
+        }
+    }
+
+    // Découpe de la face par le plan w = Z_NEAR (Sutherland-Hodgman), puis éventail de triangles. La face est
+    // découpée entière et non triangle par triangle : les diagonales de l'éventail sont connues et ne sont pas
+    // réduites à la rastérisation, sinon elles laisseraient une fente vide au milieu de la face
+    private void setupFace(int a, int b, int c, int d) {
+        float wa = cornerW[a];
+        float wb = cornerW[b];
+        float wc = cornerW[c];
+        float wd = cornerW[d];
+        if (wa < Projection.Z_NEAR && wb < Projection.Z_NEAR && wc < Projection.Z_NEAR && wd < Projection.Z_NEAR) {
+            return;
+        }
+        int count;
+        if (wa >= Projection.Z_NEAR && wb >= Projection.Z_NEAR && wc >= Projection.Z_NEAR
+                && wd >= Projection.Z_NEAR) {
+            storeVertex(clipped, 0, a);
+            storeVertex(clipped, 1, b);
+            storeVertex(clipped, 2, c);
+            storeVertex(clipped, 3, d);
+            count = 4;
+        } else {
+            storeVertex(polygon, 0, a);
+            storeVertex(polygon, 1, b);
+            storeVertex(polygon, 2, c);
+            storeVertex(polygon, 3, d);
+            count = 0;
+            for (int i = 0; i < 4; i++) {
+                int j = (i + 1) % 4;
+                float wi = polygon[i * 3 + 2];
+                float wj = polygon[j * 3 + 2];
+                if (wi >= Projection.Z_NEAR) {
+                    System.arraycopy(polygon, i * 3, clipped, count * 3, 3);
+                    count++;
+                }
+                if ((wi >= Projection.Z_NEAR) != (wj >= Projection.Z_NEAR)) {
+                    float t = (Projection.Z_NEAR - wi) / (wj - wi);
+                    clipped[count * 3] = polygon[i * 3] + (polygon[j * 3] - polygon[i * 3]) * t;
+                    clipped[count * 3 + 1] = polygon[i * 3 + 1] + (polygon[j * 3 + 1] - polygon[i * 3 + 1]) * t;
+                    clipped[count * 3 + 2] = Projection.Z_NEAR;
+                    count++;
+                }
+            }
+        }
+        // Arêtes du contour : bc toujours, ab pour le premier triangle, ca pour le dernier
+        for (int i = 1; i + 1 < count; i++) {
+            addTriangle(0, i, i + 1, 2 | (i == 1 ? 1 : 0) | (i + 2 == count ? 4 : 0));
+        }
+    }
+
+    private void storeVertex(float[] dest, int index, int corner) {
+        dest[index * 3] = cornerX[corner];
+        dest[index * 3 + 1] = cornerY[corner];
+        dest[index * 3 + 2] = cornerW[corner];
+    }
+
+    // Sommets de clipped passés en pixels ; les triangles vus de dos ou dégénérés sont ignorés
+    private void addTriangle(int a, int b, int c, int edges) {
+        float za = 1.0f / clipped[a * 3 + 2];
+        float zb = 1.0f / clipped[b * 3 + 2];
+        float zc = 1.0f / clipped[c * 3 + 2];
+        float xa = (clipped[a * 3] * za + 1.0f) * 0.5f * WIDTH;
+        float ya = (clipped[a * 3 + 1] * za + 1.0f) * 0.5f * HEIGHT;
+        float xb = (clipped[b * 3] * zb + 1.0f) * 0.5f * WIDTH;
+        float yb = (clipped[b * 3 + 1] * zb + 1.0f) * 0.5f * HEIGHT;
+        float xc = (clipped[c * 3] * zc + 1.0f) * 0.5f * WIDTH;
+        float yc = (clipped[c * 3 + 1] * zc + 1.0f) * 0.5f * HEIGHT;
+        float det = (xb - xa) * (yc - ya) - (xc - xa) * (yb - ya);
+        if (!(det > 0.0f)) {
+            return;
+        }
+        float minY = Math.min(ya, Math.min(yb, yc));
+        float maxY = Math.max(ya, Math.max(yb, yc));
+        float minX = Math.min(xa, Math.min(xb, xc));
+        float maxX = Math.max(xa, Math.max(xb, xc));
+        if (maxX < 0.0f || minX > WIDTH || maxY < 0.0f || minY > HEIGHT) {
+            return;
+        }
+        if (triangleCount == triangleMinY.length) {
+            int capacity = triangleCount * 2;
+            triangles = Arrays.copyOf(triangles, capacity * TRIANGLE_FLOATS);
+            triangleMinY = Arrays.copyOf(triangleMinY, capacity);
+            triangleMaxY = Arrays.copyOf(triangleMaxY, capacity);
+            triangleEdges = Arrays.copyOf(triangleEdges, capacity);
+        }
+        int base = triangleCount * TRIANGLE_FLOATS;
+        triangles[base] = xa;
+        triangles[base + 1] = ya;
+        triangles[base + 2] = xb;
+        triangles[base + 3] = yb;
+        triangles[base + 4] = xc;
+        triangles[base + 5] = yc;
+        triangles[base + 6] = za;
+        triangles[base + 7] = ((zb - za) * (yc - ya) - (zc - za) * (yb - ya)) / det;
+        triangles[base + 8] = ((xb - xa) * (zc - za) - (xc - xa) * (zb - za)) / det;
+        triangleMinY[triangleCount] = Math.max(0, (int) minY);
+        triangleMaxY[triangleCount] = Math.min(HEIGHT - 1, (int) maxY);
+        triangleEdges[triangleCount] = edges;
+        triangleCount++;
+    }
+
+    // Niveau level calculé depuis level - 1 sur les lignes [fromRow, toRow) du niveau : plus lointain des 2 x 2
+    private void reduce(int level, int fromRow, int toRow) {
+        float[] source = levels[level - 1];
+        float[] dest = levels[level];
+        int sourceWidth = WIDTH >> (level - 1);
+        int destWidth = WIDTH >> level;
+        for (int y = fromRow; y < toRow; y++) {
+            int row0 = 2 * y * sourceWidth;
+            int row1 = row0 + sourceWidth;
+            for (int x = 0; x < destWidth; x++) {
+                dest[y * destWidth + x] = Math.min(Math.min(source[row0 + 2 * x], source[row0 + 2 * x + 1]),
+                        Math.min(source[row1 + 2 * x], source[row1 + 2 * x + 1]));
+            }
+        }
+    }
+
+    // false si la boîte est entièrement cachée par les occulteurs. Une boîte qui traverse le plan proche
+    // ou qui sort de l'écran n'est jugée que sur sa partie visible, le frustum culling reste à faire
+    public boolean isAabbVisible(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        if (triangleCount == 0) {
+            return true;
+        }
+        long start = System.nanoTime();
+        boolean visible = testAabb(minX, minY, minZ, maxX, maxY, maxZ);
+        testNanos += System.nanoTime() - start;
+        testedCount++;
+        if (!visible) {
+            occludedCount++;
+        }
+        return visible;
+    }
+
+    private boolean testAabb(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        float nearest = 0.0f;
+        float screenMinX = Float.MAX_VALUE;
+        float screenMinY = Float.MAX_VALUE;
+        float screenMaxX = -Float.MAX_VALUE;
+        float screenMaxY = -Float.MAX_VALUE;
+        for (int corner = 0; corner < 8; corner++) {
+            float x = (corner & 1) == 0 ? minX : maxX;
+            float y = (corner & 2) == 0 ? minY : maxY;
+            float z = (corner & 4) == 0 ? minZ : maxZ;
+            float w = m03 * x + m13 * y + m23 * z + m33;
+            if (w < Projection.Z_NEAR) {
+                return true;
+            }
+            float invW = 1.0f / w;
+            nearest = Math.max(nearest, invW);
+            float screenX = (m00 * x + m10 * y + m20 * z + m30) * invW;
+            float screenY = (m01 * x + m11 * y + m21 * z + m31) * invW;
+            screenMinX = Math.min(screenMinX, screenX);
+            screenMaxX = Math.max(screenMaxX, screenX);
+            screenMinY = Math.min(screenMinY, screenY);
+            screenMaxY = Math.max(screenMaxY, screenY);
+        }
+        int x0 = Math.max(0, (int) Math.floor((screenMinX + 1.0f) * 0.5f * WIDTH));
+        int x1 = Math.min(WIDTH - 1, (int) Math.floor((screenMaxX + 1.0f) * 0.5f * WIDTH));
+        int y0 = Math.max(0, (int) Math.floor((screenMinY + 1.0f) * 0.5f * HEIGHT));
+        int y1 = Math.min(HEIGHT - 1, (int) Math.floor((screenMaxY + 1.0f) * 0.5f * HEIGHT));
+        if (x0 > x1 || y0 > y1) {
+            return true;
+        }
+
+        // Niveau où le rectangle tient sur 2 ou 3 texels par côté
+        int extent = Math.max(x1 - x0, y1 - y0);
+        int level = 0;
+        while (level < LEVELS - 1 && (extent >> level) > 1) {
+            level++;
+        }
+        float[] hiz = levels[level];
+        int levelWidth = WIDTH >> level;
+        for (int y = y0 >> level; y <= y1 >> level; y++) {
+            for (int x = x0 >> level; x <= x1 >> level; x++) {
+                if (hiz[y * levelWidth + x] <= nearest) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Profondeur (1 / w) du pixel au niveau 0, 0 sans occulteur
+    public float getDepth(int x, int y) {
+        return levels[0][y * WIDTH + x];
+    }
+
+    public int getOccluderCount() {
+        return occluderCount;
+    }
+
+    public int getTriangleCount() {
+        return triangleCount;
+    }
+
+    public int getTestedCount() {
+        return testedCount;
+    }
+
+    public int getOccludedCount() {
+        return occludedCount;
+    }
+
+    // Rastérisation et pyramide hi-Z de la frame
+    public float getRasterizeMillis() {
+        return rasterizeNanos / 1_000_000.0f;
+    }
+
+    // Tests de boîtes depuis begin()
+    public float getTestMillis() {
+        return testNanos / 1_000_000.0f;
+    }
+
+    void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    private class RasterTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            for (BandTask task : bandTasks) {
+                task.reinitialize();
+            }
+            invokeAll(bandTasks);
+        }
+    }
+
+    private class BandTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int band;
+
+        BandTask(int band) {
+            this.band = band;
+        }
+
+        @Override
+        protected void compute() {
+            rasterizeBand();
+        }
+
+        // Lignes de la bande effacées, triangles qui la touchent rastérisés, puis niveaux hi-Z de la bande
+        void rasterizeBand() {
+            int firstRow = band * BAND_HEIGHT;
+            int lastRow = firstRow + BAND_HEIGHT - 1;
+            float[] depth = levels[0];
+            Arrays.fill(depth, firstRow * WIDTH, (lastRow + 1) * WIDTH, 0.0f);
+            for (int triangle = 0; triangle < triangleCount; triangle++) {
+                if (triangleMaxY[triangle] >= firstRow && triangleMinY[triangle] <= lastRow) {
+                    rasterizeTriangle(triangle, Math.max(firstRow, triangleMinY[triangle]),
+                            Math.min(lastRow, triangleMaxY[triangle]), depth);
+                }
+            }
+            for (int level = 1; level < BAND_LEVELS; level++) {
+                reduce(level, firstRow >> level, (lastRow + 1) >> level);
+            }
+        }
+
+        // Fonctions d'arête positives à l'intérieur (sens anti-horaire). Un pixel n'est couvert que si son centre
+        // est à plus d'un demi-pixel de chaque arête, dans la direction de la normale de l'arête
+        private void rasterizeTriangle(int triangle, int fromRow, int toRow, float[] depth) {
+            int base = triangle * TRIANGLE_FLOATS;
+            float xa = triangles[base];
+            float ya = triangles[base + 1];
+            float xb = triangles[base + 2];
+            float yb = triangles[base + 3];
+            float xc = triangles[base + 4];
+            float yc = triangles[base + 5];
+            float za = triangles[base + 6];
+            float dzdx = triangles[base + 7];
+            float dzdy = triangles[base + 8];
+
+            float a0 = ya - yb, b0 = xb - xa;
+            float a1 = yb - yc, b1 = xc - xb;
+            float a2 = yc - ya, b2 = xa - xc;
+            // Pixel entièrement à l'intérieur des arêtes du contour ; centre du bon côté des diagonales
+            int edges = triangleEdges[triangle];
+            float margin0 = (edges & 1) != 0 ? 0.5f * (Math.abs(a0) + Math.abs(b0)) : 0.0f;
+            float margin1 = (edges & 2) != 0 ? 0.5f * (Math.abs(a1) + Math.abs(b1)) : 0.0f;
+            float margin2 = (edges & 4) != 0 ? 0.5f * (Math.abs(a2) + Math.abs(b2)) : 0.0f;
+            // Profondeur la plus lointaine du plan sur le pixel : centre moins la demi-variation
+            float depthMargin = 0.5f * (Math.abs(dzdx) + Math.abs(dzdy));
+
+            int fromX = Math.max(0, (int) Math.min(xa, Math.min(xb, xc)));
+            int toX = Math.min(WIDTH - 1, (int) Math.max(xa, Math.max(xb, xc)));
+            float startX = fromX + 0.5f;
+            for (int y = fromRow; y <= toRow; y++) {
+                float centerY = y + 0.5f;
+                // Portion de la ligne où les trois fonctions d'arête sont positives
+                float e0 = a0 * (startX - xa) + b0 * (centerY - ya) - margin0;
+                float e1 = a1 * (startX - xb) + b1 * (centerY - yb) - margin1;
+                float e2 = a2 * (startX - xc) + b2 * (centerY - yc) - margin2;
+                float spanStart = Math.max(spanStart(e0, a0), Math.max(spanStart(e1, a1), spanStart(e2, a2)));
+                float spanEnd = Math.min(spanEnd(e0, a0), Math.min(spanEnd(e1, a1), spanEnd(e2, a2)));
+                float firstOffset = Math.max(0.0f, (float) Math.ceil(spanStart));
+                float lastOffset = Math.min(toX - fromX, (float) Math.floor(spanEnd));
+                if (firstOffset > lastOffset) {
+                    continue;
+                }
+                int first = fromX + (int) firstOffset;
+                int last = fromX + (int) lastOffset;
+                float z = za + dzdx * (first + 0.5f - xa) + dzdy * (centerY - ya) - depthMargin;
+                int row = y * WIDTH;
+                for (int x = first; x <= last; x++) {
+                    if (z > depth[row + x]) {
+                        depth[row + x] = z;
+                    }
+                    z += dzdx;
+                }
+            }
+        }
+
+        // Premier décalage (en pixels depuis le début de la ligne) où e + a * décalage >= 0
+        private static float spanStart(float e, float a) {
+            if (a > 0.0f) {
+                return -e / a;
+            }
+            return a == 0.0f && e < 0.0f ? Float.MAX_VALUE : -Float.MAX_VALUE;
+        }
+
+        // Dernier décalage où e + a * décalage >= 0
+        private static float spanEnd(float e, float a) {
+            if (a < 0.0f) {
+                return -e / a;
+            }
+            return a == 0.0f && e < 0.0f ? -Float.MAX_VALUE : Float.MAX_VALUE;
+        }
+    }
+}
@@ -3,15 +3,42 @@ package com.terrescalmes.core.graphics;
 import org.lwjgl.opengl.GL;
 
 import com.terrescalmes.Window;
+import com.terrescalmes.core.TerrainGenerator;
 import com.terrescalmes.core.graphics.GUI.GuiRender;
+import com.terrescalmes.core.terrain.HorizonCuller;
 
 import static org.lwjgl.opengl.GL11.*;
 
 public class Render {
 
+    // -Dterrescalmes.render.mode=deferred pour démarrer en rendu différé (basculable ensuite, voir setDeferred)
+    private static final boolean DEFERRED_AT_START = System.getProperty("terrescalmes.render.mode", "forward")
+            .equals("deferred");
+    // -Dterrescalmes.occlusion=false pour démarrer sans occlusion culling (basculable ensuite, voir setOcclusionCulling)
+    private static final boolean OCCLUSION_AT_START = !System.getProperty("terrescalmes.occlusion", "true")
+            .equals("false");
+    // -Dterrescalmes.horizon=false pour démarrer sans culling par l'horizon (voir setHorizonCulling)
+    private static final boolean HORIZON_AT_START = !System.getProperty("terrescalmes.horizon", "true")
+            .equals("false");
+    // En deçà, l'horizon est relevé cellule par cellule, au-delà chunk par chunk
+    private static final float HORIZON_CELL_RANGE = 2 * TerrainGenerator.CHUNK_WORLD_SIZE;
+    // Portée des occulteurs du terrain : au-delà, les cellules couvrent trop peu de pixels pour cacher quelque chose
+    private static final float OCCLUDER_RANGE = 4 * TerrainGenerator.CHUNK_WORLD_SIZE;
+
+    private ClusteredLighting clusteredLighting;
+    private boolean deferred;
+    private DeferredRender deferredRender;
+    private FrameUniforms frameUniforms;
+    private FrustumCuller frustumCuller;
+    private GpuTimer gpuTimer;
     private GuiRender guiRender;
+    private HorizonCuller horizonCuller;
+    private boolean horizonCulling;
+    private OcclusionCuller occlusionCuller;
+    private boolean occlusionCulling;
     private SceneRender sceneRender;
     private SkyBoxRender skyBoxRender;
+    private TerrainRender terrainRender;
 
     public Render(Window window) {
         GL.createCapabilities();
@@ -19,24 +46,140 @@ public class Render {
         glEnable(GL_CULL_FACE);
         glCullFace(GL_BACK);
         sceneRender = new SceneRender();
+        frustumCuller = new FrustumCuller();
+        occlusionCuller = new OcclusionCuller();
+        occlusionCulling = OCCLUSION_AT_START;
+        horizonCuller = new HorizonCuller();
+        horizonCulling = HORIZON_AT_START;
+        frameUniforms = new FrameUniforms();
+        clusteredLighting = new ClusteredLighting();
+        deferredRender = new DeferredRender();
+        gpuTimer = new GpuTimer();
+        deferred = DEFERRED_AT_START;
         guiRender = new GuiRender(window);
         skyBoxRender = new SkyBoxRender();
+        terrainRender = new TerrainRender();
     }
 
     public void cleanup() {
         sceneRender.cleanup();
         guiRender.cleanup();
+        terrainRender.cleanup();
+        frameUniforms.cleanup();
+        clusteredLighting.cleanup();
+        deferredRender.cleanup();
+        gpuTimer.cleanup();
     }
 
     public void render(Window window, Scene scene) {
+        UniformsMap.resetStats();
         glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
         glViewport(0, 0, window.getWidth(), window.getHeight());
 
+        // Avant toute compilation de la file de rendu : les batchs reconstruits sont des modèles de la scène
+        scene.updateBatches();
+        frustumCuller.update(scene.getProjection().getProjMatrix(), scene.getCamera().getViewMatrix());
+        horizonCuller.begin(scene.getCamera().getPosition());
+        if (horizonCulling) {
+            scene.getTerrainHulls().addHorizonOccluders(scene.getCamera().getPosition(), HORIZON_CELL_RANGE,
+                    horizonCuller);
+        }
+        horizonCuller.build();
+        occlusionCuller.begin(scene.getProjection().getProjMatrix(), scene.getCamera().getViewMatrix());
+        if (occlusionCulling) {
+            scene.getTerrainHulls().addOccluders(scene.getCamera().getPosition(), OCCLUDER_RANGE, frustumCuller,
+                    occlusionCuller);
+        }
+        occlusionCuller.rasterize();
+        clusteredLighting.update(scene);
+        frameUniforms.update(scene, clusteredLighting, window.getWidth(), window.getHeight());
+        clusteredLighting.bind();
+
+        // Temps GPU de la scène seule, pour comparer les deux modes
+        gpuTimer.begin();
         skyBoxRender.render(scene);
-        sceneRender.render(scene);
+        if (deferred) {
+            deferredRender.beginGeometry(window.getWidth(), window.getHeight());
+            sceneRender.renderGeometry(scene, frustumCuller, horizonCuller, occlusionCuller);
+            terrainRender.renderGeometry(scene, frustumCuller, horizonCuller, occlusionCuller);
+            deferredRender.renderLighting(clusteredLighting.getLightCount());
+        } else {
+            sceneRender.render(scene, frustumCuller, horizonCuller, occlusionCuller);
+            terrainRender.render(scene, frustumCuller, horizonCuller, occlusionCuller);
+        }
+        gpuTimer.end();
         guiRender.render(scene);
     }
 
+    // Rendu différé (G-buffer puis passes d'éclairage) ou direct (éclairage dans scene.frag)
+    public void setDeferred(boolean deferred) {
+        this.deferred = deferred;
+    }
+
+    public boolean isDeferred() {
+        return deferred;
+    }
+
+    // Temps GPU du rendu de la scène (hors interface) de la dernière mesure disponible, -1 si aucune
+    public float getSceneGpuMillis() {
+        return gpuTimer.getLastMillis();
+    }
+
+    // Objets (instances d'entités et chunks de l'atlas) envoyés au GPU lors de la dernière frame
+    public int getSubmittedCount() {
+        return sceneRender.getSubmittedCount() + terrainRender.getSubmittedCount();
+    }
+
+    // Objets écartés par le frustum ou l'occlusion culling lors de la dernière frame
+    public int getCulledCount() {
+        return sceneRender.getCulledCount() + terrainRender.getCulledCount();
+    }
+
+    // Objets dans le frustum mais cachés par le terrain lors de la dernière frame (compris dans getCulledCount)
+    public int getOccludedCount() {
+        return occlusionCuller.getOccludedCount();
+    }
+
+    // Temps CPU de l'occlusion culling de la dernière frame : rastérisation des occulteurs et tests
+    public float getOcclusionMillis() {
+        return occlusionCuller.getRasterizeMillis() + occlusionCuller.getTestMillis();
+    }
+
+    // Objets dans le frustum mais sous l'horizon du terrain lors de la dernière frame (compris dans getCulledCount)
+    public int getHorizonCulledCount() {
+        return horizonCuller.getOccludedCount();
+    }
+
+    // Temps CPU du culling par l'horizon de la dernière frame : construction de l'horizon et tests. Les lots de
+    // tests chronométrés comprennent les tests d'occlusion des mêmes boucles, déjà comptés par getOcclusionMillis
+    public float getHorizonMillis() {
+        float testMillis = horizonCuller.getTestMillis() - occlusionCuller.getTestMillis();
+        return horizonCuller.getBuildMillis() + Math.max(0.0f, testMillis);
+    }
+
+    // Culling par l'horizon du terrain, voir HorizonCuller
+    public void setHorizonCulling(boolean horizonCulling) {
+        this.horizonCulling = horizonCulling;
+    }
+
+    public boolean isHorizonCulling() {
+        return horizonCulling;
+    }
+
+    // Occlusion culling logiciel contre le terrain, voir OcclusionCuller et TerrainHulls
+    public void setOcclusionCulling(boolean occlusionCulling) {
+        this.occlusionCulling = occlusionCulling;
+    }
+
+    public boolean isOcclusionCulling() {
+        return occlusionCulling;
+    }
+
+    // Lumières ponctuelles et spots envoyées lors de la dernière frame
+    public int getLightCount() {
+        return clusteredLighting.getLightCount();
+    }
+
     public void resize(int width, int height) {
         guiRender.resize(width, height);
     }
@@ -0,0 +1,262 @@
+package com.terrescalmes.core.graphics;
+
+import java.util.*;
+
+import com.terrescalmes.core.TextureCache;
+
+// File de rendu compilée de la scène : un élément par (modèle, matériau, mesh), dessiné en un appel instancié
+// pour toutes les instances visibles du modèle.
+// La partie statique (texture, matériau et VAO de chaque élément, indexés de façon dense) n'est recompilée
+// que lorsque la scène gagne ou perd un modèle. Chaque frame, les éléments des modèles visibles reçoivent
+// une clé de tri sur 64 bits, triée par radix, pour que le rendu enchaîne les éléments partageant leur état
+public class RenderQueue {
+
+    // Clé opaque : passe (1) | shader (7) | texture (16) | matériau (12) | VAO (12) | profondeur (16)
+    // Clé transparente : passe (1) | profondeur inversée (16) | shader (7) | texture (16) | matériau (12) | VAO (12)
+    private static final int DEPTH_BITS = 16;
+    private static final int MATERIAL_BITS = 12;
+    private static final int TEXTURE_BITS = 16;
+    private static final int VAO_BITS = 12;
+    private static final int SHADER_BITS = 7;
+    private static final long TRANSPARENT_PASS = 1L << 63;
+    private static final int MAX_DEPTH = (1 << DEPTH_BITS) - 1;
+    private static final float DEPTH_SCALE = MAX_DEPTH / Projection.Z_FAR;
+
+    private int compiledVersion = -1;
+    private final List<Material> materials = new ArrayList<>(); // Par index dense
+
+    // Partie statique, par élément
+    private int itemCount;
+    private Material[] itemMaterial;
+    private int[] itemMaterialIndex;
+    private Mesh[] itemMesh;
+    private int[] itemModel;
+    private Texture[] itemTexture;
+    private int[] itemTextureIndex;
+    private boolean[] itemTransparent;
+    private int[] itemVaoIndex;
+
+    // Partie statique, par modèle : ses éléments sont contigus
+    private int modelCount;
+    private int[] modelFirstItem;
+    private int[] modelInstanceCount;
+    private int[] modelItemCount;
+    private Model[] models;
+
+    // Partie dynamique, reconstruite chaque frame
+    private int queueCount;
+    private long[] keys;
+    private long[] keysScratch;
+    private int[] queue;
+    private int[] queueScratch;
+    private final int[] histogram = new int[256];
+
+    public RenderQueue() {
+        allocateItems(64);
+        allocateModels(16);
+    }
+
+    private void allocateItems(int capacity) {
+        itemMaterial = new Material[capacity];
+        itemMaterialIndex = new int[capacity];
+        itemMesh = new Mesh[capacity];
+        itemModel = new int[capacity];
+        itemTexture = new Texture[capacity];
+        itemTextureIndex = new int[capacity];
+        itemTransparent = new boolean[capacity];
+        itemVaoIndex = new int[capacity];
+        keys = new long[capacity];
+        keysScratch = new long[capacity];
+        queue = new int[capacity];
+        queueScratch = new int[capacity];
+    }
+
+    private void allocateModels(int capacity) {
+        models = new Model[capacity];
+        modelFirstItem = new int[capacity];
+        modelItemCount = new int[capacity];
+        modelInstanceCount = new int[capacity];
+    }
+
+    // Recompile la partie statique si les modèles de la scène ont changé depuis le dernier appel.
+    // Retourne true si c'est le cas (la liste des matériaux a pu changer)
+    public boolean compile(Scene scene) {
+        if (compiledVersion == scene.getModelVersion()) {
+            return false;
+        }
+        compiledVersion = scene.getModelVersion();
+
+        Collection<Model> sceneModels = scene.getModelMap().values();
+        int totalItems = 0;
+        for (Model model : sceneModels) {
+            for (Material material : model.getMaterialList()) {
+                totalItems += material.getMeshList().size();
+            }
+        }
+        if (itemMesh.length < totalItems) {
+            allocateItems(Math.max(totalItems, itemMesh.length * 2));
+        }
+        if (models.length < sceneModels.size()) {
+            allocateModels(Math.max(sceneModels.size(), models.length * 2));
+        }
+        Arrays.fill(itemMaterial, null);
+        Arrays.fill(itemMesh, null);
+        Arrays.fill(itemTexture, null);
+        Arrays.fill(models, null);
+
+        // Index denses : les identifiants OpenGL ne tiennent pas dans les champs de la clé
+        TextureCache textureCache = scene.getTextureCache();
+        Map<Texture, Integer> textureIndices = new IdentityHashMap<>();
+        Map<Material, Integer> materialIndices = new IdentityHashMap<>();
+        // Par VAO et non par mesh : les meshes d'une même page de MeshPool se suivent sans changer de VAO
+        Map<Integer, Integer> vaoIndices = new HashMap<>();
+        materials.clear();
+        itemCount = 0;
+        modelCount = 0;
+        for (Model model : sceneModels) {
+            models[modelCount] = model;
+            modelFirstItem[modelCount] = itemCount;
+            for (Material material : model.getMaterialList()) {
+                Texture texture = textureCache.getTexture(material.getTexturePath());
+                int textureIndex = textureIndices.computeIfAbsent(texture, key -> textureIndices.size());
+                int materialIndex = materialIndices.computeIfAbsent(material, key -> {
+                    materials.add(key);
+                    return materials.size() - 1;
+                });
+                for (Mesh mesh : material.getMeshList()) {
+                    itemModel[itemCount] = modelCount;
+                    itemMaterial[itemCount] = material;
+                    itemMaterialIndex[itemCount] = materialIndex;
+                    itemMesh[itemCount] = mesh;
+                    itemTexture[itemCount] = texture;
+                    itemTextureIndex[itemCount] = textureIndex & ((1 << TEXTURE_BITS) - 1);
+                    itemTransparent[itemCount] = material.getDiffuseColor().w < 1.0f;
+                    itemVaoIndex[itemCount] = vaoIndices.computeIfAbsent(mesh.getVaoId(), key -> vaoIndices.size())
+                            & ((1 << VAO_BITS) - 1);
+                    itemCount++;
+                }
+            }
+            modelItemCount[modelCount] = itemCount - modelFirstItem[modelCount];
+            modelCount++;
+        }
+        return true;
+    }
+
+    public void begin() {
+        queueCount = 0;
+    }
+
+    // Ajoute les éléments du modèle, distance = distance de la caméra à son instance visible la plus proche
+    public void addModel(int modelIndex, int instanceCount, float distance) {
+        modelInstanceCount[modelIndex] = instanceCount;
+        int depth = (int) Math.min(MAX_DEPTH, Math.max(0.0f, distance * DEPTH_SCALE));
+        int first = modelFirstItem[modelIndex];
+        for (int item = first; item < first + modelItemCount[modelIndex]; item++) {
+            long state = ((long) itemTextureIndex[item] << (MATERIAL_BITS + VAO_BITS))
+                    | ((long) (itemMaterialIndex[item] & ((1 << MATERIAL_BITS) - 1)) << VAO_BITS)
+                    | itemVaoIndex[item];
+            long key;
+            if (itemTransparent[item]) {
+                // Arrière vers avant pour le mélange alpha
+                key = TRANSPARENT_PASS
+                        | ((long) (MAX_DEPTH - depth) << (SHADER_BITS + TEXTURE_BITS + MATERIAL_BITS + VAO_BITS))
+                        | state;
+            } else {
+                // Regroupement par état, puis avant vers arrière pour le test de profondeur
+                key = (state << DEPTH_BITS) | depth;
+            }
+            keys[queueCount] = key;
+            queue[queueCount] = item;
+            queueCount++;
+        }
+    }
+
+    // Tri radix LSD par octet ; les octets identiques dans toutes les clés (champs inutilisés) sont sautés
+    public void sort() {
+        long[] srcKeys = keys;
+        long[] dstKeys = keysScratch;
+        int[] srcItems = queue;
+        int[] dstItems = queueScratch;
+        int count = queueCount;
+        for (int shift = 0; shift < Long.SIZE; shift += 8) {
+            Arrays.fill(histogram, 0);
+            for (int i = 0; i < count; i++) {
+                histogram[(int) (srcKeys[i] >>> shift) & 0xFF]++;
+            }
+            if (count == 0 || histogram[(int) (srcKeys[0] >>> shift) & 0xFF] == count) {
+                continue;
+            }
+            int offset = 0;
+            for (int bucket = 0; bucket < 256; bucket++) {
+                int bucketCount = histogram[bucket];
+                histogram[bucket] = offset;
+                offset += bucketCount;
+            }
+            for (int i = 0; i < count; i++) {
+                int position = histogram[(int) (srcKeys[i] >>> shift) & 0xFF]++;
+                dstKeys[position] = srcKeys[i];
+                dstItems[position] = srcItems[i];
+            }
+            long[] swapKeys = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = swapKeys;
+            int[] swapItems = srcItems;
+            srcItems = dstItems;
+            dstItems = swapItems;
+        }
+        keys = srcKeys;
+        keysScratch = dstKeys;
+        queue = srcItems;
+        queueScratch = dstItems;
+    }
+
+    public Material getItemMaterial(int item) {
+        return itemMaterial[item];
+    }
+
+    // Index du matériau dans getMaterials()
+    public int getItemMaterialIndex(int item) {
+        return itemMaterialIndex[item];
+    }
+
+    public Mesh getItemMesh(int item) {
+        return itemMesh[item];
+    }
+
+    public Model getItemModel(int item) {
+        return models[itemModel[item]];
+    }
+
+    public int getItemInstanceCount(int item) {
+        return modelInstanceCount[itemModel[item]];
+    }
+
+    public Texture getItemTexture(int item) {
+        return itemTexture[item];
+    }
+
+    public boolean isItemTransparent(int item) {
+        return itemTransparent[item];
+    }
+
+    public List<Material> getMaterials() {
+        return materials;
+    }
+
+    public Model getModel(int modelIndex) {
+        return models[modelIndex];
+    }
+
+    public int getModelCount() {
+        return modelCount;
+    }
+
+    // Élément à la position index de la file triée
+    public int getQueuedItem(int index) {
+        return queue[index];
+    }
+
+    public int getQueuedCount() {
+        return queueCount;
+    }
+}
@@ -1,14 +1,22 @@
 package com.terrescalmes.core.graphics;
 
+import org.joml.Vector3f;
+
 import java.util.*;
 
 import com.terrescalmes.core.TextureCache;
 import com.terrescalmes.core.graphics.GUI.IGuiInstance;
 import com.terrescalmes.core.graphics.lights.SceneLights;
+import com.terrescalmes.core.spatial.EntityBvh;
+import com.terrescalmes.core.spatial.SpatialHash;
+import com.terrescalmes.core.terrain.CdlodTerrain;
+import com.terrescalmes.core.terrain.TerrainHulls;
 import com.terrescalmes.entities.Entity;
 
 public class Scene {
 
+    private static final float DYNAMIC_CELL_SIZE = 8.0f; // Côté des cellules du hash des entités mobiles
+
     private Map<String, Model> modelMap;
     private Projection projection;
     private TextureCache textureCache;
@@ -17,26 +25,147 @@ public class Scene {
     private SceneLights sceneLights;
     private SkyBox skyBox;
     private Fog fog;
+    private CdlodTerrain cdlodTerrain;
+    private HeightAtlas heightAtlas;
+    private int modelVersion; // Incrémenté à chaque ajout ou retrait de modèle
+    private final SpatialHash dynamicEntities;
+    private final EntityBvh staticEntities;
+    private final StaticBatcher staticBatcher;
+    private final TerrainHulls terrainHulls;
+    private final Vector3f boundsMax;
+    private final Vector3f boundsMin;
 
     public Scene(int width, int height) {
         modelMap = new HashMap<>();
+        dynamicEntities = new SpatialHash(DYNAMIC_CELL_SIZE);
+        staticEntities = new EntityBvh();
+        staticBatcher = new StaticBatcher();
+        terrainHulls = new TerrainHulls();
+        boundsMin = new Vector3f();
+        boundsMax = new Vector3f();
         projection = new Projection(width, height);
         textureCache = new TextureCache();
         camera = new Camera();
         fog = new Fog();
     }
 
+    // Entité mobile : rendue depuis la liste de son modèle et indexée dans le hash spatial
     public void addEntity(Entity entity) {
+        getEntityModel(entity).getEntitiesList().add(entity);
+        dynamicEntities.insert(entity);
+    }
+
+    public boolean removeEntity(Entity entity) {
+        Model model = modelMap.get(entity.getModelId());
+        if (model == null || !model.getEntitiesList().remove(entity)) {
+            return false;
+        }
+        dynamicEntities.remove(entity);
+        return true;
+    }
+
+    // À appeler après avoir modifié la position, la rotation ou l'échelle d'une entité mobile
+    public void updateEntity(Entity entity) {
+        entity.updateModelMatrix();
+        dynamicEntities.update(entity);
+    }
+
+    // Handles (voir getDynamicEntities) des entités mobiles à moins de radius de center, écrits dans out
+    public int queryEntities(Vector3f center, float radius, int[] out) {
+        return dynamicEntities.queryRadius(center.x, center.y, center.z, radius, out);
+    }
+
+    public SpatialHash getDynamicEntities() {
+        return dynamicEntities;
+    }
+
+    // Entité immobile : rangée dans la BVH et non dans la liste de son modèle, culling et picking en O(log n).
+    // Sa matrice modèle doit être à jour, et chaque déplacement suivi d'un appel à updateStaticEntity
+    public void addStaticEntity(Entity entity) {
+        computeWorldBounds(entity);
+        staticEntities.add(entity, boundsMin.x, boundsMin.y, boundsMin.z, boundsMax.x, boundsMax.y, boundsMax.z);
+    }
+
+    public boolean removeStaticEntity(Entity entity) {
+        return staticEntities.remove(entity);
+    }
+
+    public void updateStaticEntity(Entity entity) {
+        computeWorldBounds(entity);
+        staticEntities.update(entity, boundsMin.x, boundsMin.y, boundsMin.z, boundsMax.x, boundsMax.y, boundsMax.z);
+    }
+
+    // Entité qui ne bougera plus jamais : sa géométrie source est fusionnée avec celle des entités voisines de
+    // même matériau (voir StaticBatcher), sans appel de dessin ni matrice propres. Son modèle n'a pas à être
+    // chargé : removeModel retire ses entités batchées d'après leur id de modèle. Sa matrice modèle doit être à
+    // jour, la déplacer demande de la retirer puis de la rajouter
+    public void addBatchedEntity(Entity entity, StaticBatcher.Source source) {
+        staticBatcher.add(entity, source);
+    }
+
+    public boolean removeBatchedEntity(Entity entity) {
+        return staticBatcher.remove(entity);
+    }
+
+    // Reconstruit les batchs touchés par les ajouts et retraits d'entités batchées. Thread OpenGL
+    public void updateBatches() {
+        staticBatcher.update(this);
+    }
+
+    public StaticBatcher getStaticBatcher() {
+        return staticBatcher;
+    }
+
+    // Boîte locale du modèle transformée par la matrice de l'entité
+    private void computeWorldBounds(Entity entity) {
+        Model model = getEntityModel(entity);
+        entity.getModelMatrix().transformAab(model.getAabbMin(), model.getAabbMax(), boundsMin, boundsMax);
+    }
+
+    private Model getEntityModel(Entity entity) {
         String modelId = entity.getModelId();
         Model model = modelMap.get(modelId);
         if (model == null) {
             throw new RuntimeException("Could not find model [" + modelId + "]");
         }
-        model.getEntitiesList().add(entity);
+        return model;
+    }
+
+    // Entités statiques visibles ajoutées à out, retourne leur nombre
+    public int queryStaticEntities(FrustumCuller frustumCuller, List<Entity> out) {
+        return staticEntities.queryFrustum(frustumCuller, out);
+    }
+
+    // Entités statiques dont la boîte intersecte [min, max], ajoutées à out
+    public int queryStaticEntities(Vector3f min, Vector3f max, List<Entity> out) {
+        return staticEntities.queryAabb(min.x, min.y, min.z, max.x, max.y, max.z, out);
+    }
+
+    // Entité statique la plus proche sur le rayon (direction normalisée), null si aucune avant maxDistance
+    public Entity pickStaticEntity(Vector3f origin, Vector3f direction, float maxDistance) {
+        return staticEntities.raycast(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z,
+                maxDistance);
+    }
+
+    public EntityBvh getStaticEntities() {
+        return staticEntities;
     }
 
     public void addModel(Model model) {
         modelMap.put(model.getId(), model);
+        modelVersion++;
+    }
+
+    // Retire aussi les entités, mobiles, statiques et batchées, du modèle
+    public Model removeModel(String modelId) {
+        staticBatcher.removeModelEntities(modelId);
+        staticEntities.removeIf(entity -> entity.getModelId().equals(modelId));
+        Model model = modelMap.remove(modelId);
+        if (model != null) {
+            modelVersion++;
+            model.getEntitiesList().forEach(dynamicEntities::remove);
+        }
+        return model;
     }
 
     public void cleanup() {
@@ -47,6 +176,10 @@ public class Scene {
         return modelMap;
     }
 
+    public int getModelVersion() {
+        return modelVersion;
+    }
+
     public Projection getProjection() {
         return projection;
     }
@@ -94,4 +227,25 @@ public class Scene {
     public void setFog(Fog fog) {
         this.fog = fog;
     }
+
+    public CdlodTerrain getCdlodTerrain() {
+        return cdlodTerrain;
+    }
+
+    public void setCdlodTerrain(CdlodTerrain cdlodTerrain) {
+        this.cdlodTerrain = cdlodTerrain;
+    }
+
+    // Occulteurs du terrain, enregistrés avec les chunks ou la région CDLOD
+    public TerrainHulls getTerrainHulls() {
+        return terrainHulls;
+    }
+
+    public HeightAtlas getHeightAtlas() {
+        return heightAtlas;
+    }
+
+    public void setHeightAtlas(HeightAtlas heightAtlas) {
+        this.heightAtlas = heightAtlas;
+    }
 }
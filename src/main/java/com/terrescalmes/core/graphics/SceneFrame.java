@@ -0,0 +1,170 @@
+package com.terrescalmes.core.graphics;
+
+import org.joml.Vector3f;
+
+import com.terrescalmes.core.terrain.HorizonCuller;
+import com.terrescalmes.entities.Entity;
+
+import java.util.*;
+
+// Partie CPU d'une frame de SceneRender, sans appel OpenGL : entités statiques visibles selon la BVH de la scène,
+// entités dynamiques dans le frustum, occlusion par l'horizon et les occulteurs du terrain, puis file de rendu
+// remplie et triée. SceneRender envoie ensuite les instances visibles de chaque modèle et dessine la file.
+// Toutes les listes sont réutilisées d'une frame à l'autre
+public class SceneFrame {
+
+    private int culledCount;
+    private int submittedCount;
+    private final Vector3f boundsMax = new Vector3f();
+    private final Vector3f boundsMin = new Vector3f();
+    private final Vector3f worldCenter = new Vector3f();
+    private final RenderQueue renderQueue = new RenderQueue();
+    private final List<List<Entity>> visibleByModel = new ArrayList<>(); // Par index de modèle de la file
+    private final List<Entity> visibleStaticEntities = new ArrayList<>();
+    private final Map<Model, List<Entity>> visibleStaticByModel = new IdentityHashMap<>();
+    private final List<List<Entity>> visibleStaticLists = new ArrayList<>(); // Valeurs de visibleStaticByModel
+
+    // Retourne true si les modèles de la scène ont changé depuis l'appel précédent : la liste des matériaux de
+    // la file a pu changer
+    public boolean prepare(Scene scene, FrustumCuller frustumCuller, HorizonCuller horizonCuller,
+            OcclusionCuller occlusionCuller) {
+        submittedCount = 0;
+        culledCount = 0;
+        boolean modelsChanged = renderQueue.compile(scene);
+        if (modelsChanged) {
+            // Les index de modèle ont changé : plus aucune entité retenue sous un ancien index
+            for (int i = 0; i < visibleByModel.size(); i++) {
+                visibleByModel.get(i).clear();
+            }
+        }
+        while (visibleByModel.size() < renderQueue.getModelCount()) {
+            visibleByModel.add(new ArrayList<>());
+        }
+        queryStaticEntities(scene, frustumCuller, horizonCuller, occlusionCuller, modelsChanged);
+
+        renderQueue.begin();
+        Vector3f cameraPosition = scene.getCamera().getPosition();
+        for (int modelIndex = 0; modelIndex < renderQueue.getModelCount(); modelIndex++) {
+            List<Entity> visible = visibleByModel.get(modelIndex);
+            cullEntities(renderQueue.getModel(modelIndex), frustumCuller, horizonCuller, occlusionCuller, visible);
+            if (!visible.isEmpty()) {
+                renderQueue.addModel(modelIndex, visible.size(), nearestDistance(visible, cameraPosition));
+            }
+        }
+        renderQueue.sort();
+        return modelsChanged;
+    }
+
+    public int getCulledCount() {
+        return culledCount;
+    }
+
+    public RenderQueue getRenderQueue() {
+        return renderQueue;
+    }
+
+    public int getSubmittedCount() {
+        return submittedCount;
+    }
+
+    // Entités visibles du modèle d'index modelIndex dans la file, dynamiques puis statiques
+    public List<Entity> getVisibleEntities(int modelIndex) {
+        return visibleByModel.get(modelIndex);
+    }
+
+    private static float nearestDistance(List<Entity> entities, Vector3f cameraPosition) {
+        float nearestSq = Float.MAX_VALUE;
+        for (int i = 0; i < entities.size(); i++) {
+            nearestSq = Math.min(nearestSq, entities.get(i).getPosition().distanceSquared(cameraPosition));
+        }
+        return (float) Math.sqrt(nearestSq);
+    }
+
+    // Entités statiques visibles selon la BVH de la scène puis l'occlusion culling (horizon et occulteurs),
+    // regroupées par modèle. Les listes par modèle sont réutilisées d'une frame à l'autre, et oubliées quand
+    // les modèles changent
+    private void queryStaticEntities(Scene scene, FrustumCuller frustumCuller, HorizonCuller horizonCuller,
+            OcclusionCuller occlusionCuller, boolean modelsChanged) {
+        if (modelsChanged) {
+            visibleStaticByModel.clear();
+            visibleStaticLists.clear();
+        }
+        for (int i = 0; i < visibleStaticLists.size(); i++) {
+            visibleStaticLists.get(i).clear();
+        }
+        visibleStaticEntities.clear();
+        int visibleCount = scene.queryStaticEntities(frustumCuller, visibleStaticEntities);
+        Map<String, Model> modelMap = scene.getModelMap();
+        int occludedCount = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < visibleCount; i++) {
+            Entity entity = visibleStaticEntities.get(i);
+            Model model = modelMap.get(entity.getModelId());
+            entity.getModelMatrix().transformAab(model.getAabbMin(), model.getAabbMax(), boundsMin, boundsMax);
+            if (!isUnoccluded(horizonCuller, occlusionCuller, boundsMin.x, boundsMin.y, boundsMin.z, boundsMax.x,
+                    boundsMax.y, boundsMax.z)) {
+                occludedCount++;
+                continue;
+            }
+            List<Entity> modelEntities = visibleStaticByModel.get(model);
+            if (modelEntities == null) {
+                modelEntities = new ArrayList<>();
+                visibleStaticByModel.put(model, modelEntities);
+                visibleStaticLists.add(modelEntities);
+            }
+            modelEntities.add(entity);
+        }
+        horizonCuller.addTestNanos(System.nanoTime() - start);
+        submittedCount += visibleCount - occludedCount;
+        culledCount += scene.getStaticEntities().size() - visibleCount + occludedCount;
+    }
+
+    // Horizon du terrain d'abord, bien moins coûteux que le tampon de profondeur logiciel
+    private static boolean isUnoccluded(HorizonCuller horizonCuller, OcclusionCuller occlusionCuller, float minX,
+            float minY, float minZ, float maxX, float maxY, float maxZ) {
+        return horizonCuller.isAabbVisible(minX, minY, minZ, maxX, maxY, maxZ)
+                && occlusionCuller.isAabbVisible(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    // Entités dynamiques : sphère englobante du modèle placée par la matrice de chaque entité, testée contre le
+    // frustum, puis sa boîte englobante contre l'horizon et les occulteurs. Les entités statiques visibles du
+    // modèle sont ajoutées à la suite dans visible
+    private void cullEntities(Model model, FrustumCuller frustumCuller, HorizonCuller horizonCuller,
+            OcclusionCuller occlusionCuller, List<Entity> visible) {
+        List<Entity> entities = model.getEntitiesList();
+        int count = entities.size();
+        Vector3f center = model.getBoundsCenter();
+        float radius = model.getBoundsRadius();
+        frustumCuller.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            Entity entity = entities.get(i);
+            entity.getModelMatrix().transformPosition(center.x, center.y, center.z, worldCenter);
+            frustumCuller.setSphere(i, worldCenter.x, worldCenter.y, worldCenter.z, radius * entity.getScale());
+        }
+        int visibleCount = frustumCuller.cull(count);
+        int[] visibleIndices = frustumCuller.getVisible();
+        visible.clear();
+        long start = System.nanoTime();
+        for (int i = 0; i < visibleCount; i++) {
+            Entity entity = entities.get(visibleIndices[i]);
+            entity.getModelMatrix().transformPosition(center.x, center.y, center.z, worldCenter);
+            float entityRadius = radius * entity.getScale();
+            if (isUnoccluded(horizonCuller, occlusionCuller, worldCenter.x - entityRadius,
+                    worldCenter.y - entityRadius, worldCenter.z - entityRadius, worldCenter.x + entityRadius,
+                    worldCenter.y + entityRadius, worldCenter.z + entityRadius)) {
+                visible.add(entity);
+            }
+        }
+        horizonCuller.addTestNanos(System.nanoTime() - start);
+        submittedCount += visible.size();
+        culledCount += count - visible.size();
+
+        List<Entity> visibleStatic = visibleStaticByModel.get(model);
+        if (visibleStatic != null) {
+            // Pas d'addAll, qui copie la liste dans un tableau temporaire
+            for (int i = 0; i < visibleStatic.size(); i++) {
+                visible.add(visibleStatic.get(i));
+            }
+        }
+    }
+}
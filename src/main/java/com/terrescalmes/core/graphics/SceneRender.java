@@ -1,25 +1,21 @@
 package com.terrescalmes.core.graphics;
 
-import org.joml.*;
-
-import com.terrescalmes.core.TextureCache;
-import com.terrescalmes.core.graphics.lights.AmbientLight;
-import com.terrescalmes.core.graphics.lights.DirLight;
-import com.terrescalmes.core.graphics.lights.PointLight;
-import com.terrescalmes.core.graphics.lights.SceneLights;
-import com.terrescalmes.core.graphics.lights.SpotLight;
-import com.terrescalmes.entities.Entity;
+import com.terrescalmes.core.terrain.HorizonCuller;
 
 import java.util.*;
 
 import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL32.glDrawElementsInstancedBaseVertex;
 
 public class SceneRender {
 
-    private static final int MAX_POINT_LIGHTS = 5;
-    private static final int MAX_SPOT_LIGHTS = 5;
-
+    private final ShaderProgram geometryProgram;
+    private int geometryTxtSamplerUniform;
+    private UniformsMap geometryUniformsMap;
+    private final MaterialUniforms materialUniforms;
+    private final SceneFrame sceneFrame = new SceneFrame();
     private ShaderProgram shaderProgram;
+    private int txtSamplerUniform;
 
     private UniformsMap uniformsMap;
 
@@ -29,186 +25,130 @@ public class SceneRender {
         shaderModuleDataList
                 .add(new ShaderProgram.ShaderModuleData("resources/shaders/scene.frag", GL_FRAGMENT_SHADER));
         shaderProgram = new ShaderProgram(shaderModuleDataList);
+        // Passe géométrie du rendu différé : mêmes sommets, le fragment n'écrit que le G-buffer
+        shaderModuleDataList.set(1,
+                new ShaderProgram.ShaderModuleData("resources/shaders/gbuffer.frag", GL_FRAGMENT_SHADER));
+        geometryProgram = new ShaderProgram(shaderModuleDataList);
+        materialUniforms = new MaterialUniforms();
         createUniforms();
     }
 
     public void cleanup() {
         shaderProgram.cleanup();
+        geometryProgram.cleanup();
+        materialUniforms.cleanup();
     }
 
     private void createUniforms() {
         uniformsMap = new UniformsMap(shaderProgram.getProgramId());
-        uniformsMap.createUniform("projectionMatrix");
-        uniformsMap.createUniform("modelMatrix");
-        uniformsMap.createUniform("viewMatrix");
-        uniformsMap.createUniform("txtSampler");
-        uniformsMap.createUniform("material.ambient");
-        uniformsMap.createUniform("material.diffuse");
-        uniformsMap.createUniform("material.specular");
-        uniformsMap.createUniform("material.reflectance");
-        uniformsMap.createUniform("ambientLight.factor");
-        uniformsMap.createUniform("ambientLight.color");
-
-        for (int i = 0; i < MAX_POINT_LIGHTS; i++) {
-            String name = "pointLights[" + i + "]";
-            uniformsMap.createUniform(name + ".position");
-            uniformsMap.createUniform(name + ".color");
-            uniformsMap.createUniform(name + ".intensity");
-            uniformsMap.createUniform(name + ".att.constant");
-            uniformsMap.createUniform(name + ".att.linear");
-            uniformsMap.createUniform(name + ".att.exponent");
-        }
-        for (int i = 0; i < MAX_SPOT_LIGHTS; i++) {
-            String name = "spotLights[" + i + "]";
-            uniformsMap.createUniform(name + ".pl.position");
-            uniformsMap.createUniform(name + ".pl.color");
-            uniformsMap.createUniform(name + ".pl.intensity");
-            uniformsMap.createUniform(name + ".pl.att.constant");
-            uniformsMap.createUniform(name + ".pl.att.linear");
-            uniformsMap.createUniform(name + ".pl.att.exponent");
-            uniformsMap.createUniform(name + ".conedir");
-            uniformsMap.createUniform(name + ".cutoff");
-        }
+        txtSamplerUniform = createFragmentUniforms(shaderProgram, uniformsMap);
+        geometryUniformsMap = new UniformsMap(geometryProgram.getProgramId());
+        geometryTxtSamplerUniform = createGeometryUniforms(geometryProgram, geometryUniformsMap);
+    }
 
-        uniformsMap.createUniform("dirLight.color");
-        uniformsMap.createUniform("dirLight.direction");
-        uniformsMap.createUniform("dirLight.intensity");
+    // Uniforms et blocs de scene.frag, communs à tous les programmes qui l'utilisent (voir TerrainRender).
+    // Caméra et brouillard viennent de FrameUniforms, les lumières de ClusteredLighting, le matériau de
+    // MaterialUniforms. Retourne le handle de txtSampler
+    static int createFragmentUniforms(ShaderProgram shaderProgram, UniformsMap uniformsMap) {
+        shaderProgram.bindUniformBlock(FrameUniforms.BLOCK_NAME, FrameUniforms.BINDING);
+        shaderProgram.bindUniformBlock(MaterialUniforms.BLOCK_NAME, MaterialUniforms.BINDING);
+        shaderProgram.bindSampler("lightData", ClusteredLighting.LIGHT_DATA_UNIT);
+        shaderProgram.bindSampler("clusterGrid", ClusteredLighting.CLUSTER_GRID_UNIT);
+        shaderProgram.bindSampler("clusterLights", ClusteredLighting.CLUSTER_LIGHTS_UNIT);
+        return uniformsMap.createUniform("txtSampler");
+    }
+
+    // Uniforms et blocs de gbuffer.frag (voir GBuffer), sans les lumières. Retourne le handle de txtSampler
+    static int createGeometryUniforms(ShaderProgram shaderProgram, UniformsMap uniformsMap) {
+        shaderProgram.bindUniformBlock(FrameUniforms.BLOCK_NAME, FrameUniforms.BINDING);
+        shaderProgram.bindUniformBlock(MaterialUniforms.BLOCK_NAME, MaterialUniforms.BINDING);
+        return uniformsMap.createUniform("txtSampler");
+    }
 
-        uniformsMap.createUniform("fog.activeFog");
-        uniformsMap.createUniform("fog.color");
-        uniformsMap.createUniform("fog.density");
+    public int getCulledCount() {
+        return sceneFrame.getCulledCount();
     }
 
-    public void render(Scene scene) {
+    public int getSubmittedCount() {
+        return sceneFrame.getSubmittedCount();
+    }
+
+    public void render(Scene scene, FrustumCuller frustumCuller, HorizonCuller horizonCuller,
+            OcclusionCuller occlusionCuller) {
         glEnable(GL_BLEND);
         glBlendEquation(GL_FUNC_ADD);
         glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
-        shaderProgram.bind();
-
-        uniformsMap.setUniform("projectionMatrix", scene.getProjection().getProjMatrix());
-        uniformsMap.setUniform("viewMatrix", scene.getCamera().getViewMatrix());
-
-        uniformsMap.setUniform("txtSampler", 0);
-
-        updateLights(scene);
+        draw(scene, frustumCuller, horizonCuller, occlusionCuller, shaderProgram, uniformsMap, txtSamplerUniform);
+        glDisable(GL_BLEND);
+    }
 
-        Fog fog = scene.getFog();
-        uniformsMap.setUniform("fog.activeFog", fog.isActive() ? 1 : 0);
-        uniformsMap.setUniform("fog.color", fog.getColor());
-        uniformsMap.setUniform("fog.density", fog.getDensity());
+    // Passe géométrie du rendu différé, dans le G-buffer lié. Sans mélange : les matériaux transparents
+    // y sont opaques
+    public void renderGeometry(Scene scene, FrustumCuller frustumCuller, HorizonCuller horizonCuller,
+            OcclusionCuller occlusionCuller) {
+        draw(scene, frustumCuller, horizonCuller, occlusionCuller, geometryProgram, geometryUniformsMap,
+                geometryTxtSamplerUniform);
+    }
 
-        Collection<Model> models = scene.getModelMap().values();
-        TextureCache textureCache = scene.getTextureCache();
-        for (Model model : models) {
-            List<Entity> entities = model.getEntitiesList();
+    private void draw(Scene scene, FrustumCuller frustumCuller, HorizonCuller horizonCuller,
+            OcclusionCuller occlusionCuller, ShaderProgram program, UniformsMap programUniforms,
+            int programTxtSampler) {
+        program.bind();
 
-            for (Material material : model.getMaterialList()) {
-                uniformsMap.setUniform("material.ambient", material.getAmbientColor());
-                uniformsMap.setUniform("material.diffuse", material.getDiffuseColor());
-                uniformsMap.setUniform("material.specular", material.getSpecularColor());
-                uniformsMap.setUniform("material.reflectance", material.getReflectance());
-                Texture texture = textureCache.getTexture(material.getTexturePath());
-                glActiveTexture(GL_TEXTURE0);
-                texture.bind();
+        programUniforms.setUniform(programTxtSampler, 0);
 
-                for (Mesh mesh : material.getMeshList()) {
-                    glBindVertexArray(mesh.getVaoId());
-                    for (Entity entity : entities) {
-                        uniformsMap.setUniform("modelMatrix", entity.getModelMatrix());
-                        glDrawElements(GL_TRIANGLES, mesh.getNumVertices(), GL_UNSIGNED_INT, 0);
-                    }
-                }
-            }
+        RenderQueue renderQueue = sceneFrame.getRenderQueue();
+        if (sceneFrame.prepare(scene, frustumCuller, horizonCuller, occlusionCuller)) {
+            materialUniforms.update(renderQueue.getMaterials());
         }
-
-        glBindVertexArray(0);
-
-        shaderProgram.unbind();
-        glDisable(GL_BLEND);
-    }
-
-    private void updateLights(Scene scene) {
-        Matrix4f viewMatrix = scene.getCamera().getViewMatrix();
-
-        SceneLights sceneLights = scene.getSceneLights();
-        AmbientLight ambientLight = sceneLights.getAmbientLight();
-        uniformsMap.setUniform("ambientLight.factor", ambientLight.getIntensity());
-        uniformsMap.setUniform("ambientLight.color", ambientLight.getColor());
-
-        DirLight dirLight = sceneLights.getDirLight();
-        Vector4f auxDir = new Vector4f(dirLight.getDirection(), 0);
-        auxDir.mul(viewMatrix);
-        Vector3f dir = new Vector3f(auxDir.x, auxDir.y, auxDir.z);
-        uniformsMap.setUniform("dirLight.color", dirLight.getColor());
-        uniformsMap.setUniform("dirLight.direction", dir);
-        uniformsMap.setUniform("dirLight.intensity", dirLight.getIntensity());
-
-        List<PointLight> pointLights = sceneLights.getPointLights();
-        int numPointLights = pointLights.size();
-        PointLight pointLight;
-        for (int i = 0; i < MAX_POINT_LIGHTS; i++) {
-            if (i < numPointLights) {
-                pointLight = pointLights.get(i);
-            } else {
-                pointLight = null;
+        // Un seul appel de dessin par mesh pour toutes les entités visibles du modèle. Un modèle sans entité
+        // visible vide aussi son buffer, qui ne retient plus ses anciennes entités
+        for (int modelIndex = 0; modelIndex < renderQueue.getModelCount(); modelIndex++) {
+            Model model = renderQueue.getModel(modelIndex);
+            InstanceBuffer instanceBuffer = model.getInstanceBuffer();
+            if (instanceBuffer == null) {
+                instanceBuffer = new InstanceBuffer();
+                model.setInstanceBuffer(instanceBuffer);
             }
-            String name = "pointLights[" + i + "]";
-            updatePointLight(pointLight, name, viewMatrix);
+            instanceBuffer.update(sceneFrame.getVisibleEntities(modelIndex));
         }
 
-        List<SpotLight> spotLights = sceneLights.getSpotLights();
-        int numSpotLights = spotLights.size();
-        SpotLight spotLight;
-        for (int i = 0; i < MAX_SPOT_LIGHTS; i++) {
-            if (i < numSpotLights) {
-                spotLight = spotLights.get(i);
-            } else {
-                spotLight = null;
+        // La file est triée par état : on ne rebinde que ce qui change d'un élément au suivant
+        Material boundMaterial = null;
+        InstanceBuffer boundInstanceBuffer = null;
+        Texture boundTexture = null;
+        int boundVaoId = 0;
+        glActiveTexture(GL_TEXTURE0);
+        for (int i = 0; i < renderQueue.getQueuedCount(); i++) {
+            int item = renderQueue.getQueuedItem(i);
+            Material material = renderQueue.getItemMaterial(item);
+            if (material != boundMaterial) {
+                materialUniforms.bind(renderQueue.getItemMaterialIndex(item));
+                boundMaterial = material;
             }
-            String name = "spotLights[" + i + "]";
-            updateSpotLight(spotLight, name, viewMatrix);
-        }
-    }
-
-    private void updatePointLight(PointLight pointLight, String prefix, Matrix4f viewMatrix) {
-        Vector4f aux = new Vector4f();
-        Vector3f lightPosition = new Vector3f();
-        Vector3f color = new Vector3f();
-        float intensity = 0.0f;
-        float constant = 0.0f;
-        float linear = 0.0f;
-        float exponent = 0.0f;
-        if (pointLight != null) {
-            aux.set(pointLight.getPosition(), 1);
-            aux.mul(viewMatrix);
-            lightPosition.set(aux.x, aux.y, aux.z);
-            color.set(pointLight.getColor());
-            intensity = pointLight.getIntensity();
-            PointLight.Attenuation attenuation = pointLight.getAttenuation();
-            constant = attenuation.getConstant();
-            linear = attenuation.getLinear();
-            exponent = attenuation.getExponent();
+            Texture texture = renderQueue.getItemTexture(item);
+            if (texture != boundTexture) {
+                texture.bind();
+                boundTexture = texture;
+            }
+            Mesh mesh = renderQueue.getItemMesh(item);
+            if (mesh.getVaoId() != boundVaoId) {
+                glBindVertexArray(mesh.getVaoId());
+                boundVaoId = mesh.getVaoId();
+                boundInstanceBuffer = null;
+            }
+            // Les meshes d'une page partagent leur VAO : ses attributs d'instance suivent le modèle dessiné
+            InstanceBuffer instanceBuffer = renderQueue.getItemModel(item).getInstanceBuffer();
+            if (instanceBuffer != boundInstanceBuffer) {
+                instanceBuffer.bind();
+                boundInstanceBuffer = instanceBuffer;
+            }
+            glDrawElementsInstancedBaseVertex(GL_TRIANGLES, mesh.getNumVertices(), mesh.getIndexType(),
+                    mesh.getIndexOffset(), renderQueue.getItemInstanceCount(item), mesh.getBaseVertex());
         }
-        uniformsMap.setUniform(prefix + ".position", lightPosition);
-        uniformsMap.setUniform(prefix + ".color", color);
-        uniformsMap.setUniform(prefix + ".intensity", intensity);
-        uniformsMap.setUniform(prefix + ".att.constant", constant);
-        uniformsMap.setUniform(prefix + ".att.linear", linear);
-        uniformsMap.setUniform(prefix + ".att.exponent", exponent);
-    }
 
-    private void updateSpotLight(SpotLight spotLight, String prefix, Matrix4f viewMatrix) {
-        PointLight pointLight = null;
-        Vector3f coneDirection = new Vector3f();
-        float cutoff = 0.0f;
-        if (spotLight != null) {
-            coneDirection = spotLight.getConeDirection();
-            cutoff = spotLight.getCutOff();
-            pointLight = spotLight.getPointLight();
-        }
+        glBindVertexArray(0);
 
-        uniformsMap.setUniform(prefix + ".conedir", coneDirection);
-        uniformsMap.setUniform(prefix + ".cutoff", cutoff);
-        updatePointLight(pointLight, prefix + ".pl", viewMatrix);
+        program.unbind();
     }
 }
@@ -4,12 +4,15 @@ import org.lwjgl.opengl.GL30;
 
 import com.terrescalmes.Utils;
 
+import java.nio.file.*;
 import java.util.*;
 
-import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.*;
 
 public class ShaderProgram {
 
+    private static final String INCLUDE_DIRECTIVE = "#include";
+
     private final int programId;
 
     public ShaderProgram(List<ShaderModuleData> shaderModuleDataList) {
@@ -19,7 +22,7 @@ public class ShaderProgram {
         }
 
         List<Integer> shaderModules = new ArrayList<>();
-        shaderModuleDataList.forEach(s -> shaderModules.add(createShader(Utils.readFile(s.shaderFile), s.shaderType)));
+        shaderModuleDataList.forEach(s -> shaderModules.add(createShader(readShader(s.shaderFile), s.shaderType)));
 
         link(shaderModules);
     }
@@ -28,6 +31,45 @@ public class ShaderProgram {
         glUseProgram(programId);
     }
 
+    // Remplace chaque ligne #include "fichier" par le contenu du fichier, relatif au dossier du shader
+    private static String readShader(String shaderFile) {
+        Path directory = Paths.get(shaderFile).getParent();
+        StringBuilder source = new StringBuilder();
+        for (String line : Utils.readFile(shaderFile).split("\\R", -1)) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith(INCLUDE_DIRECTIVE)) {
+                String included = trimmed.substring(INCLUDE_DIRECTIVE.length()).trim().replace("\"", "");
+                source.append(readShader(directory == null ? included : directory.resolve(included).toString()));
+            } else {
+                source.append(line);
+            }
+            source.append('\n');
+        }
+        return source.toString();
+    }
+
+    // Associe un bloc uniform du programme au point de liaison d'un UniformBuffer
+    public void bindUniformBlock(String blockName, int binding) {
+        int blockIndex = glGetUniformBlockIndex(programId, blockName);
+        if (blockIndex == GL_INVALID_INDEX) {
+            throw new RuntimeException("Could not find uniform block [" + blockName + "] in shader program [" +
+                    programId + "]");
+        }
+        glUniformBlockBinding(programId, blockIndex, binding);
+    }
+
+    // Unité de texture d'un sampler, fixée une fois pour toutes à la création du programme
+    public void bindSampler(String samplerName, int unit) {
+        int location = glGetUniformLocation(programId, samplerName);
+        if (location < 0) {
+            throw new RuntimeException("Could not find sampler [" + samplerName + "] in shader program [" +
+                    programId + "]");
+        }
+        glUseProgram(programId);
+        glUniform1i(location, unit);
+        glUseProgram(0);
+    }
+
     public void cleanup() {
         unbind();
         if (programId != 0) {
@@ -10,9 +10,16 @@ import java.util.*;
 
 import static org.lwjgl.opengl.GL20.*;
 import static org.lwjgl.opengl.GL30.glBindVertexArray;
+import static org.lwjgl.opengl.GL32.glDrawElementsBaseVertex;
 
 public class SkyBoxRender {
 
+    private int diffuseUniform;
+    private int hasTextureUniform;
+    private int modelMatrixUniform;
+    private int projectionMatrixUniform;
+    private int txtSamplerUniform;
+    private int viewMatrixUniform;
     private ShaderProgram shaderProgram;
 
     private UniformsMap uniformsMap;
@@ -31,12 +38,12 @@ public class SkyBoxRender {
 
     private void createUniforms() {
         uniformsMap = new UniformsMap(shaderProgram.getProgramId());
-        uniformsMap.createUniform("projectionMatrix");
-        uniformsMap.createUniform("viewMatrix");
-        uniformsMap.createUniform("modelMatrix");
-        uniformsMap.createUniform("diffuse");
-        uniformsMap.createUniform("txtSampler");
-        uniformsMap.createUniform("hasTexture");
+        projectionMatrixUniform = uniformsMap.createUniform("projectionMatrix");
+        viewMatrixUniform = uniformsMap.createUniform("viewMatrix");
+        modelMatrixUniform = uniformsMap.createUniform("modelMatrix");
+        diffuseUniform = uniformsMap.createUniform("diffuse");
+        txtSamplerUniform = uniformsMap.createUniform("txtSampler");
+        hasTextureUniform = uniformsMap.createUniform("hasTexture");
     }
 
     public void render(Scene scene) {
@@ -52,30 +59,35 @@ public class SkyBoxRender {
 
         shaderProgram.bind();
 
-        uniformsMap.setUniform("projectionMatrix", scene.getProjection().getProjMatrix());
+        uniformsMap.setUniform(projectionMatrixUniform, scene.getProjection().getProjMatrix());
         viewMatrix.set(scene.getCamera().getViewMatrix());
         viewMatrix.m30(0);
         viewMatrix.m31(0);
         viewMatrix.m32(0);
-        uniformsMap.setUniform("viewMatrix", viewMatrix);
-        uniformsMap.setUniform("txtSampler", 0);
+        uniformsMap.setUniform(viewMatrixUniform, viewMatrix);
+        uniformsMap.setUniform(txtSamplerUniform, 0);
 
         Model skyBoxModel = skyBox.getSkyBoxModel();
         Entity skyBoxEntity = skyBox.getSkyBoxEntity();
         TextureCache textureCache = scene.getTextureCache();
-        for (Material material : skyBoxModel.getMaterialList()) {
+        List<Material> materialList = skyBoxModel.getMaterialList();
+        for (int i = 0; i < materialList.size(); i++) {
+            Material material = materialList.get(i);
             Texture texture = textureCache.getTexture(material.getTexturePath());
             glActiveTexture(GL_TEXTURE0);
             texture.bind();
 
-            uniformsMap.setUniform("diffuse", material.getDiffuseColor());
-            uniformsMap.setUniform("hasTexture", texture.getTexturePath().equals(TextureCache.DEFAULT_TEXTURE) ? 0 : 1);
+            uniformsMap.setUniform(diffuseUniform, material.getDiffuseColor());
+            uniformsMap.setUniform(hasTextureUniform, texture.getTexturePath().equals(TextureCache.DEFAULT_TEXTURE) ? 0 : 1);
 
-            for (Mesh mesh : material.getMeshList()) {
+            List<Mesh> meshList = material.getMeshList();
+            for (int j = 0; j < meshList.size(); j++) {
+                Mesh mesh = meshList.get(j);
                 glBindVertexArray(mesh.getVaoId());
 
-                uniformsMap.setUniform("modelMatrix", skyBoxEntity.getModelMatrix());
-                glDrawElements(GL_TRIANGLES, mesh.getNumVertices(), GL_UNSIGNED_INT, 0);
+                uniformsMap.setUniform(modelMatrixUniform, skyBoxEntity.getModelMatrix());
+                glDrawElementsBaseVertex(GL_TRIANGLES, mesh.getNumVertices(), mesh.getIndexType(),
+                        mesh.getIndexOffset(), mesh.getBaseVertex());
             }
         }
 
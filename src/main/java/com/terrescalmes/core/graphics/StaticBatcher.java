@@ -0,0 +1,357 @@
+package com.terrescalmes.core.graphics;
+
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+import java.util.*;
+
+import com.terrescalmes.core.TerrainGenerator;
+import com.terrescalmes.entities.Entity;
+
+// Batching de la géométrie statique : les entités qui ne bougent plus (décor, bâtiments) ne sont pas dessinées
+// une à une mais fusionnées, par cellule de CELL_SIZE de côté, en un modèle dont chaque matériau regroupe les
+// meshes de toutes les entités de la cellule qui le partagent, sommets déjà passés en espace monde.
+// Chaque cellule est ajoutée à la scène comme un modèle ordinaire avec une seule entité statique (matrice
+// identité) : elle passe par la BVH, l'horizon et l'occlusion culling avec la boîte de son contenu.
+// Un ajout ou un retrait ne reconstruit que la cellule concernée, au prochain update(). La géométrie source est
+// une copie en mémoire centrale (Source), partagée par les entités d'un même modèle : rien n'est relu du GPU.
+// La fusion (prepare) ne touche pas à OpenGL, seul l'envoi des cellules préparées demande le thread OpenGL
+public class StaticBatcher {
+
+    private static final float CELL_SIZE = TerrainGenerator.CHUNK_WORLD_SIZE;
+    // Un batch plus grand serait découpé : ses indices restent sur 16 bits (voir MeshPool)
+    private static final int MAX_BATCH_VERTICES = 1 << 16;
+    private static final String MODEL_PREFIX = "__static_batch_";
+
+    private final Map<Long, Cell> cells;
+    private final List<Cell> dirtyCells;
+    private final Map<Entity, Cell> entityCells;
+    private final Map<Entity, Source> entitySources;
+    private int batchCount;
+
+    private final Vector3f center = new Vector3f();
+    private final Matrix3f normalMatrix = new Matrix3f();
+
+    public StaticBatcher() {
+        cells = new HashMap<>();
+        dirtyCells = new ArrayList<>();
+        entityCells = new IdentityHashMap<>();
+        entitySources = new IdentityHashMap<>();
+    }
+
+    // Range l'entité dans la cellule qui contient le centre de sa géométrie. Sa matrice modèle doit être à jour
+    public void add(Entity entity, Source source) {
+        if (entityCells.containsKey(entity)) {
+            return;
+        }
+        entity.getModelMatrix().transformPosition(source.getBoundsCenter(), center);
+        int cellX = (int) Math.floor(center.x / CELL_SIZE);
+        int cellZ = (int) Math.floor(center.z / CELL_SIZE);
+        long key = (long) cellX << 32 | (cellZ & 0xFFFFFFFFL);
+        Cell cell = cells.get(key);
+        if (cell == null) {
+            cell = new Cell(key, cellX, cellZ);
+            cells.put(key, cell);
+        }
+        cell.entities.add(entity);
+        entityCells.put(entity, cell);
+        entitySources.put(entity, source);
+        markDirty(cell);
+    }
+
+    public boolean remove(Entity entity) {
+        Cell cell = entityCells.remove(entity);
+        if (cell == null) {
+            return false;
+        }
+        entitySources.remove(entity);
+        cell.entities.remove(entity);
+        markDirty(cell);
+        return true;
+    }
+
+    // Retire les entités du modèle, avant son retrait de la scène
+    public void removeModelEntities(String modelId) {
+        Iterator<Map.Entry<Entity, Cell>> iterator = entityCells.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Entity, Cell> entry = iterator.next();
+            if (entry.getKey().getModelId().equals(modelId)) {
+                entry.getValue().entities.remove(entry.getKey());
+                entitySources.remove(entry.getKey());
+                markDirty(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    private void markDirty(Cell cell) {
+        if (!cell.dirty) {
+            cell.dirty = true;
+            dirtyCells.add(cell);
+        }
+    }
+
+    // Reconstruit les cellules modifiées depuis le dernier appel. À appeler avant la compilation de la file de
+    // rendu : les modèles des cellules changent la version des modèles de la scène. Thread OpenGL
+    public void update(Scene scene) {
+        // Cas de toutes les frames : rien à reconstruire, rien à allouer
+        if (dirtyCells.isEmpty()) {
+            return;
+        }
+        List<CellBatch> prepared = prepare();
+        for (int i = 0; i < prepared.size(); i++) {
+            upload(scene, prepared.get(i));
+        }
+    }
+
+    // Fusionne la géométrie des cellules modifiées depuis le dernier appel, sans OpenGL. Une cellule vidée donne
+    // un CellBatch sans groupe : son ancien modèle doit seulement être retiré
+    List<CellBatch> prepare() {
+        List<CellBatch> prepared = new ArrayList<>(dirtyCells.size());
+        for (int i = 0; i < dirtyCells.size(); i++) {
+            Cell cell = dirtyCells.get(i);
+            cell.dirty = false;
+            prepared.add(new CellBatch(cell, merge(cell)));
+            if (cell.entities.isEmpty()) {
+                cells.remove(cell.key);
+            }
+        }
+        dirtyCells.clear();
+        return prepared;
+    }
+
+    // Un groupe par matériau distinct : les matériaux égaux de sources différentes sont fusionnés
+    private List<Group> merge(Cell cell) {
+        Map<MaterialKey, Group> groups = new LinkedHashMap<>();
+        for (int i = 0; i < cell.entities.size(); i++) {
+            Entity entity = cell.entities.get(i);
+            Source source = entitySources.get(entity);
+            Matrix4f modelMatrix = entity.getModelMatrix();
+            modelMatrix.normal(normalMatrix);
+            for (int j = 0; j < source.materials.size(); j++) {
+                Material material = source.materials.get(j);
+                MaterialKey materialKey = new MaterialKey(material.getTexturePath(), material.getDiffuseColor(),
+                        material.getAmbientColor(), material.getSpecularColor(), material.getReflectance());
+                Group group = groups.computeIfAbsent(materialKey, k -> new Group(material));
+                group.append(source.geometries.get(j), modelMatrix, normalMatrix);
+            }
+        }
+        List<Group> result = new ArrayList<>(groups.size());
+        for (Group group : groups.values()) {
+            if (group.getVertexCount() > 0) {
+                result.add(group);
+            }
+        }
+        return result;
+    }
+
+    private void upload(Scene scene, CellBatch batch) {
+        Cell cell = batch.cell();
+        if (cell.model != null) {
+            scene.removeModel(cell.model.getId());
+            cell.model.cleanup();
+            cell.model = null;
+            batchCount--;
+        }
+        if (batch.groups().isEmpty()) {
+            return;
+        }
+
+        List<Material> materials = new ArrayList<>(batch.groups().size());
+        for (Group group : batch.groups()) {
+            for (MeshBuilder part : group.parts) {
+                group.material.getMeshList().add(part.build());
+            }
+            materials.add(group.material);
+        }
+        String modelId = MODEL_PREFIX + cell.cellX + "_" + cell.cellZ;
+        Model model = new Model(modelId, materials);
+        scene.addModel(model);
+        Entity batchEntity = new Entity(modelId + "_entity", modelId);
+        batchEntity.updateModelMatrix();
+        scene.addStaticEntity(batchEntity);
+        cell.model = model;
+        batchCount++;
+    }
+
+    // Cellules ajoutées à la scène
+    public int getBatchCount() {
+        return batchCount;
+    }
+
+    public int getBatchedEntityCount() {
+        return entityCells.size();
+    }
+
+    // Géométrie d'une cellule préparée par prepare(), envoyée au GPU par update()
+    record CellBatch(Cell cell, List<Group> groups) {
+
+        int cellX() {
+            return cell.cellX;
+        }
+
+        int cellZ() {
+            return cell.cellZ;
+        }
+    }
+
+    // Copie en mémoire centrale d'un modèle batchable : chaque géométrie, en espace local, est dessinée avec le
+    // matériau ajouté avec elle. Partagée par toutes les entités du modèle, elle ne doit plus changer une fois
+    // ajoutée au batcher
+    public static final class Source {
+
+        private Vector3f boundsCenter; // Centre de la boîte locale, calculé à la première demande
+        private final List<MeshBuilder> geometries;
+        private final List<Material> materials;
+
+        public Source() {
+            geometries = new ArrayList<>();
+            materials = new ArrayList<>();
+        }
+
+        // Seules la texture et les couleurs du matériau comptent, ses meshes sont ignorés
+        public Source add(Material material, MeshBuilder geometry) {
+            materials.add(material);
+            geometries.add(geometry);
+            boundsCenter = null;
+            return this;
+        }
+
+        private Vector3f getBoundsCenter() {
+            if (boundsCenter == null) {
+                Vector3f min = new Vector3f(Float.MAX_VALUE);
+                Vector3f max = new Vector3f(-Float.MAX_VALUE);
+                for (MeshBuilder geometry : geometries) {
+                    float[] positions = geometry.getPositions();
+                    for (int i = 0; i < geometry.getVertexCount() * 3; i += 3) {
+                        min.set(Math.min(min.x, positions[i]), Math.min(min.y, positions[i + 1]),
+                                Math.min(min.z, positions[i + 2]));
+                        max.set(Math.max(max.x, positions[i]), Math.max(max.y, positions[i + 1]),
+                                Math.max(max.z, positions[i + 2]));
+                    }
+                }
+                // Aucun sommet : centre à l'origine
+                boundsCenter = min.x > max.x ? new Vector3f() : min.add(max).mul(0.5f);
+            }
+            return boundsCenter;
+        }
+    }
+
+    static final class Cell {
+
+        private final int cellX;
+        private final int cellZ;
+        private boolean dirty;
+        private final List<Entity> entities;
+        private final long key;
+        private Model model; // null tant que la cellule n'a pas été construite, ou si elle est vide
+
+        private Cell(long key, int cellX, int cellZ) {
+            this.key = key;
+            this.cellX = cellX;
+            this.cellZ = cellZ;
+            entities = new ArrayList<>();
+        }
+    }
+
+    // Géométrie d'un matériau d'une cellule, en espace monde, découpée en parties de MAX_BATCH_VERTICES sommets
+    // au plus
+    static final class Group {
+
+        private MeshBuilder builder;
+        private final Material material;
+        private final List<MeshBuilder> parts;
+        private final Vector3f vector = new Vector3f();
+
+        private Group(Material source) {
+            material = new Material();
+            material.setTexturePath(source.getTexturePath());
+            material.setDiffuseColor(source.getDiffuseColor());
+            material.setAmbientColor(source.getAmbientColor());
+            material.setSpecularColor(source.getSpecularColor());
+            material.setReflectance(source.getReflectance());
+            parts = new ArrayList<>();
+        }
+
+        private void append(MeshBuilder geometry, Matrix4f modelMatrix, Matrix3f normalMatrix) {
+            int vertexCount = geometry.getVertexCount();
+            if (vertexCount == 0) {
+                return;
+            }
+            if (builder == null || builder.getVertexCount() + vertexCount > MAX_BATCH_VERTICES) {
+                builder = new MeshBuilder(Math.max(1024, vertexCount), Math.max(1024, geometry.getIndexCount()));
+                parts.add(builder);
+            }
+            // Croissance géométrique : allocateVertices n'agrandit qu'à la taille exacte
+            int first = builder.getVertexCount();
+            int neededVertices = first + vertexCount;
+            int neededIndices = builder.getIndexCount() + geometry.getIndexCount();
+            if (neededVertices * 3 > builder.getPositions().length || neededIndices > builder.getIndices().length) {
+                builder.ensureCapacity(Math.max(neededVertices, builder.getPositions().length / 3 * 2),
+                        Math.max(neededIndices, builder.getIndices().length * 2));
+            }
+            builder.allocateVertices(vertexCount);
+
+            float[] positions = builder.getPositions();
+            float[] normals = builder.getNormals();
+            float[] textCoords = builder.getTextCoords();
+            float[] sourcePositions = geometry.getPositions();
+            float[] sourceNormals = geometry.getNormals();
+            float[] sourceTextCoords = geometry.getTextCoords();
+            for (int i = 0; i < vertexCount; i++) {
+                int source = i * 3;
+                int base = (first + i) * 3;
+                modelMatrix.transformPosition(sourcePositions[source], sourcePositions[source + 1],
+                        sourcePositions[source + 2], vector);
+                positions[base] = vector.x;
+                positions[base + 1] = vector.y;
+                positions[base + 2] = vector.z;
+                // Normales ou coordonnées de texture manquantes : 0, comme MeshBuilder.build
+                if (source + 2 < geometry.getNormalCount()) {
+                    vector.set(sourceNormals[source], sourceNormals[source + 1], sourceNormals[source + 2]);
+                    normalMatrix.transform(vector);
+                    if (vector.lengthSquared() > 0.0f) {
+                        vector.normalize();
+                    }
+                } else {
+                    vector.zero();
+                }
+                normals[base] = vector.x;
+                normals[base + 1] = vector.y;
+                normals[base + 2] = vector.z;
+                int text = i * 2;
+                boolean hasTextCoords = text + 1 < geometry.getTextCoordCount();
+                textCoords[(first + i) * 2] = hasTextCoords ? sourceTextCoords[text] : 0.0f;
+                textCoords[(first + i) * 2 + 1] = hasTextCoords ? sourceTextCoords[text + 1] : 0.0f;
+            }
+            int[] indices = geometry.getIndices();
+            for (int i = 0; i < geometry.getIndexCount(); i++) {
+                builder.addIndex(first + indices[i]);
+            }
+        }
+
+        Material getMaterial() {
+            return material;
+        }
+
+        // Une partie par mesh envoyé au GPU, indices relatifs au premier sommet de la partie
+        List<MeshBuilder> getParts() {
+            return parts;
+        }
+
+        int getVertexCount() {
+            int count = 0;
+            for (MeshBuilder part : parts) {
+                count += part.getVertexCount();
+            }
+            return count;
+        }
+    }
+
+    // Vector4f compare ses composantes : deux matériaux de mêmes valeurs donnent la même clé
+    private record MaterialKey(String texturePath, Vector4f diffuseColor, Vector4f ambientColor,
+            Vector4f specularColor, float reflectance) {
+    }
+}
@@ -0,0 +1,255 @@
+package com.terrescalmes.core.graphics;
+
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+
+import com.terrescalmes.core.TerrainGenerator;
+import com.terrescalmes.core.terrain.CdlodTerrain;
+import com.terrescalmes.core.terrain.Heightfield;
+import com.terrescalmes.core.terrain.HorizonCuller;
+
+import java.util.*;
+
+import static org.lwjgl.opengl.GL30.*;
+
+// Rendu du terrain déplacé sur GPU (CDLOD et chunks de l'atlas) : terrain.vert pour les sommets,
+// scene.frag pour l'éclairage, ou gbuffer.frag pour la passe géométrie du rendu différé
+public class TerrainRender {
+
+    private final GridMesh chunkGridMesh;
+    private int culledCount;
+    private final FrustumIntersection frustum;
+    private final Vector2f heightMapOrigin;
+    private final GridMesh gridMesh;
+    private final Material material;
+    private final MaterialUniforms materialUniforms;
+    private final Vector2f morphConsts;
+    private final Vector2f nodeOffset;
+    private int[] visibleSlots; // Emplacements de l'atlas retenus par le culling, réutilisé d'une frame à l'autre
+    private final Matrix4f projViewMatrix;
+    private final TerrainProgram forwardProgram;
+    private final TerrainProgram geometryProgram;
+    private HeightMapTexture heightMapTexture;
+    private CdlodTerrain terrain;
+    private int submittedCount;
+
+    public TerrainRender() {
+        forwardProgram = new TerrainProgram("resources/shaders/scene.frag", false);
+        geometryProgram = new TerrainProgram("resources/shaders/gbuffer.frag", true);
+        gridMesh = new GridMesh(CdlodTerrain.GRID_SIZE);
+        chunkGridMesh = new GridMesh(TerrainGenerator.CHUNK_SIZE);
+        material = TerrainGenerator.createTerrainMaterial();
+        materialUniforms = new MaterialUniforms();
+        materialUniforms.update(List.of(material));
+        frustum = new FrustumIntersection();
+        projViewMatrix = new Matrix4f();
+        nodeOffset = new Vector2f();
+        morphConsts = new Vector2f();
+        heightMapOrigin = new Vector2f();
+        visibleSlots = new int[0];
+    }
+
+    public void cleanup() {
+        forwardProgram.shaderProgram.cleanup();
+        geometryProgram.shaderProgram.cleanup();
+        materialUniforms.cleanup();
+        gridMesh.cleanup();
+        chunkGridMesh.cleanup();
+        if (heightMapTexture != null) {
+            heightMapTexture.cleanup();
+        }
+    }
+
+    // Chunks de l'atlas écartés par le frustum lors de la dernière frame
+    public int getCulledCount() {
+        return culledCount;
+    }
+
+    public int getSubmittedCount() {
+        return submittedCount;
+    }
+
+    public void render(Scene scene, FrustumCuller frustumCuller, HorizonCuller horizonCuller,
+            OcclusionCuller occlusionCuller) {
+        draw(scene, frustumCuller, horizonCuller, occlusionCuller, forwardProgram);
+    }
+
+    // Passe géométrie du rendu différé, dans le G-buffer lié
+    public void renderGeometry(Scene scene, FrustumCuller frustumCuller, HorizonCuller horizonCuller,
+            OcclusionCuller occlusionCuller) {
+        draw(scene, frustumCuller, horizonCuller, occlusionCuller, geometryProgram);
+    }
+
+    private void draw(Scene scene, FrustumCuller frustumCuller, HorizonCuller horizonCuller,
+            OcclusionCuller occlusionCuller, TerrainProgram program) {
+        submittedCount = 0;
+        culledCount = 0;
+        CdlodTerrain cdlodTerrain = scene.getCdlodTerrain();
+        HeightAtlas heightAtlas = scene.getHeightAtlas();
+        if (cdlodTerrain == null && (heightAtlas == null || heightAtlas.getUsedCount() == 0)) {
+            return;
+        }
+
+        program.shaderProgram.bind();
+
+        UniformsMap uniformsMap = program.uniformsMap;
+        uniformsMap.setUniform(program.terrainScaleUniform, TerrainGenerator.TERRAIN_SCALE);
+        uniformsMap.setUniform(program.textureRepeatUniform, TerrainGenerator.TEXTURE_REPEAT);
+        uniformsMap.setUniform(program.heightMapUniform, 1);
+        uniformsMap.setUniform(program.txtSamplerUniform, 0);
+        materialUniforms.bind(0);
+
+        glActiveTexture(GL_TEXTURE0);
+        scene.getTextureCache().getTexture(material.getTexturePath()).bind();
+
+        if (cdlodTerrain != null) {
+            renderCdlod(scene, cdlodTerrain, horizonCuller, program);
+        }
+        if (heightAtlas != null) {
+            renderChunks(heightAtlas, frustumCuller, horizonCuller, occlusionCuller, program);
+        }
+
+        glBindVertexArray(0);
+        glActiveTexture(GL_TEXTURE0);
+        program.shaderProgram.unbind();
+    }
+
+    private void renderCdlod(Scene scene, CdlodTerrain cdlodTerrain, HorizonCuller horizonCuller,
+            TerrainProgram program) {
+        if (cdlodTerrain != terrain) {
+            // Nouveau terrain : la heightmap est envoyée une seule fois
+            if (heightMapTexture != null) {
+                heightMapTexture.cleanup();
+            }
+            Heightfield heightfield = cdlodTerrain.getHeightfield();
+            heightMapTexture = new HeightMapTexture(cdlodTerrain.getSize(), cdlodTerrain.getSize(),
+                    heightfield.decode(new float[heightfield.getSamples().length]));
+            terrain = cdlodTerrain;
+        }
+
+        Camera camera = scene.getCamera();
+        projViewMatrix.set(scene.getProjection().getProjMatrix()).mul(camera.getViewMatrix());
+        frustum.set(projViewMatrix);
+        terrain.select(camera.getPosition(), frustum, horizonCuller);
+
+        UniformsMap uniformsMap = program.uniformsMap;
+        uniformsMap.setUniform(program.heightMapOriginUniform,
+                heightMapOrigin.set(terrain.getOriginX(), terrain.getOriginZ()));
+        uniformsMap.setUniform(program.heightMapSizeUniform, nodeOffset.set(terrain.getSize(), terrain.getSize()));
+        glActiveTexture(GL_TEXTURE1);
+        heightMapTexture.bind();
+
+        glBindVertexArray(gridMesh.getVaoId());
+        int quadrantIndices = gridMesh.getQuadrantIndexCount();
+        for (int i = 0; i < terrain.getSelectedCount(); i++) {
+            int level = terrain.getSelectedLevel(i);
+            float start = terrain.getMorphStart(level);
+            float end = terrain.getMorphEnd(level);
+            uniformsMap.setUniform(program.nodeOffsetUniform,
+                    nodeOffset.set(terrain.getSelectedX(i), terrain.getSelectedZ(i)));
+            uniformsMap.setUniform(program.nodeScaleUniform, terrain.getNodeSize(level) / gridMesh.getGridSize());
+            uniformsMap.setUniform(program.morphConstsUniform, morphConsts.set(end / (end - start), 1.0f / (end - start)));
+
+            int mask = terrain.getSelectedMask(i);
+            if (mask == CdlodTerrain.FULL_NODE) {
+                glDrawElements(GL_TRIANGLES, gridMesh.getNumIndices(), GL_UNSIGNED_SHORT, 0);
+                continue;
+            }
+            for (int quadrant = 0; quadrant < 4; quadrant++) {
+                if ((mask & (1 << quadrant)) != 0) {
+                    glDrawElements(GL_TRIANGLES, quadrantIndices, GL_UNSIGNED_SHORT,
+                            gridMesh.getQuadrantIndexOffset(quadrant));
+                }
+            }
+        }
+    }
+
+    // Un chunk = la grille partagée décalée à sa position, hauteurs lues dans son emplacement de l'atlas
+    private void renderChunks(HeightAtlas heightAtlas, FrustumCuller frustumCuller, HorizonCuller horizonCuller,
+            OcclusionCuller occlusionCuller, TerrainProgram program) {
+        HeightMapTexture atlasTexture = heightAtlas.getTexture();
+        float scale = TerrainGenerator.TERRAIN_SCALE;
+        UniformsMap uniformsMap = program.uniformsMap;
+        uniformsMap.setUniform(program.heightMapSizeUniform,
+                nodeOffset.set(atlasTexture.getWidth(), atlasTexture.getHeight()));
+        uniformsMap.setUniform(program.nodeScaleUniform, scale);
+        // Pas de transition entre niveaux : morphK vaut toujours 0
+        uniformsMap.setUniform(program.morphConstsUniform, morphConsts.set(1.0f, 0.0f));
+        glActiveTexture(GL_TEXTURE1);
+        atlasTexture.bind();
+
+        // Culling de tous les emplacements d'abord : un seul lot chronométré, sans les appels OpenGL
+        if (visibleSlots.length < heightAtlas.getCapacity()) {
+            visibleSlots = new int[heightAtlas.getCapacity()];
+        }
+        int visibleCount = 0;
+        float size = TerrainGenerator.CHUNK_WORLD_SIZE;
+        long start = System.nanoTime();
+        for (int slot = 0; slot < heightAtlas.getCapacity(); slot++) {
+            if (!heightAtlas.isUsed(slot)) {
+                continue;
+            }
+            float worldX = heightAtlas.getWorldX(slot);
+            float worldZ = heightAtlas.getWorldZ(slot);
+            float minY = heightAtlas.getMinHeight(slot);
+            float maxY = heightAtlas.getMaxHeight(slot);
+            if (!frustumCuller.isAabbVisible(worldX, minY, worldZ, worldX + size, maxY, worldZ + size)
+                    || !horizonCuller.isAabbVisible(worldX, minY, worldZ, worldX + size, maxY, worldZ + size)
+                    || !occlusionCuller.isAabbVisible(worldX, minY, worldZ, worldX + size, maxY, worldZ + size)) {
+                culledCount++;
+                continue;
+            }
+            visibleSlots[visibleCount++] = slot;
+        }
+        horizonCuller.addTestNanos(System.nanoTime() - start);
+
+        glBindVertexArray(chunkGridMesh.getVaoId());
+        for (int i = 0; i < visibleCount; i++) {
+            int slot = visibleSlots[i];
+            float worldX = heightAtlas.getWorldX(slot);
+            float worldZ = heightAtlas.getWorldZ(slot);
+            submittedCount++;
+            // Le premier sommet du chunk est le texel qui suit la bordure de son emplacement
+            uniformsMap.setUniform(program.heightMapOriginUniform, heightMapOrigin.set(
+                    worldX - (heightAtlas.getSlotX(slot) + 1) * scale,
+                    worldZ - (heightAtlas.getSlotY(slot) + 1) * scale));
+            uniformsMap.setUniform(program.nodeOffsetUniform, nodeOffset.set(worldX, worldZ));
+            glDrawElements(GL_TRIANGLES, chunkGridMesh.getNumIndices(), GL_UNSIGNED_SHORT, 0);
+        }
+    }
+
+    // Programme terrain.vert + fragment, avec les handles de ses uniforms
+    private static class TerrainProgram {
+
+        private final int heightMapUniform;
+        private final int heightMapOriginUniform;
+        private final int heightMapSizeUniform;
+        private final int morphConstsUniform;
+        private final int nodeOffsetUniform;
+        private final int nodeScaleUniform;
+        private final ShaderProgram shaderProgram;
+        private final int terrainScaleUniform;
+        private final int textureRepeatUniform;
+        private final int txtSamplerUniform;
+        private final UniformsMap uniformsMap;
+
+        private TerrainProgram(String fragmentShader, boolean geometry) {
+            List<ShaderProgram.ShaderModuleData> shaderModuleDataList = new ArrayList<>();
+            shaderModuleDataList.add(new ShaderProgram.ShaderModuleData("resources/shaders/terrain.vert", GL_VERTEX_SHADER));
+            shaderModuleDataList.add(new ShaderProgram.ShaderModuleData(fragmentShader, GL_FRAGMENT_SHADER));
+            shaderProgram = new ShaderProgram(shaderModuleDataList);
+            uniformsMap = new UniformsMap(shaderProgram.getProgramId());
+            heightMapUniform = uniformsMap.createUniform("heightMap");
+            heightMapOriginUniform = uniformsMap.createUniform("heightMapOrigin");
+            heightMapSizeUniform = uniformsMap.createUniform("heightMapSize");
+            terrainScaleUniform = uniformsMap.createUniform("terrainScale");
+            textureRepeatUniform = uniformsMap.createUniform("textureRepeat");
+            nodeOffsetUniform = uniformsMap.createUniform("nodeOffset");
+            nodeScaleUniform = uniformsMap.createUniform("nodeScale");
+            morphConstsUniform = uniformsMap.createUniform("morphConsts");
+            txtSamplerUniform = geometry ? SceneRender.createGeometryUniforms(shaderProgram, uniformsMap)
+                    : SceneRender.createFragmentUniforms(shaderProgram, uniformsMap);
+        }
+    }
+}
@@ -38,6 +38,12 @@ public class Texture {
         }
     }
 
+    // Texture déjà créée, d'identifiant textureId (ou factice, pour les tests sans contexte OpenGL)
+    Texture(String texturePath, int textureId) {
+        this.texturePath = texturePath;
+        this.textureId = textureId;
+    }
+
     public void bind() {
         glBindTexture(GL_TEXTURE_2D, textureId);
     }
@@ -0,0 +1,60 @@
+package com.terrescalmes.core.graphics;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import static org.lwjgl.opengl.GL31.*;
+
+// Texture buffer : un buffer lu texel par texel (texelFetch) dans les shaders, sans limite de taille
+// de bloc uniform. Le buffer est réalloué à chaque envoi, le pilote n'attend pas les frames en vol
+public class TextureBuffer {
+
+    private final int bufferId;
+    private final int textureId;
+
+    public TextureBuffer(int internalFormat) {
+        bufferId = glGenBuffers();
+        glBindBuffer(GL_TEXTURE_BUFFER, bufferId);
+        glBufferData(GL_TEXTURE_BUFFER, 16, GL_STREAM_DRAW);
+        glBindBuffer(GL_TEXTURE_BUFFER, 0);
+        textureId = glGenTextures();
+        glBindTexture(GL_TEXTURE_BUFFER, textureId);
+        glTexBuffer(GL_TEXTURE_BUFFER, internalFormat, bufferId);
+        glBindTexture(GL_TEXTURE_BUFFER, 0);
+    }
+
+    public void bind() {
+        glBindTexture(GL_TEXTURE_BUFFER, textureId);
+    }
+
+    public void cleanup() {
+        glDeleteTextures(textureId);
+        glDeleteBuffers(bufferId);
+    }
+
+    // Les envois vides sont ignorés : les shaders ne lisent alors rien de ce buffer
+    public void update(FloatBuffer data) {
+        if (data.hasRemaining()) {
+            glBindBuffer(GL_TEXTURE_BUFFER, bufferId);
+            glBufferData(GL_TEXTURE_BUFFER, data, GL_STREAM_DRAW);
+            glBindBuffer(GL_TEXTURE_BUFFER, 0);
+        }
+    }
+
+    public void update(IntBuffer data) {
+        if (data.hasRemaining()) {
+            glBindBuffer(GL_TEXTURE_BUFFER, bufferId);
+            glBufferData(GL_TEXTURE_BUFFER, data, GL_STREAM_DRAW);
+            glBindBuffer(GL_TEXTURE_BUFFER, 0);
+        }
+    }
+
+    public void update(ShortBuffer data) {
+        if (data.hasRemaining()) {
+            glBindBuffer(GL_TEXTURE_BUFFER, bufferId);
+            glBufferData(GL_TEXTURE_BUFFER, data, GL_STREAM_DRAW);
+            glBindBuffer(GL_TEXTURE_BUFFER, 0);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.terrescalmes.core.graphics;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL31.*;
+
+// Uniform Buffer Object : les programmes dont le bloc est associé au même point de liaison
+// (ShaderProgram.bindUniformBlock) le lisent directement, sans aucun glUniform
+public class UniformBuffer {
+
+    private final int binding;
+    private final int bufferId;
+    private final int size;
+
+    public UniformBuffer(int binding, int size) {
+        this.binding = binding;
+        this.size = size;
+        bufferId = glGenBuffers();
+        glBindBuffer(GL_UNIFORM_BUFFER, bufferId);
+        glBufferData(GL_UNIFORM_BUFFER, size, GL_DYNAMIC_DRAW);
+        glBindBuffer(GL_UNIFORM_BUFFER, 0);
+    }
+
+    // Alignement imposé par le pilote aux offsets de bindRange
+    public static int getOffsetAlignment() {
+        return glGetInteger(GL_UNIFORM_BUFFER_OFFSET_ALIGNMENT);
+    }
+
+    // Tout le buffer sur le point de liaison
+    public void bindBase() {
+        glBindBufferBase(GL_UNIFORM_BUFFER, binding, bufferId);
+    }
+
+    // Une partie du buffer sur le point de liaison, offset multiple de getOffsetAlignment()
+    public void bindRange(long offset, long rangeSize) {
+        glBindBufferRange(GL_UNIFORM_BUFFER, binding, bufferId, offset, rangeSize);
+    }
+
+    public void cleanup() {
+        glDeleteBuffers(bufferId);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // data de position à limite, écrit au début du buffer
+    public void update(ByteBuffer data) {
+        glBindBuffer(GL_UNIFORM_BUFFER, bufferId);
+        glBufferSubData(GL_UNIFORM_BUFFER, 0, data);
+        glBindBuffer(GL_UNIFORM_BUFFER, 0);
+    }
+}
@@ -4,62 +4,175 @@ import org.joml.Matrix4f;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
-import org.lwjgl.system.MemoryStack;
 
 import java.util.*;
 
 import static org.lwjgl.opengl.GL20.*;
 
+// Uniforms d'un programme, désignés par un handle entier résolu une seule fois par createUniform.
+// La dernière valeur envoyée à chaque uniform est gardée en copie (bits des float/int) : une valeur
+// inchangée ne génère aucun appel glUniform. Valable tant que le programme n'est pas relié à nouveau
 public class UniformsMap {
 
-    private int programId;
-    private Map<String, Integer> uniforms;
+    private static final int SHADOW_SLOTS = 16; // Jusqu'à une mat4 par uniform
+
+    // Statistiques du thread OpenGL, remises à zéro à chaque frame par Render
+    private static int issuedCount;
+    private static int skippedCount;
+
+    private int count;
+    private int[] locations;
+    private final float[] matrixScratch;
+    private final int programId;
+    private int[] shadow;
+    private boolean[] shadowValid;
+    private final Map<String, Integer> uniforms;
 
     public UniformsMap(int programId) {
         this.programId = programId;
         uniforms = new HashMap<>();
+        locations = new int[8];
+        shadow = new int[8 * SHADOW_SLOTS];
+        shadowValid = new boolean[8];
+        matrixScratch = new float[SHADOW_SLOTS];
     }
 
-    public void createUniform(String uniformName) {
+    // Retourne le handle à passer aux setUniform
+    public int createUniform(String uniformName) {
+        Integer existing = uniforms.get(uniformName);
+        if (existing != null) {
+            return existing;
+        }
         int uniformLocation = glGetUniformLocation(programId, uniformName);
         if (uniformLocation < 0) {
             throw new RuntimeException("Could not find uniform [" + uniformName + "] in shader program [" +
                     programId + "]");
         }
-        uniforms.put(uniformName, uniformLocation);
+        if (count == locations.length) {
+            locations = Arrays.copyOf(locations, count * 2);
+            shadow = Arrays.copyOf(shadow, count * 2 * SHADOW_SLOTS);
+            shadowValid = Arrays.copyOf(shadowValid, count * 2);
+        }
+        int handle = count++;
+        locations[handle] = uniformLocation;
+        uniforms.put(uniformName, handle);
+        return handle;
     }
 
-    private int getUniformLocation(String uniformName) {
-        Integer location = uniforms.get(uniformName);
-        if (location == null) {
+    public int getHandle(String uniformName) {
+        Integer handle = uniforms.get(uniformName);
+        if (handle == null) {
             throw new RuntimeException("Could not find uniform [" + uniformName + "]");
         }
-        return location.intValue();
+        return handle;
     }
 
-    public void setUniform(String uniformName, int value) {
-        glUniform1i(getUniformLocation(uniformName), value);
+    public void setUniform(int handle, int value) {
+        if (unchanged(handle, value)) {
+            return;
+        }
+        glUniform1i(locations[handle], value);
+    }
+
+    public void setUniform(int handle, float value) {
+        if (unchanged(handle, Float.floatToRawIntBits(value))) {
+            return;
+        }
+        glUniform1f(locations[handle], value);
     }
 
-    public void setUniform(String uniformName, Matrix4f value) {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            glUniformMatrix4fv(getUniformLocation(uniformName), false, value.get(stack.mallocFloat(16)));
+    public void setUniform(int handle, Vector2f value) {
+        if (unchanged(handle, value.x, value.y)) {
+            return;
         }
+        glUniform2f(locations[handle], value.x, value.y);
     }
 
-    public void setUniform(String uniformName, Vector4f value) {
-        glUniform4f(getUniformLocation(uniformName), value.x, value.y, value.z, value.w);
+    public void setUniform(int handle, Vector3f value) {
+        if (unchanged(handle, value.x, value.y, value.z)) {
+            return;
+        }
+        glUniform3f(locations[handle], value.x, value.y, value.z);
+    }
+
+    public void setUniform(int handle, Vector4f value) {
+        if (unchanged(handle, value.x, value.y, value.z, value.w)) {
+            return;
+        }
+        glUniform4f(locations[handle], value.x, value.y, value.z, value.w);
+    }
+
+    public void setUniform(int handle, Matrix4f value) {
+        value.get(matrixScratch);
+        int base = handle * SHADOW_SLOTS;
+        boolean same = shadowValid[handle];
+        for (int i = 0; i < SHADOW_SLOTS; i++) {
+            int bits = Float.floatToRawIntBits(matrixScratch[i]);
+            same &= shadow[base + i] == bits;
+            shadow[base + i] = bits;
+        }
+        if (record(handle, same)) {
+            return;
+        }
+        glUniformMatrix4fv(locations[handle], false, matrixScratch);
+    }
+
+    private boolean unchanged(int handle, int bits) {
+        int base = handle * SHADOW_SLOTS;
+        boolean same = shadowValid[handle] && shadow[base] == bits;
+        shadow[base] = bits;
+        return record(handle, same);
+    }
+
+    private boolean unchanged(int handle, float x, float y) {
+        int base = handle * SHADOW_SLOTS;
+        boolean same = shadowValid[handle] & storeShadow(base, x) & storeShadow(base + 1, y);
+        return record(handle, same);
+    }
+
+    private boolean unchanged(int handle, float x, float y, float z) {
+        int base = handle * SHADOW_SLOTS;
+        boolean same = shadowValid[handle] & storeShadow(base, x) & storeShadow(base + 1, y) & storeShadow(base + 2, z);
+        return record(handle, same);
+    }
+
+    private boolean unchanged(int handle, float x, float y, float z, float w) {
+        int base = handle * SHADOW_SLOTS;
+        boolean same = shadowValid[handle] & storeShadow(base, x) & storeShadow(base + 1, y) & storeShadow(base + 2, z)
+                & storeShadow(base + 3, w);
+        return record(handle, same);
+    }
+
+    // Range la valeur dans la copie, retourne true si elle y était déjà
+    private boolean storeShadow(int slot, float value) {
+        int bits = Float.floatToRawIntBits(value);
+        boolean same = shadow[slot] == bits;
+        shadow[slot] = bits;
+        return same;
+    }
+
+    private boolean record(int handle, boolean same) {
+        shadowValid[handle] = true;
+        if (same) {
+            skippedCount++;
+        } else {
+            issuedCount++;
+        }
+        return same;
     }
 
-    public void setUniform(String uniformName, Vector2f value) {
-        glUniform2f(getUniformLocation(uniformName), value.x, value.y);
+    // Appels glUniform effectués depuis le dernier resetStats
+    public static int getIssuedCount() {
+        return issuedCount;
     }
 
-    public void setUniform(String uniformName, float value) {
-        glUniform1f(getUniformLocation(uniformName), value);
+    // Appels évités (valeur identique à la précédente) depuis le dernier resetStats
+    public static int getSkippedCount() {
+        return skippedCount;
     }
 
-    public void setUniform(String uniformName, Vector3f value) {
-        glUniform3f(getUniformLocation(uniformName), value.x, value.y, value.z);
+    public static void resetStats() {
+        issuedCount = 0;
+        skippedCount = 0;
     }
 }
@@ -0,0 +1,188 @@
+package com.terrescalmes.core.graphics;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL33.*;
+
+// Format d'un sommet entrelacé : un attribut par emplacement (0, 1, ...), chacun dans un Format compressé ou non,
+// les uns à la suite des autres dans un même VBO.
+// Les layouts des Mesh gardent les positions en float, compressent les normales sur 10 bits par composante et
+// choisissent le format des coordonnées de texture selon leur étendue (voir forTextCoords) : 20 octets par sommet
+// au lieu de 32, 24 quand les coordonnées de texture doivent rester en float
+public final class VertexLayout {
+
+    // Emplacements des attributs des Mesh dans les shaders
+    public static final int POSITION = 0;
+    public static final int NORMAL = 1;
+    public static final int TEXT_COORD = 2;
+
+    // Au-delà, le half float ne garde pas 1 / 1024 de précision (un texel d'une texture de 1024)
+    private static final float HALF_TEXT_COORD_LIMIT = 2.0f;
+
+    public static final VertexLayout MESH_UNORM_UV = new VertexLayout(0, Format.FLOAT3, Format.SNORM_2_10_10_10,
+            Format.UNORM16_2);
+    public static final VertexLayout MESH_HALF_UV = new VertexLayout(1, Format.FLOAT3, Format.SNORM_2_10_10_10,
+            Format.HALF2);
+    public static final VertexLayout MESH_FLOAT_UV = new VertexLayout(2, Format.FLOAT3, Format.SNORM_2_10_10_10,
+            Format.FLOAT2);
+    // Coordonnées entières de GridMesh
+    public static final VertexLayout GRID = new VertexLayout(3, Format.USHORT2);
+    public static final int LAYOUT_COUNT = 4;
+
+    private final Format[] formats;
+    private final int id;
+    private final int[] offsets;
+    private final int stride;
+
+    private VertexLayout(int id, Format... formats) {
+        this.id = id;
+        this.formats = formats;
+        offsets = new int[formats.length];
+        int offset = 0;
+        for (int i = 0; i < formats.length; i++) {
+            offsets[i] = offset;
+            offset += formats[i].bytes;
+        }
+        stride = offset;
+    }
+
+    // Layout de Mesh le plus compact qui garde la précision des coordonnées de texture
+    public static VertexLayout forTextCoords(float[] textCoords, int length) {
+        float min = 0.0f;
+        float max = 0.0f;
+        for (int i = 0; i < length; i++) {
+            min = Math.min(min, textCoords[i]);
+            max = Math.max(max, textCoords[i]);
+        }
+        if (min >= 0.0f && max <= 1.0f) {
+            return MESH_UNORM_UV;
+        }
+        if (min >= -HALF_TEXT_COORD_LIMIT && max <= HALF_TEXT_COORD_LIMIT) {
+            return MESH_HALF_UV;
+        }
+        return MESH_FLOAT_UV;
+    }
+
+    // Branche les attributs du VAO lié sur le VBO lié à GL_ARRAY_BUFFER, sommets à partir de l'octet offset
+    public void setupAttributes(long offset) {
+        for (int i = 0; i < formats.length; i++) {
+            Format format = formats[i];
+            glEnableVertexAttribArray(i);
+            glVertexAttribPointer(i, format.size, format.type, format.normalized, stride, offset + offsets[i]);
+        }
+    }
+
+    // Écrit vertexCount sommets à la position de buffer (ordre natif). Les lengths[i] premières valeurs de
+    // sources[i] alimentent l'attribut i, les valeurs manquantes valent 0
+    public void pack(ByteBuffer buffer, int vertexCount, float[][] sources, int[] lengths) {
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            for (int i = 0; i < formats.length; i++) {
+                formats[i].put(buffer, sources[i], lengths[i], vertex);
+            }
+        }
+    }
+
+    // Index dense, de 0 à LAYOUT_COUNT - 1
+    public int getId() {
+        return id;
+    }
+
+    // Octets par sommet
+    public int getStride() {
+        return stride;
+    }
+
+    public enum Format {
+        FLOAT2(2, 2, GL_FLOAT, false, 8),
+        FLOAT3(3, 3, GL_FLOAT, false, 12),
+        HALF2(2, 2, GL_HALF_FLOAT, false, 4),
+        // [0, 1] sur 16 bits
+        UNORM16_2(2, 2, GL_UNSIGNED_SHORT, true, 4),
+        // Entiers de 0 à 65535, lus tels quels en float
+        USHORT2(2, 2, GL_UNSIGNED_SHORT, false, 4),
+        // Vecteur unitaire, x, y et z sur 10 bits signés, w inutilisé
+        SNORM_2_10_10_10(3, 4, GL_INT_2_10_10_10_REV, true, 4);
+
+        private final int bytes;
+        private final int inputs; // Valeurs lues par sommet dans la source
+        private final boolean normalized;
+        private final int size;
+        private final int type;
+
+        Format(int inputs, int size, int type, boolean normalized, int bytes) {
+            this.inputs = inputs;
+            this.size = size;
+            this.type = type;
+            this.normalized = normalized;
+            this.bytes = bytes;
+        }
+
+        private void put(ByteBuffer buffer, float[] source, int length, int vertex) {
+            int base = vertex * inputs;
+            switch (this) {
+                case FLOAT2, FLOAT3 -> {
+                    for (int i = 0; i < inputs; i++) {
+                        buffer.putFloat(read(source, length, base + i));
+                    }
+                }
+                case HALF2 -> {
+                    buffer.putShort(toHalf(read(source, length, base)));
+                    buffer.putShort(toHalf(read(source, length, base + 1)));
+                }
+                case UNORM16_2 -> {
+                    buffer.putShort(toUnorm16(read(source, length, base)));
+                    buffer.putShort(toUnorm16(read(source, length, base + 1)));
+                }
+                case USHORT2 -> {
+                    buffer.putShort((short) (int) read(source, length, base));
+                    buffer.putShort((short) (int) read(source, length, base + 1));
+                }
+                case SNORM_2_10_10_10 -> buffer.putInt(toSnorm10(read(source, length, base))
+                        | toSnorm10(read(source, length, base + 1)) << 10
+                        | toSnorm10(read(source, length, base + 2)) << 20);
+            }
+        }
+
+        private static float read(float[] source, int length, int index) {
+            return index < length ? source[index] : 0.0f;
+        }
+
+        private static short toUnorm16(float value) {
+            return (short) Math.round(Math.max(0.0f, Math.min(1.0f, value)) * 65535.0f);
+        }
+
+        private static int toSnorm10(float value) {
+            return Math.round(Math.max(-1.0f, Math.min(1.0f, value)) * 511.0f) & 0x3FF;
+        }
+
+        // Arrondi au plus proche, les valeurs hors de la plage du half float deviennent infinies
+        private static short toHalf(float value) {
+            int bits = Float.floatToRawIntBits(value);
+            int sign = (bits >>> 16) & 0x8000;
+            int exponent = ((bits >>> 23) & 0xFF) - 127 + 15;
+            int mantissa = bits & 0x7FFFFF;
+            if (exponent >= 31) {
+                return (short) (sign | 0x7C00);
+            }
+            if (exponent <= 0) {
+                // Dénormalisé, ou trop petit : zéro signé
+                if (exponent < -10) {
+                    return (short) sign;
+                }
+                mantissa |= 0x800000;
+                int shift = 14 - exponent;
+                int half = mantissa >> shift;
+                if ((mantissa >> (shift - 1) & 1) != 0) {
+                    half++;
+                }
+                return (short) (sign | half);
+            }
+            int half = sign | exponent << 10 | mantissa >> 13;
+            // La retenue peut passer dans l'exposant, ce qui reste le bon arrondi
+            if ((mantissa & 0x1000) != 0) {
+                half++;
+            }
+            return (short) half;
+        }
+    }
+}
@@ -0,0 +1,612 @@
+package com.terrescalmes.core.spatial;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import com.terrescalmes.core.graphics.FrustumCuller;
+import com.terrescalmes.entities.Entity;
+
+// Hiérarchie de volumes englobants (BVH) sur des entités statiques, boîtes alignées sur les axes en monde.
+// Construite par SAH (Surface Area Heuristic) à bacs, les gros sous-arbres en parallèle sur le pool ForkJoin commun.
+// Un déplacement d'entité ne reconstruit pas l'arbre : sa feuille et ses ancêtres sont réajustés (refit).
+// Un ajout ou un retrait invalide l'arbre, reconstruit à la requête suivante.
+// Nœuds et primitives sont rangés en tableaux parallèles, les deux enfants d'un nœud interne sont contigus.
+// Les requêtes ne sont pas thread-safe (pile de parcours partagée) : thread de rendu uniquement
+public class EntityBvh {
+
+    private static final int BIN_COUNT = 16;
+    private static final int MAX_DEPTH = 48; // Au-delà, feuille forcée : borne la pile de parcours
+    private static final int MAX_LEAF_SIZE = 4; // En dessous, pas de découpe
+    private static final int MAX_SAH_LEAF_SIZE = 16; // Au-dessus, découpe même si la SAH la juge inutile
+    private static final int PARALLEL_THRESHOLD = 2048; // En dessous, le sous-arbre est construit sur le thread courant
+    private static final float TRAVERSAL_COST = 1.0f; // Coût d'un nœud interne, relatif au test d'une primitive
+
+    private final Map<Entity, Integer> indices;
+    private final int[] stack;
+
+    // Primitives, par index d'ajout
+    private Entity[] entities;
+    private float[] maxX;
+    private float[] maxY;
+    private float[] maxZ;
+    private float[] minX;
+    private float[] minY;
+    private float[] minZ;
+    private int[] primLeaf; // Feuille contenant la primitive
+    private int size;
+
+    // Nœuds. Interne : nodeStart = premier enfant, nodeCount = 0. Feuille : nodeStart = début dans order
+    private float[] nodeMaxX;
+    private float[] nodeMaxY;
+    private float[] nodeMaxZ;
+    private float[] nodeMinX;
+    private float[] nodeMinY;
+    private float[] nodeMinZ;
+    private int[] nodeCount;
+    private int[] nodeParent;
+    private int[] nodeStart;
+    private int nodesUsed;
+    private int[] order; // Index des primitives, regroupés par feuille
+
+    private float[] centroidX;
+    private float[] centroidY;
+    private float[] centroidZ;
+
+    private boolean dirty;
+    private float rayDistance;
+    private int refitsSinceBuild;
+
+    public EntityBvh() {
+        indices = new IdentityHashMap<>();
+        stack = new int[MAX_DEPTH + 2];
+        entities = new Entity[0];
+        minX = minY = minZ = maxX = maxY = maxZ = new float[0];
+        primLeaf = new int[0];
+    }
+
+    public void add(Entity entity, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        if (indices.containsKey(entity)) {
+            throw new IllegalArgumentException("Entity already indexed [" + entity.getId() + "]");
+        }
+        if (size == entities.length) {
+            int capacity = Math.max(16, size * 2);
+            entities = Arrays.copyOf(entities, capacity);
+            this.minX = Arrays.copyOf(this.minX, capacity);
+            this.minY = Arrays.copyOf(this.minY, capacity);
+            this.minZ = Arrays.copyOf(this.minZ, capacity);
+            this.maxX = Arrays.copyOf(this.maxX, capacity);
+            this.maxY = Arrays.copyOf(this.maxY, capacity);
+            this.maxZ = Arrays.copyOf(this.maxZ, capacity);
+            primLeaf = Arrays.copyOf(primLeaf, capacity);
+        }
+        entities[size] = entity;
+        setBounds(size, minX, minY, minZ, maxX, maxY, maxZ);
+        indices.put(entity, size);
+        size++;
+        dirty = true;
+    }
+
+    public boolean remove(Entity entity) {
+        Integer index = indices.remove(entity);
+        if (index == null) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    public int removeIf(Predicate<Entity> filter) {
+        int removed = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            if (filter.test(entities[i])) {
+                indices.remove(entities[i]);
+                removeAt(i);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    // La dernière primitive prend la place de celle retirée
+    private void removeAt(int index) {
+        int last = size - 1;
+        if (index != last) {
+            entities[index] = entities[last];
+            setBounds(index, minX[last], minY[last], minZ[last], maxX[last], maxY[last], maxZ[last]);
+            indices.put(entities[index], index);
+        }
+        entities[last] = null;
+        size--;
+        dirty = true;
+    }
+
+    // Nouvelles bornes d'une entité déplacée : seule la branche qui la contient est recalculée
+    public void update(Entity entity, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        Integer index = indices.get(entity);
+        if (index == null) {
+            throw new IllegalArgumentException("Entity not indexed [" + entity.getId() + "]");
+        }
+        setBounds(index, minX, minY, minZ, maxX, maxY, maxZ);
+        if (dirty) {
+            return;
+        }
+        // Une entité téléportée hors du voisinage de sa feuille étirerait toute la branche jusqu'à la racine
+        int leaf = primLeaf[index];
+        int parent = nodeParent[leaf] >= 0 ? nodeParent[leaf] : leaf;
+        float centerX = (minX + maxX) * 0.5f;
+        float centerY = (minY + maxY) * 0.5f;
+        float centerZ = (minZ + maxZ) * 0.5f;
+        if (centerX < nodeMinX[parent] || centerX > nodeMaxX[parent] || centerY < nodeMinY[parent]
+                || centerY > nodeMaxY[parent] || centerZ < nodeMinZ[parent] || centerZ > nodeMaxZ[parent]) {
+            dirty = true;
+            return;
+        }
+        refit(leaf);
+        // Les refits successifs dégradent la qualité de l'arbre : reconstruction quand tout a bougé une fois
+        if (++refitsSinceBuild > size) {
+            dirty = true;
+        }
+    }
+
+    private void setBounds(int index, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        this.minX[index] = minX;
+        this.minY[index] = minY;
+        this.minZ[index] = minZ;
+        this.maxX[index] = maxX;
+        this.maxY[index] = maxY;
+        this.maxZ[index] = maxZ;
+    }
+
+    private void refit(int leaf) {
+        int first = nodeStart[leaf];
+        float bMinX = Float.MAX_VALUE, bMinY = Float.MAX_VALUE, bMinZ = Float.MAX_VALUE;
+        float bMaxX = -Float.MAX_VALUE, bMaxY = -Float.MAX_VALUE, bMaxZ = -Float.MAX_VALUE;
+        for (int i = first; i < first + nodeCount[leaf]; i++) {
+            int prim = order[i];
+            bMinX = Math.min(bMinX, minX[prim]);
+            bMinY = Math.min(bMinY, minY[prim]);
+            bMinZ = Math.min(bMinZ, minZ[prim]);
+            bMaxX = Math.max(bMaxX, maxX[prim]);
+            bMaxY = Math.max(bMaxY, maxY[prim]);
+            bMaxZ = Math.max(bMaxZ, maxZ[prim]);
+        }
+        setNodeBounds(leaf, bMinX, bMinY, bMinZ, bMaxX, bMaxY, bMaxZ);
+
+        // Remontée jusqu'au premier ancêtre dont les bornes ne changent pas
+        int node = nodeParent[leaf];
+        while (node >= 0) {
+            int left = nodeStart[node];
+            int right = left + 1;
+            bMinX = Math.min(nodeMinX[left], nodeMinX[right]);
+            bMinY = Math.min(nodeMinY[left], nodeMinY[right]);
+            bMinZ = Math.min(nodeMinZ[left], nodeMinZ[right]);
+            bMaxX = Math.max(nodeMaxX[left], nodeMaxX[right]);
+            bMaxY = Math.max(nodeMaxY[left], nodeMaxY[right]);
+            bMaxZ = Math.max(nodeMaxZ[left], nodeMaxZ[right]);
+            if (bMinX == nodeMinX[node] && bMinY == nodeMinY[node] && bMinZ == nodeMinZ[node]
+                    && bMaxX == nodeMaxX[node] && bMaxY == nodeMaxY[node] && bMaxZ == nodeMaxZ[node]) {
+                break;
+            }
+            setNodeBounds(node, bMinX, bMinY, bMinZ, bMaxX, bMaxY, bMaxZ);
+            node = nodeParent[node];
+        }
+    }
+
+    private void setNodeBounds(int node, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        nodeMinX[node] = minX;
+        nodeMinY[node] = minY;
+        nodeMinZ[node] = minZ;
+        nodeMaxX[node] = maxX;
+        nodeMaxY[node] = maxY;
+        nodeMaxZ[node] = maxZ;
+    }
+
+    // Reconstruit l'arbre si des entités ont été ajoutées ou retirées depuis la dernière requête
+    public void build() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        refitsSinceBuild = 0;
+        nodesUsed = 0;
+        if (size == 0) {
+            return;
+        }
+
+        int nodeCapacity = size * 2 - 1;
+        if (nodeStart == null || nodeStart.length < nodeCapacity) {
+            nodeMinX = new float[nodeCapacity];
+            nodeMinY = new float[nodeCapacity];
+            nodeMinZ = new float[nodeCapacity];
+            nodeMaxX = new float[nodeCapacity];
+            nodeMaxY = new float[nodeCapacity];
+            nodeMaxZ = new float[nodeCapacity];
+            nodeStart = new int[nodeCapacity];
+            nodeCount = new int[nodeCapacity];
+            nodeParent = new int[nodeCapacity];
+        }
+        if (order == null || order.length < size) {
+            order = new int[entities.length];
+            centroidX = new float[entities.length];
+            centroidY = new float[entities.length];
+            centroidZ = new float[entities.length];
+        }
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+            centroidX[i] = (minX[i] + maxX[i]) * 0.5f;
+            centroidY[i] = (minY[i] + maxY[i]) * 0.5f;
+            centroidZ[i] = (minZ[i] + maxZ[i]) * 0.5f;
+        }
+
+        AtomicInteger allocator = new AtomicInteger(1);
+        nodeParent[0] = -1;
+        if (size > PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new BuildTask(allocator, 0, 0, size, 0));
+        } else {
+            buildNode(allocator, 0, 0, size, 0);
+        }
+        nodesUsed = allocator.get();
+    }
+
+    private void buildNode(AtomicInteger allocator, int node, int start, int end, int depth) {
+        float bMinX = Float.MAX_VALUE, bMinY = Float.MAX_VALUE, bMinZ = Float.MAX_VALUE;
+        float bMaxX = -Float.MAX_VALUE, bMaxY = -Float.MAX_VALUE, bMaxZ = -Float.MAX_VALUE;
+        float cMinX = Float.MAX_VALUE, cMinY = Float.MAX_VALUE, cMinZ = Float.MAX_VALUE;
+        float cMaxX = -Float.MAX_VALUE, cMaxY = -Float.MAX_VALUE, cMaxZ = -Float.MAX_VALUE;
+        for (int i = start; i < end; i++) {
+            int prim = order[i];
+            bMinX = Math.min(bMinX, minX[prim]);
+            bMinY = Math.min(bMinY, minY[prim]);
+            bMinZ = Math.min(bMinZ, minZ[prim]);
+            bMaxX = Math.max(bMaxX, maxX[prim]);
+            bMaxY = Math.max(bMaxY, maxY[prim]);
+            bMaxZ = Math.max(bMaxZ, maxZ[prim]);
+            cMinX = Math.min(cMinX, centroidX[prim]);
+            cMinY = Math.min(cMinY, centroidY[prim]);
+            cMinZ = Math.min(cMinZ, centroidZ[prim]);
+            cMaxX = Math.max(cMaxX, centroidX[prim]);
+            cMaxY = Math.max(cMaxY, centroidY[prim]);
+            cMaxZ = Math.max(cMaxZ, centroidZ[prim]);
+        }
+        setNodeBounds(node, bMinX, bMinY, bMinZ, bMaxX, bMaxY, bMaxZ);
+
+        int count = end - start;
+        if (count <= MAX_LEAF_SIZE || depth >= MAX_DEPTH) {
+            makeLeaf(node, start, count);
+            return;
+        }
+
+        // Meilleure découpe sur les trois axes, primitives rangées en bacs selon leur centre
+        int[] binCounts = new int[BIN_COUNT];
+        float[] binBounds = new float[BIN_COUNT * 6];
+        float[] rightAreas = new float[BIN_COUNT];
+        int bestAxis = -1;
+        int bestBin = 0;
+        float bestCost = Float.MAX_VALUE;
+        for (int axis = 0; axis < 3; axis++) {
+            float cMin = axis == 0 ? cMinX : axis == 1 ? cMinY : cMinZ;
+            float cMax = axis == 0 ? cMaxX : axis == 1 ? cMaxY : cMaxZ;
+            if (cMax <= cMin) {
+                continue;
+            }
+            float binScale = BIN_COUNT / (cMax - cMin);
+            float[] centroids = axis == 0 ? centroidX : axis == 1 ? centroidY : centroidZ;
+
+            Arrays.fill(binCounts, 0);
+            for (int bin = 0; bin < BIN_COUNT; bin++) {
+                int base = bin * 6;
+                binBounds[base] = binBounds[base + 1] = binBounds[base + 2] = Float.MAX_VALUE;
+                binBounds[base + 3] = binBounds[base + 4] = binBounds[base + 5] = -Float.MAX_VALUE;
+            }
+            for (int i = start; i < end; i++) {
+                int prim = order[i];
+                int bin = Math.min(BIN_COUNT - 1, (int) ((centroids[prim] - cMin) * binScale));
+                int base = bin * 6;
+                binCounts[bin]++;
+                binBounds[base] = Math.min(binBounds[base], minX[prim]);
+                binBounds[base + 1] = Math.min(binBounds[base + 1], minY[prim]);
+                binBounds[base + 2] = Math.min(binBounds[base + 2], minZ[prim]);
+                binBounds[base + 3] = Math.max(binBounds[base + 3], maxX[prim]);
+                binBounds[base + 4] = Math.max(binBounds[base + 4], maxY[prim]);
+                binBounds[base + 5] = Math.max(binBounds[base + 5], maxZ[prim]);
+            }
+
+            // Balayage de droite à gauche : aire des bacs [bin, BIN_COUNT)
+            float rMinX = Float.MAX_VALUE, rMinY = Float.MAX_VALUE, rMinZ = Float.MAX_VALUE;
+            float rMaxX = -Float.MAX_VALUE, rMaxY = -Float.MAX_VALUE, rMaxZ = -Float.MAX_VALUE;
+            for (int bin = BIN_COUNT - 1; bin > 0; bin--) {
+                int base = bin * 6;
+                rMinX = Math.min(rMinX, binBounds[base]);
+                rMinY = Math.min(rMinY, binBounds[base + 1]);
+                rMinZ = Math.min(rMinZ, binBounds[base + 2]);
+                rMaxX = Math.max(rMaxX, binBounds[base + 3]);
+                rMaxY = Math.max(rMaxY, binBounds[base + 4]);
+                rMaxZ = Math.max(rMaxZ, binBounds[base + 5]);
+                rightAreas[bin] = halfArea(rMinX, rMinY, rMinZ, rMaxX, rMaxY, rMaxZ);
+            }
+
+            // Balayage de gauche à droite : coût de la découpe avant chaque bac
+            float lMinX = Float.MAX_VALUE, lMinY = Float.MAX_VALUE, lMinZ = Float.MAX_VALUE;
+            float lMaxX = -Float.MAX_VALUE, lMaxY = -Float.MAX_VALUE, lMaxZ = -Float.MAX_VALUE;
+            int leftCount = 0;
+            for (int bin = 1; bin < BIN_COUNT; bin++) {
+                int base = (bin - 1) * 6;
+                leftCount += binCounts[bin - 1];
+                lMinX = Math.min(lMinX, binBounds[base]);
+                lMinY = Math.min(lMinY, binBounds[base + 1]);
+                lMinZ = Math.min(lMinZ, binBounds[base + 2]);
+                lMaxX = Math.max(lMaxX, binBounds[base + 3]);
+                lMaxY = Math.max(lMaxY, binBounds[base + 4]);
+                lMaxZ = Math.max(lMaxZ, binBounds[base + 5]);
+                int rightCount = count - leftCount;
+                if (leftCount == 0 || rightCount == 0) {
+                    continue;
+                }
+                float cost = halfArea(lMinX, lMinY, lMinZ, lMaxX, lMaxY, lMaxZ) * leftCount
+                        + rightAreas[bin] * rightCount;
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestAxis = axis;
+                    bestBin = bin;
+                }
+            }
+        }
+
+        int middle;
+        if (bestAxis < 0) {
+            // Tous les centres confondus : découpe arbitraire en deux moitiés
+            if (count <= MAX_SAH_LEAF_SIZE) {
+                makeLeaf(node, start, count);
+                return;
+            }
+            middle = (start + end) >>> 1;
+        } else {
+            float nodeArea = halfArea(bMinX, bMinY, bMinZ, bMaxX, bMaxY, bMaxZ);
+            float splitCost = nodeArea > 0.0f ? TRAVERSAL_COST + bestCost / nodeArea : TRAVERSAL_COST;
+            if (splitCost >= count && count <= MAX_SAH_LEAF_SIZE) {
+                makeLeaf(node, start, count);
+                return;
+            }
+            float cMin = bestAxis == 0 ? cMinX : bestAxis == 1 ? cMinY : cMinZ;
+            float cMax = bestAxis == 0 ? cMaxX : bestAxis == 1 ? cMaxY : cMaxZ;
+            middle = partition(start, end, bestAxis == 0 ? centroidX : bestAxis == 1 ? centroidY : centroidZ,
+                    cMin, BIN_COUNT / (cMax - cMin), bestBin);
+        }
+
+        int left = allocator.getAndAdd(2);
+        nodeStart[node] = left;
+        nodeCount[node] = 0;
+        nodeParent[left] = node;
+        nodeParent[left + 1] = node;
+        if (count > PARALLEL_THRESHOLD) {
+            RecursiveAction.invokeAll(new BuildTask(allocator, left, start, middle, depth + 1),
+                    new BuildTask(allocator, left + 1, middle, end, depth + 1));
+        } else {
+            buildNode(allocator, left, start, middle, depth + 1);
+            buildNode(allocator, left + 1, middle, end, depth + 1);
+        }
+    }
+
+    // Primitives des bacs [0, bin) en tête de la plage, retourne le début de la partie droite
+    private int partition(int start, int end, float[] centroids, float cMin, float binScale, int bin) {
+        int i = start;
+        int j = end - 1;
+        while (i <= j) {
+            int prim = order[i];
+            if (Math.min(BIN_COUNT - 1, (int) ((centroids[prim] - cMin) * binScale)) < bin) {
+                i++;
+            } else {
+                order[i] = order[j];
+                order[j] = prim;
+                j--;
+            }
+        }
+        return i;
+    }
+
+    private void makeLeaf(int node, int start, int count) {
+        nodeStart[node] = start;
+        nodeCount[node] = count;
+        for (int i = start; i < start + count; i++) {
+            primLeaf[order[i]] = node;
+        }
+    }
+
+    private static float halfArea(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        float dx = maxX - minX;
+        float dy = maxY - minY;
+        float dz = maxZ - minZ;
+        return dx * dy + dy * dz + dz * dx;
+    }
+
+    // Ajoute à out les entités dont la boîte touche le frustum, retourne leur nombre
+    public int queryFrustum(FrustumCuller frustumCuller, List<Entity> out) {
+        build();
+        if (nodesUsed == 0) {
+            return 0;
+        }
+        int found = 0;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (!frustumCuller.isAabbVisible(nodeMinX[node], nodeMinY[node], nodeMinZ[node], nodeMaxX[node],
+                    nodeMaxY[node], nodeMaxZ[node])) {
+                continue;
+            }
+            int count = nodeCount[node];
+            if (count == 0) {
+                stack[top++] = nodeStart[node] + 1;
+                stack[top++] = nodeStart[node];
+                continue;
+            }
+            for (int i = nodeStart[node]; i < nodeStart[node] + count; i++) {
+                int prim = order[i];
+                if (count == 1 || frustumCuller.isAabbVisible(minX[prim], minY[prim], minZ[prim], maxX[prim],
+                        maxY[prim], maxZ[prim])) {
+                    out.add(entities[prim]);
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    // Ajoute à out les entités dont la boîte intersecte la boîte donnée, retourne leur nombre
+    public int queryAabb(float qMinX, float qMinY, float qMinZ, float qMaxX, float qMaxY, float qMaxZ,
+            List<Entity> out) {
+        build();
+        if (nodesUsed == 0) {
+            return 0;
+        }
+        int found = 0;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (nodeMinX[node] > qMaxX || nodeMaxX[node] < qMinX || nodeMinY[node] > qMaxY
+                    || nodeMaxY[node] < qMinY || nodeMinZ[node] > qMaxZ || nodeMaxZ[node] < qMinZ) {
+                continue;
+            }
+            int count = nodeCount[node];
+            if (count == 0) {
+                stack[top++] = nodeStart[node] + 1;
+                stack[top++] = nodeStart[node];
+                continue;
+            }
+            for (int i = nodeStart[node]; i < nodeStart[node] + count; i++) {
+                int prim = order[i];
+                if (minX[prim] <= qMaxX && maxX[prim] >= qMinX && minY[prim] <= qMaxY && maxY[prim] >= qMinY
+                        && minZ[prim] <= qMaxZ && maxZ[prim] >= qMinZ) {
+                    out.add(entities[prim]);
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    // Entité la plus proche dont la boîte est traversée par le rayon, null si aucune avant maxDistance.
+    // La distance d'entrée dans la boîte est ensuite disponible via getRayDistance()
+    public Entity raycast(float originX, float originY, float originZ, float dirX, float dirY, float dirZ,
+            float maxDistance) {
+        build();
+        rayDistance = Float.NaN;
+        if (nodesUsed == 0) {
+            return null;
+        }
+        float invX = 1.0f / dirX;
+        float invY = 1.0f / dirY;
+        float invZ = 1.0f / dirZ;
+        float best = maxDistance;
+        int bestPrim = -1;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            // Peut avoir été dépassé par une touche trouvée depuis l'empilement
+            if (slab(nodeMinX[node], nodeMinY[node], nodeMinZ[node], nodeMaxX[node], nodeMaxY[node], nodeMaxZ[node],
+                    originX, originY, originZ, invX, invY, invZ, best) > best) {
+                continue;
+            }
+            int count = nodeCount[node];
+            if (count == 0) {
+                // Enfant le plus proche dépilé en premier : les touches rapprochées élaguent l'autre
+                int left = nodeStart[node];
+                int right = left + 1;
+                float leftDistance = slab(nodeMinX[left], nodeMinY[left], nodeMinZ[left], nodeMaxX[left],
+                        nodeMaxY[left], nodeMaxZ[left], originX, originY, originZ, invX, invY, invZ, best);
+                float rightDistance = slab(nodeMinX[right], nodeMinY[right], nodeMinZ[right], nodeMaxX[right],
+                        nodeMaxY[right], nodeMaxZ[right], originX, originY, originZ, invX, invY, invZ, best);
+                boolean leftFirst = leftDistance <= rightDistance;
+                int near = leftFirst ? left : right;
+                int far = leftFirst ? right : left;
+                if ((leftFirst ? rightDistance : leftDistance) <= best) {
+                    stack[top++] = far;
+                }
+                if ((leftFirst ? leftDistance : rightDistance) <= best) {
+                    stack[top++] = near;
+                }
+                continue;
+            }
+            for (int i = nodeStart[node]; i < nodeStart[node] + count; i++) {
+                int prim = order[i];
+                float distance = slab(minX[prim], minY[prim], minZ[prim], maxX[prim], maxY[prim], maxZ[prim],
+                        originX, originY, originZ, invX, invY, invZ, best);
+                if (distance <= best) {
+                    best = distance;
+                    bestPrim = prim;
+                }
+            }
+        }
+        if (bestPrim < 0) {
+            return null;
+        }
+        rayDistance = best;
+        return entities[bestPrim];
+    }
+
+    // Distance d'entrée du rayon dans la boîte (0 si l'origine est dedans), +infini si manquée avant maxDistance
+    private static float slab(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, float originX,
+            float originY, float originZ, float invX, float invY, float invZ, float maxDistance) {
+        float t1 = (minX - originX) * invX;
+        float t2 = (maxX - originX) * invX;
+        float tMin = Math.min(t1, t2);
+        float tMax = Math.max(t1, t2);
+        t1 = (minY - originY) * invY;
+        t2 = (maxY - originY) * invY;
+        tMin = Math.max(tMin, Math.min(t1, t2));
+        tMax = Math.min(tMax, Math.max(t1, t2));
+        t1 = (minZ - originZ) * invZ;
+        t2 = (maxZ - originZ) * invZ;
+        tMin = Math.max(tMin, Math.min(t1, t2));
+        tMax = Math.min(tMax, Math.max(t1, t2));
+        tMin = Math.max(tMin, 0.0f);
+        return tMax >= tMin && tMin <= maxDistance ? tMin : Float.POSITIVE_INFINITY;
+    }
+
+    public boolean contains(Entity entity) {
+        return indices.containsKey(entity);
+    }
+
+    public int getNodeCount() {
+        build();
+        return nodesUsed;
+    }
+
+    // Distance de la dernière touche de raycast(), NaN si aucune
+    public float getRayDistance() {
+        return rayDistance;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private class BuildTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicInteger allocator;
+        private final int depth;
+        private final int end;
+        private final int node;
+        private final int start;
+
+        BuildTask(AtomicInteger allocator, int node, int start, int end, int depth) {
+            this.allocator = allocator;
+            this.node = node;
+            this.start = start;
+            this.end = end;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            buildNode(allocator, node, start, end, depth);
+        }
+    }
+}
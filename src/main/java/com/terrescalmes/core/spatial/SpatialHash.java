@@ -0,0 +1,458 @@
+package com.terrescalmes.core.spatial;
+
+import java.util.*;
+
+import com.terrescalmes.entities.Entity;
+
+// Grille uniforme creuse sur le plan XZ pour les entités mobiles : seules les cellules occupées existent,
+// rangées dans une table à adressage ouvert indexée par les coordonnées de cellule.
+// Chaque entité reçoit un handle entier ; les entités d'une cellule forment une liste chaînée dans des tableaux
+// (next/prev par handle), donc insertion, déplacement et retrait sont en O(1) sans allocation.
+// L'entité retrouve son handle par une table d'identité à adressage ouvert (clés Entity, valeurs int) : pas
+// d'Integer en boîte comme avec une Map.
+// Les requêtes remplissent des tableaux fournis par l'appelant et testent la position exacte (y compris Y).
+// Pas thread-safe : les mises à jour et les requêtes doivent venir du même thread (la boucle de mise à jour)
+public class SpatialHash {
+
+    private static final int EMPTY = -1;
+    private static final float MAX_LOAD = 0.5f;
+
+    private final float cellSize;
+    private final float invCellSize;
+
+    // Entités, par handle. Un handle libre est chaîné dans freeHandles via next
+    private Entity[] entities;
+    private int[] entityCell; // Index de la cellule dans la table, EMPTY si handle libre
+    private int[] next;
+    private int[] prev;
+    private float[] posX;
+    private float[] posY;
+    private float[] posZ;
+    private int freeHandles;
+    private int handleCount; // Handles déjà distribués, libres compris
+    private int size;
+
+    // Table entité -> handle, sondage linéaire sur System.identityHashCode, null = case libre
+    private Entity[] handleKeys;
+    private int[] handleValues;
+    private int handleMask;
+
+    // Table des cellules : clé = coordonnées (x, z) sur 32 bits chacune, head = premier handle de la liste
+    private long[] cellKeys;
+    private int[] cellHeads;
+    private boolean[] cellUsed;
+    private int cellCount;
+    private int cellMask;
+    // Tables de la taille courante gardées pour le prochain rehash qui ne grandit pas : les entités qui se
+    // déplacent laissent des cellules vides, leur purge régulière ne doit pas allouer
+    private long[] spareKeys;
+    private int[] spareHeads;
+    private boolean[] spareUsed;
+
+    public SpatialHash(float cellSize) {
+        this(cellSize, 256);
+    }
+
+    public SpatialHash(float cellSize, int initialCapacity) {
+        if (cellSize <= 0.0f) {
+            throw new IllegalArgumentException("Invalid cell size [" + cellSize + "]");
+        }
+        this.cellSize = cellSize;
+        invCellSize = 1.0f / cellSize;
+        int capacity = Math.max(16, initialCapacity);
+        entities = new Entity[capacity];
+        entityCell = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        posX = new float[capacity];
+        posY = new float[capacity];
+        posZ = new float[capacity];
+        freeHandles = EMPTY;
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) * 2;
+        handleKeys = new Entity[tableSize];
+        handleValues = new int[tableSize];
+        handleMask = tableSize - 1;
+        allocateCells(tableSize);
+    }
+
+    private void allocateCells(int tableSize) {
+        if (spareKeys != null && spareKeys.length == tableSize) {
+            cellKeys = spareKeys;
+            cellHeads = spareHeads;
+            cellUsed = spareUsed;
+            Arrays.fill(cellUsed, false);
+        } else {
+            cellKeys = new long[tableSize];
+            cellHeads = new int[tableSize];
+            cellUsed = new boolean[tableSize];
+        }
+        spareKeys = null;
+        spareHeads = null;
+        spareUsed = null;
+        cellMask = tableSize - 1;
+        cellCount = 0;
+    }
+
+    // Insère l'entité à sa position courante, retourne son handle
+    public int insert(Entity entity) {
+        if (findHandle(entity) != EMPTY) {
+            throw new IllegalArgumentException("Entity already indexed [" + entity.getId() + "]");
+        }
+        int handle = freeHandles;
+        if (handle != EMPTY) {
+            freeHandles = next[handle];
+        } else {
+            if (handleCount == entities.length) {
+                growEntities(handleCount * 2);
+            }
+            handle = handleCount++;
+        }
+        entities[handle] = entity;
+        putHandle(entity, handle);
+        size++;
+
+        float x = entity.getPosition().x;
+        float y = entity.getPosition().y;
+        float z = entity.getPosition().z;
+        posX[handle] = x;
+        posY[handle] = y;
+        posZ[handle] = z;
+        link(handle, findOrCreateCell(cellCoord(x), cellCoord(z)));
+        return handle;
+    }
+
+    private void growEntities(int capacity) {
+        entities = Arrays.copyOf(entities, capacity);
+        entityCell = Arrays.copyOf(entityCell, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        posX = Arrays.copyOf(posX, capacity);
+        posY = Arrays.copyOf(posY, capacity);
+        posZ = Arrays.copyOf(posZ, capacity);
+    }
+
+    public boolean remove(Entity entity) {
+        int handle = findHandle(entity);
+        if (handle == EMPTY) {
+            return false;
+        }
+        remove(handle);
+        return true;
+    }
+
+    public void remove(int handle) {
+        removeHandle(entities[handle]);
+        unlink(handle);
+        entities[handle] = null;
+        entityCell[handle] = EMPTY;
+        next[handle] = freeHandles;
+        freeHandles = handle;
+        size--;
+    }
+
+    // Reprend la position courante de l'entité. Retourne false si elle n'est pas indexée
+    public boolean update(Entity entity) {
+        int handle = findHandle(entity);
+        if (handle == EMPTY) {
+            return false;
+        }
+        update(handle);
+        return true;
+    }
+
+    public void update(int handle) {
+        Entity entity = entities[handle];
+        move(handle, entity.getPosition().x, entity.getPosition().y, entity.getPosition().z);
+    }
+
+    // Ne touche aux listes que si l'entité change de cellule
+    public void move(int handle, float x, float y, float z) {
+        posX[handle] = x;
+        posY[handle] = y;
+        posZ[handle] = z;
+        int cellX = cellCoord(x);
+        int cellZ = cellCoord(z);
+        int cell = entityCell[handle];
+        if (cellKeys[cell] == key(cellX, cellZ)) {
+            return;
+        }
+        unlink(handle);
+        link(handle, findOrCreateCell(cellX, cellZ));
+    }
+
+    private int findHandle(Entity entity) {
+        int index = identityHash(entity) & handleMask;
+        for (Entity key = handleKeys[index]; key != null; key = handleKeys[index]) {
+            if (key == entity) {
+                return handleValues[index];
+            }
+            index = (index + 1) & handleMask;
+        }
+        return EMPTY;
+    }
+
+    private void putHandle(Entity entity, int handle) {
+        if (size + 1 > (handleMask + 1) * MAX_LOAD) {
+            growHandleTable();
+        }
+        int index = identityHash(entity) & handleMask;
+        while (handleKeys[index] != null) {
+            index = (index + 1) & handleMask;
+        }
+        handleKeys[index] = entity;
+        handleValues[index] = handle;
+    }
+
+    // Retrait sans pierre tombale : les entrées suivantes de la même suite de sondage sont décalées dans le trou
+    private void removeHandle(Entity entity) {
+        int hole = identityHash(entity) & handleMask;
+        while (handleKeys[hole] != entity) {
+            hole = (hole + 1) & handleMask;
+        }
+        int index = hole;
+        while (true) {
+            index = (index + 1) & handleMask;
+            Entity key = handleKeys[index];
+            if (key == null) {
+                break;
+            }
+            // L'entrée peut combler le trou si sa case idéale n'est pas entre le trou (exclu) et elle (inclus)
+            int ideal = identityHash(key) & handleMask;
+            if (((index - ideal) & handleMask) >= ((index - hole) & handleMask)) {
+                handleKeys[hole] = key;
+                handleValues[hole] = handleValues[index];
+                hole = index;
+            }
+        }
+        handleKeys[hole] = null;
+    }
+
+    private void growHandleTable() {
+        Entity[] oldKeys = handleKeys;
+        int[] oldValues = handleValues;
+        handleKeys = new Entity[oldKeys.length * 2];
+        handleValues = new int[oldKeys.length * 2];
+        handleMask = handleKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            Entity key = oldKeys[i];
+            if (key == null) {
+                continue;
+            }
+            int index = identityHash(key) & handleMask;
+            while (handleKeys[index] != null) {
+                index = (index + 1) & handleMask;
+            }
+            handleKeys[index] = key;
+            handleValues[index] = oldValues[i];
+        }
+    }
+
+    // Les identityHashCode proches sont dispersés (constante de Fibonacci)
+    private static int identityHash(Entity entity) {
+        int hash = System.identityHashCode(entity) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private void link(int handle, int cell) {
+        int head = cellHeads[cell];
+        next[handle] = head;
+        prev[handle] = EMPTY;
+        if (head != EMPTY) {
+            prev[head] = handle;
+        }
+        cellHeads[cell] = handle;
+        entityCell[handle] = cell;
+    }
+
+    // Une cellule vidée reste dans la table (pas de pierre tombale), elle est purgée au prochain agrandissement
+    private void unlink(int handle) {
+        int previous = prev[handle];
+        int following = next[handle];
+        if (previous != EMPTY) {
+            next[previous] = following;
+        } else {
+            cellHeads[entityCell[handle]] = following;
+        }
+        if (following != EMPTY) {
+            prev[following] = previous;
+        }
+    }
+
+    private int findOrCreateCell(int cellX, int cellZ) {
+        long key = key(cellX, cellZ);
+        int index = hash(key) & cellMask;
+        while (cellUsed[index]) {
+            if (cellKeys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & cellMask;
+        }
+        if (cellCount + 1 > (cellMask + 1) * MAX_LOAD) {
+            rehash();
+            return findOrCreateCell(cellX, cellZ);
+        }
+        cellUsed[index] = true;
+        cellKeys[index] = key;
+        cellHeads[index] = EMPTY;
+        cellCount++;
+        return index;
+    }
+
+    private int findCell(int cellX, int cellZ) {
+        long key = key(cellX, cellZ);
+        int index = hash(key) & cellMask;
+        while (cellUsed[index]) {
+            if (cellKeys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & cellMask;
+        }
+        return EMPTY;
+    }
+
+    // Réinsère les cellules non vides, la table double si elles occupent encore plus d'un quart des cases
+    private void rehash() {
+        long[] oldKeys = cellKeys;
+        int[] oldHeads = cellHeads;
+        boolean[] oldUsed = cellUsed;
+        int occupied = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i] && oldHeads[i] != EMPTY) {
+                occupied++;
+            }
+        }
+        int tableSize = oldKeys.length;
+        while (occupied + 1 > tableSize * MAX_LOAD * 0.5f) {
+            tableSize *= 2;
+        }
+        allocateCells(tableSize);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int head = oldHeads[i];
+            if (!oldUsed[i] || head == EMPTY) {
+                continue;
+            }
+            int index = hash(oldKeys[i]) & cellMask;
+            while (cellUsed[index]) {
+                index = (index + 1) & cellMask;
+            }
+            cellUsed[index] = true;
+            cellKeys[index] = oldKeys[i];
+            cellHeads[index] = head;
+            cellCount++;
+            for (int handle = head; handle != EMPTY; handle = next[handle]) {
+                entityCell[handle] = index;
+            }
+        }
+        spareKeys = oldKeys;
+        spareHeads = oldHeads;
+        spareUsed = oldUsed;
+    }
+
+    // Handles des entités à moins de radius de (x, y, z), écrits dans out. Retourne le nombre trouvé,
+    // plafonné à out.length
+    public int queryRadius(float x, float y, float z, float radius, int[] out) {
+        float radiusSq = radius * radius;
+        int minCellX = cellCoord(x - radius);
+        int maxCellX = cellCoord(x + radius);
+        int minCellZ = cellCoord(z - radius);
+        int maxCellZ = cellCoord(z + radius);
+        int found = 0;
+        for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                int cell = findCell(cellX, cellZ);
+                if (cell == EMPTY) {
+                    continue;
+                }
+                for (int handle = cellHeads[cell]; handle != EMPTY; handle = next[handle]) {
+                    float dx = posX[handle] - x;
+                    float dy = posY[handle] - y;
+                    float dz = posZ[handle] - z;
+                    if (dx * dx + dy * dy + dz * dz <= radiusSq) {
+                        if (found == out.length) {
+                            return found;
+                        }
+                        out[found++] = handle;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    // Handles des entités dont la position est dans [min, max], écrits dans out. Retourne le nombre trouvé,
+    // plafonné à out.length
+    public int queryBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, int[] out) {
+        int minCellX = cellCoord(minX);
+        int maxCellX = cellCoord(maxX);
+        int minCellZ = cellCoord(minZ);
+        int maxCellZ = cellCoord(maxZ);
+        int found = 0;
+        for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                int cell = findCell(cellX, cellZ);
+                if (cell == EMPTY) {
+                    continue;
+                }
+                for (int handle = cellHeads[cell]; handle != EMPTY; handle = next[handle]) {
+                    float px = posX[handle];
+                    float py = posY[handle];
+                    float pz = posZ[handle];
+                    if (px >= minX && px <= maxX && py >= minY && py <= maxY && pz >= minZ && pz <= maxZ) {
+                        if (found == out.length) {
+                            return found;
+                        }
+                        out[found++] = handle;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private int cellCoord(float value) {
+        return (int) Math.floor(value * invCellSize);
+    }
+
+    private static long key(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    // Finaliseur de MurmurHash3 : les cellules voisines ne tombent pas dans des cases voisines
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    public Entity getEntity(int handle) {
+        return entities[handle];
+    }
+
+    // Handle de l'entité, -1 si elle n'est pas indexée
+    public int getHandle(Entity entity) {
+        return findHandle(entity);
+    }
+
+    public float getX(int handle) {
+        return posX[handle];
+    }
+
+    public float getY(int handle) {
+        return posY[handle];
+    }
+
+    public float getZ(int handle) {
+        return posZ[handle];
+    }
+
+    public int size() {
+        return size;
+    }
+}
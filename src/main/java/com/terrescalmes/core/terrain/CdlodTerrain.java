@@ -0,0 +1,270 @@
+package com.terrescalmes.core.terrain;
+
+import org.joml.FrustumIntersection;
+import org.joml.Vector3f;
+
+import com.terrescalmes.core.TerrainGenerator;
+
+// Terrain CDLOD (Continuous Distance-Dependent Level of Detail, Strugar 2009) :
+// un quadtree implicite sur une heightmap carrée, sélectionné chaque frame selon la distance à la caméra.
+// Tous les nœuds sont dessinés avec la même grille GRID_SIZE x GRID_SIZE, seule leur taille change :
+// le nombre de triangles dépend de la portée des niveaux, pas de la surface du terrain.
+public class CdlodTerrain {
+
+    public static final int GRID_SIZE = 32; // Quads par côté de la grille partagée par tous les nœuds
+    public static final int FULL_NODE = 0xF; // Masque des quatre quadrants d'un nœud
+
+    private static final float LEAF_RANGE_RATIO = 2.0f; // Portée du niveau 0, en tailles de feuille
+    private static final float MORPH_START_RATIO = 0.7f; // Début de la transition dans chaque portée
+    private static final int MAX_SELECTION = 4096;
+
+    private final Heightfield heightfield;
+    private final int levels;
+    private final float[][] maxHeights;
+    private final float[][] minHeights;
+    private final float[] morphEnd;
+    private final float[] morphStart;
+    private final int[] nodeCounts;
+    private final float originX;
+    private final float originZ;
+    private final float[] ranges;
+    private final int size;
+    private final float worldSize;
+
+    // Sélection de la frame courante, tableaux réutilisés d'une frame à l'autre
+    private final int[] selectedLevel;
+    private final int[] selectedMask;
+    private final float[] selectedX;
+    private final float[] selectedZ;
+    private int selectedCount;
+    private int selectedTriangles;
+
+    private FrustumIntersection frustum;
+    private HorizonCuller horizonCuller;
+    private float cameraX;
+    private float cameraY;
+    private float cameraZ;
+
+    // size sommets par côté, (size - 1) doit être GRID_SIZE fois une puissance de deux (1025, 2049, 4097...).
+    // gridOriginX/gridOriginZ en coordonnées de grille monde, comme TerrainGenerator.generateHeightMap
+    public CdlodTerrain(int gridOriginX, int gridOriginZ, int size) {
+        int leafCount = (size - 1) / GRID_SIZE;
+        if (size < GRID_SIZE + 1 || (size - 1) % GRID_SIZE != 0 || Integer.bitCount(leafCount) != 1) {
+            throw new IllegalArgumentException("Invalid CDLOD terrain size [" + size + "]");
+        }
+        this.size = size;
+        originX = gridOriginX * TerrainGenerator.TERRAIN_SCALE;
+        originZ = gridOriginZ * TerrainGenerator.TERRAIN_SCALE;
+        worldSize = (size - 1) * TerrainGenerator.TERRAIN_SCALE;
+        levels = Integer.numberOfTrailingZeros(leafCount) + 1;
+
+        heightfield = Heightfield.quantize(TerrainGenerator.generateHeightMap(gridOriginX, gridOriginZ, size), size);
+
+        nodeCounts = new int[levels];
+        minHeights = new float[levels][];
+        maxHeights = new float[levels][];
+        buildMinMax();
+
+        ranges = new float[levels];
+        morphStart = new float[levels];
+        morphEnd = new float[levels];
+        float leafWorldSize = GRID_SIZE * TerrainGenerator.TERRAIN_SCALE;
+        float previousRange = 0.0f;
+        for (int level = 0; level < levels; level++) {
+            ranges[level] = leafWorldSize * LEAF_RANGE_RATIO * (1 << level);
+            morphEnd[level] = ranges[level];
+            morphStart[level] = previousRange + (ranges[level] - previousRange) * MORPH_START_RATIO;
+            previousRange = ranges[level];
+        }
+
+        selectedLevel = new int[MAX_SELECTION];
+        selectedMask = new int[MAX_SELECTION];
+        selectedX = new float[MAX_SELECTION];
+        selectedZ = new float[MAX_SELECTION];
+    }
+
+    // Pyramide min/max des hauteurs : boîtes englobantes exactes pour la sélection
+    private void buildMinMax() {
+        int leafCount = (size - 1) / GRID_SIZE;
+        nodeCounts[0] = leafCount;
+        minHeights[0] = new float[leafCount * leafCount];
+        maxHeights[0] = new float[leafCount * leafCount];
+        for (int nz = 0; nz < leafCount; nz++) {
+            for (int nx = 0; nx < leafCount; nx++) {
+                float min = Float.MAX_VALUE;
+                float max = -Float.MAX_VALUE;
+                for (int z = nz * GRID_SIZE; z <= (nz + 1) * GRID_SIZE; z++) {
+                    for (int x = nx * GRID_SIZE; x <= (nx + 1) * GRID_SIZE; x++) {
+                        float height = heightfield.getHeight(x, z);
+                        min = Math.min(min, height);
+                        max = Math.max(max, height);
+                    }
+                }
+                minHeights[0][nz * leafCount + nx] = min;
+                maxHeights[0][nz * leafCount + nx] = max;
+            }
+        }
+
+        for (int level = 1; level < levels; level++) {
+            int count = nodeCounts[level - 1] / 2;
+            int childCount = nodeCounts[level - 1];
+            float[] childMin = minHeights[level - 1];
+            float[] childMax = maxHeights[level - 1];
+            nodeCounts[level] = count;
+            minHeights[level] = new float[count * count];
+            maxHeights[level] = new float[count * count];
+            for (int nz = 0; nz < count; nz++) {
+                for (int nx = 0; nx < count; nx++) {
+                    int child = nz * 2 * childCount + nx * 2;
+                    minHeights[level][nz * count + nx] = Math.min(
+                            Math.min(childMin[child], childMin[child + 1]),
+                            Math.min(childMin[child + childCount], childMin[child + childCount + 1]));
+                    maxHeights[level][nz * count + nx] = Math.max(
+                            Math.max(childMax[child], childMax[child + 1]),
+                            Math.max(childMax[child + childCount], childMax[child + childCount + 1]));
+                }
+            }
+        }
+    }
+
+    // Sélectionne les nœuds à dessiner pour cette frame. frustum et horizonCuller peuvent être null (sans culling)
+    public void select(Vector3f cameraPosition, FrustumIntersection frustum, HorizonCuller horizonCuller) {
+        this.frustum = frustum;
+        this.horizonCuller = horizonCuller;
+        cameraX = cameraPosition.x;
+        cameraY = cameraPosition.y;
+        cameraZ = cameraPosition.z;
+        selectedCount = 0;
+        selectedTriangles = 0;
+        long start = horizonCuller != null ? System.nanoTime() : 0;
+        selectNode(levels - 1, 0, 0);
+        if (horizonCuller != null) {
+            horizonCuller.addTestNanos(System.nanoTime() - start);
+        }
+    }
+
+    // Retourne false si le nœud est hors de la portée de son niveau : le parent dessine alors ce quadrant
+    private boolean selectNode(int level, int nx, int nz) {
+        float nodeSize = getNodeSize(level);
+        float minX = originX + nx * nodeSize;
+        float minZ = originZ + nz * nodeSize;
+        int nodeIndex = nz * nodeCounts[level] + nx;
+        float minY = minHeights[level][nodeIndex];
+        float maxY = maxHeights[level][nodeIndex];
+
+        if (!intersectsSphere(minX, minY, minZ, minX + nodeSize, maxY, minZ + nodeSize, ranges[level])) {
+            return false;
+        }
+        // Hors du frustum ou sous l'horizon : considéré comme traité, ni lui ni son parent ne le dessinent
+        if (frustum != null && !frustum.testAab(minX, minY, minZ, minX + nodeSize, maxY, minZ + nodeSize)) {
+            return true;
+        }
+        if (horizonCuller != null
+                && !horizonCuller.isAabbVisible(minX, minY, minZ, minX + nodeSize, maxY, minZ + nodeSize)) {
+            return true;
+        }
+
+        if (level == 0
+                || !intersectsSphere(minX, minY, minZ, minX + nodeSize, maxY, minZ + nodeSize, ranges[level - 1])) {
+            addSelection(level, minX, minZ, FULL_NODE);
+            return true;
+        }
+
+        // Les enfants couvrent ce qu'ils peuvent, ce nœud dessine les quadrants restants
+        int mask = 0;
+        for (int quadrant = 0; quadrant < 4; quadrant++) {
+            if (!selectNode(level - 1, nx * 2 + (quadrant & 1), nz * 2 + (quadrant >> 1))) {
+                mask |= 1 << quadrant;
+            }
+        }
+        if (mask != 0) {
+            addSelection(level, minX, minZ, mask);
+        }
+        return true;
+    }
+
+    private void addSelection(int level, float x, float z, int mask) {
+        if (selectedCount == MAX_SELECTION) {
+            return;
+        }
+        selectedLevel[selectedCount] = level;
+        selectedX[selectedCount] = x;
+        selectedZ[selectedCount] = z;
+        selectedMask[selectedCount] = mask;
+        selectedCount++;
+        selectedTriangles += Integer.bitCount(mask) * GRID_SIZE * GRID_SIZE / 2;
+    }
+
+    private boolean intersectsSphere(float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+            float radius) {
+        float dx = Math.max(Math.max(minX - cameraX, 0.0f), cameraX - maxX);
+        float dy = Math.max(Math.max(minY - cameraY, 0.0f), cameraY - maxY);
+        float dz = Math.max(Math.max(minZ - cameraZ, 0.0f), cameraZ - maxZ);
+        return dx * dx + dy * dy + dz * dz <= radius * radius;
+    }
+
+    public Heightfield getHeightfield() {
+        return heightfield;
+    }
+
+    public int getLevels() {
+        return levels;
+    }
+
+    public float getMorphEnd(int level) {
+        return morphEnd[level];
+    }
+
+    public float getMorphStart(int level) {
+        return morphStart[level];
+    }
+
+    public float getNodeSize(int level) {
+        return GRID_SIZE * TerrainGenerator.TERRAIN_SCALE * (1 << level);
+    }
+
+    public float getOriginX() {
+        return originX;
+    }
+
+    public float getOriginZ() {
+        return originZ;
+    }
+
+    // Distance de vue maximale : portée du niveau le plus grossier
+    public float getRange() {
+        return ranges[levels - 1];
+    }
+
+    public int getSelectedCount() {
+        return selectedCount;
+    }
+
+    public int getSelectedLevel(int index) {
+        return selectedLevel[index];
+    }
+
+    public int getSelectedMask(int index) {
+        return selectedMask[index];
+    }
+
+    public int getSelectedTriangleCount() {
+        return selectedTriangles;
+    }
+
+    public float getSelectedX(int index) {
+        return selectedX[index];
+    }
+
+    public float getSelectedZ(int index) {
+        return selectedZ[index];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public float getWorldSize() {
+        return worldSize;
+    }
+}
@@ -0,0 +1,402 @@
+package com.terrescalmes.core.terrain;
+
+import org.joml.Vector3f;
+
+import com.terrescalmes.core.TerrainGenerator;
+import com.terrescalmes.core.TerrainGenerator.ChunkMeshData;
+import com.terrescalmes.core.graphics.HeightAtlas;
+import com.terrescalmes.core.graphics.Model;
+import com.terrescalmes.core.graphics.Scene;
+import com.terrescalmes.entities.Entity;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ChunkManager {
+
+    private static final int DEFAULT_VIEW_DISTANCE = 6; // Rayon de chargement, en chunks
+    private static final int UNLOAD_MARGIN = 1; // Hystérésis pour éviter de recharger en bordure
+    private static final int MAX_UPLOADS_PER_FRAME = 2; // Budget d'envois GPU par frame
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5; // Attente des threads de travail à la fermeture
+
+    // Hauteurs décodées le temps du maillage, un tableau par thread de travail
+    private static final ThreadLocal<float[]> DECODE_BUFFER = ThreadLocal.withInitial(
+            () -> new float[TerrainGenerator.CHUNK_HEIGHTS_SIZE * TerrainGenerator.CHUNK_HEIGHTS_SIZE]);
+
+    private final Map<Long, TerrainChunk> chunks;
+    private final Queue<TerrainChunk> failedQueue; // Chunks dont la génération a échoué, à reprogrammer
+    private final AtomicLong generatedCount;
+    private final AtomicLong generateNanos;
+    private final HeightAtlas heightAtlas; // Non null en mode déplacement GPU
+    private final AtomicInteger pendingTasks;
+    private final Queue<TerrainChunk> readyQueue;
+    private final Scene scene;
+    private final TerrainQuery terrainQuery;
+    private final ChunkStore store; // Null : tout est regénéré à chaque lancement
+    private final AtomicLong storeLoadCount;
+    private final AtomicLong storeLoadNanos;
+    private final ExecutorService workers;
+    private volatile boolean closing;
+    private int centerX;
+    private int centerZ;
+    private boolean centerValid;
+    private long loadedCount;
+    private long unloadedCount;
+    private int viewDistance;
+
+    public ChunkManager(Scene scene) {
+        this(scene, false, null);
+    }
+
+    // gpuDisplacement : seules les hauteurs sont envoyées, dans un atlas lu par le vertex shader du terrain,
+    // au lieu d'un Mesh complet (positions, normales, coordonnées de texture et indices) par chunk
+    // store peut être null, sinon les chunks déjà générés lors d'un lancement précédent y sont relus
+    public ChunkManager(Scene scene, boolean gpuDisplacement, ChunkStore store) {
+        this.scene = scene;
+        this.store = store;
+        generatedCount = new AtomicLong();
+        generateNanos = new AtomicLong();
+        storeLoadCount = new AtomicLong();
+        storeLoadNanos = new AtomicLong();
+        terrainQuery = new TerrainQuery();
+        chunks = new HashMap<>();
+        pendingTasks = new AtomicInteger();
+        readyQueue = new ConcurrentLinkedQueue<>();
+        failedQueue = new ConcurrentLinkedQueue<>();
+        viewDistance = DEFAULT_VIEW_DISTANCE;
+
+        if (gpuDisplacement) {
+            // Assez d'emplacements pour le carré englobant le rayon de déchargement
+            int slotsPerSide = 2 * (viewDistance + UNLOAD_MARGIN) + 1;
+            heightAtlas = new HeightAtlas(TerrainGenerator.CHUNK_HEIGHTS_SIZE, slotsPerSide);
+            scene.setHeightAtlas(heightAtlas);
+        } else {
+            heightAtlas = null;
+        }
+
+        int numWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(numWorkers, runnable -> {
+            Thread thread = new Thread(runnable, "terrain-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    // Les tâches en cours finissent d'écrire leur chunk avant la fermeture du stockage, celles en file sont
+    // abandonnées. Interruption seulement si elles ne rendent pas la main dans le délai
+    public void cleanup() {
+        closing = true;
+        workers.shutdown();
+        readyQueue.clear();
+        failedQueue.clear();
+        if (heightAtlas != null) {
+            scene.setHeightAtlas(null);
+            heightAtlas.cleanup();
+        }
+        try {
+            if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+                if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    System.err.println("Threads de génération des chunks toujours actifs à la fermeture");
+                }
+            }
+        } catch (InterruptedException excp) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException excp) {
+                System.err.println("Erreur lors de la fermeture du stockage des chunks: " + excp.getMessage());
+            }
+        }
+    }
+
+    // Hauteurs du chunk s'il est chargé, null sinon. Thread OpenGL uniquement
+    public Heightfield getHeightfield(int chunkX, int chunkZ) {
+        TerrainChunk chunk = chunks.get(TerrainChunk.key(chunkX, chunkZ));
+        return chunk != null && chunk.getState() == TerrainChunk.State.LOADED ? chunk.getHeightfield() : null;
+    }
+
+    // Hauteurs des chunks chargés, interrogeables depuis n'importe quel thread
+    public TerrainQuery getTerrainQuery() {
+        return terrainQuery;
+    }
+
+    public long getGeneratedCount() {
+        return generatedCount.get();
+    }
+
+    // Temps moyen de génération d'un chunk (bruit et mesh), en millisecondes
+    public double getAverageGenerateMillis() {
+        long count = generatedCount.get();
+        return count == 0 ? 0.0 : generateNanos.get() / 1_000_000.0 / count;
+    }
+
+    // Temps moyen de préparation d'un chunk relu depuis le disque (lecture et mesh), en millisecondes
+    public double getAverageStoreLoadMillis() {
+        long count = storeLoadCount.get();
+        return count == 0 ? 0.0 : storeLoadNanos.get() / 1_000_000.0 / count;
+    }
+
+    public long getStoreLoadCount() {
+        return storeLoadCount.get();
+    }
+
+    public int getActiveChunkCount() {
+        return chunks.size();
+    }
+
+    public long getLoadedCount() {
+        return loadedCount;
+    }
+
+    public int getQueueDepth() {
+        return pendingTasks.get() + readyQueue.size();
+    }
+
+    public long getUnloadedCount() {
+        return unloadedCount;
+    }
+
+    public int getViewDistance() {
+        return viewDistance;
+    }
+
+    public void setViewDistance(int viewDistance) {
+        this.viewDistance = viewDistance;
+        centerValid = false;
+    }
+
+    // Appelé une fois par frame sur le thread OpenGL
+    public void update(Vector3f cameraPosition) {
+        int cameraChunkX = (int) Math.floor(cameraPosition.x / TerrainGenerator.CHUNK_WORLD_SIZE);
+        int cameraChunkZ = (int) Math.floor(cameraPosition.z / TerrainGenerator.CHUNK_WORLD_SIZE);
+        releaseFailedChunks();
+        if (!centerValid || cameraChunkX != centerX || cameraChunkZ != centerZ) {
+            centerX = cameraChunkX;
+            centerZ = cameraChunkZ;
+            centerValid = true;
+            unloadFarChunks();
+            scheduleMissingChunks();
+        }
+        uploadReadyChunks();
+    }
+
+    // Un chunk en échec resterait QUEUED dans chunks et ne serait jamais reprogrammé : il en est retiré et
+    // scheduleMissingChunks repasse à cette frame
+    private void releaseFailedChunks() {
+        TerrainChunk chunk;
+        while ((chunk = failedQueue.poll()) != null) {
+            // Déjà déchargé, voire remplacé par un nouveau chunk aux mêmes coordonnées
+            if (chunks.get(chunk.getKey()) != chunk) {
+                continue;
+            }
+            chunks.remove(chunk.getKey());
+            chunk.setState(TerrainChunk.State.UNLOADED);
+            chunk.setMeshData(null);
+            chunk.setHeights(null);
+            chunk.setHeightfield(null);
+            centerValid = false;
+        }
+    }
+
+    private void scheduleMissingChunks() {
+        List<int[]> missing = new ArrayList<>();
+        int radiusSq = viewDistance * viewDistance;
+        for (int dz = -viewDistance; dz <= viewDistance; dz++) {
+            for (int dx = -viewDistance; dx <= viewDistance; dx++) {
+                if (dx * dx + dz * dz > radiusSq) {
+                    continue;
+                }
+                int chunkX = centerX + dx;
+                int chunkZ = centerZ + dz;
+                if (!chunks.containsKey(TerrainChunk.key(chunkX, chunkZ))) {
+                    missing.add(new int[] { chunkX, chunkZ, dx * dx + dz * dz });
+                }
+            }
+        }
+
+        // Les chunks les plus proches de la caméra sont générés en premier
+        missing.sort(Comparator.comparingInt(c -> c[2]));
+        for (int[] coords : missing) {
+            TerrainChunk chunk = new TerrainChunk(coords[0], coords[1]);
+            chunks.put(chunk.getKey(), chunk);
+            pendingTasks.incrementAndGet();
+            workers.execute(() -> generateChunk(chunk));
+        }
+    }
+
+    // Exécuté sur un thread de travail : aucun appel OpenGL ni accès à la scène
+    private void generateChunk(TerrainChunk chunk) {
+        try {
+            // Chunk déjà sorti du rayon de vue pendant qu'il attendait son tour, ou fermeture en cours
+            if (closing || chunk.getState() == TerrainChunk.State.UNLOADED) {
+                return;
+            }
+            long start = System.nanoTime();
+            Heightfield heightfield = loadStoredHeightfield(chunk);
+            boolean stored = heightfield != null;
+            long saveNanos = 0;
+            if (!stored) {
+                heightfield = Heightfield.quantize(
+                        TerrainGenerator.generateChunkHeights(chunk.getChunkX(), chunk.getChunkZ()),
+                        TerrainGenerator.CHUNK_HEIGHTS_SIZE);
+                long saveStart = System.nanoTime();
+                saveHeightfield(chunk, heightfield);
+                saveNanos = System.nanoTime() - saveStart;
+            }
+            chunk.setHeightfield(heightfield);
+
+            // Maillage à partir des hauteurs décodées : même résultat que le chunk vienne du disque ou du bruit
+            if (heightAtlas != null) {
+                chunk.setHeights(heightfield.decode(new float[heightfield.getSamples().length]));
+            } else {
+                float[] heights = heightfield.decode(DECODE_BUFFER.get());
+                ChunkMeshData meshData = TerrainGenerator.generateChunkMeshData(chunk.getChunkX(),
+                        chunk.getChunkZ(), heights);
+                chunk.setMeshData(meshData);
+            }
+
+            // Le temps de sauvegarde n'est pas compté : seul le coût d'obtention du chunk nous intéresse
+            long elapsed = System.nanoTime() - start - saveNanos;
+            if (stored) {
+                storeLoadCount.incrementAndGet();
+                storeLoadNanos.addAndGet(elapsed);
+            } else {
+                generatedCount.incrementAndGet();
+                generateNanos.addAndGet(elapsed);
+            }
+            readyQueue.add(chunk);
+        } catch (Exception excp) {
+            System.err.println("Erreur lors de la génération du chunk [" + chunk.getChunkX() + ", "
+                    + chunk.getChunkZ() + "]: " + excp.getMessage());
+            failedQueue.add(chunk);
+        } finally {
+            pendingTasks.decrementAndGet();
+        }
+    }
+
+    private Heightfield loadStoredHeightfield(TerrainChunk chunk) {
+        if (store == null) {
+            return null;
+        }
+        try {
+            return store.load(chunk.getChunkX(), chunk.getChunkZ());
+        } catch (IOException excp) {
+            // Fichier illisible : le chunk est regénéré puis réécrit
+            System.err.println("Erreur lors de la lecture du chunk [" + chunk.getChunkX() + ", "
+                    + chunk.getChunkZ() + "]: " + excp.getMessage());
+            return null;
+        }
+    }
+
+    private void saveHeightfield(TerrainChunk chunk, Heightfield heightfield) {
+        if (store == null) {
+            return;
+        }
+        try {
+            store.save(chunk.getChunkX(), chunk.getChunkZ(), heightfield);
+        } catch (IOException excp) {
+            System.err.println("Erreur lors de la sauvegarde du chunk [" + chunk.getChunkX() + ", "
+                    + chunk.getChunkZ() + "]: " + excp.getMessage());
+        }
+    }
+
+    private void uploadReadyChunks() {
+        int uploads = 0;
+        while (uploads < MAX_UPLOADS_PER_FRAME) {
+            TerrainChunk chunk = readyQueue.poll();
+            if (chunk == null) {
+                break;
+            }
+            if (chunk.getState() != TerrainChunk.State.QUEUED) {
+                continue;
+            }
+            if (heightAtlas != null) {
+                if (!uploadChunkHeights(chunk)) {
+                    // Atlas plein (rayon de vue agrandi) : nouvel essai quand des chunks auront été retirés
+                    readyQueue.add(chunk);
+                    break;
+                }
+                uploads++;
+                continue;
+            }
+
+            Model model = TerrainGenerator.createChunkModel(chunk.getModelId(), chunk.getMeshData());
+            scene.addModel(model);
+
+            Entity entity = new Entity(chunk.getModelId() + "_entity", model.getId());
+            entity.setPosition(chunk.getChunkX() * TerrainGenerator.CHUNK_WORLD_SIZE, 0,
+                    chunk.getChunkZ() * TerrainGenerator.CHUNK_WORLD_SIZE);
+            entity.updateModelMatrix();
+            scene.addStaticEntity(entity);
+
+            chunk.setModel(model);
+            chunk.setEntity(entity);
+            // Les tableaux ne sont plus utiles une fois envoyés au GPU
+            chunk.setMeshData(null);
+            chunk.setState(TerrainChunk.State.LOADED);
+            terrainQuery.register(chunk.getChunkX(), chunk.getChunkZ(), chunk.getHeightfield());
+            scene.getTerrainHulls().register(chunk.getChunkX(), chunk.getChunkZ(), chunk.getHeightfield());
+            loadedCount++;
+            uploads++;
+        }
+    }
+
+    private boolean uploadChunkHeights(TerrainChunk chunk) {
+        int slot = heightAtlas.allocate();
+        if (slot < 0) {
+            return false;
+        }
+        Heightfield heightfield = chunk.getHeightfield();
+        heightAtlas.upload(slot, chunk.getHeights(), chunk.getChunkX() * TerrainGenerator.CHUNK_WORLD_SIZE,
+                chunk.getChunkZ() * TerrainGenerator.CHUNK_WORLD_SIZE, heightfield.getMinHeight(),
+                heightfield.getMaxHeight());
+        chunk.setAtlasSlot(slot);
+        chunk.setHeights(null);
+        chunk.setState(TerrainChunk.State.LOADED);
+        terrainQuery.register(chunk.getChunkX(), chunk.getChunkZ(), chunk.getHeightfield());
+        scene.getTerrainHulls().register(chunk.getChunkX(), chunk.getChunkZ(), heightfield);
+        loadedCount++;
+        return true;
+    }
+
+    private void unloadFarChunks() {
+        int unloadDistance = viewDistance + UNLOAD_MARGIN;
+        int unloadDistanceSq = unloadDistance * unloadDistance;
+        Iterator<TerrainChunk> iterator = chunks.values().iterator();
+        while (iterator.hasNext()) {
+            TerrainChunk chunk = iterator.next();
+            int dx = chunk.getChunkX() - centerX;
+            int dz = chunk.getChunkZ() - centerZ;
+            if (dx * dx + dz * dz <= unloadDistanceSq) {
+                continue;
+            }
+
+            iterator.remove();
+            if (chunk.getState() == TerrainChunk.State.LOADED) {
+                terrainQuery.unregister(chunk.getChunkX(), chunk.getChunkZ());
+                scene.getTerrainHulls().unregister(chunk.getChunkX(), chunk.getChunkZ());
+                if (heightAtlas != null) {
+                    heightAtlas.release(chunk.getAtlasSlot());
+                    chunk.setAtlasSlot(-1);
+                } else {
+                    scene.removeModel(chunk.getModelId());
+                    chunk.getModel().cleanup();
+                }
+                unloadedCount++;
+            }
+            chunk.setState(TerrainChunk.State.UNLOADED);
+            chunk.setMeshData(null);
+            chunk.setHeights(null);
+            chunk.setHeightfield(null);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.terrescalmes.core.terrain;
+
+import com.terrescalmes.core.TerrainGenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// Sauvegarde des hauteurs des chunks sur disque, regroupées en fichiers de région.
+// Appelé depuis les threads de travail du ChunkManager : les régions ouvertes sont partagées
+// et chaque RegionFile synchronise ses propres accès.
+// Le contenu dépend de la source de bruit : vider le dossier après avoir changé de générateur
+public class ChunkStore implements Closeable {
+
+    // Format d'un chunk : taille, baseCode, step puis les codes 16 bits du Heightfield
+    private static final int PAYLOAD_HEADER_BYTES = 12;
+    private static final int PAYLOAD_BYTES = PAYLOAD_HEADER_BYTES
+            + TerrainGenerator.CHUNK_HEIGHTS_SIZE * TerrainGenerator.CHUNK_HEIGHTS_SIZE * Short.BYTES;
+
+    private final boolean compress;
+    private final Path directory;
+    private final Map<Long, RegionFile> regions;
+
+    // Tampon d'écriture par thread de travail, réutilisé d'un chunk à l'autre
+    private final ThreadLocal<ByteBuffer> writeBuffer = ThreadLocal
+            .withInitial(() -> ByteBuffer.allocate(PAYLOAD_BYTES).order(ByteOrder.LITTLE_ENDIAN));
+
+    public ChunkStore(Path directory, boolean compress) throws IOException {
+        this.directory = directory;
+        this.compress = compress;
+        regions = new HashMap<>();
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        IOException error = null;
+        for (RegionFile region : regions.values()) {
+            try {
+                region.close();
+            } catch (IOException excp) {
+                error = excp;
+            }
+        }
+        regions.clear();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // Retourne les hauteurs du chunk (CHUNK_HEIGHTS_SIZE x CHUNK_HEIGHTS_SIZE), ou null s'il n'a jamais été
+    // sauvegardé ou l'a été dans un format différent (il sera alors regénéré et réécrit)
+    public Heightfield load(int chunkX, int chunkZ) throws IOException {
+        RegionFile region = getRegion(chunkX, chunkZ, false);
+        if (region == null) {
+            return null;
+        }
+        Heightfield[] result = new Heightfield[1];
+        region.read(Math.floorMod(chunkX, RegionFile.REGION_SIZE), Math.floorMod(chunkZ, RegionFile.REGION_SIZE),
+                payload -> {
+                    if (payload.remaining() != PAYLOAD_BYTES
+                            || payload.getInt(payload.position()) != TerrainGenerator.CHUNK_HEIGHTS_SIZE) {
+                        return;
+                    }
+                    int size = payload.getInt();
+                    int baseCode = payload.getInt();
+                    float step = payload.getFloat();
+                    short[] samples = new short[size * size];
+                    payload.asShortBuffer().get(samples);
+                    result[0] = new Heightfield(size, samples, baseCode, step);
+                });
+        return result[0];
+    }
+
+    public void save(int chunkX, int chunkZ, Heightfield heightfield) throws IOException {
+        if (heightfield.getSize() != TerrainGenerator.CHUNK_HEIGHTS_SIZE) {
+            throw new IllegalArgumentException("Invalid chunk heightfield size [" + heightfield.getSize() + "]");
+        }
+        ByteBuffer buffer = writeBuffer.get().clear();
+        buffer.putInt(heightfield.getSize()).putInt(heightfield.getBaseCode()).putFloat(heightfield.getStep());
+        buffer.asShortBuffer().put(heightfield.getSamples());
+        buffer.position(0);
+        RegionFile region = getRegion(chunkX, chunkZ, true);
+        region.write(Math.floorMod(chunkX, RegionFile.REGION_SIZE), Math.floorMod(chunkZ, RegionFile.REGION_SIZE),
+                buffer, compress);
+    }
+
+    private synchronized RegionFile getRegion(int chunkX, int chunkZ, boolean create) throws IOException {
+        int regionX = Math.floorDiv(chunkX, RegionFile.REGION_SIZE);
+        int regionZ = Math.floorDiv(chunkZ, RegionFile.REGION_SIZE);
+        long key = TerrainChunk.key(regionX, regionZ);
+        RegionFile region = regions.get(key);
+        if (region == null) {
+            Path path = directory.resolve("r." + regionX + "." + regionZ + ".tcr");
+            if (!create && !Files.exists(path)) {
+                return null;
+            }
+            region = new RegionFile(path);
+            regions.put(key, region);
+        }
+        return region;
+    }
+}
@@ -0,0 +1,126 @@
+package com.terrescalmes.core.terrain;
+
+// Grille carrée de hauteurs quantifiées sur 16 bits, dans un short[] à plat en [z * size + x].
+// Hauteur décodée = (baseCode + code) * step, step étant une puissance de deux (MIN_STEP au plus fin) :
+// deux grilles de même step décodent exactement la même valeur pour une même hauteur d'origine,
+// les bordures partagées entre chunks voisins restent donc identiques.
+// Deux octets par échantillon au lieu de quatre, et des bornes min/max exactes pour le culling
+public final class Heightfield {
+
+    public static final float MIN_STEP = 1.0f / 1024.0f; // Précision maximale, environ 1 mm
+    private static final int MAX_CODE = 0xFFFF;
+
+    private final int baseCode;
+    private final float maxHeight;
+    private final float minHeight;
+    private final short[] samples;
+    private final int size;
+    private final float step;
+
+    public Heightfield(int size, short[] samples, int baseCode, float step) {
+        if (samples.length != size * size) {
+            throw new IllegalArgumentException("Invalid heightfield samples length [" + samples.length + "]");
+        }
+        this.size = size;
+        this.samples = samples;
+        this.baseCode = baseCode;
+        this.step = step;
+
+        int minCode = MAX_CODE;
+        int maxCode = 0;
+        for (short sample : samples) {
+            int code = sample & MAX_CODE;
+            minCode = Math.min(minCode, code);
+            maxCode = Math.max(maxCode, code);
+        }
+        minHeight = decode(minCode);
+        maxHeight = decode(maxCode);
+    }
+
+    // heights en [z * size + x], le step le plus fin qui couvre l'écart entre min et max est retenu
+    public static Heightfield quantize(float[] heights, int size) {
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int i = 0; i < size * size; i++) {
+            min = Math.min(min, heights[i]);
+            max = Math.max(max, heights[i]);
+        }
+
+        float step = MIN_STEP;
+        while (Math.round(max / step) - Math.round(min / step) > MAX_CODE) {
+            step *= 2.0f;
+        }
+
+        int baseCode = Math.round(min / step);
+        short[] samples = new short[size * size];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) (Math.round(heights[i] / step) - baseCode);
+        }
+        return new Heightfield(size, samples, baseCode, step);
+    }
+
+    private float decode(int code) {
+        return (baseCode + code) * step;
+    }
+
+    // Décode toute la grille dans out (au moins size * size valeurs), pour le maillage ou l'envoi au GPU
+    public float[] decode(float[] out) {
+        for (int i = 0; i < samples.length; i++) {
+            out[i] = (baseCode + (samples[i] & MAX_CODE)) * step;
+        }
+        return out;
+    }
+
+    public float getHeight(int x, int z) {
+        return decode(samples[z * size + x] & MAX_CODE);
+    }
+
+    // Interpolation bilinéaire, x et z en échantillons (fractionnaires), bornés à la grille
+    public float sample(float x, float z) {
+        x = Math.max(0.0f, Math.min(x, size - 1));
+        z = Math.max(0.0f, Math.min(z, size - 1));
+        int x0 = Math.min((int) x, size - 2);
+        int z0 = Math.min((int) z, size - 2);
+        float fx = x - x0;
+        float fz = z - z0;
+
+        // Interpolation sur les codes entiers, un seul décodage à la fin
+        int row = z0 * size + x0;
+        float c00 = samples[row] & MAX_CODE;
+        float c10 = samples[row + 1] & MAX_CODE;
+        float c01 = samples[row + size] & MAX_CODE;
+        float c11 = samples[row + size + 1] & MAX_CODE;
+        float top = c00 + (c10 - c00) * fx;
+        float bottom = c01 + (c11 - c01) * fx;
+        return (baseCode + top + (bottom - top) * fz) * step;
+    }
+
+    public int getBaseCode() {
+        return baseCode;
+    }
+
+    public float getMaxHeight() {
+        return maxHeight;
+    }
+
+    public int getMemoryBytes() {
+        return samples.length * Short.BYTES;
+    }
+
+    public float getMinHeight() {
+        return minHeight;
+    }
+
+    // Tableau partagé, en [z * size + x]
+    public short[] getSamples() {
+        return samples;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public float getStep() {
+        return step;
+    }
+}
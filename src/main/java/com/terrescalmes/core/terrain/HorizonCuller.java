@@ -0,0 +1,194 @@
+package com.terrescalmes.core.terrain;
+
+import org.joml.Vector3f;
+
+import com.terrescalmes.core.TerrainGenerator;
+
+import java.util.*;
+
+// Occlusion par l'horizon du terrain : vu de la caméra, chaque occulteur (rectangle de terrain dont toute la
+// surface est au-dessus d'une hauteur, voir TerrainHulls) relève l'horizon, en pente (hauteur / distance
+// horizontale), des secteurs d'azimut qu'il couvre entièrement. Une boîte plus lointaine est cachée si sa pente
+// la plus haute reste sous l'horizon de tous les secteurs qu'elle touche.
+// Seuls les occulteurs plus proches que la boîte comptent : l'horizon est cumulé par anneaux de distance, l'anneau k
+// ne contient que les occulteurs entièrement à moins de k * RING_WIDTH de la caméra.
+// Les azimuts sont des pseudo-angles dans [0, 4) (croissants avec l'angle, sans atan2), le tour est découpé en
+// SECTORS secteurs de pseudo-angle égal. Aucun appel OpenGL
+public class HorizonCuller {
+
+    public static final float RING_WIDTH = TerrainGenerator.CHUNK_WORLD_SIZE / 2.0f;
+    public static final int RINGS = 32;
+    public static final float RANGE = RING_WIDTH * RINGS; // Au-delà, les occulteurs sont ignorés
+
+    private static final int SECTORS = 512; // Puissance de 2 : les index négatifs se replient par masque
+    private static final int SECTOR_MASK = SECTORS - 1;
+    private static final float SECTORS_PER_UNIT = SECTORS / 4.0f;
+
+    // Pente de l'horizon par anneau puis secteur, cumulée d'un anneau au suivant par build()
+    private final float[] horizon;
+
+    private float cameraX;
+    private float cameraY;
+    private float cameraZ;
+
+    // Étendue d'un rectangle calculée par computeSpan
+    private float spanStart;
+    private float spanEnd;
+    private float nearestDistance;
+    private float farthestDistance;
+
+    // Statistiques de la frame
+    private long buildNanos;
+    private long testNanos;
+    private int occluderCount;
+    private int testedCount;
+    private int occludedCount;
+
+    public HorizonCuller() {
+        horizon = new float[RINGS * SECTORS];
+    }
+
+    // Nouvelle frame : horizon vide, statistiques remises à zéro
+    public void begin(Vector3f camera) {
+        buildNanos = System.nanoTime();
+        cameraX = camera.x;
+        cameraY = camera.y;
+        cameraZ = camera.z;
+        Arrays.fill(horizon, Float.NEGATIVE_INFINITY);
+        testNanos = 0;
+        occluderCount = 0;
+        testedCount = 0;
+        occludedCount = 0;
+    }
+
+    // Rectangle [minX, maxX] x [minZ, maxZ] dont la surface est partout au-dessus de height
+    public void addOccluder(float minX, float minZ, float maxX, float maxZ, float height) {
+        if (!computeSpan(minX, minZ, maxX, maxZ)) {
+            return;
+        }
+        int ring = (int) Math.ceil(farthestDistance / RING_WIDTH);
+        if (ring >= RINGS) {
+            return;
+        }
+        // Pente la plus basse de la surface : au plus loin si elle est au-dessus de la caméra, au plus près sinon
+        float rise = height - cameraY;
+        float slope = rise >= 0.0f ? rise / farthestDistance : rise / nearestDistance;
+        // Seuls les secteurs entièrement couverts
+        int first = (int) Math.ceil(spanStart * SECTORS_PER_UNIT);
+        int last = (int) Math.floor(spanEnd * SECTORS_PER_UNIT);
+        int base = ring * SECTORS;
+        for (int sector = first; sector < last; sector++) {
+            int index = base + (sector & SECTOR_MASK);
+            horizon[index] = Math.max(horizon[index], slope);
+        }
+        occluderCount++;
+    }
+
+    // Cumule l'horizon des anneaux, après le dernier addOccluder de la frame
+    public void build() {
+        for (int ring = 1; ring < RINGS; ring++) {
+            int base = ring * SECTORS;
+            for (int sector = 0; sector < SECTORS; sector++) {
+                horizon[base + sector] = Math.max(horizon[base + sector], horizon[base - SECTORS + sector]);
+            }
+        }
+        buildNanos = System.nanoTime() - buildNanos;
+    }
+
+    // false si la boîte est entièrement sous l'horizon des occulteurs plus proches qu'elle. Pas de chronométrage
+    // par boîte : l'appelant mesure son lot de tests et le rapporte avec addTestNanos
+    public boolean isAabbVisible(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        boolean visible = testAabb(minX, minY, minZ, maxX, maxY, maxZ);
+        testedCount++;
+        if (!visible) {
+            occludedCount++;
+        }
+        return visible;
+    }
+
+    private boolean testAabb(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        if (!computeSpan(minX, minZ, maxX, maxZ)) {
+            return true;
+        }
+        // Pente la plus haute de la boîte : au plus près si son sommet dépasse la caméra, au plus loin sinon
+        float rise = maxY - cameraY;
+        float slope = rise > 0.0f ? rise / nearestDistance : rise / farthestDistance;
+        int base = Math.min(RINGS - 1, (int) (nearestDistance / RING_WIDTH)) * SECTORS;
+        // Tous les secteurs touchés
+        int first = (int) Math.floor(spanStart * SECTORS_PER_UNIT);
+        int last = (int) Math.floor(spanEnd * SECTORS_PER_UNIT);
+        for (int sector = first; sector <= last; sector++) {
+            if (slope >= horizon[base + (sector & SECTOR_MASK)]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Azimuts et distances horizontales extrêmes du rectangle. false si la caméra est au-dessus ou au bord :
+    // le rectangle couvre alors tous les azimuts
+    private boolean computeSpan(float minX, float minZ, float maxX, float maxZ) {
+        float dx = Math.max(Math.max(minX - cameraX, 0.0f), cameraX - maxX);
+        float dz = Math.max(Math.max(minZ - cameraZ, 0.0f), cameraZ - maxZ);
+        if (dx == 0.0f && dz == 0.0f) {
+            return false;
+        }
+        nearestDistance = (float) Math.sqrt(dx * dx + dz * dz);
+        float farX = Math.max(cameraX - minX, maxX - cameraX);
+        float farZ = Math.max(cameraZ - minZ, maxZ - cameraZ);
+        farthestDistance = (float) Math.sqrt(farX * farX + farZ * farZ);
+
+        // Le rectangle est vu sous moins d'un demi-tour : les écarts au premier coin sont ramenés dans (-2, 2]
+        float reference = pseudoAngle(minX - cameraX, minZ - cameraZ);
+        float low = 0.0f;
+        float high = 0.0f;
+        for (int corner = 1; corner < 4; corner++) {
+            float x = (corner & 1) == 0 ? minX : maxX;
+            float z = (corner & 2) == 0 ? minZ : maxZ;
+            float delta = pseudoAngle(x - cameraX, z - cameraZ) - reference;
+            if (delta > 2.0f) {
+                delta -= 4.0f;
+            } else if (delta <= -2.0f) {
+                delta += 4.0f;
+            }
+            low = Math.min(low, delta);
+            high = Math.max(high, delta);
+        }
+        spanStart = reference + low;
+        spanEnd = reference + high;
+        return true;
+    }
+
+    // Pseudo-angle dans [0, 4) de la direction (x, z), non nulle : 0 vers +x, 1 vers +z, 2 vers -x, 3 vers -z
+    private static float pseudoAngle(float x, float z) {
+        float p = x / (Math.abs(x) + Math.abs(z));
+        return z >= 0.0f ? 1.0f - p : 3.0f + p;
+    }
+
+    public int getOccluderCount() {
+        return occluderCount;
+    }
+
+    public int getTestedCount() {
+        return testedCount;
+    }
+
+    public int getOccludedCount() {
+        return occludedCount;
+    }
+
+    // Occulteurs et cumul de l'horizon, de begin() à build()
+    public float getBuildMillis() {
+        return buildNanos / 1_000_000.0f;
+    }
+
+    // Durée d'une boucle de culling qui appelle isAabbVisible, mesurée une fois par l'appelant
+    public void addTestNanos(long nanos) {
+        testNanos += nanos;
+    }
+
+    // Lots de tests rapportés depuis begin(), autres tests des mêmes boucles compris (frustum, occlusion)
+    public float getTestMillis() {
+        return testNanos / 1_000_000.0f;
+    }
+}
@@ -0,0 +1,159 @@
+package com.terrescalmes.core.terrain;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Fichier de région : REGION_SIZE x REGION_SIZE chunks dans un seul fichier mappé en mémoire.
+// En-tête fixe (magic, version, taille) suivi d'une entrée par chunk : offset, taille stockée, taille brute, flags.
+// Un chunk se lit sans parcourir le reste du fichier : une lecture d'entrée puis une tranche du mapping.
+// Les données sont ajoutées en fin de fichier, ou réécrites en place si la nouvelle version tient
+public class RegionFile implements Closeable {
+
+    public static final int REGION_SIZE = 32; // Chunks par côté d'une région
+
+    private static final int MAGIC = 0x54435247; // "TCRG"
+    private static final int VERSION = 1;
+    private static final int HEADER_PREFIX = 16;
+    private static final int ENTRY_BYTES = 16;
+    private static final int HEADER_BYTES = HEADER_PREFIX + REGION_SIZE * REGION_SIZE * ENTRY_BYTES;
+    private static final int FLAG_DEFLATE = 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private MappedByteBuffer data; // Lecture seule, remappé quand le fichier grandit
+    private long end;
+
+    public RegionFile(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() == 0;
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            if (created) {
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putInt(8, REGION_SIZE);
+            } else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                    || header.getInt(8) != REGION_SIZE) {
+                throw new IOException("Invalid region file [" + path + "]");
+            }
+            end = Math.max(channel.size(), HEADER_BYTES);
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+        } catch (IOException excp) {
+            channel.close();
+            throw excp;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        header.force();
+        channel.close();
+    }
+
+    public synchronized boolean contains(int localX, int localZ) {
+        return header.getInt(entryPosition(localX, localZ) + 4) > 0;
+    }
+
+    // Passe au reader les données décompressées du chunk (little endian), sans copie si elles ne sont pas
+    // compressées. Le buffer n'est valide que pendant l'appel. Retourne false si le chunk est absent
+    public synchronized boolean read(int localX, int localZ, Consumer<ByteBuffer> reader) throws IOException {
+        int entry = entryPosition(localX, localZ);
+        int offset = header.getInt(entry);
+        int storedLength = header.getInt(entry + 4);
+        int rawLength = header.getInt(entry + 8);
+        int flags = header.getInt(entry + 12);
+        if (storedLength <= 0) {
+            return false;
+        }
+        if ((long) offset + storedLength > data.capacity()) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+        }
+
+        ByteBuffer stored = data.slice(offset, storedLength);
+        if ((flags & FLAG_DEFLATE) == 0) {
+            reader.accept(stored.order(ByteOrder.LITTLE_ENDIAN));
+            return true;
+        }
+
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            if (inflater.inflate(raw) != rawLength) {
+                throw new IOException("Truncated chunk [" + localX + ", " + localZ + "]");
+            }
+        } catch (DataFormatException excp) {
+            throw new IOException("Corrupted chunk [" + localX + ", " + localZ + "]", excp);
+        } finally {
+            inflater.end();
+        }
+        reader.accept(ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN));
+        return true;
+    }
+
+    // payload est lu de sa position à sa limite
+    public synchronized void write(int localX, int localZ, ByteBuffer payload, boolean compress) throws IOException {
+        int rawLength = payload.remaining();
+        ByteBuffer stored = payload;
+        int flags = 0;
+        if (compress) {
+            stored = deflate(payload);
+            flags |= FLAG_DEFLATE;
+        }
+        int storedLength = stored.remaining();
+
+        int entry = entryPosition(localX, localZ);
+        long offset = header.getInt(entry);
+        if (header.getInt(entry + 4) < storedLength) {
+            offset = end;
+            end += storedLength;
+            if (end > Integer.MAX_VALUE) {
+                throw new IOException("Region file full");
+            }
+        }
+        while (stored.hasRemaining()) {
+            offset += channel.write(stored, offset);
+        }
+
+        header.putInt(entry, (int) (offset - storedLength));
+        header.putInt(entry + 4, storedLength);
+        header.putInt(entry + 8, rawLength);
+        header.putInt(entry + 12, flags);
+    }
+
+    private static ByteBuffer deflate(ByteBuffer payload) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(payload);
+            deflater.finish();
+            ByteBuffer out = ByteBuffer.allocate(payload.remaining() + 64);
+            while (!deflater.finished()) {
+                if (!out.hasRemaining()) {
+                    out = ByteBuffer.allocate(out.capacity() * 2).put(out.flip());
+                }
+                deflater.deflate(out);
+            }
+            return out.flip();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static int entryPosition(int localX, int localZ) {
+        if (localX < 0 || localX >= REGION_SIZE || localZ < 0 || localZ >= REGION_SIZE) {
+            throw new IllegalArgumentException("Chunk outside of region [" + localX + ", " + localZ + "]");
+        }
+        return HEADER_PREFIX + (localZ * REGION_SIZE + localX) * ENTRY_BYTES;
+    }
+}
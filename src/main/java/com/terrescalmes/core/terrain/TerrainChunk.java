@@ -0,0 +1,110 @@
+package com.terrescalmes.core.terrain;
+
+import com.terrescalmes.core.TerrainGenerator.ChunkMeshData;
+import com.terrescalmes.core.graphics.Model;
+import com.terrescalmes.entities.Entity;
+
+public class TerrainChunk {
+
+    public enum State {
+        QUEUED, // En génération ou en attente d'envoi au GPU
+        LOADED, // Mesh envoyé au GPU et ajouté à la scène
+        UNLOADED // Retiré : un résultat de génération tardif sera ignoré
+    }
+
+    private int atlasSlot;
+    private final int chunkX;
+    private final int chunkZ;
+    private Entity entity;
+    private volatile Heightfield heightfield;
+    private volatile float[] heights;
+    private volatile ChunkMeshData meshData;
+    private Model model;
+    private volatile State state;
+
+    public TerrainChunk(int chunkX, int chunkZ) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        atlasSlot = -1;
+        state = State.QUEUED;
+    }
+
+    public static long key(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    // Emplacement dans le HeightAtlas en mode déplacement GPU, -1 sinon
+    public int getAtlasSlot() {
+        return atlasSlot;
+    }
+
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    public int getChunkZ() {
+        return chunkZ;
+    }
+
+    public Entity getEntity() {
+        return entity;
+    }
+
+    // Hauteurs quantifiées, gardées en mémoire tant que le chunk est chargé (requêtes de gameplay, bornes)
+    public Heightfield getHeightfield() {
+        return heightfield;
+    }
+
+    // Hauteurs décodées en attente d'envoi dans l'atlas, null une fois envoyées
+    public float[] getHeights() {
+        return heights;
+    }
+
+    public long getKey() {
+        return key(chunkX, chunkZ);
+    }
+
+    public ChunkMeshData getMeshData() {
+        return meshData;
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    public String getModelId() {
+        return "terrain_chunk_" + chunkX + "_" + chunkZ;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setAtlasSlot(int atlasSlot) {
+        this.atlasSlot = atlasSlot;
+    }
+
+    public void setEntity(Entity entity) {
+        this.entity = entity;
+    }
+
+    public void setHeightfield(Heightfield heightfield) {
+        this.heightfield = heightfield;
+    }
+
+    public void setHeights(float[] heights) {
+        this.heights = heights;
+    }
+
+    public void setMeshData(ChunkMeshData meshData) {
+        this.meshData = meshData;
+    }
+
+    public void setModel(Model model) {
+        this.model = model;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,240 @@
+package com.terrescalmes.core.terrain;
+
+import org.joml.Vector3f;
+
+import com.terrescalmes.core.TerrainGenerator;
+import com.terrescalmes.core.graphics.FrustumCuller;
+import com.terrescalmes.core.graphics.OcclusionCuller;
+
+import java.util.*;
+
+// Enveloppes intérieures du terrain, occulteurs de l'OcclusionCuller et du HorizonCuller. Chaque cellule de
+// CELL_SIZE quads devient une boîte dont le dessus est la plus basse hauteur de la cellule et le fond la plus basse
+// de son bloc de CELLS_PER_BLOCK x CELLS_PER_BLOCK cellules (un chunk) : la boîte est entièrement sous la surface
+// rendue, elle cache moins que le relief, jamais plus.
+// Les cellules sont alignées sur les sommets des chunks, et sur ceux des niveaux CDLOD dont le pas ne dépasse pas
+// CELL_SIZE quads, ce qui est le cas jusqu'à bien au-delà de la portée des occulteurs.
+// Thread OpenGL uniquement
+public class TerrainHulls {
+
+    public static final int CELL_SIZE = 16; // Quads par côté d'une cellule
+    private static final int CELLS_PER_BLOCK = TerrainGenerator.CHUNK_SIZE / CELL_SIZE;
+    private static final int CHUNK_CELLS = CELLS_PER_BLOCK * CELLS_PER_BLOCK;
+    private static final float CELL_WORLD_SIZE = CELL_SIZE * TerrainGenerator.TERRAIN_SCALE;
+
+    // Chunks : un bloc de CHUNK_CELLS hauteurs par chunk, blocs compactés au retrait
+    private int chunkCount;
+    private float[] chunkBottoms;
+    private final Map<Long, Integer> chunkIndices;
+    private long[] chunkKeys;
+    private float[] cellTops;
+
+    // Région unique (terrain CDLOD) : grille de regionCells x regionCells cellules
+    private int regionBlocks;
+    private float[] regionBottoms;
+    private int regionCells;
+    private float regionOriginX;
+    private float regionOriginZ;
+    private float[] regionTops;
+
+    public TerrainHulls() {
+        chunkIndices = new HashMap<>();
+        chunkKeys = new long[64];
+        chunkBottoms = new float[64];
+        cellTops = new float[64 * CHUNK_CELLS];
+    }
+
+    // Chunk de TerrainGenerator.CHUNK_HEIGHTS_SIZE échantillons, bordure comprise
+    public void register(int chunkX, int chunkZ, Heightfield heightfield) {
+        long key = TerrainChunk.key(chunkX, chunkZ);
+        Integer existing = chunkIndices.get(key);
+        int index;
+        if (existing != null) {
+            index = existing;
+        } else {
+            if (chunkCount == chunkKeys.length) {
+                chunkKeys = Arrays.copyOf(chunkKeys, chunkCount * 2);
+                chunkBottoms = Arrays.copyOf(chunkBottoms, chunkCount * 2);
+                cellTops = Arrays.copyOf(cellTops, chunkCount * 2 * CHUNK_CELLS);
+            }
+            index = chunkCount++;
+            chunkKeys[index] = key;
+            chunkIndices.put(key, index);
+        }
+        chunkBottoms[index] = heightfield.getMinHeight();
+        // Premier sommet du chunk après la bordure
+        computeCellTops(heightfield, 1, 1, CELLS_PER_BLOCK, cellTops, index * CHUNK_CELLS);
+    }
+
+    public void unregister(int chunkX, int chunkZ) {
+        Integer removed = chunkIndices.remove(TerrainChunk.key(chunkX, chunkZ));
+        if (removed == null) {
+            return;
+        }
+        // Le dernier bloc prend la place du bloc retiré
+        int index = removed;
+        int last = --chunkCount;
+        if (index != last) {
+            chunkKeys[index] = chunkKeys[last];
+            chunkBottoms[index] = chunkBottoms[last];
+            System.arraycopy(cellTops, last * CHUNK_CELLS, cellTops, index * CHUNK_CELLS, CHUNK_CELLS);
+            chunkIndices.put(chunkKeys[index], index);
+        }
+    }
+
+    // Heightfield couvrant une zone fixe, gridOriginX/gridOriginZ coordonnées de grille de son premier échantillon.
+    // Les échantillons au-delà de la dernière cellule complète sont ignorés
+    public void setRegion(Heightfield heightfield, int gridOriginX, int gridOriginZ) {
+        if (heightfield == null) {
+            regionTops = null;
+            regionBottoms = null;
+            regionCells = 0;
+            return;
+        }
+        regionCells = (heightfield.getSize() - 1) / CELL_SIZE;
+        regionTops = new float[regionCells * regionCells];
+        regionOriginX = gridOriginX * TerrainGenerator.TERRAIN_SCALE;
+        regionOriginZ = gridOriginZ * TerrainGenerator.TERRAIN_SCALE;
+        computeCellTops(heightfield, 0, 0, regionCells, regionTops, 0);
+
+        regionBlocks = (regionCells + CELLS_PER_BLOCK - 1) / CELLS_PER_BLOCK;
+        regionBottoms = new float[regionBlocks * regionBlocks];
+        Arrays.fill(regionBottoms, Float.MAX_VALUE);
+        for (int cellZ = 0; cellZ < regionCells; cellZ++) {
+            for (int cellX = 0; cellX < regionCells; cellX++) {
+                int block = (cellZ / CELLS_PER_BLOCK) * regionBlocks + cellX / CELLS_PER_BLOCK;
+                regionBottoms[block] = Math.min(regionBottoms[block], regionTops[cellZ * regionCells + cellX]);
+            }
+        }
+    }
+
+    // Hauteur minimale de chaque cellule, sommets des bords compris (partagés avec les cellules voisines)
+    private static void computeCellTops(Heightfield heightfield, int firstX, int firstZ, int cells, float[] tops,
+            int offset) {
+        for (int cellZ = 0; cellZ < cells; cellZ++) {
+            for (int cellX = 0; cellX < cells; cellX++) {
+                float min = Float.MAX_VALUE;
+                int startX = firstX + cellX * CELL_SIZE;
+                int startZ = firstZ + cellZ * CELL_SIZE;
+                for (int z = startZ; z <= startZ + CELL_SIZE; z++) {
+                    for (int x = startX; x <= startX + CELL_SIZE; x++) {
+                        min = Math.min(min, heightfield.getHeight(x, z));
+                    }
+                }
+                tops[offset + cellZ * cells + cellX] = min;
+            }
+        }
+    }
+
+    // Ajoute à occlusionCuller les cellules à moins de range (distance horizontale) de la caméra et dans le
+    // frustum. Retourne le nombre d'occulteurs ajoutés
+    public int addOccluders(Vector3f camera, float range, FrustumCuller frustumCuller,
+            OcclusionCuller occlusionCuller) {
+        int added = 0;
+        float chunkRange = range + TerrainGenerator.CHUNK_WORLD_SIZE;
+        for (int index = 0; index < chunkCount; index++) {
+            long key = chunkKeys[index];
+            float chunkMinX = (int) (key >> 32) * TerrainGenerator.CHUNK_WORLD_SIZE;
+            float chunkMinZ = (int) key * TerrainGenerator.CHUNK_WORLD_SIZE;
+            if (Math.abs(chunkMinX + 0.5f * TerrainGenerator.CHUNK_WORLD_SIZE - camera.x) > chunkRange
+                    || Math.abs(chunkMinZ + 0.5f * TerrainGenerator.CHUNK_WORLD_SIZE - camera.z) > chunkRange) {
+                continue;
+            }
+            added += addCells(camera, range, frustumCuller, occlusionCuller, cellTops, index * CHUNK_CELLS,
+                    CELLS_PER_BLOCK, chunkBottoms, index, 0, 0, 0, CELLS_PER_BLOCK, CELLS_PER_BLOCK, chunkMinX,
+                    chunkMinZ);
+        }
+        if (regionTops != null) {
+            // Seules les cellules du carré englobant la portée sont parcourues
+            int fromX = Math.max(0, (int) Math.floor((camera.x - range - regionOriginX) / CELL_WORLD_SIZE));
+            int fromZ = Math.max(0, (int) Math.floor((camera.z - range - regionOriginZ) / CELL_WORLD_SIZE));
+            int toX = Math.min(regionCells, (int) Math.ceil((camera.x + range - regionOriginX) / CELL_WORLD_SIZE));
+            int toZ = Math.min(regionCells, (int) Math.ceil((camera.z + range - regionOriginZ) / CELL_WORLD_SIZE));
+            added += addCells(camera, range, frustumCuller, occlusionCuller, regionTops, 0, regionCells,
+                    regionBottoms, 0, regionBlocks, fromX, fromZ, toX, toZ, regionOriginX, regionOriginZ);
+        }
+        return added;
+    }
+
+    // Cellules [fromX, toX) x [fromZ, toZ) d'une grille de cells x cells, dont les hauteurs commencent à
+    // tops[topOffset] et les fonds de blocs (blocksPerRow par ligne) à bottoms[bottomOffset]
+    private static int addCells(Vector3f camera, float range, FrustumCuller frustumCuller,
+            OcclusionCuller occlusionCuller, float[] tops, int topOffset, int cells, float[] bottoms,
+            int bottomOffset, int blocksPerRow, int fromX, int fromZ, int toX, int toZ, float originX,
+            float originZ) {
+        int added = 0;
+        float rangeSq = range * range;
+        for (int cellZ = fromZ; cellZ < toZ; cellZ++) {
+            float minZ = originZ + cellZ * CELL_WORLD_SIZE;
+            float dz = Math.max(0.0f, Math.max(minZ - camera.z, camera.z - minZ - CELL_WORLD_SIZE));
+            for (int cellX = fromX; cellX < toX; cellX++) {
+                float minX = originX + cellX * CELL_WORLD_SIZE;
+                float dx = Math.max(0.0f, Math.max(minX - camera.x, camera.x - minX - CELL_WORLD_SIZE));
+                float top = tops[topOffset + cellZ * cells + cellX];
+                float bottom = bottoms[bottomOffset + (cellZ / CELLS_PER_BLOCK) * blocksPerRow
+                        + cellX / CELLS_PER_BLOCK];
+                if (dx * dx + dz * dz > rangeSq || !frustumCuller.isAabbVisible(minX, bottom, minZ,
+                        minX + CELL_WORLD_SIZE, top, minZ + CELL_WORLD_SIZE)) {
+                    continue;
+                }
+                occlusionCuller.addOccluder(minX, bottom, minZ, minX + CELL_WORLD_SIZE, top, minZ + CELL_WORLD_SIZE);
+                added++;
+            }
+        }
+        return added;
+    }
+
+    // Ajoute à horizonCuller les cellules à moins de cellRange (distance horizontale) de la caméra, et au-delà un
+    // occulteur par bloc de cellules, à la hauteur du fond du bloc
+    public void addHorizonOccluders(Vector3f camera, float cellRange, HorizonCuller horizonCuller) {
+        float blockWorldSize = TerrainGenerator.CHUNK_WORLD_SIZE;
+        for (int index = 0; index < chunkCount; index++) {
+            long key = chunkKeys[index];
+            float chunkMinX = (int) (key >> 32) * blockWorldSize;
+            float chunkMinZ = (int) key * blockWorldSize;
+            float dx = Math.max(0.0f, Math.max(chunkMinX - camera.x, camera.x - chunkMinX - blockWorldSize));
+            float dz = Math.max(0.0f, Math.max(chunkMinZ - camera.z, camera.z - chunkMinZ - blockWorldSize));
+            if (dx * dx + dz * dz > cellRange * cellRange) {
+                horizonCuller.addOccluder(chunkMinX, chunkMinZ, chunkMinX + blockWorldSize,
+                        chunkMinZ + blockWorldSize, chunkBottoms[index]);
+                continue;
+            }
+            addHorizonCells(horizonCuller, cellTops, index * CHUNK_CELLS, CELLS_PER_BLOCK, 0, 0,
+                    CELLS_PER_BLOCK, CELLS_PER_BLOCK, chunkMinX, chunkMinZ, CELL_WORLD_SIZE);
+        }
+        if (regionTops != null) {
+            // Blocs sur toute la portée de l'horizon, cellules en plus à proximité : le plus haut des deux l'emporte
+            float range = HorizonCuller.RANGE;
+            addHorizonCells(horizonCuller, regionBottoms, 0, regionBlocks,
+                    Math.max(0, (int) Math.floor((camera.x - range - regionOriginX) / blockWorldSize)),
+                    Math.max(0, (int) Math.floor((camera.z - range - regionOriginZ) / blockWorldSize)),
+                    Math.min(regionBlocks, (int) Math.ceil((camera.x + range - regionOriginX) / blockWorldSize)),
+                    Math.min(regionBlocks, (int) Math.ceil((camera.z + range - regionOriginZ) / blockWorldSize)),
+                    regionOriginX, regionOriginZ, blockWorldSize);
+            addHorizonCells(horizonCuller, regionTops, 0, regionCells,
+                    Math.max(0, (int) Math.floor((camera.x - cellRange - regionOriginX) / CELL_WORLD_SIZE)),
+                    Math.max(0, (int) Math.floor((camera.z - cellRange - regionOriginZ) / CELL_WORLD_SIZE)),
+                    Math.min(regionCells, (int) Math.ceil((camera.x + cellRange - regionOriginX) / CELL_WORLD_SIZE)),
+                    Math.min(regionCells, (int) Math.ceil((camera.z + cellRange - regionOriginZ) / CELL_WORLD_SIZE)),
+                    regionOriginX, regionOriginZ, CELL_WORLD_SIZE);
+        }
+    }
+
+    // Rectangles [fromX, toX) x [fromZ, toZ) d'une grille de rowLength par ligne, de côté size, dont les hauteurs
+    // commencent à heights[offset]. La portée est filtrée par horizonCuller
+    private static void addHorizonCells(HorizonCuller horizonCuller, float[] heights, int offset, int rowLength,
+            int fromX, int fromZ, int toX, int toZ, float originX, float originZ, float size) {
+        for (int z = fromZ; z < toZ; z++) {
+            float minZ = originZ + z * size;
+            for (int x = fromX; x < toX; x++) {
+                float minX = originX + x * size;
+                horizonCuller.addOccluder(minX, minZ, minX + size, minZ + size, heights[offset + z * rowLength + x]);
+            }
+        }
+    }
+
+    // Chunks enregistrés
+    public int getChunkCount() {
+        return chunkCount;
+    }
+}
@@ -0,0 +1,191 @@
+package com.terrescalmes.core.terrain;
+
+import org.joml.Math;
+import org.joml.Vector3f;
+
+import com.terrescalmes.core.TerrainGenerator;
+import com.terrescalmes.entities.Entity;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Hauteur et normale du sol en coordonnées monde, à partir des Heightfield résidents.
+// Utilisable depuis n'importe quel thread : les chunks sont rangés dans une grille torique de taille fixe
+// (case = coordonnées du chunk modulo RING_SIZE), donc une requête est un calcul d'index et une lecture volatile,
+// sans verrou ni allocation. Une zone non chargée renvoie NaN (hauteur) ou false (normale)
+public class TerrainQuery {
+
+    private static final int RING_SIZE = 64; // Rayon de vue supporté : RING_SIZE / 2 - 1 chunks
+    private static final int RING_MASK = RING_SIZE - 1;
+
+    private final AtomicReferenceArray<Entry> ring;
+    private volatile Entry region; // Heightfield unique (terrain CDLOD), prioritaire sur les chunks
+
+    public TerrainQuery() {
+        ring = new AtomicReferenceArray<>(RING_SIZE * RING_SIZE);
+    }
+
+    // Chunk de TerrainGenerator.CHUNK_HEIGHTS_SIZE échantillons, bordure comprise
+    public void register(int chunkX, int chunkZ, Heightfield heightfield) {
+        ring.set(slot(chunkX, chunkZ), new Entry(chunkX, chunkZ, chunkX * TerrainGenerator.CHUNK_SIZE - 1,
+                chunkZ * TerrainGenerator.CHUNK_SIZE - 1, 1, heightfield));
+    }
+
+    public void unregister(int chunkX, int chunkZ) {
+        int slot = slot(chunkX, chunkZ);
+        Entry entry = ring.get(slot);
+        if (entry != null && entry.chunkX == chunkX && entry.chunkZ == chunkZ) {
+            ring.compareAndSet(slot, entry, null);
+        }
+    }
+
+    // Heightfield couvrant une zone fixe, gridOriginX/gridOriginZ coordonnées de grille de son premier échantillon
+    public void setRegion(Heightfield heightfield, int gridOriginX, int gridOriginZ) {
+        region = heightfield == null ? null : new Entry(0, 0, gridOriginX, gridOriginZ, 0, heightfield);
+    }
+
+    public boolean isLoaded(float x, float z) {
+        return find(x / TerrainGenerator.TERRAIN_SCALE, z / TerrainGenerator.TERRAIN_SCALE) != null;
+    }
+
+    // Hauteur du sol (interpolation bilinéaire), NaN si la zone n'est pas chargée
+    public float getHeightAt(float x, float z) {
+        float gridX = x / TerrainGenerator.TERRAIN_SCALE;
+        float gridZ = z / TerrainGenerator.TERRAIN_SCALE;
+        Entry entry = find(gridX, gridZ);
+        if (entry == null) {
+            return Float.NaN;
+        }
+        return entry.heightfield.sample(gridX - entry.originX, gridZ - entry.originZ);
+    }
+
+    // Normale du sol (différences centrales, comme le maillage). Retourne false si la zone n'est pas chargée
+    public boolean getNormalAt(float x, float z, Vector3f dest) {
+        float gridX = x / TerrainGenerator.TERRAIN_SCALE;
+        float gridZ = z / TerrainGenerator.TERRAIN_SCALE;
+        Entry entry = find(gridX, gridZ);
+        if (entry == null) {
+            return false;
+        }
+        float localX = gridX - entry.originX;
+        float localZ = gridZ - entry.originZ;
+        Heightfield heightfield = entry.heightfield;
+        float nx = heightfield.sample(localX - 1.0f, localZ) - heightfield.sample(localX + 1.0f, localZ);
+        float ny = 2.0f * TerrainGenerator.TERRAIN_SCALE;
+        float nz = heightfield.sample(localX, localZ - 1.0f) - heightfield.sample(localX, localZ + 1.0f);
+        dest.set(nx, ny, nz).normalize();
+        return true;
+    }
+
+    // Hauteurs de count points (xs[i], zs[i]) dans heights[i], NaN pour les zones non chargées.
+    // Aucune allocation : le chunk du point précédent est réutilisé tant que les points restent dedans.
+    // Retourne le nombre de points résolus
+    public int getHeightsAt(float[] xs, float[] zs, float[] heights, int count) {
+        int resolved = 0;
+        Entry entry = null;
+        for (int i = 0; i < count; i++) {
+            float gridX = xs[i] / TerrainGenerator.TERRAIN_SCALE;
+            float gridZ = zs[i] / TerrainGenerator.TERRAIN_SCALE;
+            if (entry == null || !entry.contains(gridX, gridZ)) {
+                entry = find(gridX, gridZ);
+            }
+            if (entry == null) {
+                heights[i] = Float.NaN;
+                continue;
+            }
+            heights[i] = entry.heightfield.sample(gridX - entry.originX, gridZ - entry.originZ);
+            resolved++;
+        }
+        return resolved;
+    }
+
+    // Normales de count points dans normals[3 * i .. 3 * i + 2], (0, 1, 0) pour les zones non chargées.
+    // Retourne le nombre de points résolus
+    public int getNormalsAt(float[] xs, float[] zs, float[] normals, int count) {
+        int resolved = 0;
+        Entry entry = null;
+        for (int i = 0; i < count; i++) {
+            float gridX = xs[i] / TerrainGenerator.TERRAIN_SCALE;
+            float gridZ = zs[i] / TerrainGenerator.TERRAIN_SCALE;
+            if (entry == null || !entry.contains(gridX, gridZ)) {
+                entry = find(gridX, gridZ);
+            }
+            int pos = i * 3;
+            if (entry == null) {
+                normals[pos] = 0.0f;
+                normals[pos + 1] = 1.0f;
+                normals[pos + 2] = 0.0f;
+                continue;
+            }
+            float localX = gridX - entry.originX;
+            float localZ = gridZ - entry.originZ;
+            Heightfield heightfield = entry.heightfield;
+            float nx = heightfield.sample(localX - 1.0f, localZ) - heightfield.sample(localX + 1.0f, localZ);
+            float ny = 2.0f * TerrainGenerator.TERRAIN_SCALE;
+            float nz = heightfield.sample(localX, localZ - 1.0f) - heightfield.sample(localX, localZ + 1.0f);
+            float invLength = Math.invsqrt(nx * nx + ny * ny + nz * nz);
+            normals[pos] = nx * invLength;
+            normals[pos + 1] = ny * invLength;
+            normals[pos + 2] = nz * invLength;
+            resolved++;
+        }
+        return resolved;
+    }
+
+    // Pose l'entité au sol (hauteur + offset). Retourne false si la zone n'est pas chargée
+    public boolean clampToGround(Entity entity, float offset) {
+        Vector3f position = entity.getPosition();
+        float height = getHeightAt(position.x, position.z);
+        if (Float.isNaN(height)) {
+            return false;
+        }
+        entity.setPosition(position.x, height + offset, position.z);
+        entity.updateModelMatrix();
+        return true;
+    }
+
+    private Entry find(float gridX, float gridZ) {
+        Entry regionEntry = region;
+        if (regionEntry != null && regionEntry.contains(gridX, gridZ)) {
+            return regionEntry;
+        }
+        int chunkX = (int) Math.floor(gridX / TerrainGenerator.CHUNK_SIZE);
+        int chunkZ = (int) Math.floor(gridZ / TerrainGenerator.CHUNK_SIZE);
+        Entry entry = ring.get(slot(chunkX, chunkZ));
+        // La case peut contenir un autre chunk (rayon de vue supérieur à la grille) : on vérifie ses coordonnées
+        return entry != null && entry.chunkX == chunkX && entry.chunkZ == chunkZ ? entry : null;
+    }
+
+    private static int slot(int chunkX, int chunkZ) {
+        return (chunkZ & RING_MASK) * RING_SIZE + (chunkX & RING_MASK);
+    }
+
+    private static final class Entry {
+
+        final int chunkX;
+        final int chunkZ;
+        final Heightfield heightfield;
+        final int originX;
+        final int originZ;
+        // Zone couverte en coordonnées de grille, sans la bordure
+        final float maxX;
+        final float maxZ;
+        final float minX;
+        final float minZ;
+
+        Entry(int chunkX, int chunkZ, int originX, int originZ, int border, Heightfield heightfield) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.originX = originX;
+            this.originZ = originZ;
+            this.heightfield = heightfield;
+            minX = originX + border;
+            minZ = originZ + border;
+            maxX = originX + heightfield.getSize() - 1 - border;
+            maxZ = originZ + heightfield.getSize() - 1 - border;
+        }
+
+        boolean contains(float gridX, float gridZ) {
+            return gridX >= minX && gridX < maxX && gridZ >= minZ && gridZ < maxZ;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.terrescalmes.core.terrain.noise;
+
+// Mouvement brownien fractionnaire (fBm) : somme d'octaves d'une source de base
+public class FractalNoise implements NoiseSource {
+
+    private final float amplitude;
+    private final NoiseSource base;
+    private final float lacunarity;
+    private final int octaves;
+    private final float persistence;
+
+    public FractalNoise(NoiseSource base, int octaves, float lacunarity, float persistence, float amplitude) {
+        this.base = base;
+        this.octaves = octaves;
+        this.lacunarity = lacunarity;
+        this.persistence = persistence;
+        this.amplitude = amplitude;
+    }
+
+    @Override
+    public float sample(float x, float z) {
+        float value = 0.0f;
+        float octaveAmplitude = amplitude;
+        float octaveFrequency = 1.0f;
+        for (int i = 0; i < octaves; i++) {
+            value += base.sample(x * octaveFrequency, z * octaveFrequency) * octaveAmplitude;
+            octaveAmplitude *= persistence;
+            octaveFrequency *= lacunarity;
+        }
+        return value;
+    }
+
+    @Override
+    public void accumulate(float[] out, int offset, int width, int height, int originX, int originZ,
+            float frequency, float amplitude) {
+        // Chaque octave est une passe en bloc sur toute la grille
+        float octaveAmplitude = this.amplitude * amplitude;
+        float octaveFrequency = frequency;
+        for (int i = 0; i < octaves; i++) {
+            base.accumulate(out, offset, width, height, originX, originZ, octaveFrequency, octaveAmplitude);
+            octaveAmplitude *= persistence;
+            octaveFrequency *= lacunarity;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.terrescalmes.core.terrain.noise;
+
+import java.util.Arrays;
+
+public interface NoiseSource {
+
+    float sample(float x, float z);
+
+    // Remplit une grille : out[offset + row * width + col] = sample((originX + col) * frequency,
+    // (originZ + row) * frequency). Les coordonnées entières rendent deux grilles qui se
+    // recouvrent strictement identiques sur leur partie commune
+    default void fill(float[] out, int offset, int width, int height, int originX, int originZ, float frequency) {
+        Arrays.fill(out, offset, offset + width * height, 0.0f);
+        accumulate(out, offset, width, height, originX, originZ, frequency, 1.0f);
+    }
+
+    // Comme fill, mais ajoute amplitude * bruit aux valeurs existantes
+    default void accumulate(float[] out, int offset, int width, int height, int originX, int originZ,
+            float frequency, float amplitude) {
+        int idx = offset;
+        for (int row = 0; row < height; row++) {
+            float z = (originZ + row) * frequency;
+            for (int col = 0; col < width; col++) {
+                out[idx++] += sample((originX + col) * frequency, z) * amplitude;
+            }
+        }
+    }
+}
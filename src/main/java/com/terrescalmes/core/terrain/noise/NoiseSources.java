@@ -0,0 +1,60 @@
+package com.terrescalmes.core.terrain.noise;
+
+import java.lang.reflect.Constructor;
+
+public final class NoiseSources {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_PERLIN_CLASS = "com.terrescalmes.core.terrain.noise.VectorPerlinNoise";
+    // -Dterrescalmes.noise.simd=false force la version scalaire
+    private static final boolean SIMD_ENABLED = Boolean.parseBoolean(
+            System.getProperty("terrescalmes.noise.simd", "true"));
+
+    private static final Constructor<?> VECTOR_PERLIN_CONSTRUCTOR;
+    private static final String BACKEND_NAME;
+
+    static {
+        Constructor<?> constructor = null;
+        String backend = "scalaire";
+        if (SIMD_ENABLED && ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                // Chargement par réflexion : la classe ne doit pas être liée si le module est absent
+                Class<?> vectorClass = Class.forName(VECTOR_PERLIN_CLASS);
+                int lanes = (int) vectorClass.getDeclaredMethod("getLaneCount").invoke(null);
+                constructor = vectorClass.getDeclaredConstructor(long.class);
+                // Instance d'essai : rejette les largeurs de vecteur trop faibles
+                constructor.newInstance(0L);
+                backend = "SIMD (" + lanes + " voies)";
+            } catch (ReflectiveOperationException | LinkageError excp) {
+                constructor = null;
+                System.err.println("Bruit SIMD indisponible, retour au scalaire: " + excp);
+            }
+        }
+        VECTOR_PERLIN_CONSTRUCTOR = constructor;
+        BACKEND_NAME = backend;
+    }
+
+    private NoiseSources() {
+        // Utility class
+    }
+
+    public static String getBackendName() {
+        return BACKEND_NAME;
+    }
+
+    public static boolean isSimdAvailable() {
+        return VECTOR_PERLIN_CONSTRUCTOR != null;
+    }
+
+    // Perlin en SIMD (API Vector du JDK) si disponible, sinon la version scalaire
+    public static NoiseSource perlin(long seed) {
+        if (VECTOR_PERLIN_CONSTRUCTOR != null) {
+            try {
+                return (NoiseSource) VECTOR_PERLIN_CONSTRUCTOR.newInstance(seed);
+            } catch (ReflectiveOperationException excp) {
+                throw new RuntimeException("Error creating SIMD noise", excp);
+            }
+        }
+        return new PerlinNoise(seed);
+    }
+}
@@ -0,0 +1,118 @@
+package com.terrescalmes.core.terrain.noise;
+
+// OpenSimplex2 (variante rapide) en 2D, d'après l'implémentation du domaine public de K.jpg
+public class OpenSimplex2Noise implements NoiseSource {
+
+    private static final long PRIME_X = 0x5205402B9270C86FL;
+    private static final long PRIME_Z = 0x598CD327003817B5L;
+    private static final long HASH_MULTIPLIER = 0x53A3F72DEEC546F5L;
+
+    private static final double SKEW_2D = 0.366025403784439;
+    private static final double UNSKEW_2D = -0.21132486540518713;
+    private static final float RSQUARED_2D = 0.5f;
+    private static final double NORMALIZER_2D = 0.01001634121365712;
+
+    private static final int N_GRADS_2D_EXPONENT = 7;
+    private static final int N_GRADS_2D = 1 << N_GRADS_2D_EXPONENT;
+    private static final float[] GRADIENTS_2D = new float[N_GRADS_2D * 2];
+
+    static {
+        double[] grad2 = {
+                0.38268343236509, 0.923879532511287,
+                0.923879532511287, 0.38268343236509,
+                0.923879532511287, -0.38268343236509,
+                0.38268343236509, -0.923879532511287,
+                -0.38268343236509, -0.923879532511287,
+                -0.923879532511287, -0.38268343236509,
+                -0.923879532511287, 0.38268343236509,
+                -0.38268343236509, 0.923879532511287,
+                0.130526192220052, 0.99144486137381,
+                0.608761429008721, 0.793353340291235,
+                0.793353340291235, 0.608761429008721,
+                0.99144486137381, 0.130526192220051,
+                0.99144486137381, -0.130526192220051,
+                0.793353340291235, -0.60876142900872,
+                0.608761429008721, -0.793353340291235,
+                0.130526192220052, -0.99144486137381,
+                -0.130526192220052, -0.99144486137381,
+                -0.608761429008721, -0.793353340291235,
+                -0.793353340291235, -0.608761429008721,
+                -0.99144486137381, -0.130526192220052,
+                -0.99144486137381, 0.130526192220051,
+                -0.793353340291235, 0.608761429008721,
+                -0.608761429008721, 0.793353340291235,
+                -0.130526192220052, 0.99144486137381,
+        };
+        for (int i = 0, j = 0; i < GRADIENTS_2D.length; i++, j++) {
+            if (j == grad2.length) {
+                j = 0;
+            }
+            GRADIENTS_2D[i] = (float) (grad2[j] / NORMALIZER_2D);
+        }
+    }
+
+    private final long seed;
+
+    public OpenSimplex2Noise(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public float sample(float x, float z) {
+        // Passage dans la grille simplexe (coordonnées "skewées")
+        double s = SKEW_2D * (x + z);
+        double xs = x + s;
+        double zs = z + s;
+
+        int xsb = (int) Math.floor(xs);
+        int zsb = (int) Math.floor(zs);
+        float xi = (float) (xs - xsb);
+        float zi = (float) (zs - zsb);
+
+        long xsbp = xsb * PRIME_X;
+        long zsbp = zsb * PRIME_Z;
+
+        float t = (xi + zi) * (float) UNSKEW_2D;
+        float dx0 = xi + t;
+        float dz0 = zi + t;
+
+        float value = 0.0f;
+        float a0 = RSQUARED_2D - dx0 * dx0 - dz0 * dz0;
+        if (a0 > 0) {
+            value = (a0 * a0) * (a0 * a0) * grad(xsbp, zsbp, dx0, dz0);
+        }
+
+        float dx1 = dx0 - (float) (1 + 2 * UNSKEW_2D);
+        float dz1 = dz0 - (float) (1 + 2 * UNSKEW_2D);
+        float a1 = RSQUARED_2D - dx1 * dx1 - dz1 * dz1;
+        if (a1 > 0) {
+            value += (a1 * a1) * (a1 * a1) * grad(xsbp + PRIME_X, zsbp + PRIME_Z, dx1, dz1);
+        }
+
+        if (dz0 > dx0) {
+            float dx2 = dx0 - (float) UNSKEW_2D;
+            float dz2 = dz0 - (float) (UNSKEW_2D + 1);
+            float a2 = RSQUARED_2D - dx2 * dx2 - dz2 * dz2;
+            if (a2 > 0) {
+                value += (a2 * a2) * (a2 * a2) * grad(xsbp, zsbp + PRIME_Z, dx2, dz2);
+            }
+        } else {
+            float dx2 = dx0 - (float) (UNSKEW_2D + 1);
+            float dz2 = dz0 - (float) UNSKEW_2D;
+            float a2 = RSQUARED_2D - dx2 * dx2 - dz2 * dz2;
+            if (a2 > 0) {
+                value += (a2 * a2) * (a2 * a2) * grad(xsbp + PRIME_X, zsbp, dx2, dz2);
+            }
+        }
+
+        return value;
+    }
+
+    private float grad(long xsvp, long zsvp, float dx, float dz) {
+        long hash = seed ^ xsvp ^ zsvp;
+        hash *= HASH_MULTIPLIER;
+        hash ^= hash >> (64 - N_GRADS_2D_EXPONENT + 1);
+        int gi = (int) hash & ((N_GRADS_2D - 1) << 1);
+        return GRADIENTS_2D[gi] * dx + GRADIENTS_2D[gi | 1] * dz;
+    }
+}
@@ -0,0 +1,102 @@
+package com.terrescalmes.core.terrain.noise;
+
+import java.util.Random;
+
+// Bruit de Perlin amélioré : permutation et gradients précalculés, interpolation quintique, aucun appel trigonométrique
+public class PerlinNoise implements NoiseSource {
+
+    static final int GRADIENT_MASK = 7;
+    static final float[] GRADIENTS_X = new float[GRADIENT_MASK + 1];
+    static final float[] GRADIENTS_Z = new float[GRADIENT_MASK + 1];
+
+    static {
+        for (int i = 0; i <= GRADIENT_MASK; i++) {
+            double angle = i * 2.0 * Math.PI / (GRADIENT_MASK + 1);
+            GRADIENTS_X[i] = (float) Math.cos(angle);
+            GRADIENTS_Z[i] = (float) Math.sin(angle);
+        }
+    }
+
+    final int[] perm;
+
+    public PerlinNoise(long seed) {
+        perm = createPermutation(seed);
+    }
+
+    // Table de 512 entrées (256 dupliquées) pour éviter les modulos lors des doubles indirections
+    static int[] createPermutation(long seed) {
+        int[] source = new int[256];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = source.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = source[i];
+            source[i] = source[j];
+            source[j] = tmp;
+        }
+        int[] table = new int[512];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = source[i & 255];
+        }
+        return table;
+    }
+
+    static int fastFloor(float value) {
+        int i = (int) value;
+        return value < i ? i - 1 : i;
+    }
+
+    static float fade(float t) {
+        return t * t * t * (t * (t * 6.0f - 15.0f) + 10.0f);
+    }
+
+    @Override
+    public float sample(float x, float z) {
+        int xi = fastFloor(x);
+        int zi = fastFloor(z);
+        float xf = x - xi;
+        float zf = z - zi;
+        return noise(xi & 255, zi & 255, xf, zf, fade(xf), fade(zf));
+    }
+
+    @Override
+    public void accumulate(float[] out, int offset, int width, int height, int originX, int originZ,
+            float frequency, float amplitude) {
+        int idx = offset;
+        for (int row = 0; row < height; row++) {
+            // Tout ce qui ne dépend que de z est calculé une fois par ligne
+            float z = (originZ + row) * frequency;
+            int zi = fastFloor(z);
+            float zf = z - zi;
+            float v = fade(zf);
+            int zMasked = zi & 255;
+            for (int col = 0; col < width; col++) {
+                float x = (originX + col) * frequency;
+                int xi = fastFloor(x);
+                float xf = x - xi;
+                out[idx++] += noise(xi & 255, zMasked, xf, zf, fade(xf), v) * amplitude;
+            }
+        }
+    }
+
+    float noise(int xi, int zi, float xf, float zf, float u, float v) {
+        int a = perm[xi] + zi;
+        int b = perm[xi + 1] + zi;
+
+        float tl = grad(perm[a], xf, zf);
+        float tr = grad(perm[b], xf - 1.0f, zf);
+        float bl = grad(perm[a + 1], xf, zf - 1.0f);
+        float br = grad(perm[b + 1], xf - 1.0f, zf - 1.0f);
+
+        float top = tl + u * (tr - tl);
+        float bottom = bl + u * (br - bl);
+        return top + v * (bottom - top);
+    }
+
+    private static float grad(int hash, float dx, float dz) {
+        int g = hash & GRADIENT_MASK;
+        return dx * GRADIENTS_X[g] + dz * GRADIENTS_Z[g];
+    }
+}
@@ -0,0 +1,36 @@
+package com.terrescalmes.core.terrain.noise;
+
+// Bruit "ridged" : octaves repliées (1 - |n|)² pondérées par l'octave précédente, pour des crêtes marquées
+public class RidgedNoise implements NoiseSource {
+
+    private final float amplitude;
+    private final NoiseSource base;
+    private final float lacunarity;
+    private final int octaves;
+    private final float persistence;
+
+    public RidgedNoise(NoiseSource base, int octaves, float lacunarity, float persistence, float amplitude) {
+        this.base = base;
+        this.octaves = octaves;
+        this.lacunarity = lacunarity;
+        this.persistence = persistence;
+        this.amplitude = amplitude;
+    }
+
+    @Override
+    public float sample(float x, float z) {
+        float value = 0.0f;
+        float weight = 1.0f;
+        float octaveAmplitude = amplitude;
+        float octaveFrequency = 1.0f;
+        for (int i = 0; i < octaves; i++) {
+            float signal = 1.0f - Math.abs(base.sample(x * octaveFrequency, z * octaveFrequency));
+            signal *= signal * weight;
+            weight = Math.min(1.0f, Math.max(0.0f, signal * 2.0f));
+            value += signal * octaveAmplitude;
+            octaveAmplitude *= persistence;
+            octaveFrequency *= lacunarity;
+        }
+        return value;
+    }
+}
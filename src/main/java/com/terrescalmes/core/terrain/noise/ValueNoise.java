@@ -0,0 +1,37 @@
+package com.terrescalmes.core.terrain.noise;
+
+// Bruit de valeur : une valeur pseudo-aléatoire par nœud de grille, interpolée
+public class ValueNoise implements NoiseSource {
+
+    private final int[] perm;
+    private final float[] values;
+
+    public ValueNoise(long seed) {
+        perm = PerlinNoise.createPermutation(seed);
+        values = new float[256];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i / 127.5f - 1.0f;
+        }
+    }
+
+    @Override
+    public float sample(float x, float z) {
+        int xi = PerlinNoise.fastFloor(x);
+        int zi = PerlinNoise.fastFloor(z);
+        float u = PerlinNoise.fade(x - xi);
+        float v = PerlinNoise.fade(z - zi);
+        xi &= 255;
+        zi &= 255;
+
+        int a = perm[xi] + zi;
+        int b = perm[xi + 1] + zi;
+        float tl = values[perm[a]];
+        float tr = values[perm[b]];
+        float bl = values[perm[a + 1]];
+        float br = values[perm[b + 1]];
+
+        float top = tl + u * (tr - tl);
+        float bottom = bl + u * (br - bl);
+        return top + v * (bottom - top);
+    }
+}
@@ -0,0 +1,127 @@
+package com.terrescalmes.core.terrain.noise;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Même bruit que PerlinNoise, évalué sur une ligne entière de la grille, plusieurs échantillons par instruction.
+// Les opérations sont faites dans le même ordre que la version scalaire (pas de FMA) : résultats identiques bit à bit.
+// Ne jamais instancier directement, passer par NoiseSources qui retombe sur le scalaire si le module est absent
+class VectorPerlinNoise extends PerlinNoise {
+
+    private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INT_SPECIES = VectorSpecies.of(int.class, FLOAT_SPECIES.vectorShape());
+    private static final int MIN_LANES = 4;
+
+    private static final int TOP_LEFT = 0;
+    private static final int TOP_RIGHT = 1;
+    private static final int BOTTOM_LEFT = 2;
+    private static final int BOTTOM_RIGHT = 3;
+    // Tampons, un jeu par thread de génération et non par appel (octave x tuile)
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    VectorPerlinNoise(long seed) {
+        super(seed);
+        if (FLOAT_SPECIES.length() < MIN_LANES) {
+            throw new UnsupportedOperationException("Vector width too small: " + FLOAT_SPECIES.length() + " lanes");
+        }
+    }
+
+    static int getLaneCount() {
+        return FLOAT_SPECIES.length();
+    }
+
+    @Override
+    public void accumulate(float[] out, int offset, int width, int height, int originX, int originZ,
+            float frequency, float amplitude) {
+        int lanes = FLOAT_SPECIES.length();
+        int vectorWidth = FLOAT_SPECIES.loopBound(width);
+        Scratch scratch = SCRATCH.get();
+
+        IntVector laneOffsets = IntVector.zero(INT_SPECIES).addIndex(1);
+        FloatVector one = FloatVector.broadcast(FLOAT_SPECIES, 1.0f);
+
+        for (int row = 0; row < height; row++) {
+            float z = (originZ + row) * frequency;
+            int zi = fastFloor(z);
+            float zf = z - zi;
+            float v = fade(zf);
+            int zMasked = zi & 255;
+            FloatVector zfVec = FloatVector.broadcast(FLOAT_SPECIES, zf);
+            FloatVector zf1Vec = FloatVector.broadcast(FLOAT_SPECIES, zf - 1.0f);
+            int rowStart = offset + row * width;
+
+            int col = 0;
+            for (; col < vectorWidth; col += lanes) {
+                // x = (originX + col) * frequency, conversion int -> float identique au scalaire
+                IntVector gridX = laneOffsets.add(originX + col);
+                FloatVector x = ((FloatVector) gridX.convert(VectorOperators.I2F, 0)).mul(frequency);
+
+                // Parties entières et gradients des quatre coins en scalaire, le calcul en vecteurs. C2 (JDK 17) ne
+                // compile pas la conversion float -> int en instructions vectorielles, ce qui fait allouer chaque
+                // vecteur de la boucle, et plante sur les gathers une fois la conversion retirée
+                for (int lane = 0; lane < lanes; lane++) {
+                    int xi = fastFloor((originX + col + lane) * frequency);
+                    scratch.floor[lane] = xi;
+                    int a = perm[xi & 255] + zMasked;
+                    int b = perm[(xi & 255) + 1] + zMasked;
+                    scratch.setGradient(TOP_LEFT, lane, perm[a]);
+                    scratch.setGradient(TOP_RIGHT, lane, perm[b]);
+                    scratch.setGradient(BOTTOM_LEFT, lane, perm[a + 1]);
+                    scratch.setGradient(BOTTOM_RIGHT, lane, perm[b + 1]);
+                }
+                IntVector xi = IntVector.fromArray(INT_SPECIES, scratch.floor, 0);
+                FloatVector xf = x.sub((FloatVector) xi.convert(VectorOperators.I2F, 0));
+                FloatVector u = fade(xf);
+
+                FloatVector xf1 = xf.sub(one);
+                FloatVector tl = scratch.grad(TOP_LEFT, xf, zfVec);
+                FloatVector tr = scratch.grad(TOP_RIGHT, xf1, zfVec);
+                FloatVector bl = scratch.grad(BOTTOM_LEFT, xf, zf1Vec);
+                FloatVector br = scratch.grad(BOTTOM_RIGHT, xf1, zf1Vec);
+
+                FloatVector top = tl.add(u.mul(tr.sub(tl)));
+                FloatVector bottom = bl.add(u.mul(br.sub(bl)));
+                FloatVector value = top.add(bottom.sub(top).mul(v));
+
+                int idx = rowStart + col;
+                FloatVector.fromArray(FLOAT_SPECIES, out, idx).add(value.mul(amplitude)).intoArray(out, idx);
+            }
+
+            // Reste de la ligne en scalaire
+            for (; col < width; col++) {
+                float xs = (originX + col) * frequency;
+                int xis = fastFloor(xs);
+                float xfs = xs - xis;
+                out[rowStart + col] += noise(xis & 255, zMasked, xfs, zf, fade(xfs), v) * amplitude;
+            }
+        }
+    }
+
+    private static FloatVector fade(FloatVector t) {
+        // t * t * t * (t * (t * 6 - 15) + 10), dans le même ordre que PerlinNoise.fade
+        FloatVector t3 = t.mul(t).mul(t);
+        return t3.mul(t.mul(t.mul(6.0f).sub(15.0f)).add(10.0f));
+    }
+
+    // Parties entières et composantes des gradients des quatre coins d'un vecteur d'échantillons
+    private static final class Scratch {
+
+        private final int[] floor = new int[FLOAT_SPECIES.length()];
+        private final float[][] gradX = new float[4][FLOAT_SPECIES.length()];
+        private final float[][] gradZ = new float[4][FLOAT_SPECIES.length()];
+
+        private void setGradient(int corner, int lane, int hash) {
+            gradX[corner][lane] = GRADIENTS_X[hash & GRADIENT_MASK];
+            gradZ[corner][lane] = GRADIENTS_Z[hash & GRADIENT_MASK];
+        }
+
+        // dx * gradX + dz * gradZ, dans le même ordre que PerlinNoise.grad
+        private FloatVector grad(int corner, FloatVector dx, FloatVector dz) {
+            FloatVector x = FloatVector.fromArray(FLOAT_SPECIES, gradX[corner], 0);
+            FloatVector z = FloatVector.fromArray(FLOAT_SPECIES, gradZ[corner], 0);
+            return dx.mul(x).add(dz.mul(z));
+        }
+    }
+}
@@ -7,6 +7,7 @@ public class Entity {
     private final String id;
     private final String modelId;
     private Matrix4f modelMatrix;
+    private boolean modelMatrixDirty;
     private Vector3f position;
     private Quaternionf rotation;
     private float scale;
@@ -18,6 +19,7 @@ public class Entity {
         position = new Vector3f();
         rotation = new Quaternionf();
         scale = 1;
+        modelMatrixDirty = true;
     }
 
     public String getId() {
@@ -28,6 +30,11 @@ public class Entity {
         return modelId;
     }
 
+    // Appelé par le rendu une fois la matrice envoyée au GPU
+    public void clearModelMatrixDirty() {
+        modelMatrixDirty = false;
+    }
+
     public Matrix4f getModelMatrix() {
         return modelMatrix;
     }
@@ -44,6 +51,10 @@ public class Entity {
         return scale;
     }
 
+    public boolean isModelMatrixDirty() {
+        return modelMatrixDirty;
+    }
+
     public final void setPosition(float x, float y, float z) {
         position.x = x;
         position.y = y;
@@ -58,7 +69,9 @@ public class Entity {
         this.scale = scale;
     }
 
+    // Seule façon de modifier la matrice modèle prise en compte par le rendu instancié
     public void updateModelMatrix() {
         modelMatrix.translationRotateScale(position, rotation, scale);
+        modelMatrixDirty = true;
     }
 }
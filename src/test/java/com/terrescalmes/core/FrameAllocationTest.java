@@ -0,0 +1,227 @@
+package com.terrescalmes.core;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import com.terrescalmes.core.graphics.ClusteredLighting;
+import com.terrescalmes.core.graphics.DetachedResources;
+import com.terrescalmes.core.graphics.FrustumCuller;
+import com.terrescalmes.core.graphics.Material;
+import com.terrescalmes.core.graphics.Mesh;
+import com.terrescalmes.core.graphics.Model;
+import com.terrescalmes.core.graphics.OcclusionCuller;
+import com.terrescalmes.core.graphics.RenderQueue;
+import com.terrescalmes.core.graphics.Scene;
+import com.terrescalmes.core.graphics.SceneFrame;
+import com.terrescalmes.core.graphics.lights.PointLight;
+import com.terrescalmes.core.graphics.lights.SceneLights;
+import com.terrescalmes.core.graphics.lights.SpotLight;
+import com.terrescalmes.core.terrain.Heightfield;
+import com.terrescalmes.core.terrain.HorizonCuller;
+import com.terrescalmes.entities.Entity;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Partie CPU d'une frame de Render, sans contexte OpenGL : batchs statiques, frustum, horizon et occulteurs du
+// terrain, lumières en clusters (ClusteredLighting.prepare), déplacement des entités mobiles, puis la partie CPU
+// de SceneRender (SceneFrame.prepare : BVH, culling, file de rendu compilée et triée) et le titre.
+// Les modèles ont de vrais matériaux et meshes, détachés d'OpenGL. Une fois préchauffée, la frame ne doit rien
+// allouer sur le thread qui l'exécute
+class FrameAllocationTest {
+
+    private static final int WARMUP_FRAMES = 300;
+    private static final int MEASURED_FRAMES = 600;
+    // Marge pour les rares allocations internes de la JVM (désoptimisation, profilage), pas pour le code testé
+    private static final long MAX_AVERAGE_BYTES = 64;
+
+    private static final int CHUNK_RADIUS = 3;
+    private static final int STATIC_ENTITIES = 5000;
+    private static final int DYNAMIC_ENTITIES = 2000;
+    private static final int MOVED_PER_FRAME = 200;
+    // Au-dessus du seuil de LightClusters (32) : l'affectation passe par le pool ForkJoin
+    private static final int POINT_LIGHTS = 48;
+    private static final int SPOT_LIGHTS = 16;
+    private static final int MOVED_LIGHTS_PER_FRAME = 8;
+
+    private final FrustumCuller frustumCuller = new FrustumCuller();
+    private final HorizonCuller horizonCuller = new HorizonCuller();
+    private final OcclusionCuller occlusionCuller = new OcclusionCuller();
+    private final ClusteredLighting clusteredLighting = new ClusteredLighting();
+    private final SceneFrame sceneFrame = new SceneFrame();
+    private final int[] neighbours = new int[1024];
+    private final StringBuilder title = new StringBuilder(256);
+
+    @Test
+    void steadyStateFrameDoesNotAllocate() {
+        Scene scene = createScene();
+        AllocationMonitor monitor = new AllocationMonitor(WARMUP_FRAMES);
+        assertTrue(monitor.isSupported(), "ThreadMXBean sans mesure des allocations par thread");
+
+        for (int frame = 0; frame < WARMUP_FRAMES + MEASURED_FRAMES; frame++) {
+            monitor.beginFrame();
+            runFrame(scene, frame);
+            monitor.endFrame();
+        }
+
+        long average = monitor.getWindowAverageBytes();
+        assertEquals(MEASURED_FRAMES, monitor.getWindowFrames());
+        assertTrue(average <= MAX_AVERAGE_BYTES, "Allocations par frame: " + average + " o en moyenne, "
+                + monitor.getMaxFrameBytes() + " o au pire");
+
+        // La frame mesurée a réellement tout parcouru
+        assertEquals(POINT_LIGHTS + SPOT_LIGHTS, clusteredLighting.getLightCount());
+        assertTrue(clusteredLighting.getClusters().getIndexCount() > 0);
+        checkRenderQueue(sceneFrame.getRenderQueue());
+        assertTrue(sceneFrame.getSubmittedCount() > 0);
+        assertTrue(sceneFrame.getCulledCount() > 0);
+    }
+
+    // Chaque modèle visible donne un élément par mesh ; les éléments opaques précèdent les transparents
+    private static void checkRenderQueue(RenderQueue renderQueue) {
+        assertTrue(renderQueue.getQueuedCount() > renderQueue.getModelCount(),
+                "Éléments en file: " + renderQueue.getQueuedCount());
+        boolean transparent = false;
+        for (int i = 0; i < renderQueue.getQueuedCount(); i++) {
+            int item = renderQueue.getQueuedItem(i);
+            assertTrue(renderQueue.getItemInstanceCount(item) > 0);
+            assertNotNull(renderQueue.getItemTexture(item));
+            if (renderQueue.isItemTransparent(item)) {
+                transparent = true;
+            } else {
+                assertFalse(transparent, "Élément opaque après un transparent en position " + i);
+            }
+        }
+        assertTrue(transparent);
+    }
+
+    private static Scene createScene() {
+        Scene scene = new Scene(1280, 720);
+        for (int chunkZ = -CHUNK_RADIUS; chunkZ <= CHUNK_RADIUS; chunkZ++) {
+            for (int chunkX = -CHUNK_RADIUS; chunkX <= CHUNK_RADIUS; chunkX++) {
+                float[] heights = TerrainGenerator.generateChunkHeights(chunkX, chunkZ);
+                scene.getTerrainHulls().register(chunkX, chunkZ,
+                        Heightfield.quantize(heights, TerrainGenerator.CHUNK_HEIGHTS_SIZE));
+            }
+        }
+
+        // Textures et meshes détachés : la file compile les vrais matériaux, rien n'est envoyé au GPU.
+        // La texture par défaut sert aux matériaux sans chemin
+        TextureCache textureCache = scene.getTextureCache();
+        String[] texturePaths = { TextureCache.DEFAULT_TEXTURE, "rock.png", "bark.png", "leaves.png", "npc.png" };
+        for (int i = 0; i < texturePaths.length; i++) {
+            textureCache.addTexture(texturePaths[i], DetachedResources.texture(texturePaths[i], i + 1));
+        }
+        // Deux meshes de roche sur la même page (même VAO), un tronc opaque et un feuillage transparent
+        scene.addModel(new Model("rock", List.of(material("rock.png", 1.0f, box(2.0f, 1.5f, 2.0f, 0.0f, 1),
+                box(1.0f, 0.8f, 1.2f, 0.5f, 1)))));
+        scene.addModel(new Model("tree", List.of(material("bark.png", 1.0f, box(0.5f, 6.0f, 0.5f, 0.0f, 1)),
+                material("leaves.png", 0.6f, box(4.0f, 4.0f, 4.0f, 4.0f, 2)))));
+        scene.addModel(new Model("npc", List.of(material("npc.png", 1.0f, box(0.8f, 1.8f, 0.8f, 0.0f, 3)),
+                material(null, 1.0f, box(0.3f, 0.3f, 0.3f, 1.8f, 3)))));
+
+        Random random = new Random(18);
+        float extent = (CHUNK_RADIUS + 1) * TerrainGenerator.CHUNK_WORLD_SIZE;
+        for (int i = 0; i < STATIC_ENTITIES; i++) {
+            Entity entity = new Entity("static_" + i, i % 2 == 0 ? "rock" : "tree");
+            entity.setPosition(randomCoordinate(random, extent), random.nextFloat() * 40.0f,
+                    randomCoordinate(random, extent));
+            entity.updateModelMatrix();
+            scene.addStaticEntity(entity);
+        }
+        for (int i = 0; i < DYNAMIC_ENTITIES; i++) {
+            Entity entity = new Entity("npc_" + i, "npc");
+            entity.setPosition(randomCoordinate(random, extent), 20.0f, randomCoordinate(random, extent));
+            entity.updateModelMatrix();
+            scene.addEntity(entity);
+        }
+
+        // Lumières autour de l'orbite de la caméra
+        SceneLights sceneLights = new SceneLights();
+        for (int i = 0; i < POINT_LIGHTS + SPOT_LIGHTS; i++) {
+            PointLight pointLight = new PointLight(new Vector3f(1.0f, 0.9f, 0.7f),
+                    new Vector3f(randomCoordinate(random, 200.0f), 10.0f + random.nextFloat() * 40.0f,
+                            randomCoordinate(random, 200.0f)), 1.0f + random.nextFloat() * 8.0f);
+            if (i < POINT_LIGHTS) {
+                sceneLights.getPointLights().add(pointLight);
+            } else {
+                sceneLights.getSpotLights().add(new SpotLight(pointLight, new Vector3f(0.0f, -1.0f, 0.0f), 30.0f));
+            }
+        }
+        scene.setSceneLights(sceneLights);
+        return scene;
+    }
+
+    private static Material material(String texturePath, float alpha, Mesh... meshes) {
+        Material material = new Material();
+        material.setTexturePath(texturePath);
+        material.setDiffuseColor(new Vector4f(1.0f, 1.0f, 1.0f, alpha));
+        material.getMeshList().addAll(Arrays.asList(meshes));
+        return material;
+    }
+
+    // Boîte centrée en x et z, de y = bottom à bottom + height : ses deux coins suffisent aux bornes
+    private static Mesh box(float width, float height, float depth, float bottom, int vaoId) {
+        float[] positions = { -width * 0.5f, bottom, -depth * 0.5f, width * 0.5f, bottom + height, depth * 0.5f };
+        return DetachedResources.mesh(positions, 36, vaoId);
+    }
+
+    private static float randomCoordinate(Random random, float extent) {
+        return (random.nextFloat() * 2.0f - 1.0f) * extent;
+    }
+
+    private void runFrame(Scene scene, int frame) {
+        // Aucun batch à reconstruire : l'appel de chaque frame doit rester gratuit
+        scene.updateBatches();
+
+        // Caméra en orbite lente au-dessus du terrain
+        float angle = frame * 0.01f;
+        scene.getCamera().setPosition((float) Math.cos(angle) * 150.0f, 60.0f, (float) Math.sin(angle) * 150.0f);
+        scene.getCamera().setRotation(0.2f, angle * 3.0f);
+        Vector3f cameraPosition = scene.getCamera().getPosition();
+        Matrix4f projMatrix = scene.getProjection().getProjMatrix();
+        Matrix4f viewMatrix = scene.getCamera().getViewMatrix();
+
+        frustumCuller.update(projMatrix, viewMatrix);
+        horizonCuller.begin(cameraPosition);
+        scene.getTerrainHulls().addHorizonOccluders(cameraPosition, 2 * TerrainGenerator.CHUNK_WORLD_SIZE,
+                horizonCuller);
+        horizonCuller.build();
+        occlusionCuller.begin(projMatrix, viewMatrix);
+        scene.getTerrainHulls().addOccluders(cameraPosition, 4 * TerrainGenerator.CHUNK_WORLD_SIZE, frustumCuller,
+                occlusionCuller);
+        occlusionCuller.rasterize();
+
+        // Quelques lumières se déplacent, puis toutes sont réparties dans les clusters
+        List<PointLight> pointLights = scene.getSceneLights().getPointLights();
+        for (int i = 0; i < MOVED_LIGHTS_PER_FRAME; i++) {
+            Vector3f position = pointLights.get((frame * MOVED_LIGHTS_PER_FRAME + i) % pointLights.size())
+                    .getPosition();
+            position.x += (float) Math.sin(frame * 0.05f + i);
+            position.z += (float) Math.cos(frame * 0.05f + i);
+        }
+        clusteredLighting.prepare(scene);
+
+        // Entités mobiles : une partie se déplace, chacune interroge son voisinage
+        List<Entity> npcs = scene.getModelMap().get("npc").getEntitiesList();
+        for (int i = 0; i < MOVED_PER_FRAME; i++) {
+            Entity entity = npcs.get((frame * MOVED_PER_FRAME + i) % npcs.size());
+            Vector3f position = entity.getPosition();
+            entity.setPosition(position.x + 0.5f, position.y, position.z - 0.25f);
+            scene.updateEntity(entity);
+            scene.queryEntities(position, 16.0f, neighbours);
+        }
+
+        sceneFrame.prepare(scene, frustumCuller, horizonCuller, occlusionCuller);
+
+        title.setLength(0);
+        title.append("Terres Calmes | Submitted: ").append(sceneFrame.getSubmittedCount())
+                .append(" | Culled: ").append(sceneFrame.getCulledCount())
+                .append(" | Lights: ").append(clusteredLighting.getLightCount())
+                .append(" | Horizon: ").append(horizonCuller.getOccludedCount())
+                .append(" | Occlusion: ").append(occlusionCuller.getOccludedCount());
+    }
+}
@@ -0,0 +1,85 @@
+package com.terrescalmes.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+import com.terrescalmes.core.graphics.MeshBuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TerrainGeneratorTest {
+
+    private static final int TERRAIN_SIZE = 1025;
+    // Allocations tolérées en plus des tableaux de la grille : tâches fork/join, tampons du bruit
+    private static final long ALLOCATION_SLACK = 1 << 20;
+    // Au moins quatre threads, même sur une machine à un cœur : le découpage en tuiles est toujours exercé
+    private static final int PARALLELISM = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    // La grille ne doit allouer que ses tableaux primitifs : ni objet par sommet ni tableau agrandi en cours de route.
+    // Les hauteurs sont calculées sur le pool de génération, les octets de tous les threads sont comptés
+    @Test
+    void terrainMeshAllocatesOnlyItsArrays() {
+        // Préchauffage : classes chargées, threads du pool démarrés
+        TerrainGenerator.buildTerrainMesh(TERRAIN_SIZE);
+
+        com.sun.management.ThreadMXBean threadBean = threadBean();
+        Map<Long, Long> before = allocatedBytes(threadBean);
+        MeshBuilder builder = TerrainGenerator.buildTerrainMesh(TERRAIN_SIZE);
+        Map<Long, Long> after = allocatedBytes(threadBean);
+        long allocated = 0;
+        for (Map.Entry<Long, Long> entry : after.entrySet()) {
+            allocated += entry.getValue() - before.getOrDefault(entry.getKey(), 0L);
+        }
+
+        assertEquals(TERRAIN_SIZE * TERRAIN_SIZE, builder.getVertexCount());
+        assertEquals((TERRAIN_SIZE - 1) * (TERRAIN_SIZE - 1) * 6, builder.getIndexCount());
+        long vertices = (long) TERRAIN_SIZE * TERRAIN_SIZE;
+        long heights = (long) (TERRAIN_SIZE + 2) * (TERRAIN_SIZE + 2);
+        long arrays = (heights + vertices * (3 + 3 + 2) + (long) builder.getIndexCount()) * Float.BYTES;
+        assertTrue(allocated <= arrays + ALLOCATION_SLACK,
+                "Octets alloués: " + allocated + ", tableaux de la grille: " + arrays);
+    }
+
+    // Chaque tuile écrit une plage disjointe et chaque échantillon est indépendant : mêmes bits à tout parallélisme
+    @Test
+    void heightMapDoesNotDependOnParallelism() {
+        int previous = TerrainGenerator.getParallelism();
+        try {
+            for (int size : new int[] { 513, TERRAIN_SIZE }) {
+                TerrainGenerator.setParallelism(1);
+                float[] sequential = TerrainGenerator.generateHeightMap(-size / 2, -37, size);
+                TerrainGenerator.setParallelism(PARALLELISM);
+                float[] parallel = TerrainGenerator.generateHeightMap(-size / 2, -37, size);
+                assertEquals(sequential.length, parallel.length);
+                for (int i = 0; i < sequential.length; i++) {
+                    assertEquals(Float.floatToRawIntBits(sequential[i]), Float.floatToRawIntBits(parallel[i]),
+                            "Grille " + size + ", échantillon " + i);
+                }
+            }
+        } finally {
+            TerrainGenerator.setParallelism(previous);
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue(bean.isThreadAllocatedMemorySupported(), "ThreadMXBean sans mesure des allocations par thread");
+        bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+    }
+
+    // Octets alloués depuis leur démarrage par les threads vivants, par identifiant
+    private static Map<Long, Long> allocatedBytes(com.sun.management.ThreadMXBean threadBean) {
+        long[] ids = threadBean.getAllThreadIds();
+        long[] bytes = threadBean.getThreadAllocatedBytes(ids);
+        Map<Long, Long> result = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) {
+                result.put(ids[i], bytes[i]);
+            }
+        }
+        return result;
+    }
+}
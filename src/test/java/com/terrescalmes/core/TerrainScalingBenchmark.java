@@ -0,0 +1,46 @@
+package com.terrescalmes.core;
+
+// Passage à l'échelle de la génération des hauteurs : échantillons par seconde de 1 à N threads, pour les
+// grilles de 513, 1025 et 4097 sommets de côté. Lancer avec ./gradlew terrainBenchmark [--args="N"],
+// N vaut par défaut le nombre de cœurs
+public class TerrainScalingBenchmark {
+
+    private static final int[] SIZES = { 513, 1025, 4097 };
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int previous = TerrainGenerator.getParallelism();
+
+        StringBuilder header = new StringBuilder(String.format("%8s", "threads"));
+        for (int size : SIZES) {
+            header.append(String.format("%16s", size + "x" + size));
+        }
+        System.out.println("Échantillons/s (meilleure de " + MEASURED_RUNS + " mesures)");
+        System.out.println(header);
+
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            TerrainGenerator.setParallelism(threads);
+            StringBuilder line = new StringBuilder(String.format("%8d", threads));
+            for (int size : SIZES) {
+                line.append(String.format("%16.0f", samplesPerSecond(size)));
+            }
+            System.out.println(line);
+        }
+        TerrainGenerator.setParallelism(previous);
+    }
+
+    private static double samplesPerSecond(int size) {
+        for (int run = 0; run < WARMUP_RUNS; run++) {
+            TerrainGenerator.generateHeightMap(-size / 2, -size / 2, size);
+        }
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < MEASURED_RUNS; run++) {
+            long start = System.nanoTime();
+            TerrainGenerator.generateHeightMap(-size / 2, -size / 2, size);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double) size * size / (best / 1e9);
+    }
+}
@@ -0,0 +1,18 @@
+package com.terrescalmes.core.graphics;
+
+// Meshes et textures détachés d'OpenGL pour les tests des autres paquets : bornes réelles, identifiants factices,
+// rien n'est envoyé au GPU. Ils ne doivent jamais être liés ni dessinés
+public final class DetachedResources {
+
+    private DetachedResources() {
+    }
+
+    // positions : x, y, z de chaque sommet ; le mesh serait dessiné avec indexCount indices sur le VAO vaoId
+    public static Mesh mesh(float[] positions, int indexCount, int vaoId) {
+        return new Mesh(positions, indexCount, vaoId);
+    }
+
+    public static Texture texture(String texturePath, int textureId) {
+        return new Texture(texturePath, textureId);
+    }
+}
@@ -0,0 +1,235 @@
+package com.terrescalmes.core.graphics;
+
+import org.joml.Matrix4f;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LightClustersTest {
+
+    private static final float Z_NEAR = 0.1f;
+    private static final float Z_FAR = 2000.0f;
+    private static final int SAMPLES_PER_LIGHT = 64;
+
+    private final Matrix4f projMatrix = new Matrix4f().setPerspective((float) Math.toRadians(90.0f), 16.0f / 9.0f,
+            Z_NEAR, Z_FAR);
+
+    // Mêmes lumières par les deux chemins : résultats identiques au bit près, et conformes à la force brute
+    @Test
+    void parallelAndSequentialPathsMatchBruteForce() {
+        LightClusters clusters = new LightClusters();
+        clusters.setProjection(projMatrix, Z_NEAR, Z_FAR);
+        float[][] boxes = clusterBoxes();
+        Random random = new Random(19);
+        for (int lightCount : new int[] { 200, 40, LightClusters.PARALLEL_THRESHOLD, 5, 0, 600 }) {
+            float[][] lights = randomLights(random, lightCount);
+            addLights(clusters, lights);
+            clusters.assign(false);
+            int[] sequential = snapshot(clusters);
+            check(clusters, lights, boxes);
+
+            clusters.assign(true);
+            assertArrayEquals(sequential, snapshot(clusters), lightCount + " lumières");
+            check(clusters, lights, boxes);
+
+            // Le seuil choisit le chemin, le résultat ne change pas
+            clusters.assign();
+            assertArrayEquals(sequential, snapshot(clusters), lightCount + " lumières");
+        }
+    }
+
+    @Test
+    void addLightStopsAtMaxLights() {
+        LightClusters clusters = new LightClusters();
+        clusters.setProjection(projMatrix, Z_NEAR, Z_FAR);
+        clusters.begin();
+        for (int light = 0; light < LightClusters.MAX_LIGHTS; light++) {
+            assertEquals(light, clusters.addLight(0.0f, 0.0f, -10.0f, 1.0f));
+        }
+        assertEquals(-1, clusters.addLight(0.0f, 0.0f, -10.0f, 1.0f));
+        assertEquals(LightClusters.MAX_LIGHTS, clusters.getLightCount());
+        clusters.assign();
+        // Toutes dans les mêmes clusters, chacun les liste toutes
+        int[] counts = clusters.getClusterCounts();
+        for (int cluster = 0; cluster < LightClusters.CLUSTER_COUNT; cluster++) {
+            assertTrue(counts[cluster] == 0 || counts[cluster] == LightClusters.MAX_LIGHTS);
+        }
+        assertEquals(0, clusters.getIndexCount() % LightClusters.MAX_LIGHTS);
+        assertTrue(clusters.getIndexCount() > 0);
+    }
+
+    @Test
+    void computeRangeEdgeCases() {
+        // Jamais sous le seuil, ou exactement au seuil à distance nulle
+        assertEquals(0.0f, LightClusters.computeRange(1.0f, 1.0f, 0.5f, 0.1f, 1.0f, Z_FAR));
+        assertEquals(0.0f, LightClusters.computeRange(0.5f, 1.0f, 0.5f, 0.1f, 1.0f, Z_FAR));
+        assertEquals(0.0f, LightClusters.computeRange(0.0f, 0.0f, 0.0f, 0.0f, 0.01f, Z_FAR));
+        // Linéaire seule : (intensité / seuil - constante) / linéaire, plafonnée
+        assertEquals(198.0f, LightClusters.computeRange(1.0f, 1.0f, 0.5f, 0.0f, 0.01f, Z_FAR), 1e-3f);
+        assertEquals(100.0f, LightClusters.computeRange(1.0f, 1.0f, 0.5f, 0.0f, 0.01f, 100.0f));
+        // Aucune atténuation : portée maximale
+        assertEquals(Z_FAR, LightClusters.computeRange(1.0f, 1.0f, 0.0f, 0.0f, 0.01f, Z_FAR));
+        assertEquals(Z_FAR, LightClusters.computeRange(1.0f, 0.0f, 0.0f, 0.0f, 0.01f, Z_FAR));
+
+        // Quadratique : l'intensité atténuée vaut le seuil à la portée
+        float constant = 1.0f;
+        float linear = 0.09f;
+        float exponent = 0.032f;
+        float range = LightClusters.computeRange(1.0f, constant, linear, exponent, 0.01f, Z_FAR);
+        assertEquals(0.01f, 1.0f / (constant + linear * range + exponent * range * range), 1e-6f);
+        // Exposant seul
+        range = LightClusters.computeRange(4.0f, 0.0f, 0.0f, 1.0f, 1.0f, Z_FAR);
+        assertEquals(2.0f, range, 1e-6f);
+    }
+
+    // Lumières {x, y, z, rayon} en espace vue : la plupart dans le frustum, certaines derrière la caméra, au-delà
+    // de zFar ou à cheval sur le plan proche
+    private static float[][] randomLights(Random random, int count) {
+        float[][] lights = new float[count][];
+        for (int light = 0; light < count; light++) {
+            float depth = switch (random.nextInt(10)) {
+                case 0 -> -random.nextFloat() * 20.0f;
+                case 1 -> Z_FAR - 20.0f + random.nextFloat() * 60.0f;
+                case 2 -> random.nextFloat() * 2.0f;
+                default -> (float) Math.pow(Z_FAR, random.nextFloat());
+            };
+            float x = (random.nextFloat() * 2.4f - 1.2f) * Math.max(depth, 1.0f) * 16.0f / 9.0f;
+            float y = (random.nextFloat() * 2.4f - 1.2f) * Math.max(depth, 1.0f);
+            float radius = 0.5f + random.nextFloat() * random.nextFloat() * 60.0f;
+            lights[light] = new float[] { x, y, -depth, radius };
+        }
+        return lights;
+    }
+
+    private static void addLights(LightClusters clusters, float[][] lights) {
+        clusters.begin();
+        for (float[] light : lights) {
+            clusters.addLight(light[0], light[1], light[2], light[3]);
+        }
+    }
+
+    // Décalages, nombres, puis index écrits : tout ce que lit ClusteredLighting
+    private static int[] snapshot(LightClusters clusters) {
+        int count = LightClusters.CLUSTER_COUNT;
+        int[] snapshot = new int[count * 2 + clusters.getIndexCount()];
+        System.arraycopy(clusters.getClusterOffsets(), 0, snapshot, 0, count);
+        System.arraycopy(clusters.getClusterCounts(), 0, snapshot, count, count);
+        System.arraycopy(clusters.getLightIndices(), 0, snapshot, count * 2, clusters.getIndexCount());
+        return snapshot;
+    }
+
+    // Chaque paire écrite passe le test sphère / boîte ; chaque point tiré dans une sphère retrouve sa lumière
+    // dans le cluster qui le contient. Les boîtes englobent les tuiles : la force brute seule accepte aussi des
+    // clusters que la sphère ne touche pas, d'où la complétude vérifiée par échantillonnage
+    private void check(LightClusters clusters, float[][] lights, float[][] boxes) {
+        int[] offsets = clusters.getClusterOffsets();
+        int[] counts = clusters.getClusterCounts();
+        int[] indices = clusters.getLightIndices();
+        List<Set<Integer>> lightsByCluster = new ArrayList<>();
+        int expectedOffset = 0;
+        for (int cluster = 0; cluster < LightClusters.CLUSTER_COUNT; cluster++) {
+            assertEquals(expectedOffset, offsets[cluster], "Cluster " + cluster);
+            expectedOffset += counts[cluster];
+            Set<Integer> clusterLights = new HashSet<>();
+            int previous = -1;
+            for (int i = offsets[cluster]; i < offsets[cluster] + counts[cluster]; i++) {
+                int light = indices[i];
+                assertTrue(light > previous, "Lumières non triées dans le cluster " + cluster);
+                previous = light;
+                assertTrue(intersects(boxes, cluster, lights[light]),
+                        "Lumière " + light + " hors du cluster " + cluster);
+                clusterLights.add(light);
+            }
+            lightsByCluster.add(clusterLights);
+        }
+        assertEquals(expectedOffset, clusters.getIndexCount());
+
+        float sliceScale = clusters.getSliceScale();
+        float sliceBias = clusters.getSliceBias();
+        Random random = new Random(lights.length);
+        for (int light = 0; light < lights.length; light++) {
+            for (int sample = 0; sample <= SAMPLES_PER_LIGHT; sample++) {
+                int cluster = sampleCluster(random, lights[light], sample == 0, sliceScale, sliceBias);
+                if (cluster >= 0) {
+                    assertTrue(lightsByCluster.get(cluster).contains(light),
+                            "Lumière " + light + " absente du cluster " + cluster);
+                }
+            }
+        }
+    }
+
+    // Cluster d'un point tiré à l'intérieur de la sphère (le centre pour le premier), -1 hors du frustum.
+    // Le rayon réduit garde les points loin des erreurs d'arrondi aux bords de la sphère
+    private int sampleCluster(Random random, float[] light, boolean center, float sliceScale, float sliceBias) {
+        float x = light[0];
+        float y = light[1];
+        float z = light[2];
+        if (!center) {
+            float dx;
+            float dy;
+            float dz;
+            do {
+                dx = random.nextFloat() * 2.0f - 1.0f;
+                dy = random.nextFloat() * 2.0f - 1.0f;
+                dz = random.nextFloat() * 2.0f - 1.0f;
+            } while (dx * dx + dy * dy + dz * dz > 1.0f);
+            float radius = light[3] * 0.99f;
+            x += dx * radius;
+            y += dy * radius;
+            z += dz * radius;
+        }
+        float depth = -z;
+        if (depth < Z_NEAR || depth >= Z_FAR) {
+            return -1;
+        }
+        int tileX = (int) Math.floor((x * projMatrix.m00() / depth + 1.0f) * 0.5f * LightClusters.CLUSTERS_X);
+        int tileY = (int) Math.floor((y * projMatrix.m11() / depth + 1.0f) * 0.5f * LightClusters.CLUSTERS_Y);
+        if (tileX < 0 || tileX >= LightClusters.CLUSTERS_X || tileY < 0 || tileY >= LightClusters.CLUSTERS_Y) {
+            return -1;
+        }
+        int slice = (int) ((float) Math.log(depth) * sliceScale + sliceBias);
+        slice = Math.max(0, Math.min(LightClusters.CLUSTERS_Z - 1, slice));
+        return LightClusters.clusterIndex(tileX, tileY, slice);
+    }
+
+    // Boîtes {minX, minY, minZ, maxX, maxY, maxZ} de chaque cluster, recalculées en double indépendamment
+    private float[][] clusterBoxes() {
+        float[][] boxes = new float[LightClusters.CLUSTER_COUNT][];
+        double projX = projMatrix.m00();
+        double projY = projMatrix.m11();
+        for (int slice = 0; slice < LightClusters.CLUSTERS_Z; slice++) {
+            double sliceNear = Z_NEAR * Math.pow(Z_FAR / Z_NEAR, (double) slice / LightClusters.CLUSTERS_Z);
+            double sliceFar = Z_NEAR * Math.pow(Z_FAR / Z_NEAR, (double) (slice + 1) / LightClusters.CLUSTERS_Z);
+            for (int tileY = 0; tileY < LightClusters.CLUSTERS_Y; tileY++) {
+                double ndcMinY = -1.0 + 2.0 * tileY / LightClusters.CLUSTERS_Y;
+                double ndcMaxY = -1.0 + 2.0 * (tileY + 1) / LightClusters.CLUSTERS_Y;
+                for (int tileX = 0; tileX < LightClusters.CLUSTERS_X; tileX++) {
+                    double ndcMinX = -1.0 + 2.0 * tileX / LightClusters.CLUSTERS_X;
+                    double ndcMaxX = -1.0 + 2.0 * (tileX + 1) / LightClusters.CLUSTERS_X;
+                    boxes[LightClusters.clusterIndex(tileX, tileY, slice)] = new float[] {
+                            (float) (Math.min(ndcMinX * sliceNear, ndcMinX * sliceFar) / projX),
+                            (float) (Math.min(ndcMinY * sliceNear, ndcMinY * sliceFar) / projY),
+                            (float) -sliceFar,
+                            (float) (Math.max(ndcMaxX * sliceNear, ndcMaxX * sliceFar) / projX),
+                            (float) (Math.max(ndcMaxY * sliceNear, ndcMaxY * sliceFar) / projY),
+                            (float) -sliceNear };
+                }
+            }
+        }
+        return boxes;
+    }
+
+    // Tolérance relative : les boîtes de LightClusters sont calculées en float
+    private static boolean intersects(float[][] boxes, int cluster, float[] light) {
+        float[] box = boxes[cluster];
+        double distance = 0.0;
+        for (int axis = 0; axis < 3; axis++) {
+            double d = Math.max(Math.max(box[axis] - light[axis], 0.0), light[axis] - box[axis + 3]);
+            distance += d * d;
+        }
+        double radius = light[3] * 1.0001 + 1e-3;
+        return distance <= radius * radius;
+    }
+}
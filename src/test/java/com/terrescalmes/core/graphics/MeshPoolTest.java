@@ -0,0 +1,148 @@
+package com.terrescalmes.core.graphics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Liste libre des pages (RangeAllocator) : la partie OpenGL du pool demande un contexte
+class MeshPoolTest {
+
+    private static final int CAPACITY = 1 << 14;
+
+    // Le bourrage d'alignement reste libre et la fin de la plage est réinsérée après lui
+    @Test
+    void alignmentPaddingStaysFree() {
+        MeshPool.RangeAllocator allocator = new MeshPool.RangeAllocator(CAPACITY);
+        assertEquals(0, allocator.allocate(3, 1));
+        assertEquals(4, allocator.allocate(10, 2));
+        assertRanges(allocator, 3, 1, 14, CAPACITY - 14);
+        // Le bourrage sert au prochain mesh qui y tient
+        assertEquals(3, allocator.allocate(1, 1));
+        assertRanges(allocator, 14, CAPACITY - 14);
+        // Réservation d'une plage entière : elle disparaît de la liste
+        allocator.free(3, 1);
+        allocator.free(0, 3);
+        assertEquals(-1, allocator.allocate(CAPACITY, 1));
+        assertEquals(14, allocator.allocate(CAPACITY - 14, 2));
+        assertRanges(allocator, 0, 4);
+        // Bourrage sans reste : aucune plage vide réinsérée après lui
+        assertEquals(0, allocator.allocate(1, 1));
+        assertEquals(2, allocator.allocate(2, 2));
+        assertRanges(allocator, 1, 1);
+    }
+
+    @Test
+    void freeMergesWithBothNeighbours() {
+        MeshPool.RangeAllocator allocator = new MeshPool.RangeAllocator(CAPACITY);
+        int a = allocator.allocate(100, 1);
+        int b = allocator.allocate(100, 1);
+        int c = allocator.allocate(100, 1);
+        allocator.allocate(100, 1);
+        allocator.free(a, 100);
+        allocator.free(c, 100);
+        assertRanges(allocator, 0, 100, 200, 100, 400, CAPACITY - 400);
+        // b rejoint a et c : une seule plage de 300
+        allocator.free(b, 100);
+        assertRanges(allocator, 0, 300, 400, CAPACITY - 400);
+        // Plage vidée par une réservation exacte : retirée de la liste
+        assertEquals(0, allocator.allocate(300, 1));
+        assertRanges(allocator, 400, CAPACITY - 400);
+    }
+
+    // Un trou sur deux rendu : plus de plages libres que la capacité initiale des tableaux
+    @Test
+    void rangeArraysGrow() {
+        MeshPool.RangeAllocator allocator = new MeshPool.RangeAllocator(CAPACITY);
+        int[] starts = new int[200];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = allocator.allocate(8, 1);
+        }
+        TreeMap<Integer, Integer> allocated = new TreeMap<>();
+        for (int i = 0; i < starts.length; i++) {
+            if (i % 2 == 0) {
+                allocator.free(starts[i], 8);
+            } else {
+                allocated.put(starts[i], 8);
+            }
+        }
+        assertEquals(starts.length / 2 + 1, allocator.getRangeCount());
+        checkInvariants(allocator, allocated);
+        for (int i = 1; i < starts.length; i += 2) {
+            allocator.free(starts[i], 8);
+        }
+        assertRanges(allocator, 0, CAPACITY);
+    }
+
+    // Suites aléatoires de réservations et de libérations : aucun chevauchement, aucune fuite, et le pool vidé
+    // redevient une seule plage
+    @Test
+    void randomSequencesLeaveOneFullRange() {
+        for (long seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            MeshPool.RangeAllocator allocator = new MeshPool.RangeAllocator(CAPACITY);
+            TreeMap<Integer, Integer> allocated = new TreeMap<>();
+            for (int step = 0; step < 3000; step++) {
+                if (allocated.isEmpty() || random.nextInt(100) < 55) {
+                    int length = 1 + random.nextInt(random.nextBoolean() ? 16 : 400);
+                    int alignment = random.nextBoolean() ? 1 : 2;
+                    int start = allocator.allocate(length, alignment);
+                    if (start >= 0) {
+                        assertEquals(0, start % alignment, "Graine " + seed + ", pas " + step);
+                        allocated.put(start, length);
+                    }
+                } else {
+                    Integer[] starts = allocated.keySet().toArray(new Integer[0]);
+                    int start = starts[random.nextInt(starts.length)];
+                    allocator.free(start, allocated.remove(start));
+                }
+                checkInvariants(allocator, allocated);
+            }
+            List<Integer> remaining = new ArrayList<>(allocated.keySet());
+            Collections.shuffle(remaining, random);
+            for (int start : remaining) {
+                allocator.free(start, allocated.remove(start));
+                checkInvariants(allocator, allocated);
+            }
+            assertRanges(allocator, 0, CAPACITY);
+        }
+    }
+
+    // Plages libres triées, non vides, jamais contiguës (elles seraient fusionnées), disjointes des plages
+    // réservées ; libre et réservé couvrent exactement la capacité
+    private static void checkInvariants(MeshPool.RangeAllocator allocator, TreeMap<Integer, Integer> allocated) {
+        TreeMap<Integer, Integer> all = new TreeMap<>(allocated);
+        int previousEnd = -1;
+        for (int i = 0; i < allocator.getRangeCount(); i++) {
+            int start = allocator.getRangeStart(i);
+            int length = allocator.getRangeLength(i);
+            assertTrue(length > 0, "Plage libre vide en " + start);
+            assertTrue(start > previousEnd, "Plages libres non triées ou non fusionnées en " + start);
+            previousEnd = start + length;
+            all.put(start, length);
+        }
+        int end = 0;
+        for (Map.Entry<Integer, Integer> range : all.entrySet()) {
+            assertTrue(range.getKey() >= end, "Chevauchement en " + range.getKey());
+            end = range.getKey() + range.getValue();
+        }
+        assertTrue(end <= CAPACITY);
+        long covered = 0;
+        for (int length : all.values()) {
+            covered += length;
+        }
+        // Libre et réservé ensemble : exactement la capacité, rien ne se perd
+        assertEquals(CAPACITY, covered, "Capacité perdue");
+    }
+
+    // ranges : début et longueur de chaque plage libre attendue, dans l'ordre
+    private static void assertRanges(MeshPool.RangeAllocator allocator, int... ranges) {
+        int[] actual = new int[allocator.getRangeCount() * 2];
+        for (int i = 0; i < allocator.getRangeCount(); i++) {
+            actual[i * 2] = allocator.getRangeStart(i);
+            actual[i * 2 + 1] = allocator.getRangeLength(i);
+        }
+        assertArrayEquals(ranges, actual);
+    }
+}
@@ -0,0 +1,106 @@
+package com.terrescalmes.core.graphics;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OcclusionCullerTest {
+
+    private final Matrix4f projMatrix = new Matrix4f().setPerspective((float) Math.toRadians(60.0f), 16.0f / 9.0f,
+            0.1f, 1000.0f);
+    // Caméra à l'origine, regard vers -Z
+    private final Matrix4f viewMatrix = new Matrix4f().lookAt(0.0f, 0.0f, 0.0f, 0.0f, 0.0f, -1.0f, 0.0f, 1.0f, 0.0f);
+
+    @Test
+    void boxBehindOccluderIsOccluded() {
+        OcclusionCuller culler = new OcclusionCuller();
+        culler.begin(projMatrix, viewMatrix);
+        culler.addOccluder(-10.0f, -10.0f, -22.0f, 10.0f, 10.0f, -20.0f);
+        culler.rasterize();
+
+        assertFalse(culler.isAabbVisible(-2.0f, -2.0f, -42.0f, 2.0f, 2.0f, -40.0f));
+        assertEquals(1, culler.getOccludedCount());
+    }
+
+    @Test
+    void boxBesideOrInFrontOfOccluderStaysVisible() {
+        OcclusionCuller culler = new OcclusionCuller();
+        culler.begin(projMatrix, viewMatrix);
+        culler.addOccluder(-10.0f, -10.0f, -22.0f, 10.0f, 10.0f, -20.0f);
+        culler.rasterize();
+
+        // À côté : même profondeur que la boîte cachée, hors de l'ombre de l'occulteur
+        assertTrue(culler.isAabbVisible(30.0f, -2.0f, -42.0f, 34.0f, 2.0f, -40.0f));
+        // Dépasse de l'ombre de l'occulteur, qui s'arrête à x = 20 à cette profondeur
+        assertTrue(culler.isAabbVisible(18.0f, -2.0f, -42.0f, 24.0f, 2.0f, -40.0f));
+        // Devant l'occulteur
+        assertTrue(culler.isAabbVisible(-2.0f, -2.0f, -12.0f, 2.0f, 2.0f, -10.0f));
+        assertEquals(0, culler.getOccludedCount());
+    }
+
+    @Test
+    void emptyFrameOccludesNothing() {
+        OcclusionCuller culler = new OcclusionCuller();
+        culler.begin(projMatrix, viewMatrix);
+        culler.rasterize();
+        assertTrue(culler.isAabbVisible(-2.0f, -2.0f, -42.0f, 2.0f, 2.0f, -40.0f));
+    }
+
+    // Au-delà de PARALLEL_THRESHOLD triangles, les bandes sont rastérisées sur le pool fork/join : même tampon
+    // de profondeur et mêmes réponses que sur le thread courant
+    @Test
+    void parallelBandsMatchSerialBands() {
+        OcclusionCuller serial = new OcclusionCuller();
+        serial.setParallel(false);
+        OcclusionCuller parallel = new OcclusionCuller();
+        Random random = new Random(21);
+        Matrix4f view = new Matrix4f();
+        Vector3f eye = new Vector3f();
+
+        for (int frame = 0; frame < 20; frame++) {
+            eye.set(random.nextFloat() * 100.0f - 50.0f, 30.0f + random.nextFloat() * 10.0f,
+                    random.nextFloat() * 100.0f - 50.0f);
+            float angle = random.nextFloat() * 6.28f;
+            view.setLookAt(eye.x, eye.y, eye.z, eye.x + (float) Math.cos(angle), eye.y - 0.3f,
+                    eye.z + (float) Math.sin(angle), 0.0f, 1.0f, 0.0f);
+            serial.begin(projMatrix, view);
+            parallel.begin(projMatrix, view);
+            // Terrain en escalier de 32 x 32 blocs sous la caméra
+            for (int z = 0; z < 32; z++) {
+                for (int x = 0; x < 32; x++) {
+                    float minX = x * 16.0f - 256.0f;
+                    float minZ = z * 16.0f - 256.0f;
+                    float top = 10.0f + 15.0f * (float) Math.sin(x * 0.5f + frame) * (float) Math.cos(z * 0.4f);
+                    serial.addOccluder(minX, -20.0f, minZ, minX + 16.0f, top, minZ + 16.0f);
+                    parallel.addOccluder(minX, -20.0f, minZ, minX + 16.0f, top, minZ + 16.0f);
+                }
+            }
+            serial.rasterize();
+            parallel.rasterize();
+            assertTrue(parallel.getTriangleCount() >= OcclusionCuller.PARALLEL_THRESHOLD,
+                    "Triangles: " + parallel.getTriangleCount());
+            assertEquals(serial.getTriangleCount(), parallel.getTriangleCount());
+
+            for (int y = 0; y < OcclusionCuller.HEIGHT; y++) {
+                for (int x = 0; x < OcclusionCuller.WIDTH; x++) {
+                    assertEquals(Float.floatToRawIntBits(serial.getDepth(x, y)),
+                            Float.floatToRawIntBits(parallel.getDepth(x, y)), "Pixel " + x + ", " + y);
+                }
+            }
+            // Les boîtes testées passent par les niveaux réduits de la pyramide
+            for (int i = 0; i < 200; i++) {
+                float minX = random.nextFloat() * 400.0f - 200.0f;
+                float minY = random.nextFloat() * 40.0f - 10.0f;
+                float minZ = random.nextFloat() * 400.0f - 200.0f;
+                float size = 1.0f + random.nextFloat() * 20.0f;
+                assertEquals(serial.isAabbVisible(minX, minY, minZ, minX + size, minY + size, minZ + size),
+                        parallel.isAabbVisible(minX, minY, minZ, minX + size, minY + size, minZ + size));
+            }
+            assertEquals(serial.getOccludedCount(), parallel.getOccludedCount());
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.terrescalmes.core.graphics;
+
+import org.joml.Vector4f;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import com.terrescalmes.core.TerrainGenerator;
+import com.terrescalmes.entities.Entity;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Partie CPU du batcher (prepare) : l'envoi au GPU des cellules préparées demande un contexte OpenGL
+class StaticBatcherTest {
+
+    private static final float CELL_SIZE = TerrainGenerator.CHUNK_WORLD_SIZE;
+    private static final float EPSILON = 1e-4f;
+
+    @Test
+    void entitiesAreSplitByCell() {
+        StaticBatcher batcher = new StaticBatcher();
+        StaticBatcher.Source rock = new StaticBatcher.Source().add(material(0.5f), quad());
+        batcher.add(entity("a", "rock", 10.0f, 10.0f), rock);
+        batcher.add(entity("b", "rock", CELL_SIZE - 2.0f, 30.0f), rock);
+        batcher.add(entity("c", "rock", CELL_SIZE + 2.0f, 30.0f), rock);
+        // Coordonnées négatives : cellule (-1, -1), pas (0, 0)
+        batcher.add(entity("d", "rock", -2.0f, -2.0f), rock);
+
+        List<StaticBatcher.CellBatch> prepared = batcher.prepare();
+        assertEquals(3, prepared.size());
+        assertEquals(8, vertexCount(prepared, 0, 0));
+        assertEquals(4, vertexCount(prepared, 1, 0));
+        assertEquals(4, vertexCount(prepared, -1, -1));
+        assertEquals(4, batcher.getBatchedEntityCount());
+    }
+
+    // Deux matériaux de mêmes valeurs, venant de sources différentes, ne font qu'un groupe ; une couleur
+    // différente en fait un second
+    @Test
+    void equalMaterialsAreMerged() {
+        StaticBatcher batcher = new StaticBatcher();
+        StaticBatcher.Source rock = new StaticBatcher.Source().add(material(0.5f), quad());
+        StaticBatcher.Source wall = new StaticBatcher.Source().add(material(0.5f), quad()).add(material(0.8f),
+                quad());
+        batcher.add(entity("a", "rock", 10.0f, 10.0f), rock);
+        batcher.add(entity("b", "wall", 20.0f, 10.0f), wall);
+
+        List<StaticBatcher.CellBatch> prepared = batcher.prepare();
+        assertEquals(1, prepared.size());
+        List<StaticBatcher.Group> groups = prepared.get(0).groups();
+        assertEquals(2, groups.size());
+        assertEquals(new Vector4f(0.5f), groups.get(0).getMaterial().getDiffuseColor());
+        assertEquals(8, groups.get(0).getVertexCount());
+        assertEquals(new Vector4f(0.8f), groups.get(1).getMaterial().getDiffuseColor());
+        assertEquals(4, groups.get(1).getVertexCount());
+    }
+
+    // Sommets en espace monde, indices décalés des sommets déjà fusionnés, normales tournées avec l'entité
+    @Test
+    void geometryIsTransformedAndReindexed() {
+        StaticBatcher batcher = new StaticBatcher();
+        StaticBatcher.Source rock = new StaticBatcher.Source().add(material(0.5f), quad());
+        batcher.add(entity("a", "rock", 10.0f, 10.0f), rock);
+        Entity turned = new Entity("b", "rock");
+        turned.setPosition(40.0f, 5.0f, 20.0f);
+        turned.getRotation().rotateX((float) Math.toRadians(90.0f));
+        turned.setScale(2.0f);
+        turned.updateModelMatrix();
+        batcher.add(turned, rock);
+
+        List<MeshBuilder> parts = batcher.prepare().get(0).groups().get(0).getParts();
+        assertEquals(1, parts.size());
+        MeshBuilder part = parts.get(0);
+        assertEquals(8, part.getVertexCount());
+        assertArrayEquals(new int[] { 0, 1, 2, 2, 3, 0, 4, 5, 6, 6, 7, 4 }, part.toIndicesArray());
+
+        float[] positions = part.getPositions();
+        assertEquals(11.0f, positions[2 * 3], EPSILON);
+        assertEquals(11.0f, positions[2 * 3 + 2], EPSILON);
+        // Sommet (1, 0, 1) de la seconde entité : échelle 2, z devient -y après le quart de tour autour de X
+        assertEquals(42.0f, positions[6 * 3], EPSILON);
+        assertEquals(3.0f, positions[6 * 3 + 1], EPSILON);
+        assertEquals(20.0f, positions[6 * 3 + 2], EPSILON);
+        // La normale +Y devient +Z, toujours unitaire malgré l'échelle
+        float[] normals = part.getNormals();
+        assertEquals(0.0f, normals[6 * 3 + 1], EPSILON);
+        assertEquals(1.0f, normals[6 * 3 + 2], EPSILON);
+        assertEquals(1.0f, part.getTextCoords()[6 * 2], EPSILON);
+    }
+
+    // Seules les cellules touchées sont reconstruites, une cellule vidée revient sans groupe
+    @Test
+    void onlyTouchedCellsAreRebuilt() {
+        StaticBatcher batcher = new StaticBatcher();
+        StaticBatcher.Source rock = new StaticBatcher.Source().add(material(0.5f), quad());
+        Entity a = entity("a", "rock", 10.0f, 10.0f);
+        Entity b = entity("b", "rock", 20.0f, 10.0f);
+        Entity c = entity("c", "rock", CELL_SIZE + 10.0f, 10.0f);
+        batcher.add(a, rock);
+        batcher.add(b, rock);
+        batcher.add(c, rock);
+        assertEquals(2, batcher.prepare().size());
+        assertTrue(batcher.prepare().isEmpty());
+
+        assertTrue(batcher.remove(a));
+        assertFalse(batcher.remove(a));
+        List<StaticBatcher.CellBatch> prepared = batcher.prepare();
+        assertEquals(1, prepared.size());
+        assertEquals(4, vertexCount(prepared, 0, 0));
+
+        assertTrue(batcher.remove(c));
+        prepared = batcher.prepare();
+        assertEquals(1, prepared.size());
+        assertEquals(1, prepared.get(0).cellX());
+        assertTrue(prepared.get(0).groups().isEmpty());
+
+        // Retrait du modèle : ses entités batchées partent avec lui
+        batcher.add(entity("d", "wall", 30.0f, 10.0f), new StaticBatcher.Source().add(material(0.5f), quad()));
+        batcher.prepare();
+        batcher.removeModelEntities("rock");
+        prepared = batcher.prepare();
+        assertEquals(4, vertexCount(prepared, 0, 0));
+        assertEquals(1, batcher.getBatchedEntityCount());
+    }
+
+    // Au-delà de 65536 sommets un groupe passe à une nouvelle partie : les indices restent sur 16 bits
+    @Test
+    void largeGroupsAreSplit() {
+        StaticBatcher batcher = new StaticBatcher();
+        StaticBatcher.Source block = new StaticBatcher.Source().add(material(0.5f), grid(150));
+        for (int i = 0; i < 3; i++) {
+            batcher.add(entity("e" + i, "block", 10.0f, 10.0f + i), block);
+        }
+
+        List<MeshBuilder> parts = batcher.prepare().get(0).groups().get(0).getParts();
+        assertEquals(2, parts.size());
+        assertEquals(2 * 150 * 150, parts.get(0).getVertexCount());
+        assertEquals(150 * 150, parts.get(1).getVertexCount());
+        for (MeshBuilder part : parts) {
+            int max = 0;
+            for (int index : part.toIndicesArray()) {
+                max = Math.max(max, index);
+            }
+            assertTrue(max < part.getVertexCount() && max < 1 << 16, "Indice " + max);
+        }
+    }
+
+    private static int vertexCount(List<StaticBatcher.CellBatch> prepared, int cellX, int cellZ) {
+        for (StaticBatcher.CellBatch batch : prepared) {
+            if (batch.cellX() == cellX && batch.cellZ() == cellZ) {
+                int count = 0;
+                for (StaticBatcher.Group group : batch.groups()) {
+                    count += group.getVertexCount();
+                }
+                return count;
+            }
+        }
+        fail("Cellule " + cellX + ", " + cellZ + " non reconstruite");
+        return 0;
+    }
+
+    private static Entity entity(String id, String modelId, float x, float z) {
+        Entity entity = new Entity(id, modelId);
+        entity.setPosition(x, 0.0f, z);
+        entity.updateModelMatrix();
+        return entity;
+    }
+
+    // Valeurs seules : chaque appel crée des instances distinctes
+    private static Material material(float diffuse) {
+        Material material = new Material();
+        material.setTexturePath("default_texture");
+        material.setDiffuseColor(new Vector4f(diffuse));
+        return material;
+    }
+
+    // Carré unité horizontal, normale +Y
+    private static MeshBuilder quad() {
+        MeshBuilder builder = new MeshBuilder(4, 6);
+        builder.addPosition(0.0f, 0.0f, 0.0f).addPosition(1.0f, 0.0f, 0.0f).addPosition(1.0f, 0.0f, 1.0f)
+                .addPosition(0.0f, 0.0f, 1.0f);
+        for (int i = 0; i < 4; i++) {
+            builder.addNormal(0.0f, 1.0f, 0.0f);
+        }
+        builder.addTextCoord(0.0f, 0.0f).addTextCoord(1.0f, 0.0f).addTextCoord(1.0f, 1.0f).addTextCoord(0.0f, 1.0f);
+        return builder.addTriangle(0, 1, 2).addTriangle(2, 3, 0);
+    }
+
+    private static MeshBuilder grid(int size) {
+        MeshBuilder builder = new MeshBuilder(size * size, (size - 1) * (size - 1) * 6);
+        for (int z = 0; z < size; z++) {
+            for (int x = 0; x < size; x++) {
+                builder.addPosition(x * 0.01f, 0.0f, z * 0.01f).addNormal(0.0f, 1.0f, 0.0f);
+            }
+        }
+        for (int z = 0; z + 1 < size; z++) {
+            for (int x = 0; x + 1 < size; x++) {
+                int i = z * size + x;
+                builder.addTriangle(i, i + size, i + 1).addTriangle(i + 1, i + size, i + size + 1);
+            }
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,152 @@
+package com.terrescalmes.core.graphics;
+
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.lwjgl.opengl.GL;
+
+import java.util.*;
+
+import com.terrescalmes.core.terrain.CdlodTerrain;
+
+import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+// Coût des uniforms par nœud du terrain CDLOD (nodeOffset, nodeScale, morphConsts), avant et après les handles
+// de UniformsMap : recherche par nom et glUniform à chaque appel, contre handle résolu une fois et valeur
+// inchangée non renvoyée. Programme réel du terrain, nœuds sélectionnés par CdlodTerrain autour d'une caméra
+// en orbite, sans dessin pour ne mesurer que les uniforms. Demande un contexte OpenGL (fenêtre cachée).
+// Lancer avec ./gradlew uniformsBenchmark
+public class UniformsBenchmark {
+
+    private static final int TERRAIN_SIZE = 4097; // Comme le mode CDLOD de GameEngine
+    private static final int WARMUP_FRAMES = 500;
+    private static final int MEASURED_FRAMES = 2000;
+    private static final int RUNS = 3;
+
+    private static final Vector3f cameraPosition = new Vector3f();
+    private static final Vector2f nodeOffset = new Vector2f();
+    private static final Vector2f morphConsts = new Vector2f();
+
+    public static void main(String[] args) {
+        if (!glfwInit()) {
+            throw new IllegalStateException("Unable to initialize GLFW");
+        }
+        glfwDefaultWindowHints();
+        glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 3);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
+        glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
+        glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GLFW_TRUE);
+        long window = glfwCreateWindow(64, 64, "UniformsBenchmark", NULL, NULL);
+        if (window == NULL) {
+            glfwTerminate();
+            throw new IllegalStateException("Unable to create an OpenGL 3.3 context");
+        }
+        glfwMakeContextCurrent(window);
+        GL.createCapabilities();
+
+        List<ShaderProgram.ShaderModuleData> shaderModuleDataList = new ArrayList<>();
+        shaderModuleDataList.add(new ShaderProgram.ShaderModuleData("resources/shaders/terrain.vert", GL_VERTEX_SHADER));
+        shaderModuleDataList.add(new ShaderProgram.ShaderModuleData("resources/shaders/scene.frag", GL_FRAGMENT_SHADER));
+        ShaderProgram shaderProgram = new ShaderProgram(shaderModuleDataList);
+        shaderProgram.bind();
+
+        int origin = -(TERRAIN_SIZE - 1) / 2;
+        CdlodTerrain terrain = new CdlodTerrain(origin, origin, TERRAIN_SIZE);
+        NameLookupUniforms before = new NameLookupUniforms(shaderProgram.getProgramId());
+        UniformsMap after = new UniformsMap(shaderProgram.getProgramId());
+        int nodeOffsetUniform = after.createUniform("nodeOffset");
+        int nodeScaleUniform = after.createUniform("nodeScale");
+        int morphConstsUniform = after.createUniform("morphConsts");
+
+        System.out.println(glGetString(GL_RENDERER));
+        for (int run = 0; run < RUNS; run++) {
+            long beforeNanos = 0;
+            long afterNanos = 0;
+            long nodes = 0;
+            UniformsMap.resetStats();
+            for (int frame = 0; frame < WARMUP_FRAMES + MEASURED_FRAMES; frame++) {
+                boolean measured = frame >= WARMUP_FRAMES;
+                float angle = frame * 0.002f;
+                cameraPosition.set((float) Math.cos(angle) * 1500.0f, 80.0f, (float) Math.sin(angle) * 1500.0f);
+                terrain.select(cameraPosition, null, null);
+                float gridSize = CdlodTerrain.GRID_SIZE;
+
+                // Avant : une recherche par nom et un appel glUniform par uniform et par nœud
+                long start = System.nanoTime();
+                for (int i = 0; i < terrain.getSelectedCount(); i++) {
+                    int level = terrain.getSelectedLevel(i);
+                    float morphStart = terrain.getMorphStart(level);
+                    float morphEnd = terrain.getMorphEnd(level);
+                    before.setUniform("nodeOffset", nodeOffset.set(terrain.getSelectedX(i), terrain.getSelectedZ(i)));
+                    before.setUniform("nodeScale", terrain.getNodeSize(level) / gridSize);
+                    before.setUniform("morphConsts", morphConsts.set(morphEnd / (morphEnd - morphStart),
+                            1.0f / (morphEnd - morphStart)));
+                }
+                glFinish();
+                long middle = System.nanoTime();
+
+                // Après : handles, valeurs inchangées d'un nœud à l'autre non renvoyées
+                if (!measured) {
+                    UniformsMap.resetStats();
+                }
+                for (int i = 0; i < terrain.getSelectedCount(); i++) {
+                    int level = terrain.getSelectedLevel(i);
+                    float morphStart = terrain.getMorphStart(level);
+                    float morphEnd = terrain.getMorphEnd(level);
+                    after.setUniform(nodeOffsetUniform, nodeOffset.set(terrain.getSelectedX(i), terrain.getSelectedZ(i)));
+                    after.setUniform(nodeScaleUniform, terrain.getNodeSize(level) / gridSize);
+                    after.setUniform(morphConstsUniform, morphConsts.set(morphEnd / (morphEnd - morphStart),
+                            1.0f / (morphEnd - morphStart)));
+                }
+                glFinish();
+                long end = System.nanoTime();
+
+                if (measured) {
+                    beforeNanos += middle - start;
+                    afterNanos += end - middle;
+                    nodes += terrain.getSelectedCount();
+                }
+            }
+            int issued = UniformsMap.getIssuedCount();
+            int skipped = UniformsMap.getSkippedCount();
+            System.out.printf("%d nœuds/frame | avant %.2f µs/frame | après %.2f µs/frame | %d%% d'appels évités%n",
+                    nodes / MEASURED_FRAMES, beforeNanos / 1e3 / MEASURED_FRAMES, afterNanos / 1e3 / MEASURED_FRAMES,
+                    Math.round(100.0 * skipped / Math.max(1, issued + skipped)));
+        }
+
+        shaderProgram.cleanup();
+        glfwDestroyWindow(window);
+        glfwTerminate();
+    }
+
+    // UniformsMap avant les handles : location cherchée par nom à chaque appel, glUniform toujours émis
+    private static final class NameLookupUniforms {
+
+        private final int programId;
+        private final Map<String, Integer> uniforms;
+
+        private NameLookupUniforms(int programId) {
+            this.programId = programId;
+            uniforms = new HashMap<>();
+        }
+
+        private int getUniformLocation(String uniformName) {
+            Integer location = uniforms.get(uniformName);
+            if (location == null) {
+                location = glGetUniformLocation(programId, uniformName);
+                uniforms.put(uniformName, location);
+            }
+            return location;
+        }
+
+        private void setUniform(String uniformName, float value) {
+            glUniform1f(getUniformLocation(uniformName), value);
+        }
+
+        private void setUniform(String uniformName, Vector2f value) {
+            glUniform2f(getUniformLocation(uniformName), value.x, value.y);
+        }
+    }
+}
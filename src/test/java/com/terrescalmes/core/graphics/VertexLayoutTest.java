@@ -0,0 +1,125 @@
+package com.terrescalmes.core.graphics;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Encodeurs des formats compressés, vérifiés octet par octet à travers pack (le GPU les relit tels quels)
+class VertexLayoutTest {
+
+    // Position (12 octets) puis normale (4 octets) dans les layouts de Mesh
+    private static final int NORMAL_OFFSET = 12;
+    private static final int TEXT_COORD_OFFSET = 16;
+
+    @Test
+    void halfFloatBitPatterns() {
+        assertEquals(0x0000, half(0.0f));
+        assertEquals(0x8000, half(-0.0f));
+        assertEquals(0x3C00, half(1.0f));
+        assertEquals(0xBC00, half(-1.0f));
+        assertEquals(0x4200, half(3.0f));
+        assertEquals(0x3555, half(1.0f / 3.0f));
+        // Plus grand half fini, puis hors plage : infini signé
+        assertEquals(0x7BFF, half(65504.0f));
+        assertEquals(0x7BFF, half(65519.0f));
+        assertEquals(0x7C00, half(1.0e6f));
+        assertEquals(0xFC00, half(-1.0e6f));
+        // Plus petit dénormalisé, plus grand dénormalisé, plus petit normalisé
+        assertEquals(0x0001, half(0x1.0p-24f));
+        assertEquals(0x03FF, half(1023.0f * 0x1.0p-24f));
+        assertEquals(0x0400, half(0x1.0p-14f));
+        // Trop petit même pour un dénormalisé : zéro signé
+        assertEquals(0x0000, half(0x1.0p-26f));
+        assertEquals(0x8000, half(-0x1.0p-26f));
+    }
+
+    // La retenue de l'arrondi passe dans l'exposant : mantisse pleine arrondie à la puissance de deux suivante
+    @Test
+    void halfFloatRoundingCarriesIntoExponent() {
+        assertEquals(0x3FFF, half(1.9990234f));
+        assertEquals(0x4000, half(1.9999f));
+        assertEquals(0x3C00, half(0.99999f));
+        // Depuis le plus grand dénormalisé vers le plus petit normalisé
+        assertEquals(0x0400, half(0x1.0p-14f - 0x1.0p-26f));
+        // Juste sous la moitié d'un écart : arrondi vers le bas
+        assertEquals(0x3C00, half(1.0f + 0x1.0p-12f));
+        assertEquals(0x3C01, half(1.0f + 0x1.8p-11f));
+    }
+
+    @Test
+    void unorm16Limits() {
+        assertArrayEquals(new int[] { 0x0000, 0xFFFF }, unorm16(0.0f, 1.0f));
+        // Bornées à [0, 1]
+        assertArrayEquals(new int[] { 0x0000, 0xFFFF }, unorm16(-0.5f, 2.0f));
+        assertArrayEquals(new int[] { 0x8000, 0x0001 }, unorm16(0.5f, 1.0f / 65535.0f));
+    }
+
+    @Test
+    void snorm10Limits() {
+        assertArrayEquals(new int[] { 0x1FF, 0x201, 0x000 }, snorm10(1.0f, -1.0f, 0.0f));
+        // Bornées à [-1, 1] : -512 n'est jamais produit
+        assertArrayEquals(new int[] { 0x1FF, 0x201, 0x100 }, snorm10(2.0f, -2.0f, 0.5f));
+        assertArrayEquals(new int[] { 0x001, 0x3FF, 0x000 }, snorm10(1.0f / 511.0f, -1.0f / 511.0f, -0.0f));
+    }
+
+    // Valeurs manquantes (au-delà de lengths[i]) écrites à 0
+    @Test
+    void packFillsMissingValuesWithZero() {
+        ByteBuffer buffer = ByteBuffer.allocate(2 * VertexLayout.MESH_FLOAT_UV.getStride())
+                .order(ByteOrder.nativeOrder());
+        float[][] sources = { { 1.0f, 2.0f, 3.0f, 4.0f, 5.0f, 6.0f }, { 0.0f, 1.0f, 0.0f }, { 7.0f, 8.0f } };
+        VertexLayout.MESH_FLOAT_UV.pack(buffer, 2, sources, new int[] { 6, 3, 2 });
+        assertEquals(2 * VertexLayout.MESH_FLOAT_UV.getStride(), buffer.position());
+        int second = VertexLayout.MESH_FLOAT_UV.getStride();
+        assertEquals(4.0f, buffer.getFloat(second));
+        assertEquals(0, buffer.getInt(second + NORMAL_OFFSET));
+        assertEquals(0.0f, buffer.getFloat(second + TEXT_COORD_OFFSET));
+        assertEquals(7.0f, buffer.getFloat(TEXT_COORD_OFFSET));
+        assertEquals(8.0f, buffer.getFloat(TEXT_COORD_OFFSET + 4));
+    }
+
+    @Test
+    void forTextCoordsPicksEachLayout() {
+        assertSame(VertexLayout.MESH_UNORM_UV, VertexLayout.forTextCoords(new float[] { 0.0f, 1.0f, 0.5f, 0.25f }, 4));
+        assertSame(VertexLayout.MESH_UNORM_UV, VertexLayout.forTextCoords(new float[0], 0));
+        assertSame(VertexLayout.MESH_HALF_UV, VertexLayout.forTextCoords(new float[] { -0.5f, 1.5f }, 2));
+        assertSame(VertexLayout.MESH_HALF_UV, VertexLayout.forTextCoords(new float[] { -2.0f, 2.0f }, 2));
+        assertSame(VertexLayout.MESH_FLOAT_UV, VertexLayout.forTextCoords(new float[] { 0.0f, 3.0f }, 2));
+        assertSame(VertexLayout.MESH_FLOAT_UV, VertexLayout.forTextCoords(new float[] { -2.5f, 0.0f }, 2));
+        // Seules les length premières valeurs comptent
+        assertSame(VertexLayout.MESH_UNORM_UV, VertexLayout.forTextCoords(new float[] { 0.5f, 0.5f, 10.0f }, 2));
+
+        assertEquals(20, VertexLayout.MESH_UNORM_UV.getStride());
+        assertEquals(20, VertexLayout.MESH_HALF_UV.getStride());
+        assertEquals(24, VertexLayout.MESH_FLOAT_UV.getStride());
+        assertEquals(4, VertexLayout.GRID.getStride());
+    }
+
+    private static int half(float value) {
+        ByteBuffer buffer = packVertex(VertexLayout.MESH_HALF_UV, new float[3], new float[] { value, 0.0f });
+        return buffer.getShort(TEXT_COORD_OFFSET) & 0xFFFF;
+    }
+
+    private static int[] unorm16(float u, float v) {
+        ByteBuffer buffer = packVertex(VertexLayout.MESH_UNORM_UV, new float[3], new float[] { u, v });
+        return new int[] { buffer.getShort(TEXT_COORD_OFFSET) & 0xFFFF, buffer.getShort(TEXT_COORD_OFFSET + 2)
+                & 0xFFFF };
+    }
+
+    private static int[] snorm10(float x, float y, float z) {
+        ByteBuffer buffer = packVertex(VertexLayout.MESH_UNORM_UV, new float[] { x, y, z }, new float[2]);
+        int packed = buffer.getInt(NORMAL_OFFSET);
+        assertEquals(0, packed >>> 30, "Composante w");
+        return new int[] { packed & 0x3FF, packed >>> 10 & 0x3FF, packed >>> 20 & 0x3FF };
+    }
+
+    private static ByteBuffer packVertex(VertexLayout layout, float[] normal, float[] textCoord) {
+        ByteBuffer buffer = ByteBuffer.allocate(layout.getStride()).order(ByteOrder.nativeOrder());
+        float[][] sources = { new float[3], normal, textCoord };
+        layout.pack(buffer, 1, sources, new int[] { 3, 3, 2 });
+        return buffer;
+    }
+}
@@ -0,0 +1,310 @@
+package com.terrescalmes.core.spatial;
+
+import org.joml.Matrix4f;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import com.terrescalmes.core.graphics.FrustumCuller;
+import com.terrescalmes.entities.Entity;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Chaque requête est comparée à un parcours linéaire de toutes les boîtes, avec les mêmes tests en float
+class EntityBvhTest {
+
+    private static final float EXTENT = 500.0f;
+    // Au-dessus du seuil de construction parallèle (2048 primitives)
+    private static final int COUNT = 3000;
+    private static final int QUERIES = 200;
+
+    @Test
+    void emptyTreeAnswersNothing() {
+        EntityBvh bvh = new EntityBvh();
+        List<Entity> out = new ArrayList<>();
+        assertEquals(0, bvh.queryAabb(-1.0f, -1.0f, -1.0f, 1.0f, 1.0f, 1.0f, out));
+        assertNull(bvh.raycast(0.0f, 0.0f, 0.0f, 1.0f, 0.0f, 0.0f, 100.0f));
+        assertTrue(Float.isNaN(bvh.getRayDistance()));
+        assertEquals(0, bvh.getNodeCount());
+
+        Entity entity = new Entity("e", "model");
+        bvh.add(entity, 0.0f, 0.0f, 0.0f, 1.0f, 1.0f, 1.0f);
+        assertThrows(IllegalArgumentException.class, () -> bvh.add(entity, 0.0f, 0.0f, 0.0f, 1.0f, 1.0f, 1.0f));
+        assertThrows(IllegalArgumentException.class,
+                () -> bvh.update(new Entity("f", "model"), 0.0f, 0.0f, 0.0f, 1.0f, 1.0f, 1.0f));
+        assertTrue(bvh.remove(entity));
+        assertFalse(bvh.remove(entity));
+        assertEquals(0, bvh.queryAabb(-1.0f, -1.0f, -1.0f, 2.0f, 2.0f, 2.0f, out));
+        assertTrue(out.isEmpty());
+    }
+
+    // Construction parallèle sur des boîtes variées, dont une pile de centres confondus (découpe en moitiés)
+    // et quelques très grandes boîtes qui chevauchent tout
+    @Test
+    void queriesMatchLinearScanAfterBuild() {
+        Random random = new Random(13);
+        EntityBvh bvh = new EntityBvh();
+        Map<Entity, float[]> bounds = new LinkedHashMap<>();
+        fill(bvh, bounds, random);
+        assertEquals(COUNT, bvh.size());
+        assertTrue(bvh.getNodeCount() > 1 && bvh.getNodeCount() <= 2 * COUNT - 1, "Nœuds: " + bvh.getNodeCount());
+        checkQueries(bvh, bounds, random);
+    }
+
+    // Boîtes redimensionnées autour de leur centre (toujours un refit de la branche), petits déplacements,
+    // téléportations (reconstruction), puis assez de refits pour forcer la reconstruction : les requêtes restent
+    // exactes à chaque étape
+    @Test
+    void queriesMatchLinearScanAfterUpdates() {
+        Random random = new Random(31);
+        EntityBvh bvh = new EntityBvh();
+        Map<Entity, float[]> bounds = new LinkedHashMap<>();
+        fill(bvh, bounds, random);
+        checkQueries(bvh, bounds, random);
+
+        List<Entity> entities = new ArrayList<>(bounds.keySet());
+        for (int round = 0; round < 2; round++) {
+            for (int i = round; i < entities.size(); i += 3) {
+                resize(bvh, bounds, entities.get(i), random);
+            }
+            checkQueries(bvh, bounds, random);
+        }
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < entities.size(); i += 3) {
+                move(bvh, bounds, entities.get(i), random, 0.5f);
+            }
+            checkQueries(bvh, bounds, random);
+        }
+        for (int i = 0; i < 20; i++) {
+            move(bvh, bounds, entities.get(random.nextInt(entities.size())), random, EXTENT);
+        }
+        checkQueries(bvh, bounds, random);
+        // Plus de refits que d'entités depuis la dernière construction
+        for (int round = 0; round < 2; round++) {
+            for (Entity entity : entities) {
+                move(bvh, bounds, entity, random, 0.25f);
+            }
+        }
+        checkQueries(bvh, bounds, random);
+    }
+
+    @Test
+    void removeIfKeepsRemainingEntities() {
+        Random random = new Random(7);
+        EntityBvh bvh = new EntityBvh();
+        Map<Entity, float[]> bounds = new LinkedHashMap<>();
+        fill(bvh, bounds, random);
+        checkQueries(bvh, bounds, random);
+
+        Set<Entity> removed = new LinkedHashSet<>();
+        for (Entity entity : bounds.keySet()) {
+            if (random.nextInt(3) == 0) {
+                removed.add(entity);
+            }
+        }
+        assertEquals(removed.size(), bvh.removeIf(removed::contains));
+        bounds.keySet().removeAll(removed);
+        assertEquals(bounds.size(), bvh.size());
+        for (Entity entity : removed) {
+            assertFalse(bvh.contains(entity));
+        }
+        // La dernière primitive prend chaque place libérée : les requêtes vérifient qu'elle garde ses bornes
+        for (Entity entity : bounds.keySet()) {
+            assertTrue(bvh.contains(entity));
+        }
+        checkQueries(bvh, bounds, random);
+
+        // Déplacements après retrait, puis réinsertion d'une partie des entités retirées
+        List<Entity> entities = new ArrayList<>(bounds.keySet());
+        for (int i = 0; i < entities.size(); i += 2) {
+            move(bvh, bounds, entities.get(i), random, 1.0f);
+        }
+        int readded = 0;
+        for (Entity entity : removed) {
+            if (readded++ % 2 == 0) {
+                float[] box = randomBox(random);
+                bvh.add(entity, box[0], box[1], box[2], box[3], box[4], box[5]);
+                bounds.put(entity, box);
+            }
+        }
+        checkQueries(bvh, bounds, random);
+        assertEquals(bounds.size(), bvh.removeIf(entity -> true));
+        assertEquals(0, bvh.getNodeCount());
+    }
+
+    private static void fill(EntityBvh bvh, Map<Entity, float[]> bounds, Random random) {
+        for (int i = 0; i < COUNT; i++) {
+            float[] box;
+            if (i % 100 == 0) {
+                // Très grande boîte
+                float x = coordinate(random);
+                float z = coordinate(random);
+                box = new float[] { x - 200.0f, 0.0f, z - 200.0f, x + 200.0f, 50.0f, z + 200.0f };
+            } else if (i % 10 == 1) {
+                // Même centre, tailles différentes
+                float half = 0.5f + random.nextFloat() * 4.0f;
+                box = new float[] { 100.0f - half, 10.0f - half, 100.0f - half, 100.0f + half, 10.0f + half,
+                        100.0f + half };
+            } else {
+                box = randomBox(random);
+            }
+            Entity entity = new Entity("e" + i, "model");
+            bvh.add(entity, box[0], box[1], box[2], box[3], box[4], box[5]);
+            bounds.put(entity, box);
+        }
+    }
+
+    private static float[] randomBox(Random random) {
+        float x = coordinate(random);
+        float y = random.nextFloat() * 40.0f;
+        float z = coordinate(random);
+        float sizeX = 0.5f + random.nextFloat() * 10.0f;
+        float sizeY = 0.5f + random.nextFloat() * 10.0f;
+        float sizeZ = 0.5f + random.nextFloat() * 10.0f;
+        return new float[] { x, y, z, x + sizeX, y + sizeY, z + sizeZ };
+    }
+
+    // Même centre : la branche est réajustée sans jamais invalider l'arbre
+    private static void resize(EntityBvh bvh, Map<Entity, float[]> bounds, Entity entity, Random random) {
+        float[] box = bounds.get(entity);
+        float[] resized = new float[6];
+        for (int axis = 0; axis < 3; axis++) {
+            float center = (box[axis] + box[axis + 3]) * 0.5f;
+            float half = (box[axis + 3] - box[axis]) * 0.5f * (0.5f + random.nextFloat());
+            resized[axis] = center - half;
+            resized[axis + 3] = center + half;
+        }
+        bvh.update(entity, resized[0], resized[1], resized[2], resized[3], resized[4], resized[5]);
+        bounds.put(entity, resized);
+    }
+
+    private static void move(EntityBvh bvh, Map<Entity, float[]> bounds, Entity entity, Random random,
+            float distance) {
+        float[] box = bounds.get(entity);
+        float dx = (random.nextFloat() * 2.0f - 1.0f) * distance;
+        float dy = (random.nextFloat() * 2.0f - 1.0f) * distance;
+        float dz = (random.nextFloat() * 2.0f - 1.0f) * distance;
+        float[] moved = { box[0] + dx, box[1] + dy, box[2] + dz, box[3] + dx, box[4] + dy, box[5] + dz };
+        bvh.update(entity, moved[0], moved[1], moved[2], moved[3], moved[4], moved[5]);
+        bounds.put(entity, moved);
+    }
+
+    private static void checkQueries(EntityBvh bvh, Map<Entity, float[]> bounds, Random random) {
+        List<Entity> out = new ArrayList<>();
+
+        // Frustums depuis des positions et directions aléatoires
+        FrustumCuller frustumCuller = new FrustumCuller();
+        Matrix4f projMatrix = new Matrix4f().setPerspective((float) Math.toRadians(60.0f), 16.0f / 9.0f, 0.1f,
+                400.0f);
+        Matrix4f viewMatrix = new Matrix4f();
+        for (int query = 0; query < QUERIES; query++) {
+            viewMatrix.setLookAt(coordinate(random), random.nextFloat() * 100.0f, coordinate(random),
+                    coordinate(random), 0.0f, coordinate(random), 0.0f, 1.0f, 0.0f);
+            frustumCuller.update(projMatrix, viewMatrix);
+            Set<Entity> expected = new HashSet<>();
+            for (Map.Entry<Entity, float[]> entry : bounds.entrySet()) {
+                float[] box = entry.getValue();
+                if (frustumCuller.isAabbVisible(box[0], box[1], box[2], box[3], box[4], box[5])) {
+                    expected.add(entry.getKey());
+                }
+            }
+            out.clear();
+            assertEquals(expected.size(), bvh.queryFrustum(frustumCuller, out));
+            assertEquals(expected, distinct(out));
+        }
+
+        // Boîtes de requête de toutes tailles, dont des boîtes plates
+        for (int query = 0; query < QUERIES; query++) {
+            float x = coordinate(random);
+            float y = random.nextFloat() * 50.0f - 5.0f;
+            float z = coordinate(random);
+            float size = random.nextFloat() * random.nextFloat() * 300.0f;
+            float height = query % 10 == 0 ? 0.0f : size;
+            Set<Entity> expected = new HashSet<>();
+            for (Map.Entry<Entity, float[]> entry : bounds.entrySet()) {
+                float[] box = entry.getValue();
+                if (box[0] <= x + size && box[3] >= x && box[1] <= y + height && box[4] >= y && box[2] <= z + size
+                        && box[5] >= z) {
+                    expected.add(entry.getKey());
+                }
+            }
+            out.clear();
+            assertEquals(expected.size(), bvh.queryAabb(x, y, z, x + size, y + height, z + size, out));
+            assertEquals(expected, distinct(out));
+        }
+
+        // Coins de chaque boîte : une feuille ou un ancêtre mal réajusté après un déplacement les manque
+        for (Map.Entry<Entity, float[]> entry : bounds.entrySet()) {
+            float[] box = entry.getValue();
+            out.clear();
+            bvh.queryAabb(box[0], box[1], box[2], box[0], box[1], box[2], out);
+            assertTrue(out.contains(entry.getKey()), "Coin min de " + entry.getKey().getId());
+            out.clear();
+            bvh.queryAabb(box[3], box[4], box[5], box[3], box[4], box[5], out);
+            assertTrue(out.contains(entry.getKey()), "Coin max de " + entry.getKey().getId());
+        }
+
+        // Rayons : même distance d'entrée que la boîte la plus proche, touchée par l'entité retournée
+        for (int query = 0; query < QUERIES; query++) {
+            float originX = coordinate(random);
+            float originY = random.nextFloat() * 60.0f;
+            float originZ = coordinate(random);
+            float dirX = random.nextFloat() * 2.0f - 1.0f;
+            float dirY = (random.nextFloat() * 2.0f - 1.0f) * 0.2f;
+            float dirZ = random.nextFloat() * 2.0f - 1.0f;
+            float length = (float) Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+            dirX /= length;
+            dirY /= length;
+            dirZ /= length;
+            float maxDistance = random.nextFloat() * 2.0f * EXTENT;
+            float best = Float.POSITIVE_INFINITY;
+            for (float[] box : bounds.values()) {
+                best = Math.min(best, slab(box, originX, originY, originZ, dirX, dirY, dirZ, maxDistance));
+            }
+            Entity hit = bvh.raycast(originX, originY, originZ, dirX, dirY, dirZ, maxDistance);
+            if (best == Float.POSITIVE_INFINITY) {
+                assertNull(hit, "Rayon " + query);
+                assertTrue(Float.isNaN(bvh.getRayDistance()));
+                continue;
+            }
+            assertNotNull(hit, "Rayon " + query);
+            assertEquals(best, bvh.getRayDistance(), "Rayon " + query);
+            assertEquals(best, slab(bounds.get(hit), originX, originY, originZ, dirX, dirY, dirZ, maxDistance));
+        }
+    }
+
+    // Aucune entité ajoutée deux fois
+    private static Set<Entity> distinct(List<Entity> entities) {
+        Set<Entity> result = new HashSet<>();
+        for (Entity entity : entities) {
+            assertTrue(result.add(entity), "Entité trouvée deux fois");
+        }
+        return result;
+    }
+
+    // Même calcul que EntityBvh : distance d'entrée, +infini si manquée avant maxDistance
+    private static float slab(float[] box, float originX, float originY, float originZ, float dirX, float dirY,
+            float dirZ, float maxDistance) {
+        float invX = 1.0f / dirX;
+        float invY = 1.0f / dirY;
+        float invZ = 1.0f / dirZ;
+        float t1 = (box[0] - originX) * invX;
+        float t2 = (box[3] - originX) * invX;
+        float tMin = Math.min(t1, t2);
+        float tMax = Math.max(t1, t2);
+        t1 = (box[1] - originY) * invY;
+        t2 = (box[4] - originY) * invY;
+        tMin = Math.max(tMin, Math.min(t1, t2));
+        tMax = Math.min(tMax, Math.max(t1, t2));
+        t1 = (box[2] - originZ) * invZ;
+        t2 = (box[5] - originZ) * invZ;
+        tMin = Math.max(tMin, Math.min(t1, t2));
+        tMax = Math.min(tMax, Math.max(t1, t2));
+        tMin = Math.max(tMin, 0.0f);
+        return tMax >= tMin && tMin <= maxDistance ? tMin : Float.POSITIVE_INFINITY;
+    }
+
+    private static float coordinate(Random random) {
+        return (random.nextFloat() * 2.0f - 1.0f) * EXTENT;
+    }
+}
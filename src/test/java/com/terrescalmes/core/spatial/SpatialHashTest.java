@@ -0,0 +1,188 @@
+package com.terrescalmes.core.spatial;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import com.terrescalmes.core.AllocationMonitor;
+import com.terrescalmes.entities.Entity;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialHashTest {
+
+    private static final float CELL_SIZE = 8.0f;
+    private static final float EXTENT = 200.0f; // Positions dans [-EXTENT, EXTENT] : coordonnées négatives comprises
+    // Marge pour les rares allocations internes de la JVM, comme FrameAllocationTest
+    private static final long MAX_AVERAGE_BYTES = 64;
+
+    @Test
+    void insertMoveAndRemoveKeepHandles() {
+        SpatialHash hash = new SpatialHash(CELL_SIZE, 16);
+        Entity a = entity("a", 3.0f, 0.0f, 3.0f);
+        Entity b = entity("b", -0.5f, 0.0f, -0.5f);
+
+        int handleA = hash.insert(a);
+        int handleB = hash.insert(b);
+        assertNotEquals(handleA, handleB);
+        assertEquals(handleA, hash.getHandle(a));
+        assertEquals(handleB, hash.getHandle(b));
+        assertSame(b, hash.getEntity(handleB));
+        assertEquals(2, hash.size());
+        assertThrows(IllegalArgumentException.class, () -> hash.insert(a));
+
+        // b passe de la cellule (-1, -1) à la cellule (0, 0) : il n'est plus trouvé à son ancienne place
+        b.setPosition(0.5f, 0.0f, 0.5f);
+        assertTrue(hash.update(b));
+        assertEquals(0.5f, hash.getX(handleB));
+        int[] out = new int[8];
+        assertEquals(0, hash.queryBox(-8.0f, -1.0f, -8.0f, -0.1f, 1.0f, -0.1f, out));
+        assertEquals(2, hash.queryBox(0.0f, -1.0f, 0.0f, 7.9f, 1.0f, 7.9f, out));
+
+        assertTrue(hash.remove(a));
+        assertFalse(hash.remove(a));
+        assertFalse(hash.update(a));
+        assertEquals(-1, hash.getHandle(a));
+        assertEquals(1, hash.size());
+        assertEquals(1, hash.queryRadius(0.0f, 0.0f, 0.0f, 10.0f, out));
+        assertEquals(handleB, out[0]);
+
+        // Le handle libéré est réutilisé
+        assertEquals(handleA, hash.insert(a));
+    }
+
+    // Beaucoup plus d'entités que la capacité initiale, retraits et réinsertions : les tables grandissent et
+    // chaque entité garde son handle
+    @Test
+    void handlesSurviveGrowthAndRemovals() {
+        SpatialHash hash = new SpatialHash(CELL_SIZE, 16);
+        Random random = new Random(14);
+        Entity[] entities = new Entity[5000];
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = randomEntity("e" + i, random);
+            hash.insert(entities[i]);
+        }
+        for (int i = 0; i < entities.length; i += 3) {
+            assertTrue(hash.remove(entities[i]));
+        }
+        for (int i = 0; i < entities.length; i++) {
+            if (i % 3 == 0) {
+                assertEquals(-1, hash.getHandle(entities[i]));
+            } else {
+                assertSame(entities[i], hash.getEntity(hash.getHandle(entities[i])));
+            }
+        }
+        for (int i = 0; i < entities.length; i += 3) {
+            hash.insert(entities[i]);
+        }
+        assertEquals(entities.length, hash.size());
+        for (Entity entity : entities) {
+            assertSame(entity, hash.getEntity(hash.getHandle(entity)));
+        }
+    }
+
+    // Requêtes comparées à un parcours exhaustif, autour de l'origine où les cellules changent de signe
+    @Test
+    void queriesMatchBruteForce() {
+        SpatialHash hash = new SpatialHash(CELL_SIZE);
+        Random random = new Random(21);
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Entity entity = randomEntity("e" + i, random);
+            entities.add(entity);
+            hash.insert(entity);
+        }
+        // Une partie des entités change de cellule
+        for (int i = 0; i < entities.size(); i += 2) {
+            Entity entity = entities.get(i);
+            entity.setPosition(entity.getPosition().x + CELL_SIZE * 1.5f, entity.getPosition().y,
+                    entity.getPosition().z - CELL_SIZE * 2.5f);
+            hash.update(entity);
+        }
+
+        int[] out = new int[entities.size()];
+        for (int query = 0; query < 200; query++) {
+            float x = coordinate(random);
+            float y = random.nextFloat() * 20.0f;
+            float z = coordinate(random);
+            float radius = 1.0f + random.nextFloat() * 3.0f * CELL_SIZE;
+            int found = hash.queryRadius(x, y, z, radius, out);
+            Set<Entity> expected = new HashSet<>();
+            for (Entity entity : entities) {
+                float dx = entity.getPosition().x - x;
+                float dy = entity.getPosition().y - y;
+                float dz = entity.getPosition().z - z;
+                if (dx * dx + dy * dy + dz * dz <= radius * radius) {
+                    expected.add(entity);
+                }
+            }
+            assertEquals(expected, entitiesOf(hash, out, found), "Sphère " + query);
+
+            float maxX = x + random.nextFloat() * 3.0f * CELL_SIZE;
+            float maxZ = z + random.nextFloat() * 3.0f * CELL_SIZE;
+            found = hash.queryBox(x, 0.0f, z, maxX, 10.0f, maxZ, out);
+            expected.clear();
+            for (Entity entity : entities) {
+                float px = entity.getPosition().x;
+                float py = entity.getPosition().y;
+                float pz = entity.getPosition().z;
+                if (px >= x && px <= maxX && py >= 0.0f && py <= 10.0f && pz >= z && pz <= maxZ) {
+                    expected.add(entity);
+                }
+            }
+            assertEquals(expected, entitiesOf(hash, out, found), "Boîte " + query);
+        }
+    }
+
+    // Retraits, réinsertions et déplacements en régime établi : les handles au-delà du cache d'Integer (> 127)
+    // ne doivent pas être mis en boîte
+    @Test
+    void steadyStateUpdatesDoNotAllocate() {
+        SpatialHash hash = new SpatialHash(CELL_SIZE);
+        Random random = new Random(7);
+        Entity[] entities = new Entity[2000];
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = randomEntity("e" + i, random);
+            hash.insert(entities[i]);
+        }
+        AllocationMonitor monitor = new AllocationMonitor(200);
+        assertTrue(monitor.isSupported(), "ThreadMXBean sans mesure des allocations par thread");
+        for (int frame = 0; frame < 400; frame++) {
+            monitor.beginFrame();
+            for (Entity entity : entities) {
+                entity.getPosition().x += 0.25f;
+                hash.update(entity);
+            }
+            for (int i = frame % 4; i < entities.length; i += 4) {
+                hash.remove(entities[i]);
+                hash.insert(entities[i]);
+            }
+            monitor.endFrame();
+        }
+        // Avec un Integer par insertion ce serait 16 o par entité réinsérée, 8 Ko par frame
+        long average = monitor.getWindowAverageBytes();
+        assertTrue(average <= MAX_AVERAGE_BYTES, "Allocations par frame: " + average + " o en moyenne");
+    }
+
+    private static Set<Entity> entitiesOf(SpatialHash hash, int[] handles, int count) {
+        Set<Entity> result = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            assertTrue(result.add(hash.getEntity(handles[i])), "Entité trouvée deux fois");
+        }
+        return result;
+    }
+
+    private static Entity randomEntity(String id, Random random) {
+        return entity(id, coordinate(random), random.nextFloat() * 20.0f, coordinate(random));
+    }
+
+    private static Entity entity(String id, float x, float y, float z) {
+        Entity entity = new Entity(id, "model");
+        entity.setPosition(x, y, z);
+        return entity;
+    }
+
+    private static float coordinate(Random random) {
+        return (random.nextFloat() * 2.0f - 1.0f) * EXTENT;
+    }
+}
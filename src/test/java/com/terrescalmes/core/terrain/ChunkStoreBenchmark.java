@@ -0,0 +1,98 @@
+package com.terrescalmes.core.terrain;
+
+import com.terrescalmes.core.TerrainGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// Génération d'un carré de N x N chunks (hauteurs puis quantification, comme un thread de travail du
+// ChunkManager) contre leur relecture depuis le ChunkStore, avec et sans compression. Le store est rouvert avant
+// chaque relecture : seul le cache disque du système reste chaud. Lancer avec
+// ./gradlew chunkStoreBenchmark [--args="N"], N vaut 16 par défaut
+public class ChunkStoreBenchmark {
+
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int chunkCount = side * side;
+        Path directory = Files.createTempDirectory("chunk-store-benchmark");
+        try {
+            Heightfield[] heightfields = new Heightfield[chunkCount];
+            for (int run = 0; run < WARMUP_RUNS; run++) {
+                generate(side, heightfields);
+            }
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < MEASURED_RUNS; run++) {
+                long start = System.nanoTime();
+                generate(side, heightfields);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+
+            System.out.println(chunkCount + " chunks (meilleure de " + MEASURED_RUNS + " mesures)");
+            System.out.println(String.format("%-22s%14s%14s%14s", "", "ms/chunk", "chunks/s", "Ko/chunk"));
+            print("génération", best, chunkCount, 0.0);
+            for (boolean compress : new boolean[] { false, true }) {
+                Path storeDirectory = directory.resolve(compress ? "deflate" : "raw");
+                try (ChunkStore store = new ChunkStore(storeDirectory, compress)) {
+                    for (int i = 0; i < chunkCount; i++) {
+                        store.save(i % side, i / side, heightfields[i]);
+                    }
+                }
+                double kilobytes = directorySize(storeDirectory) / 1024.0 / chunkCount;
+                for (int run = 0; run < WARMUP_RUNS; run++) {
+                    reload(storeDirectory, side);
+                }
+                best = Long.MAX_VALUE;
+                for (int run = 0; run < MEASURED_RUNS; run++) {
+                    best = Math.min(best, reload(storeDirectory, side));
+                }
+                print(compress ? "relecture (deflate)" : "relecture (brute)", best, chunkCount, kilobytes);
+            }
+        } finally {
+            try (var paths = Files.walk(directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private static void generate(int side, Heightfield[] heightfields) {
+        for (int i = 0; i < heightfields.length; i++) {
+            heightfields[i] = Heightfield.quantize(TerrainGenerator.generateChunkHeights(i % side, i / side),
+                    TerrainGenerator.CHUNK_HEIGHTS_SIZE);
+        }
+    }
+
+    // Durée de la relecture de tous les chunks, ouverture des régions comprise
+    private static long reload(Path storeDirectory, int side) throws IOException {
+        long start = System.nanoTime();
+        try (ChunkStore store = new ChunkStore(storeDirectory, false)) {
+            for (int i = 0; i < side * side; i++) {
+                if (store.load(i % side, i / side) == null) {
+                    throw new IllegalStateException("Chunk manquant [" + i % side + ", " + i / side + "]");
+                }
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long directorySize(Path directory) throws IOException {
+        long size = 0;
+        try (var paths = Files.list(directory)) {
+            for (Path path : paths.toList()) {
+                size += Files.size(path);
+            }
+        }
+        return size;
+    }
+
+    private static void print(String label, long nanos, int chunkCount, double kilobytes) {
+        System.out.println(String.format("%-22s%14.3f%14.0f%14s", label, nanos / 1e6 / chunkCount,
+                chunkCount / (nanos / 1e9), kilobytes > 0.0 ? String.format("%.1f", kilobytes) : "-"));
+    }
+}
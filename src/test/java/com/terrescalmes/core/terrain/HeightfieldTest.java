@@ -0,0 +1,119 @@
+package com.terrescalmes.core.terrain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import com.terrescalmes.core.TerrainGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeightfieldTest {
+
+    private static final int SIZE = TerrainGenerator.CHUNK_HEIGHTS_SIZE;
+
+    // Terrain réel, puis des plages assez grandes pour que step dépasse MIN_STEP
+    @Test
+    void quantizationErrorStaysWithinOneCode() {
+        checkQuantization(TerrainGenerator.generateChunkHeights(0, 0));
+        checkQuantization(TerrainGenerator.generateChunkHeights(-3, 7));
+        Random random = new Random(9);
+        for (float range : new float[] { 0.5f, 64.0f, 300.0f, 25000.0f }) {
+            float[] heights = new float[SIZE * SIZE];
+            float offset = random.nextFloat() * 2000.0f - 1000.0f;
+            for (int i = 0; i < heights.length; i++) {
+                heights[i] = offset + random.nextFloat() * range;
+            }
+            checkQuantization(heights);
+        }
+    }
+
+    // Les bornes sont celles des hauteurs décodées, pas une approximation
+    @Test
+    void minAndMaxAreExact() {
+        float[] heights = TerrainGenerator.generateChunkHeights(2, -5);
+        Heightfield heightfield = Heightfield.quantize(heights, SIZE);
+        float[] decoded = heightfield.decode(new float[SIZE * SIZE]);
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (float height : decoded) {
+            min = Math.min(min, height);
+            max = Math.max(max, height);
+        }
+        assertEquals(min, heightfield.getMinHeight());
+        assertEquals(max, heightfield.getMaxHeight());
+
+        // Même résultat pour une grille construite directement à partir de ses codes
+        Heightfield copy = new Heightfield(SIZE, heightfield.getSamples().clone(), heightfield.getBaseCode(),
+                heightfield.getStep());
+        assertEquals(min, copy.getMinHeight());
+        assertEquals(max, copy.getMaxHeight());
+        assertThrows(IllegalArgumentException.class, () -> new Heightfield(SIZE, new short[4], 0, 1.0f));
+    }
+
+    @Test
+    void sampleMatchesGridNodes() {
+        Heightfield heightfield = Heightfield.quantize(TerrainGenerator.generateChunkHeights(1, 1), SIZE);
+        for (int z = 0; z < SIZE; z++) {
+            for (int x = 0; x < SIZE; x++) {
+                assertEquals(heightfield.getHeight(x, z), heightfield.sample(x, z), Math.ulp(1000.0f),
+                        "Nœud " + x + ", " + z);
+            }
+        }
+        // Centre d'une cellule : moyenne de ses quatre coins
+        float average = (heightfield.getHeight(4, 6) + heightfield.getHeight(5, 6) + heightfield.getHeight(4, 7)
+                + heightfield.getHeight(5, 7)) * 0.25f;
+        assertEquals(average, heightfield.sample(4.5f, 6.5f), 1e-3f);
+    }
+
+    @Test
+    void constantAndPlanarFieldsAreReproduced() {
+        float[] heights = new float[SIZE * SIZE];
+        Arrays.fill(heights, 12.5f);
+        Heightfield flat = Heightfield.quantize(heights, SIZE);
+        assertEquals(12.5f, flat.getMinHeight());
+        assertEquals(12.5f, flat.getMaxHeight());
+        Random random = new Random(3);
+        for (int i = 0; i < 100; i++) {
+            // Hors de la grille compris : les coordonnées sont bornées
+            float x = random.nextFloat() * (SIZE + 10) - 5.0f;
+            float z = random.nextFloat() * (SIZE + 10) - 5.0f;
+            assertEquals(12.5f, flat.sample(x, z));
+        }
+
+        // Plan incliné : l'interpolation bilinéaire est exacte, à l'erreur de quantification près
+        for (int z = 0; z < SIZE; z++) {
+            for (int x = 0; x < SIZE; x++) {
+                heights[z * SIZE + x] = 3.0f + 0.75f * x - 0.5f * z;
+            }
+        }
+        Heightfield plane = Heightfield.quantize(heights, SIZE);
+        float tolerance = plane.getStep();
+        for (int i = 0; i < 200; i++) {
+            float x = random.nextFloat() * (SIZE - 1);
+            float z = random.nextFloat() * (SIZE - 1);
+            assertEquals(3.0f + 0.75f * x - 0.5f * z, plane.sample(x, z), tolerance, "Point " + x + ", " + z);
+        }
+        // Dernière rangée et dernière colonne : bornées à la cellule précédente
+        assertEquals(plane.getHeight(SIZE - 1, SIZE - 1), plane.sample(SIZE - 1, SIZE - 1), tolerance);
+    }
+
+    private static void checkQuantization(float[] heights) {
+        Heightfield heightfield = Heightfield.quantize(heights, SIZE);
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (float height : heights) {
+            min = Math.min(min, height);
+            max = Math.max(max, height);
+        }
+        // Demi-pas au plus ; le pas le plus fin fixe un plancher pour les plages minuscules
+        float bound = Math.max((max - min) / 65535.0f, Heightfield.MIN_STEP * 0.5f);
+        float[] decoded = heightfield.decode(new float[SIZE * SIZE]);
+        for (int i = 0; i < heights.length; i++) {
+            float error = Math.abs(decoded[i] - heights[i]);
+            assertTrue(error <= bound + Math.ulp(Math.abs(heights[i])) * 4,
+                    "Échantillon " + i + " : erreur " + error + " > " + bound);
+            assertEquals(decoded[i], heightfield.getHeight(i % SIZE, i / SIZE));
+        }
+    }
+}
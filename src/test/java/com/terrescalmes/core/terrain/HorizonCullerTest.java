@@ -0,0 +1,94 @@
+package com.terrescalmes.core.terrain;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Caméra à 10 m de haut, regard vers +X : la direction +X est aussi la couture 0 / 4 des pseudo-angles
+class HorizonCullerTest {
+
+    private final Vector3f camera = new Vector3f(0.0f, 10.0f, 0.0f);
+
+    @Test
+    void boxBehindTallerOccluderIsCulled() {
+        HorizonCuller culler = ridge(-20.0f, 20.0f);
+        // Le rectangle de l'occulteur et la boîte chevauchent tous deux la couture
+        assertFalse(culler.isAabbVisible(100.0f, 0.0f, -5.0f, 110.0f, 20.0f, 5.0f));
+        // Entièrement d'un côté de la couture
+        assertFalse(culler.isAabbVisible(100.0f, 0.0f, 10.0f, 110.0f, 20.0f, 15.0f));
+        assertFalse(culler.isAabbVisible(100.0f, 0.0f, -15.0f, 110.0f, 20.0f, -10.0f));
+        assertEquals(3, culler.getTestedCount());
+        assertEquals(3, culler.getOccludedCount());
+    }
+
+    @Test
+    void boxAboveHorizonOrCloserStaysVisible() {
+        HorizonCuller culler = ridge(-20.0f, 20.0f);
+        // Pente du sommet de la boîte au-dessus de celle du haut de la crête
+        assertTrue(culler.isAabbVisible(100.0f, 100.0f, -5.0f, 110.0f, 120.0f, 5.0f));
+        // Entre la caméra et la crête
+        assertTrue(culler.isAabbVisible(20.0f, 0.0f, -2.0f, 25.0f, 5.0f, 2.0f));
+        // Derrière la crête mais en partie hors de ses azimuts
+        assertTrue(culler.isAabbVisible(100.0f, 0.0f, 30.0f, 110.0f, 20.0f, 60.0f));
+        // Sur l'autre bord de la couture, derrière la caméra
+        assertTrue(culler.isAabbVisible(-110.0f, 0.0f, -5.0f, -100.0f, 20.0f, 5.0f));
+        assertEquals(0, culler.getOccludedCount());
+    }
+
+    // Crête seulement du côté z > 0 de la couture : une boîte à cheval sur la couture reste visible par son
+    // côté z < 0, mais une boîte du côté couvert est cachée. Crête entière à moins de 2 * RING_WIDTH, boîtes
+    // au-delà : seuls les anneaux qui la contiennent entièrement comptent
+    @Test
+    void boxStraddlingSeamStaysVisible() {
+        HorizonCuller culler = ridge(1.0f, 40.0f);
+        assertTrue(culler.isAabbVisible(140.0f, 0.0f, -5.0f, 150.0f, 20.0f, 5.0f));
+        assertFalse(culler.isAabbVisible(140.0f, 0.0f, 15.0f, 150.0f, 20.0f, 25.0f));
+
+        // Même chose du côté z < 0, dont les pseudo-angles sont juste sous 4
+        culler = ridge(-40.0f, -1.0f);
+        assertTrue(culler.isAabbVisible(140.0f, 0.0f, -5.0f, 150.0f, 20.0f, 5.0f));
+        assertFalse(culler.isAabbVisible(140.0f, 0.0f, -25.0f, 150.0f, 20.0f, -15.0f));
+    }
+
+    // Caméra sur le bord de l'occulteur (ou au-dessus) : il couvre tous les azimuts et n'est pas ajouté
+    @Test
+    void cameraOnOccluderEdgeIsHandled() {
+        HorizonCuller culler = new HorizonCuller();
+        culler.begin(camera.set(40.0f, 10.0f, 0.0f));
+        culler.addOccluder(40.0f, -20.0f, 60.0f, 20.0f, 50.0f);
+        // Coin exact
+        culler.addOccluder(40.0f, 0.0f, 80.0f, 30.0f, 50.0f);
+        culler.build();
+        assertEquals(0, culler.getOccluderCount());
+        assertTrue(culler.isAabbVisible(100.0f, 0.0f, -5.0f, 110.0f, 20.0f, 5.0f));
+        // Boîte autour de la caméra : jamais cachée
+        assertTrue(culler.isAabbVisible(30.0f, 0.0f, -10.0f, 50.0f, 20.0f, 10.0f));
+    }
+
+    // Un nouveau begin() efface l'horizon et les statistiques ; sans addTestNanos, aucun temps de test
+    @Test
+    void beginResetsHorizon() {
+        HorizonCuller culler = ridge(-20.0f, 20.0f);
+        assertFalse(culler.isAabbVisible(100.0f, 0.0f, -5.0f, 110.0f, 20.0f, 5.0f));
+        culler.begin(camera);
+        culler.build();
+        assertEquals(0, culler.getOccluderCount());
+        assertEquals(0, culler.getOccludedCount());
+        assertTrue(culler.isAabbVisible(100.0f, 0.0f, -5.0f, 110.0f, 20.0f, 5.0f));
+        assertEquals(0.0f, culler.getTestMillis());
+        culler.addTestNanos(2_000_000);
+        assertEquals(2.0f, culler.getTestMillis());
+    }
+
+    // Crête de 50 m de x = 40 à x = 60, de minZ à maxZ, bien plus haute que la caméra. Entre z = -20 et
+    // z = 20 elle tient dans le premier anneau (RING_WIDTH = 64) : elle cache déjà les boîtes à x = 100
+    private HorizonCuller ridge(float minZ, float maxZ) {
+        HorizonCuller culler = new HorizonCuller();
+        culler.begin(camera);
+        culler.addOccluder(40.0f, minZ, 60.0f, maxZ, 50.0f);
+        culler.build();
+        assertEquals(1, culler.getOccluderCount());
+        return culler;
+    }
+}
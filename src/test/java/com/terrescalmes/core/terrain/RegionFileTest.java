@@ -0,0 +1,184 @@
+package com.terrescalmes.core.terrain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import com.terrescalmes.core.TerrainGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegionFileTest {
+
+    // Taille d'un fichier vide : l'en-tête seul
+    private static final int HEADER_BYTES = 16 + RegionFile.REGION_SIZE * RegionFile.REGION_SIZE * 16;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void headerFindsEachChunk() throws IOException {
+        Path path = directory.resolve("r.0.0.tcr");
+        try (RegionFile region = new RegionFile(path)) {
+            assertEquals(HEADER_BYTES, Files.size(path));
+            int[][] chunks = { { 0, 0 }, { 31, 0 }, { 0, 31 }, { 31, 31 }, { 7, 12 } };
+            for (int[] chunk : chunks) {
+                region.write(chunk[0], chunk[1], ByteBuffer.wrap(payload(chunk[0] * 100 + chunk[1], 300)), false);
+            }
+            for (int[] chunk : chunks) {
+                assertTrue(region.contains(chunk[0], chunk[1]));
+                assertArrayEquals(payload(chunk[0] * 100 + chunk[1], 300), read(region, chunk[0], chunk[1]));
+            }
+            // Absent : le reader n'est pas appelé
+            assertFalse(region.contains(12, 7));
+            assertFalse(region.read(12, 7, buffer -> fail("Chunk absent lu")));
+            assertThrows(IllegalArgumentException.class, () -> region.contains(RegionFile.REGION_SIZE, 0));
+            assertThrows(IllegalArgumentException.class, () -> region.contains(0, -1));
+        }
+    }
+
+    // Une version qui tient dans l'ancienne place y est réécrite : le fichier ne grandit pas
+    @Test
+    void smallerOrEqualPayloadIsRewrittenInPlace() throws IOException {
+        Path path = directory.resolve("r.0.0.tcr");
+        try (RegionFile region = new RegionFile(path)) {
+            region.write(3, 4, ByteBuffer.wrap(payload(1, 500)), false);
+            region.write(5, 4, ByteBuffer.wrap(payload(2, 500)), false);
+            long size = Files.size(path);
+            assertEquals(HEADER_BYTES + 1000, size);
+
+            region.write(3, 4, ByteBuffer.wrap(payload(3, 500)), false);
+            assertEquals(size, Files.size(path));
+            assertArrayEquals(payload(3, 500), read(region, 3, 4));
+            region.write(3, 4, ByteBuffer.wrap(payload(4, 200)), false);
+            assertEquals(size, Files.size(path));
+            assertArrayEquals(payload(4, 200), read(region, 3, 4));
+            // Le voisin n'est pas touché
+            assertArrayEquals(payload(2, 500), read(region, 5, 4));
+        }
+    }
+
+    // Une version plus grande part en fin de fichier, au-delà du mapping courant, qui est refait à la lecture
+    @Test
+    void growingPayloadIsMovedAndRemapped() throws IOException {
+        Path path = directory.resolve("r.0.0.tcr");
+        try (RegionFile region = new RegionFile(path)) {
+            region.write(1, 1, ByteBuffer.wrap(payload(1, 100)), false);
+            region.write(2, 1, ByteBuffer.wrap(payload(2, 100)), false);
+            assertArrayEquals(payload(1, 100), read(region, 1, 1));
+
+            region.write(1, 1, ByteBuffer.wrap(payload(3, 5000)), false);
+            assertEquals(HEADER_BYTES + 5200, Files.size(path));
+            assertArrayEquals(payload(3, 5000), read(region, 1, 1));
+            assertArrayEquals(payload(2, 100), read(region, 2, 1));
+            // Plus petit que la nouvelle place : réécrit à son nouvel emplacement
+            region.write(1, 1, ByteBuffer.wrap(payload(4, 4000)), false);
+            assertEquals(HEADER_BYTES + 5200, Files.size(path));
+            assertArrayEquals(payload(4, 4000), read(region, 1, 1));
+        }
+    }
+
+    // Le drapeau suit chaque écriture : un chunk compressé puis réécrit brut (et l'inverse) se relit à l'identique
+    @Test
+    void deflateFlagFollowsEachWrite() throws IOException {
+        Path path = directory.resolve("r.0.0.tcr");
+        byte[] repetitive = new byte[8192];
+        for (int i = 0; i < repetitive.length; i++) {
+            repetitive[i] = (byte) (i % 7);
+        }
+        try (RegionFile region = new RegionFile(path)) {
+            region.write(0, 0, ByteBuffer.wrap(repetitive), true);
+            assertTrue(Files.size(path) - HEADER_BYTES < repetitive.length / 4,
+                    "Taille compressée: " + (Files.size(path) - HEADER_BYTES));
+            assertArrayEquals(repetitive, read(region, 0, 0));
+
+            region.write(0, 0, ByteBuffer.wrap(payload(5, 64)), false);
+            assertArrayEquals(payload(5, 64), read(region, 0, 0));
+            // Aléatoire : la version compressée dépasse la place et part en fin de fichier
+            byte[] noise = payload(6, 4096);
+            region.write(0, 0, ByteBuffer.wrap(noise), true);
+            assertArrayEquals(noise, read(region, 0, 0));
+
+            // Seul le contenu entre position et limite est écrit
+            ByteBuffer window = ByteBuffer.wrap(repetitive, 100, 1000);
+            region.write(9, 9, window, true);
+            assertArrayEquals(Arrays.copyOfRange(repetitive, 100, 1100), read(region, 9, 9));
+        }
+    }
+
+    @Test
+    void reopenedFileKeepsItsChunks() throws IOException {
+        Path path = directory.resolve("r.0.0.tcr");
+        try (RegionFile region = new RegionFile(path)) {
+            region.write(2, 3, ByteBuffer.wrap(payload(1, 700)), false);
+            region.write(30, 29, ByteBuffer.wrap(payload(2, 700)), true);
+        }
+        long size = Files.size(path);
+        try (RegionFile region = new RegionFile(path)) {
+            assertEquals(size, Files.size(path));
+            assertTrue(region.contains(2, 3));
+            assertFalse(region.contains(3, 2));
+            assertArrayEquals(payload(1, 700), read(region, 2, 3));
+            assertArrayEquals(payload(2, 700), read(region, 30, 29));
+            // Les ajouts repartent de la fin du fichier existant
+            region.write(4, 4, ByteBuffer.wrap(payload(3, 50)), false);
+            assertEquals(size + 50, Files.size(path));
+            assertArrayEquals(payload(1, 700), read(region, 2, 3));
+        }
+
+        Path invalid = directory.resolve("invalid.tcr");
+        Files.write(invalid, payload(7, 32));
+        assertThrows(IOException.class, () -> new RegionFile(invalid));
+    }
+
+    // Coordonnées négatives et plusieurs régions, avec et sans compression, puis relues par un nouveau store
+    @Test
+    void chunkStoreRoundTripsHeightfields() throws IOException {
+        int[][] chunks = { { 0, 0 }, { -1, -1 }, { 31, -32 }, { 32, 5 }, { -33, 64 } };
+        for (boolean compress : new boolean[] { false, true }) {
+            Path storeDirectory = directory.resolve(compress ? "deflate" : "raw");
+            Map<Long, Heightfield> saved = new HashMap<>();
+            try (ChunkStore store = new ChunkStore(storeDirectory, compress)) {
+                for (int[] chunk : chunks) {
+                    Heightfield heightfield = Heightfield.quantize(
+                            TerrainGenerator.generateChunkHeights(chunk[0], chunk[1]),
+                            TerrainGenerator.CHUNK_HEIGHTS_SIZE);
+                    store.save(chunk[0], chunk[1], heightfield);
+                    saved.put(TerrainChunk.key(chunk[0], chunk[1]), heightfield);
+                }
+                assertNull(store.load(1, 0));
+                assertNull(store.load(-100, 0));
+            }
+            try (ChunkStore store = new ChunkStore(storeDirectory, compress)) {
+                for (int[] chunk : chunks) {
+                    Heightfield expected = saved.get(TerrainChunk.key(chunk[0], chunk[1]));
+                    Heightfield loaded = store.load(chunk[0], chunk[1]);
+                    assertNotNull(loaded, "Chunk " + chunk[0] + ", " + chunk[1]);
+                    assertEquals(expected.getBaseCode(), loaded.getBaseCode());
+                    assertEquals(expected.getStep(), loaded.getStep());
+                    assertArrayEquals(expected.getSamples(), loaded.getSamples());
+                }
+            }
+        }
+    }
+
+    private static byte[] payload(long seed, int length) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] read(RegionFile region, int localX, int localZ) throws IOException {
+        byte[][] result = new byte[1][];
+        assertTrue(region.read(localX, localZ, buffer -> {
+            result[0] = new byte[buffer.remaining()];
+            buffer.get(result[0]);
+        }));
+        return result[0];
+    }
+}
@@ -0,0 +1,112 @@
+package com.terrescalmes.core.terrain;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import com.terrescalmes.core.TerrainGenerator;
+import com.terrescalmes.core.graphics.FrustumCuller;
+import com.terrescalmes.core.graphics.OcclusionCuller;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TerrainHullsTest {
+
+    private static final float PLATEAU_HEIGHT = 40.0f;
+
+    private final Matrix4f projMatrix = new Matrix4f().setPerspective((float) Math.toRadians(60.0f), 16.0f / 9.0f,
+            0.1f, 1000.0f);
+    private final FrustumCuller frustumCuller = new FrustumCuller();
+    private final OcclusionCuller occlusionCuller = new OcclusionCuller();
+    // Devant le chunk (0, 0) à mi-hauteur du plateau, regard vers +X
+    private final Vector3f camera = new Vector3f(-60.0f, 20.0f, 64.0f);
+
+    @Test
+    void plateauHidesBoxBehindIt() {
+        TerrainHulls hulls = new TerrainHulls();
+        hulls.register(0, 0, plateau());
+        int added = begin(hulls);
+
+        assertEquals(added, occlusionCuller.getOccluderCount());
+        assertTrue(added > 0);
+        // Derrière le plateau, plus bas que son sommet
+        assertFalse(occlusionCuller.isAabbVisible(150.0f, 5.0f, 60.0f, 155.0f, 15.0f, 68.0f));
+        // Derrière le plateau mais assez haute pour être vue par-dessus son bord avant
+        assertTrue(occlusionCuller.isAabbVisible(150.0f, 100.0f, 60.0f, 155.0f, 110.0f, 68.0f));
+        // Entre la caméra et le plateau
+        assertTrue(occlusionCuller.isAabbVisible(-30.0f, 5.0f, 60.0f, -25.0f, 15.0f, 68.0f));
+    }
+
+    @Test
+    void unregisteredChunkAddsNoOccluder() {
+        TerrainHulls hulls = new TerrainHulls();
+        hulls.register(0, 0, plateau());
+        hulls.register(5, 5, plateau());
+        hulls.unregister(0, 0);
+        assertEquals(1, hulls.getChunkCount());
+
+        // Le chunk (5, 5) est hors de portée, plus rien ne cache la boîte
+        assertEquals(0, begin(hulls));
+        assertTrue(occlusionCuller.isAabbVisible(150.0f, 5.0f, 60.0f, 155.0f, 15.0f, 68.0f));
+    }
+
+    // Les enveloppes restent sous la surface : aucun occulteur ne dépasse la hauteur minimale de sa cellule
+    @Test
+    void hullsStayBelowTerrainSurface() {
+        TerrainHulls hulls = new TerrainHulls();
+        float[] heights = TerrainGenerator.generateChunkHeights(0, 0);
+        Heightfield heightfield = Heightfield.quantize(heights, TerrainGenerator.CHUNK_HEIGHTS_SIZE);
+        hulls.register(0, 0, heightfield);
+        camera.set(64.0f, 200.0f, 64.0f);
+        frustumCuller.update(projMatrix, new Matrix4f().lookAt(camera.x, camera.y, camera.z, 64.0f, 0.0f, 63.0f,
+                0.0f, 1.0f, 0.0f));
+        RecordingCuller recorder = new RecordingCuller();
+        hulls.addOccluders(camera, 4 * TerrainGenerator.CHUNK_WORLD_SIZE, frustumCuller, recorder);
+
+        assertEquals(16, recorder.boxes.size());
+        float scale = TerrainGenerator.TERRAIN_SCALE;
+        for (float[] box : recorder.boxes) {
+            int firstX = Math.round(box[0] / scale) + 1;
+            int firstZ = Math.round(box[2] / scale) + 1;
+            for (int z = firstZ; z <= firstZ + TerrainHulls.CELL_SIZE; z++) {
+                for (int x = firstX; x <= firstX + TerrainHulls.CELL_SIZE; x++) {
+                    assertTrue(box[4] <= heightfield.getHeight(x, z), "Cellule " + box[0] + ", " + box[2]);
+                }
+            }
+            assertTrue(box[1] <= box[4]);
+        }
+    }
+
+    private int begin(TerrainHulls hulls) {
+        Matrix4f viewMatrix = new Matrix4f().lookAt(camera.x, camera.y, camera.z, camera.x + 1.0f, camera.y,
+                camera.z, 0.0f, 1.0f, 0.0f);
+        frustumCuller.update(projMatrix, viewMatrix);
+        occlusionCuller.begin(projMatrix, viewMatrix);
+        int added = hulls.addOccluders(camera, 4 * TerrainGenerator.CHUNK_WORLD_SIZE, frustumCuller,
+                occlusionCuller);
+        occlusionCuller.rasterize();
+        return added;
+    }
+
+    // Plateau plein à PLATEAU_HEIGHT ; un échantillon de bordure à 0 donne au chunk un fond à 0
+    private static Heightfield plateau() {
+        int size = TerrainGenerator.CHUNK_HEIGHTS_SIZE;
+        float[] heights = new float[size * size];
+        Arrays.fill(heights, PLATEAU_HEIGHT);
+        heights[0] = 0.0f;
+        return Heightfield.quantize(heights, size);
+    }
+
+    // Garde les boîtes reçues au lieu de les rastériser
+    private static final class RecordingCuller extends OcclusionCuller {
+
+        private final List<float[]> boxes = new ArrayList<>();
+
+        @Override
+        public void addOccluder(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+            boxes.add(new float[] { minX, minY, minZ, maxX, maxY, maxZ });
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.terrescalmes.core.terrain;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import com.terrescalmes.core.AllocationMonitor;
+import com.terrescalmes.core.TerrainGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TerrainQueryTest {
+
+    private static final float CHUNK_WORLD_SIZE = TerrainGenerator.CHUNK_WORLD_SIZE;
+    private static final float SCALE = TerrainGenerator.TERRAIN_SCALE;
+    private static final int POINTS = 4096;
+    // Chunks chargés : une croix autour de l'origine, coordonnées négatives comprises
+    private static final int[][] LOADED = { { 0, 0 }, { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+
+    @Test
+    void heightsMatchHeightfieldSampling() {
+        Map<Long, Heightfield> heightfields = new HashMap<>();
+        TerrainQuery query = loadedQuery(heightfields);
+        Random random = new Random(10);
+        for (int i = 0; i < 2000; i++) {
+            float x = random.nextFloat() * 5.0f * CHUNK_WORLD_SIZE - 2.5f * CHUNK_WORLD_SIZE;
+            float z = random.nextFloat() * 5.0f * CHUNK_WORLD_SIZE - 2.5f * CHUNK_WORLD_SIZE;
+            int chunkX = (int) Math.floor(x / CHUNK_WORLD_SIZE);
+            int chunkZ = (int) Math.floor(z / CHUNK_WORLD_SIZE);
+            Heightfield heightfield = heightfields.get(TerrainChunk.key(chunkX, chunkZ));
+            float height = query.getHeightAt(x, z);
+            if (heightfield == null) {
+                assertTrue(Float.isNaN(height), "Point " + x + ", " + z);
+                assertFalse(query.isLoaded(x, z));
+                continue;
+            }
+            // Premier échantillon du chunk : une bordure avant son coin
+            float localX = x / SCALE - (chunkX * TerrainGenerator.CHUNK_SIZE - 1);
+            float localZ = z / SCALE - (chunkZ * TerrainGenerator.CHUNK_SIZE - 1);
+            assertEquals(heightfield.sample(localX, localZ), height, "Point " + x + ", " + z);
+        }
+
+        // Même case de la grille torique que (0, 0), mais pas chargé
+        assertTrue(Float.isNaN(query.getHeightAt(64 * CHUNK_WORLD_SIZE + 10.0f, 10.0f)));
+        query.unregister(0, 0);
+        assertTrue(Float.isNaN(query.getHeightAt(10.0f, 10.0f)));
+        assertFalse(Float.isNaN(query.getHeightAt(CHUNK_WORLD_SIZE + 10.0f, 10.0f)));
+    }
+
+    @Test
+    void batchQueriesMatchSingleQueries() {
+        TerrainQuery query = loadedQuery(new HashMap<>());
+        float[] xs = new float[POINTS];
+        float[] zs = new float[POINTS];
+        fillPoints(xs, zs, new Random(4));
+        float[] heights = new float[POINTS];
+        float[] normals = new float[POINTS * 3];
+        int resolved = query.getHeightsAt(xs, zs, heights, POINTS);
+        assertEquals(resolved, query.getNormalsAt(xs, zs, normals, POINTS));
+
+        int expected = 0;
+        Vector3f normal = new Vector3f();
+        for (int i = 0; i < POINTS; i++) {
+            float height = query.getHeightAt(xs[i], zs[i]);
+            if (Float.isNaN(height)) {
+                assertTrue(Float.isNaN(heights[i]));
+                assertFalse(query.getNormalAt(xs[i], zs[i], normal));
+                assertEquals(0.0f, normals[i * 3]);
+                assertEquals(1.0f, normals[i * 3 + 1]);
+                assertEquals(0.0f, normals[i * 3 + 2]);
+                continue;
+            }
+            expected++;
+            assertEquals(height, heights[i]);
+            assertTrue(query.getNormalAt(xs[i], zs[i], normal));
+            assertEquals(normal.x, normals[i * 3], 1e-5f);
+            assertEquals(normal.y, normals[i * 3 + 1], 1e-5f);
+            assertEquals(normal.z, normals[i * 3 + 2], 1e-5f);
+        }
+        assertEquals(expected, resolved);
+        assertTrue(resolved > 0 && resolved < POINTS, "Points résolus: " + resolved);
+    }
+
+    // Requêtes par lots en régime établi : aucun octet alloué
+    @Test
+    void batchQueriesDoNotAllocate() {
+        TerrainQuery query = loadedQuery(new HashMap<>());
+        float[] xs = new float[POINTS];
+        float[] zs = new float[POINTS];
+        fillPoints(xs, zs, new Random(8));
+        float[] heights = new float[POINTS];
+        float[] normals = new float[POINTS * 3];
+
+        AllocationMonitor monitor = new AllocationMonitor(200);
+        assertTrue(monitor.isSupported(), "ThreadMXBean sans mesure des allocations par thread");
+        for (int frame = 0; frame < 400; frame++) {
+            monitor.beginFrame();
+            query.getHeightsAt(xs, zs, heights, POINTS);
+            query.getNormalsAt(xs, zs, normals, POINTS);
+            monitor.endFrame();
+        }
+        long average = monitor.getWindowAverageBytes();
+        assertEquals(0, average, "Allocations par appel: " + average + " o en moyenne");
+    }
+
+    private static TerrainQuery loadedQuery(Map<Long, Heightfield> heightfields) {
+        TerrainQuery query = new TerrainQuery();
+        for (int[] chunk : LOADED) {
+            Heightfield heightfield = Heightfield.quantize(TerrainGenerator.generateChunkHeights(chunk[0], chunk[1]),
+                    TerrainGenerator.CHUNK_HEIGHTS_SIZE);
+            query.register(chunk[0], chunk[1], heightfield);
+            heightfields.put(TerrainChunk.key(chunk[0], chunk[1]), heightfield);
+        }
+        return query;
+    }
+
+    // Marche aléatoire sur trois chunks de côté : des points chargés et d'autres hors de la croix
+    private static void fillPoints(float[] xs, float[] zs, Random random) {
+        float x = 0.0f;
+        float z = 0.0f;
+        float limit = 1.5f * CHUNK_WORLD_SIZE;
+        for (int i = 0; i < xs.length; i++) {
+            x = Math.max(-limit, Math.min(limit, x + random.nextFloat() * 16.0f - 8.0f));
+            z = Math.max(-limit, Math.min(limit, z + random.nextFloat() * 16.0f - 8.0f));
+            xs[i] = x;
+            zs[i] = z;
+        }
+    }
+}
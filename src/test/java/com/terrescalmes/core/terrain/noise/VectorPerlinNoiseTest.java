@@ -0,0 +1,54 @@
+package com.terrescalmes.core.terrain.noise;
+
+import org.junit.jupiter.api.Test;
+
+import com.terrescalmes.core.AllocationMonitor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+
+class VectorPerlinNoiseTest {
+
+    private static final long SEED = 1337L;
+    private static final int WIDTH = 131; // Pas un multiple du nombre de voies : le reste scalaire est couvert
+    private static final int HEIGHT = 67;
+    // Quelques vecteurs créés hors des boucles peuvent rester en boîte, jamais un par échantillon
+    private static final long MAX_BYTES_PER_CALL = 1024;
+
+    @Test
+    void matchesScalarNoiseBitForBit() {
+        assumeTrue(NoiseSources.isSimdAvailable(), "Module jdk.incubator.vector absent");
+        PerlinNoise scalar = new PerlinNoise(SEED);
+        NoiseSource vector = NoiseSources.perlin(SEED);
+        float[] expected = new float[WIDTH * HEIGHT];
+        float[] actual = new float[WIDTH * HEIGHT];
+        // Origines négatives : la partie entière arrondit vers -infini
+        for (int octave = 0; octave < 4; octave++) {
+            float frequency = 0.008f * (1 << octave);
+            scalar.accumulate(expected, 0, WIDTH, HEIGHT, -517, -300, frequency, 30.0f / (1 << octave));
+            vector.accumulate(actual, 0, WIDTH, HEIGHT, -517, -300, frequency, 30.0f / (1 << octave));
+        }
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(Float.floatToRawIntBits(expected[i]), Float.floatToRawIntBits(actual[i]),
+                    "Échantillon " + i);
+        }
+    }
+
+    // Ni tampon par appel ni vecteur alloué par échantillon une fois la boucle compilée
+    @Test
+    void accumulateDoesNotAllocatePerSample() {
+        assumeTrue(NoiseSources.isSimdAvailable(), "Module jdk.incubator.vector absent");
+        NoiseSource vector = NoiseSources.perlin(SEED);
+        float[] out = new float[WIDTH * HEIGHT];
+        AllocationMonitor monitor = new AllocationMonitor(2000);
+        assumeTrue(monitor.isSupported(), "ThreadMXBean sans mesure des allocations par thread");
+        for (int call = 0; call < 3000; call++) {
+            monitor.beginFrame();
+            vector.accumulate(out, 0, WIDTH, HEIGHT, call, -call, 0.008f, 1.0f);
+            monitor.endFrame();
+        }
+        long average = monitor.getWindowAverageBytes();
+        assertTrue(average <= MAX_BYTES_PER_CALL, "Octets alloués par appel: " + average + " en moyenne, "
+                + monitor.getMaxFrameBytes() + " au pire");
+    }
+}